@@ -1,20 +1,40 @@
 package com.example.cache.api;
 
+import com.example.cache.api.advice.GlobalResponseAdvice;
 import com.example.cache.api.domain.GetResponse;
+import com.example.cache.api.domain.MultiDeleteRequest;
+import com.example.cache.api.domain.MultiGetRequest;
+import com.example.cache.api.domain.MultiGetResponse;
+import com.example.cache.api.domain.MultiPutRequest;
 import com.example.cache.api.domain.PutRequest;
 import com.example.cache.api.domain.PutResponse;
 import com.example.cache.api.domain.DeleteResponse;
+import com.example.cache.core.CacheDeadlineExceededException;
+import com.example.cache.core.CacheOverloadedException;
 import com.example.cache.core.IDistributedCache;
+import com.example.cache.core.domain.RequestOptions;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.async.DeferredResult;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import static com.example.cache.util.SystemUtil.DEFAULT_ERROR_CODE;
+import static com.example.cache.util.SystemUtil.OVERLOADED_ERROR_CODE;
+import static com.example.cache.util.SystemUtil.TIMEOUT_ERROR_CODE;
 
 /**
  * As first draft we are using JSON serialization as default, we can make it configurable in the future.
- * TODO: Implemented default methods, batch operations are still missing, maybe in v2
  * TODO: Fix the error code, right now only DEFAULT error code is getting mapped everywhere.
  * TODO: System internal exception handling is missing, no distinction between system exception and java exception.
  */
@@ -22,28 +42,49 @@ import static com.example.cache.util.SystemUtil.DEFAULT_ERROR_CODE;
 @RestController
 @RequestMapping("/cache")
 public class CacheController {
+    static final String ERROR_CODE_HEADER = "X-Cache-Error-Code";
+
+    // overrides the default timeout of a request, in milliseconds
+    static final String TIMEOUT_HEADER = "X-Cache-Timeout-Millis";
+    static final long DEFAULT_TIMEOUT_MILLIS = 500;
+    static final long DEFAULT_MAX_TIMEOUT_MILLIS = 10_000;
 
     private final IDistributedCache cacheCore;
-    private final long timeout;
+    private final long defaultTimeoutMillis;
+    private final long maxTimeoutMillis;
 
-    @Autowired
     public CacheController(IDistributedCache cacheCore) {
+        this(cacheCore, DEFAULT_TIMEOUT_MILLIS, DEFAULT_MAX_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * The timeout of a request is also its deadline in the core: once the caller got its TIMEOUT response, the core
+     * skips the request instead of executing it for nobody.
+     */
+    @Autowired
+    public CacheController(IDistributedCache cacheCore,
+                           @Value("${cache.rest.timeout-millis:500}") long defaultTimeoutMillis,
+                           @Value("${cache.rest.max-timeout-millis:10000}") long maxTimeoutMillis) {
         this.cacheCore = cacheCore;
-        this.timeout = 500; // TODO: make this configurable
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        this.maxTimeoutMillis = maxTimeoutMillis;
     }
 
     @RequestMapping(method = RequestMethod.PUT)
-    public DeferredResult<PutResponse> put(@RequestBody PutRequest request) {
+    public DeferredResult<PutResponse> put(@RequestBody PutRequest request,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        long timeout = timeoutFor(timeoutMillis);
+        RequestOptions options = RequestOptions.withTimeout(timeout, TimeUnit.MILLISECONDS);
         DeferredResult<PutResponse> response = new DeferredResult<>(timeout, new PutResponse() {{
-            setErrorCode("TIMEOUT");
+            setErrorCode(TIMEOUT_ERROR_CODE);
         }});
 
-        cacheCore.submitPut(request.getKey(), request.getValue(), request.getTtlInSec())
+        cacheCore.submitPut(request.getKey(), request.getValue(), request.getTtlInSec(), options)
                 .whenComplete((result, throwable) -> {
                     if (throwable != null) {
-                        log.error("Error putting key={}", request.getKey(), throwable);
+                        logError("Error putting key={}", request.getKey(), throwable);
                         response.setErrorResult(new PutResponse() {{
-                            setErrorCode(DEFAULT_ERROR_CODE);
+                            setErrorCode(errorCode(throwable));
                             setErrorMessage(throwable.getMessage());
                         }});
                     } else {
@@ -56,17 +97,28 @@ public class CacheController {
     }
 
     @RequestMapping(method = RequestMethod.GET)
-    public DeferredResult<GetResponse> get(@RequestParam String key) {
+    public DeferredResult<GetResponse> get(@RequestParam String key,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        long timeout = timeoutFor(timeoutMillis);
+        RequestOptions options = RequestOptions.withTimeout(timeout, TimeUnit.MILLISECONDS);
         DeferredResult<GetResponse> response = new DeferredResult<>(timeout, new GetResponse() {{
-            setErrorCode("TIMEOUT");
+            setErrorCode(TIMEOUT_ERROR_CODE);
         }});
 
-        cacheCore.submitGet(key)
+        // locally owned keys are read on the request thread, without any future
+        byte[] direct = cacheCore.tryGetBytes(key);
+        if (direct != IDistributedCache.NOT_READ_DIRECTLY) {
+            response.setResult(new GetResponse() {{
+                setValue(direct == null ? null : new String(direct, StandardCharsets.UTF_8));
+            }});
+            return response;
+        }
+        cacheCore.submitGet(key, options)
                 .whenComplete((result, throwable) -> {
                     if (throwable != null) {
-                        log.error("Error getting key={}", key, throwable);
+                        logError("Error getting key={}", key, throwable);
                         response.setErrorResult(new GetResponse() {{
-                            setErrorCode(DEFAULT_ERROR_CODE);
+                            setErrorCode(errorCode(throwable));
                             setErrorMessage(throwable.getMessage());
                         }});
                     } else {
@@ -79,17 +131,20 @@ public class CacheController {
     }
 
     @RequestMapping(method = RequestMethod.DELETE)
-    public DeferredResult<DeleteResponse> remove(@RequestParam String key) {
+    public DeferredResult<DeleteResponse> remove(@RequestParam String key,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        long timeout = timeoutFor(timeoutMillis);
+        RequestOptions options = RequestOptions.withTimeout(timeout, TimeUnit.MILLISECONDS);
         DeferredResult<DeleteResponse> response = new DeferredResult<>(timeout, new DeleteResponse() {{
-            setErrorCode("TIMEOUT");
+            setErrorCode(TIMEOUT_ERROR_CODE);
         }});
 
-        cacheCore.submitDelete(key)
+        cacheCore.submitDelete(key, options)
                 .whenComplete((result, throwable) -> {
                     if (throwable != null) {
-                        log.error("Error deleting key={}", key, throwable);
+                        logError("Error deleting key={}", key, throwable);
                         response.setErrorResult(new DeleteResponse() {{
-                            setErrorCode(DEFAULT_ERROR_CODE);
+                            setErrorCode(errorCode(throwable));
                             setErrorMessage(throwable.getMessage());
                         }});
                     } else {
@@ -100,4 +155,184 @@ public class CacheController {
                 });
         return response;
     }
+
+    /**
+     * Batched GET, POST is used as the key list can be too long for a query string.
+     */
+    @RequestMapping(value = "/multi-get", method = RequestMethod.POST)
+    public DeferredResult<MultiGetResponse> multiGet(@RequestBody MultiGetRequest request,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        long timeout = timeoutFor(timeoutMillis);
+        RequestOptions options = RequestOptions.withTimeout(timeout, TimeUnit.MILLISECONDS);
+        DeferredResult<MultiGetResponse> response = new DeferredResult<>(timeout, new MultiGetResponse() {{
+            setErrorCode(TIMEOUT_ERROR_CODE);
+        }});
+
+        cacheCore.submitMultiGet(request.getKeys(), options)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        logError("Error getting keyCount={}", request.getKeys().size(), throwable);
+                        response.setErrorResult(new MultiGetResponse() {{
+                            setErrorCode(errorCode(throwable));
+                            setErrorMessage(throwable.getMessage());
+                        }});
+                    } else {
+                        Map<String, String> values = new HashMap<>(result.size() * 2);
+                        result.forEach((key, value) -> values.put(key, new String(value, StandardCharsets.UTF_8)));
+                        response.setResult(new MultiGetResponse() {{
+                            setValues(values);
+                        }});
+                    }
+                });
+        return response;
+    }
+
+    @RequestMapping(value = "/multi", method = RequestMethod.PUT)
+    public DeferredResult<PutResponse> multiPut(@RequestBody MultiPutRequest request,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        long timeout = timeoutFor(timeoutMillis);
+        RequestOptions options = RequestOptions.withTimeout(timeout, TimeUnit.MILLISECONDS);
+        DeferredResult<PutResponse> response = new DeferredResult<>(timeout, new PutResponse() {{
+            setErrorCode(TIMEOUT_ERROR_CODE);
+        }});
+
+        Map<String, byte[]> entries = new LinkedHashMap<>(request.getEntries().size() * 2);
+        request.getEntries().forEach((key, value) ->
+                entries.put(key, value == null ? null : value.getBytes(StandardCharsets.UTF_8)));
+        cacheCore.submitMultiPut(entries, request.getTtlInSec(), options)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        logError("Error putting keyCount={}", entries.size(), throwable);
+                        response.setErrorResult(new PutResponse() {{
+                            setErrorCode(errorCode(throwable));
+                            setErrorMessage(throwable.getMessage());
+                        }});
+                    } else {
+                        response.setResult(new PutResponse() {{
+                            setPutStatus(true);
+                        }});
+                    }
+                });
+        return response;
+    }
+
+    @RequestMapping(value = "/multi-delete", method = RequestMethod.POST)
+    public DeferredResult<DeleteResponse> multiRemove(@RequestBody MultiDeleteRequest request,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        long timeout = timeoutFor(timeoutMillis);
+        RequestOptions options = RequestOptions.withTimeout(timeout, TimeUnit.MILLISECONDS);
+        DeferredResult<DeleteResponse> response = new DeferredResult<>(timeout, new DeleteResponse() {{
+            setErrorCode(TIMEOUT_ERROR_CODE);
+        }});
+
+        cacheCore.submitMultiDelete(request.getKeys(), options)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        logError("Error deleting keyCount={}", request.getKeys().size(), throwable);
+                        response.setErrorResult(new DeleteResponse() {{
+                            setErrorCode(errorCode(throwable));
+                            setErrorMessage(throwable.getMessage());
+                        }});
+                    } else {
+                        response.setResult(new DeleteResponse() {{
+                            setRemoveStatus(true);
+                        }});
+                    }
+                });
+        return response;
+    }
+
+    /**
+     * Binary variant of PUT, the request body is stored as-is (no JSON, no base64).
+     */
+    @RequestMapping(value = "/raw", method = RequestMethod.PUT, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public DeferredResult<ResponseEntity<Void>> putRaw(
+            @RequestParam String key, @RequestParam long ttlInSec, @RequestBody byte[] value,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        long timeout = timeoutFor(timeoutMillis);
+        RequestOptions options = RequestOptions.withTimeout(timeout, TimeUnit.MILLISECONDS);
+        DeferredResult<ResponseEntity<Void>> response = new DeferredResult<>(timeout, rawErrorResponse(TIMEOUT_ERROR_CODE));
+
+        cacheCore.submitPutBytes(key, value, ttlInSec, options)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        logError("Error putting raw key={}", key, throwable);
+                        response.setErrorResult(rawErrorResponse(errorCode(throwable)));
+                    } else {
+                        response.setResult(ResponseEntity.ok().build());
+                    }
+                });
+        return response;
+    }
+
+    /**
+     * Binary variant of GET, the stored bytes are returned as the response body, a cache miss is reported as 404.
+     */
+    @RequestMapping(value = "/raw", method = RequestMethod.GET, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public DeferredResult<ResponseEntity<byte[]>> getRaw(@RequestParam String key,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        long timeout = timeoutFor(timeoutMillis);
+        RequestOptions options = RequestOptions.withTimeout(timeout, TimeUnit.MILLISECONDS);
+        DeferredResult<ResponseEntity<byte[]>> response = new DeferredResult<>(timeout, rawErrorResponse(TIMEOUT_ERROR_CODE));
+
+        byte[] direct = cacheCore.tryGetBytes(key);
+        if (direct != IDistributedCache.NOT_READ_DIRECTLY) {
+            response.setResult(rawResponse(direct));
+            return response;
+        }
+        cacheCore.submitGetBytes(key, options)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        logError("Error getting raw key={}", key, throwable);
+                        response.setErrorResult(rawErrorResponse(errorCode(throwable)));
+                    } else {
+                        response.setResult(rawResponse(result));
+                    }
+                });
+        return response;
+    }
+
+    private static ResponseEntity<byte[]> rawResponse(byte[] value) {
+        if (value == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(value);
+    }
+
+    private long timeoutFor(Long requestedTimeoutMillis) {
+        if (requestedTimeoutMillis == null) {
+            return defaultTimeoutMillis;
+        }
+        return Math.clamp(requestedTimeoutMillis, 1, maxTimeoutMillis);
+    }
+
+    private static String errorCode(Throwable throwable) {
+        if (CacheOverloadedException.isOverloaded(throwable)) {
+            return OVERLOADED_ERROR_CODE;
+        }
+        return CacheDeadlineExceededException.isDeadlineExceeded(throwable) ? TIMEOUT_ERROR_CODE : DEFAULT_ERROR_CODE;
+    }
+
+    /**
+     * Overloads and skipped requests are expected under a burst and reported to the caller, logging each of them would only add load.
+     */
+    private static void logError(String message, Object argument, Throwable throwable) {
+        if (CacheOverloadedException.isOverloaded(throwable)
+                || CacheDeadlineExceededException.isDeadlineExceeded(throwable)) {
+            log.debug(message, argument, throwable);
+        } else {
+            log.error(message, argument, throwable);
+        }
+    }
+
+    /**
+     * An overloaded core is reported as 503 with a Retry-After header, see {@link GlobalResponseAdvice}.
+     */
+    private static <T> ResponseEntity<T> rawErrorResponse(String errorCode) {
+        if (OVERLOADED_ERROR_CODE.equals(errorCode)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(ERROR_CODE_HEADER, errorCode)
+                    .header(HttpHeaders.RETRY_AFTER, GlobalResponseAdvice.RETRY_AFTER_SECONDS).build();
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).header(ERROR_CODE_HEADER, errorCode).build();
+    }
 }
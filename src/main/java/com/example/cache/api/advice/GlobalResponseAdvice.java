@@ -3,6 +3,7 @@ package com.example.cache.api.advice;
 import com.example.cache.api.domain.BaseResponse;
 import org.jspecify.annotations.Nullable;
 import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
@@ -11,8 +12,11 @@ import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
+import static com.example.cache.util.SystemUtil.OVERLOADED_ERROR_CODE;
+
 @ControllerAdvice
 public class GlobalResponseAdvice implements ResponseBodyAdvice<Object> {
+    public static final String RETRY_AFTER_SECONDS = "1";
 
     @Override
     public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
@@ -22,7 +26,11 @@ public class GlobalResponseAdvice implements ResponseBodyAdvice<Object> {
     @Override
     public @Nullable Object beforeBodyWrite(@Nullable Object body, MethodParameter returnType, MediaType selectedContentType, Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
         if (body instanceof BaseResponse cacheResponse) {
-            if (cacheResponse.getErrorCode() != null && !cacheResponse.getErrorCode().isEmpty()) {
+            if (OVERLOADED_ERROR_CODE.equals(cacheResponse.getErrorCode())) {
+                // nothing was done, the request can be retried once the core has caught up
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            } else if (cacheResponse.getErrorCode() != null && !cacheResponse.getErrorCode().isEmpty()) {
                 response.setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
             }
         }
@@ -0,0 +1,12 @@
+package com.example.cache.api.domain;
+
+import lombok.Data;
+import lombok.ToString;
+
+import java.util.List;
+
+@Data
+@ToString
+public class MultiDeleteRequest {
+    private List<String> keys;
+}
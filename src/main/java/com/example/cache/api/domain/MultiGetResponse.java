@@ -0,0 +1,17 @@
+package com.example.cache.api.domain;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * Only the keys that were found are part of {@code values}.
+ */
+@Data
+@ToString
+@EqualsAndHashCode(callSuper = true)
+public class MultiGetResponse extends BaseResponse {
+    private Map<String, String> values;
+}
@@ -0,0 +1,13 @@
+package com.example.cache.api.domain;
+
+import lombok.Data;
+import lombok.ToString;
+
+import java.util.Map;
+
+@Data
+@ToString
+public class MultiPutRequest {
+    private Map<String, String> entries;
+    private long ttlInSec;
+}
@@ -1,39 +1,85 @@
 package com.example.cache.cluster.grpc;
 
+import com.example.cache.core.CacheDeadlineExceededException;
+import com.example.cache.core.CacheOverloadedException;
+import com.example.cache.core.domain.RequestOptions;
+import com.example.cache.core.storage.ValueCompressor;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class CacheGrpcClient {
 
-    private final Map<String, CacheServiceGrpc.CacheServiceFutureStub> stubs = new HashMap<>();
-    private final Map<String, ManagedChannel> channels = new HashMap<>();
+    // Used concurrently by the core workers, the batch router and the near cache invalidator: the channel and its stub
+    // are created together, at most once per address
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    private final ValueCompressor compressor;
 
-    public void forwardGet(String address, String key, CompletableFuture<String> future) {
+    public CacheGrpcClient() {
+        this(ValueCompressor.disabled());
+    }
+
+    /**
+     * @param compressor Compresses the values of forwarded PUTs, so that the owner stores them as received.
+     */
+    public CacheGrpcClient(ValueCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    public void forwardGet(String address, String key, CompletableFuture<byte[]> future) {
+        forwardGet(address, key, null, RequestOptions.NONE, future);
+    }
+
+    /**
+     * @param originNodeId Id of the local node when the value is kept in its near cache, null otherwise.
+     * @param options      The remaining time until the deadline is sent as the deadline of the call.
+     */
+    public void forwardGet(String address, String key, String originNodeId, RequestOptions options,
+                           CompletableFuture<byte[]> future) {
         try {
-            GetRequest request = GetRequest.newBuilder().setKey(key).build();
-            ListenableFuture<GetResponse> grpcFuture = getStub(address).get(request);
+            GetRequest.Builder requestBuilder = GetRequest.newBuilder().setKey(key);
+            if (originNodeId != null) {
+                requestBuilder.setOriginNodeId(originNodeId);
+            }
+            GetRequest request = requestBuilder.build();
+            ListenableFuture<GetResponse> grpcFuture = getStub(address, options).get(request);
 
             Futures.addCallback(grpcFuture, new FutureCallback<>() {
                 @Override
                 public void onSuccess(GetResponse response) {
-                    future.complete(response.getFound() ? response.getValue() : null);
+                    if (!response.getFound()) {
+                        future.complete(null);
+                        return;
+                    }
+                    try {
+                        byte[] value = response.getValue().toByteArray();
+                        future.complete(response.getCompressed() ? ValueCompressor.inflate(value) : value);
+                    } catch (IllegalArgumentException e) {
+                        log.error("Async forward GET returned an invalid value from address {}: {}", address,
+                                e.getMessage());
+                        future.completeExceptionally(e);
+                    }
                 }
 
                 @Override
                 public void onFailure(Throwable t) {
                     log.error("Async forward GET failed for address {}: {}", address, t.getMessage(), t);
-                    future.completeExceptionally(t);
+                    future.completeExceptionally(fromStatus(t));
                 }
             }, MoreExecutors.directExecutor());
         } catch (Exception e) {
@@ -42,12 +88,36 @@ public class CacheGrpcClient {
         }
     }
 
-    public void forwardPut(String address, String key, String value, long ttlInSec,
-                                              CompletableFuture<String> future) {
+    public void forwardPut(String address, String key, byte[] value, long ttlInSec,
+                                              CompletableFuture<byte[]> future) {
+        forwardPut(address, key, value, false, ttlInSec, RequestOptions.NONE, future);
+    }
 
+    /**
+     * Values above the compression threshold are sent compressed, values that already are (received from a peer)
+     * are passed through as is.
+     *
+     * @param compressed Whether the value is already in compressed form.
+     */
+    public void forwardPut(String address, String key, byte[] value, boolean compressed, long ttlInSec,
+                           RequestOptions options, CompletableFuture<byte[]> future) {
         try {
-            PutRequest request = PutRequest.newBuilder().setKey(key).setValue(value).setTtlInSec(ttlInSec).build();
-            ListenableFuture<PutResponse> grpcFuture = getStub(address).put(request);
+            if (!compressed) {
+                byte[] compressedValue = compressor.compress(value);
+                if (compressedValue != null) {
+                    value = compressedValue;
+                    compressed = true;
+                }
+            }
+            // the value array is never mutated after it is handed over to the cache, so it can be wrapped without a copy
+            ByteString valueBytes = value == null ? ByteString.EMPTY : UnsafeByteOperations.unsafeWrap(value);
+            PutRequest request = PutRequest.newBuilder()
+                    .setKey(key)
+                    .setValue(valueBytes)
+                    .setTtlInSec(ttlInSec)
+                    .setCompressed(compressed)
+                    .build();
+            ListenableFuture<PutResponse> grpcFuture = getStub(address, options).put(request);
 
             Futures.addCallback(grpcFuture, new FutureCallback<>() {
                 @Override
@@ -58,7 +128,7 @@ public class CacheGrpcClient {
                 @Override
                 public void onFailure(Throwable t) {
                     log.error("Async forward PUT failed for address {}: {}", address, t.getMessage(), t);
-                    future.completeExceptionally(t);
+                    future.completeExceptionally(fromStatus(t));
                 }
             }, MoreExecutors.directExecutor());
         } catch (Exception e) {
@@ -67,10 +137,10 @@ public class CacheGrpcClient {
         }
     }
 
-    public void forwardDelete(String address, String key, CompletableFuture<String> future) {
+    public void forwardDelete(String address, String key, RequestOptions options, CompletableFuture<byte[]> future) {
         try {
             DeleteRequest deleteRequest = DeleteRequest.newBuilder().setKey(key).build();
-            ListenableFuture<DeleteResponse> grpcFuture = getStub(address).delete(deleteRequest);
+            ListenableFuture<DeleteResponse> grpcFuture = getStub(address, options).delete(deleteRequest);
 
             Futures.addCallback(grpcFuture, new FutureCallback<>() {
                 @Override
@@ -81,7 +151,7 @@ public class CacheGrpcClient {
                 @Override
                 public void onFailure(Throwable t) {
                     log.error("Async forward DELETE failed for address {}: {}", address, t.getMessage(), t);
-                    future.completeExceptionally(t);
+                    future.completeExceptionally(fromStatus(t));
                 }
             }, MoreExecutors.directExecutor());
         } catch (Exception e) {
@@ -90,21 +160,146 @@ public class CacheGrpcClient {
         }
     }
 
+    public void forwardMultiGet(String address, List<String> keys, RequestOptions options,
+                                CompletableFuture<Map<String, byte[]>> future) {
+        try {
+            MultiGetRequest request = MultiGetRequest.newBuilder().addAllKeys(keys).build();
+            ListenableFuture<MultiGetResponse> grpcFuture = getStub(address, options).multiGet(request);
+
+            Futures.addCallback(grpcFuture, new FutureCallback<>() {
+                @Override
+                public void onSuccess(MultiGetResponse response) {
+                    Map<String, byte[]> values = new HashMap<>(response.getEntriesCount() * 2);
+                    response.getEntriesList().forEach(entry -> values.put(entry.getKey(), entry.getValue().toByteArray()));
+                    future.complete(values);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    log.error("Async forward MULTI_GET failed for address {}: {}", address, t.getMessage(), t);
+                    future.completeExceptionally(fromStatus(t));
+                }
+            }, MoreExecutors.directExecutor());
+        } catch (Exception e) {
+            log.error("Async forward MULTI_GET failed for address {}: {}", address, e.getMessage(), e);
+            future.completeExceptionally(e);
+        }
+    }
+
+    public void forwardMultiPut(String address, Map<String, byte[]> entries, long ttlInSec, RequestOptions options,
+                                CompletableFuture<Void> future) {
+        try {
+            MultiPutRequest.Builder request = MultiPutRequest.newBuilder().setTtlInSec(ttlInSec);
+            entries.forEach((key, value) -> request.addEntries(KeyValue.newBuilder()
+                    .setKey(key)
+                    .setValue(value == null ? ByteString.EMPTY : UnsafeByteOperations.unsafeWrap(value))));
+            ListenableFuture<MultiPutResponse> grpcFuture = getStub(address, options).multiPut(request.build());
+
+            Futures.addCallback(grpcFuture, new FutureCallback<>() {
+                @Override
+                public void onSuccess(MultiPutResponse response) {
+                    future.complete(null);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    log.error("Async forward MULTI_PUT failed for address {}: {}", address, t.getMessage(), t);
+                    future.completeExceptionally(fromStatus(t));
+                }
+            }, MoreExecutors.directExecutor());
+        } catch (Exception e) {
+            log.error("Async forward MULTI_PUT failed for address {}: {}", address, e.getMessage(), e);
+            future.completeExceptionally(e);
+        }
+    }
+
+    public void forwardMultiDelete(String address, List<String> keys, RequestOptions options,
+                                   CompletableFuture<Void> future) {
+        try {
+            MultiDeleteRequest request = MultiDeleteRequest.newBuilder().addAllKeys(keys).build();
+            ListenableFuture<MultiDeleteResponse> grpcFuture = getStub(address, options).multiDelete(request);
+
+            Futures.addCallback(grpcFuture, new FutureCallback<>() {
+                @Override
+                public void onSuccess(MultiDeleteResponse response) {
+                    future.complete(null);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    log.error("Async forward MULTI_DELETE failed for address {}: {}", address, t.getMessage(), t);
+                    future.completeExceptionally(fromStatus(t));
+                }
+            }, MoreExecutors.directExecutor());
+        } catch (Exception e) {
+            log.error("Async forward MULTI_DELETE failed for address {}: {}", address, e.getMessage(), e);
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Fire and forget, a lost invalidation is covered by the near cache TTL on the peer.
+     */
+    public void sendInvalidations(String address, List<String> keys) {
+        try {
+            InvalidateRequest request = InvalidateRequest.newBuilder().addAllKeys(keys).build();
+            ListenableFuture<InvalidateResponse> grpcFuture = getStub(address).invalidate(request);
+
+            Futures.addCallback(grpcFuture, new FutureCallback<>() {
+                @Override
+                public void onSuccess(InvalidateResponse response) {
+                    // no-op
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    log.warn("Async INVALIDATE failed for address {}: {}", address, t.getMessage());
+                }
+            }, MoreExecutors.directExecutor());
+        } catch (Exception e) {
+            log.warn("Async INVALIDATE failed for address {}: {}", address, e.getMessage());
+        }
+    }
+
+    /**
+     * RESOURCE_EXHAUSTED means that the owner node did not admit the request, see {@link CacheGrpcService}, and
+     * DEADLINE_EXCEEDED that the budget of the request ran out on the way or on the owner node.
+     */
+    private static Throwable fromStatus(Throwable throwable) {
+        Status status = Status.fromThrowable(throwable);
+        return switch (status.getCode()) {
+            case RESOURCE_EXHAUSTED -> new CacheOverloadedException(status.getDescription());
+            case DEADLINE_EXCEEDED -> new CacheDeadlineExceededException(status.getDescription());
+            default -> throwable;
+        };
+    }
+
+    /**
+     * A request with a deadline gets a stub bound to the time it has left, an already expired budget fails the call
+     * right away without sending it.
+     */
+    private CacheServiceGrpc.CacheServiceFutureStub getStub(String address, RequestOptions options) {
+        CacheServiceGrpc.CacheServiceFutureStub stub = getStub(address);
+        return options.hasDeadline() ? stub.withDeadlineAfter(options.remainingNanos(), TimeUnit.NANOSECONDS) : stub;
+    }
+
     private CacheServiceGrpc.CacheServiceFutureStub getStub(String address) {
-        return stubs.computeIfAbsent(address, addr -> {
+        return connections.computeIfAbsent(address, addr -> {
             ManagedChannel channel = ManagedChannelBuilder.forTarget(addr).usePlaintext().build();
-            channels.put(addr, channel);
-            return CacheServiceGrpc.newFutureStub(channel);
-        });
+            return new Connection(channel, CacheServiceGrpc.newFutureStub(channel));
+        }).stub();
     }
 
     public void shutdown() {
-        channels.values().forEach(channel -> {
+        connections.values().forEach(connection -> {
             try {
-                channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+                connection.channel().shutdown().awaitTermination(5, TimeUnit.SECONDS);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         });
     }
+
+    private record Connection(ManagedChannel channel, CacheServiceGrpc.CacheServiceFutureStub stub) {
+    }
 }
@@ -1,31 +1,62 @@
 package com.example.cache.cluster.grpc;
 
+import com.example.cache.core.CacheDeadlineExceededException;
+import com.example.cache.core.CacheOverloadedException;
 import com.example.cache.core.IDistributedCache;
+import com.example.cache.core.domain.Lane;
+import com.example.cache.core.domain.RequestOptions;
+import com.example.cache.core.storage.ValueCompressor;
+import com.example.cache.nearcache.NearCache;
+import com.example.cache.nearcache.NearCacheInvalidator;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 @Slf4j
 @GrpcService
 public class CacheGrpcService extends CacheServiceGrpc.CacheServiceImplBase {
 
     private final IDistributedCache localCache;
+    private final NearCache nearCache;
+    private final NearCacheInvalidator nearCacheInvalidator;
+    private final ValueCompressor compressor;
 
-    public CacheGrpcService(IDistributedCache localCache) {
+    public CacheGrpcService(IDistributedCache localCache, NearCache nearCache,
+                            NearCacheInvalidator nearCacheInvalidator, ValueCompressor compressor) {
         this.localCache = localCache;
+        this.nearCache = nearCache;
+        this.nearCacheInvalidator = nearCacheInvalidator;
+        this.compressor = compressor;
     }
 
     @Override
     public void get(GetRequest request, StreamObserver<GetResponse> responseObserver) {
-        localCache.submitGet(request.getKey())
+        if (!request.getOriginNodeId().isEmpty()) {
+            nearCacheInvalidator.registerReader(request.getKey(), request.getOriginNodeId());
+        }
+        // compressed values are sent as stored, the requesting node decompresses them
+        localCache.submitGetStored(request.getKey(), requestOptions())
                 .handle((res, ex) -> {
                     if (ex != null) {
                         log.error("Error during remote gRPC GET", ex);
-                        responseObserver.onError(ex);
+                        responseObserver.onError(toStatus(ex));
                     } else {
+                        byte[] value = res != null ? res.getValue() : null;
                         responseObserver.onNext(GetResponse.newBuilder()
-                                .setValue(res != null ? res : "")
+                                // stored bytes are never mutated, so they are sent without a copy
+                                .setValue(value != null ? UnsafeByteOperations.unsafeWrap(value) : ByteString.EMPTY)
                                 .setFound(res != null)
+                                .setCompressed(res != null && res.isCompressed())
                                 .build());
                         responseObserver.onCompleted();
                     }
@@ -35,11 +66,22 @@ public class CacheGrpcService extends CacheServiceGrpc.CacheServiceImplBase {
 
     @Override
     public void put(PutRequest request, StreamObserver<PutResponse> responseObserver) {
-        localCache.submitPut(request.getKey(), request.getValue(), request.getTtlInSec())
+        byte[] value = request.getValue().toByteArray();
+        CompletableFuture<Void> result;
+        if (!request.getCompressed()) {
+            result = localCache.submitPutBytes(request.getKey(), value, request.getTtlInSec(), requestOptions());
+        } else if (compressor.isEnabled()) {
+            result = localCache.submitPutCompressed(request.getKey(), value, request.getTtlInSec(), requestOptions());
+        } else {
+            // compression is disabled on this node, values are stored plain
+            result = localCache.submitPutBytes(request.getKey(), ValueCompressor.inflate(value), request.getTtlInSec(),
+                    requestOptions());
+        }
+        result
                 .handle((res, ex) -> {
                     if (ex != null) {
                         log.error("Error during remote gRPC PUT", ex);
-                        responseObserver.onError(ex);
+                        responseObserver.onError(toStatus(ex));
                     } else {
                         responseObserver.onNext(PutResponse.newBuilder().setSuccess(true).build());
                         responseObserver.onCompleted();
@@ -50,11 +92,11 @@ public class CacheGrpcService extends CacheServiceGrpc.CacheServiceImplBase {
 
     @Override
     public void delete(DeleteRequest request, StreamObserver<DeleteResponse> responseObserver) {
-        localCache.submitDelete(request.getKey())
+        localCache.submitDelete(request.getKey(), requestOptions())
                 .handle((res, ex) -> {
                     if (ex != null) {
                         log.error("Error during remote gRPC DELETE", ex);
-                        responseObserver.onError(ex);
+                        responseObserver.onError(toStatus(ex));
                     } else {
                         responseObserver.onNext(DeleteResponse.newBuilder().setSuccess(true).build());
                         responseObserver.onCompleted();
@@ -62,4 +104,88 @@ public class CacheGrpcService extends CacheServiceGrpc.CacheServiceImplBase {
                     return null;
                 });
     }
+
+    @Override
+    public void multiGet(MultiGetRequest request, StreamObserver<MultiGetResponse> responseObserver) {
+        localCache.submitMultiGet(request.getKeysList(), requestOptions())
+                .handle((res, ex) -> {
+                    if (ex != null) {
+                        log.error("Error during remote gRPC MULTI_GET", ex);
+                        responseObserver.onError(toStatus(ex));
+                    } else {
+                        MultiGetResponse.Builder response = MultiGetResponse.newBuilder();
+                        res.forEach((key, value) -> response.addEntries(KeyValue.newBuilder()
+                                .setKey(key)
+                                .setValue(UnsafeByteOperations.unsafeWrap(value))));
+                        responseObserver.onNext(response.build());
+                        responseObserver.onCompleted();
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    public void multiPut(MultiPutRequest request, StreamObserver<MultiPutResponse> responseObserver) {
+        Map<String, byte[]> entries = new LinkedHashMap<>(request.getEntriesCount() * 2);
+        request.getEntriesList().forEach(entry -> entries.put(entry.getKey(), entry.getValue().toByteArray()));
+        localCache.submitMultiPut(entries, request.getTtlInSec(), requestOptions())
+                .handle((res, ex) -> {
+                    if (ex != null) {
+                        log.error("Error during remote gRPC MULTI_PUT", ex);
+                        responseObserver.onError(toStatus(ex));
+                    } else {
+                        responseObserver.onNext(MultiPutResponse.newBuilder().setSuccess(true).build());
+                        responseObserver.onCompleted();
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    public void multiDelete(MultiDeleteRequest request, StreamObserver<MultiDeleteResponse> responseObserver) {
+        localCache.submitMultiDelete(request.getKeysList(), requestOptions())
+                .handle((res, ex) -> {
+                    if (ex != null) {
+                        log.error("Error during remote gRPC MULTI_DELETE", ex);
+                        responseObserver.onError(toStatus(ex));
+                    } else {
+                        responseObserver.onNext(MultiDeleteResponse.newBuilder().setSuccess(true).build());
+                        responseObserver.onCompleted();
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    public void invalidate(InvalidateRequest request, StreamObserver<InvalidateResponse> responseObserver) {
+        nearCache.invalidateAll(request.getKeysList());
+        responseObserver.onNext(InvalidateResponse.newBuilder().setSuccess(true).build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Requests of peers go to the PEER lane, with the deadline set by the forwarding node so that the owner skips the
+     * request once that node has given up.
+     */
+    private static RequestOptions requestOptions() {
+        Deadline deadline = Context.current().getDeadline();
+        return deadline == null ? RequestOptions.PEER
+                : RequestOptions.withTimeout(Lane.PEER, deadline.timeRemaining(TimeUnit.NANOSECONDS),
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * An overloaded core is reported as RESOURCE_EXHAUSTED and a skipped request as DEADLINE_EXCEEDED, the forwarding
+     * node maps them back to {@link CacheOverloadedException} and {@link CacheDeadlineExceededException}.
+     */
+    private static Throwable toStatus(Throwable throwable) {
+        if (CacheOverloadedException.isOverloaded(throwable)) {
+            return Status.RESOURCE_EXHAUSTED.withDescription("Cache core of the owner node is overloaded.")
+                    .asRuntimeException();
+        }
+        if (CacheDeadlineExceededException.isDeadlineExceeded(throwable)) {
+            return Status.DEADLINE_EXCEEDED.withDescription("Deadline passed on the owner node.").asRuntimeException();
+        }
+        return throwable;
+    }
 }
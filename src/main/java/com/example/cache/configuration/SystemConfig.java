@@ -4,32 +4,80 @@ import com.example.cache.cluster.ConsistentHashClusterService;
 import com.example.cache.cluster.IClusterService;
 import com.example.cache.cluster.grpc.CacheGrpcClient;
 import com.example.cache.core.IDistributedCache;
+import com.example.cache.core.ShardedCacheCore;
 import com.example.cache.core.SingleThreadedCacheCore;
+import com.example.cache.core.domain.AdmissionPolicy;
+import com.example.cache.core.domain.CacheCoreConfig;
+import com.example.cache.core.domain.SampledEviction;
 import com.example.cache.core.ds.CacheQueue;
+import com.example.cache.core.ds.IExpirationTracker;
+import com.example.cache.core.ds.NoOpExpirationTracker;
+import com.example.cache.core.ds.TimingWheel;
 import com.example.cache.core.ds.TtlQueue;
+import com.example.cache.core.storage.CacheStorageFactory;
+import com.example.cache.core.storage.SlabAllocator;
+import com.example.cache.core.storage.StorageType;
+import com.example.cache.core.storage.ValueCompressor;
+import com.example.cache.eviction.AdaptiveReplacementStrategy;
+import com.example.cache.eviction.AgingLeastFrequentlyUsedStrategy;
+import com.example.cache.eviction.EvictionPolicy;
 import com.example.cache.eviction.FirstInFirstOutStrategy;
+import com.example.cache.eviction.IEvictionStrategy;
 import com.example.cache.eviction.LeastRecentUsedStrategy;
+import com.example.cache.eviction.NoOpEvictionStrategy;
+import com.example.cache.eviction.SieveStrategy;
+import com.example.cache.eviction.WindowTinyLfuStrategy;
 import com.example.cache.metrics.CacheMetrics;
 import com.example.cache.metrics.CacheMetricsBinder;
+import com.example.cache.nearcache.NearCache;
+import com.example.cache.nearcache.NearCacheInvalidator;
+import com.example.cache.persistence.FsyncPolicy;
+import com.example.cache.persistence.IRecoverableCache;
+import com.example.cache.persistence.LogCompactor;
+import com.example.cache.persistence.PersistenceLog;
+import com.example.cache.persistence.PersistenceRecovery;
+import com.example.cache.persistence.SnapshotManager;
 import com.example.cache.task.CacheCleanerTask;
 import com.example.cache.task.CacheCleanerTaskInitializer;
+import com.example.cache.util.SystemUtil;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
 public class SystemConfig {
+    private static final String SAMPLED_EXPIRATION = "sampled";
 
+    /**
+     * timing-wheel (default, sub-second resolution), ttl-queue (one second buckets in a skip list) or sampled (no
+     * per-key index, the cores expire keys by sampling, see {@link #cacheCoreConfig}).
+     */
     @Bean
-    public TtlQueue ttlQueue() {
-        return new TtlQueue();
+    public IExpirationTracker expirationTracker(
+            @Value("${cache.expiration.tracker:timing-wheel}") String tracker,
+            @Value("${cache.expiration.tick-millis:16}") long tickMillis
+    ) {
+        if ("ttl-queue".equalsIgnoreCase(tracker)) {
+            return new TtlQueue();
+        }
+        if (SAMPLED_EXPIRATION.equalsIgnoreCase(tracker)) {
+            return NoOpExpirationTracker.INSTANCE;
+        }
+        return new TimingWheel(tickMillis, SystemUtil.getCurrentTimeInMillis());
     }
 
     @Bean
-    public CacheQueue cacheQueue() {
-        return new CacheQueue(10, cacheMetrics());
+    public CacheQueue cacheQueue(
+            @Value("${cache.queue.read-buffer-stripes:16}") int readBufferStripes,
+            @Value("${cache.queue.read-buffer-stripe-capacity:1024}") int readBufferStripeCapacity,
+            @Value("${cache.queue.write-buffer-capacity:65536}") int writeBufferCapacity
+    ) {
+        return new CacheQueue(readBufferStripes, readBufferStripeCapacity, writeBufferCapacity, cacheMetrics());
     }
 
     @Bean
@@ -38,8 +86,62 @@ public class SystemConfig {
     }
 
     @Bean
-    public CacheMetricsBinder cacheMetricsBinder(CacheMetrics cacheMetrics, TtlQueue ttlQueue, CacheQueue cacheQueue) {
-        return new CacheMetricsBinder(cacheMetrics, ttlQueue, cacheQueue);
+    public CacheMetricsBinder cacheMetricsBinder(CacheMetrics cacheMetrics, IExpirationTracker expirationTracker,
+                                                 CacheQueue cacheQueue,
+                                                 SlabAllocator slabAllocator, NearCache nearCache,
+                                                 IDistributedCache cacheCore,
+                                                 IEvictionStrategy<String> evictionStrategy) {
+        return new CacheMetricsBinder(cacheMetrics, expirationTracker, cacheQueue, slabAllocator, nearCache, cacheCore,
+                evictionStrategy);
+    }
+
+    @Bean
+    public NearCache nearCache(
+            @Value("${cache.near-cache.enabled:false}") boolean enabled,
+            @Value("${cache.near-cache.max-entries:10000}") int maxEntries,
+            @Value("${cache.near-cache.ttl-millis:2000}") long ttlMillis
+    ) {
+        return enabled ? new NearCache(maxEntries, ttlMillis, cacheMetrics()) : NearCache.disabled(cacheMetrics());
+    }
+
+    /**
+     * Always created, the owner side serves the peers announcing a near cache even if this node does not use one.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public NearCacheInvalidator nearCacheInvalidator(
+            IClusterService clusterService,
+            CacheGrpcClient cacheGrpcClient,
+            @Value("${cache.near-cache.max-tracked-keys:100000}") int maxTrackedKeys,
+            @Value("${cache.near-cache.invalidation-flush-millis:20}") long flushIntervalMillis
+    ) {
+        return new NearCacheInvalidator(clusterService, cacheGrpcClient, maxTrackedKeys, flushIntervalMillis);
+    }
+
+    /**
+     * Slabs are only reserved on first use, so the allocator costs nothing while the storage type is heap.
+     */
+    @Bean
+    public SlabAllocator slabAllocator(
+            @Value("${cache.storage.off-heap.slab-size-bytes:1048576}") int slabSize,
+            @Value("${cache.storage.off-heap.max-bytes:0}") long maxOffHeapBytes
+    ) {
+        return new SlabAllocator(slabSize, maxOffHeapBytes);
+    }
+
+    @Bean
+    public ValueCompressor valueCompressor(
+            @Value("${cache.compression.threshold-bytes:0}") int thresholdBytes
+    ) {
+        return new ValueCompressor(thresholdBytes, cacheMetrics());
+    }
+
+    @Bean
+    public CacheStorageFactory cacheStorageFactory(
+            @Value("${cache.storage.type:heap}") String storageType,
+            SlabAllocator slabAllocator,
+            ValueCompressor valueCompressor
+    ) {
+        return new CacheStorageFactory(StorageType.fromProperty(storageType), slabAllocator, valueCompressor);
     }
 
     @Bean
@@ -58,48 +160,190 @@ public class SystemConfig {
     }
 
     @Bean
-    public CacheGrpcClient cacheGrpcClient() {
-        return new CacheGrpcClient();
+    public CacheGrpcClient cacheGrpcClient(ValueCompressor valueCompressor) {
+        return new CacheGrpcClient(valueCompressor);
+    }
+
+    @Bean
+    public CacheCoreConfig cacheCoreConfig(
+            @Value("${cache.core.queue-capacity:65536}") int queueCapacity,
+            @Value("${cache.core.drain-batch-size:256}") int drainBatchSize,
+            @Value("${cache.core.admission-policy:block}") String admissionPolicy,
+            @Value("${cache.core.admission-timeout-millis:100}") long admissionTimeoutMillis,
+            @Value("${cache.core.lane-weight.client:4}") int clientLaneWeight,
+            @Value("${cache.core.lane-weight.peer:2}") int peerLaneWeight,
+            @Value("${cache.core.lane-weight.housekeeping:1}") int housekeepingLaneWeight,
+            @Value("${cache.core.idle-spin-tries:1000}") int idleSpinTries,
+            @Value("${cache.core.concurrent-reads:false}") boolean concurrentReads,
+            @Value("${cache.core.coalesce-gets:true}") boolean coalesceGets,
+            @Value("${cache.expiration.tracker:timing-wheel}") String expirationTracker,
+            @Value("${cache.expiration.sample-size:20}") int expirationSampleSize,
+            @Value("${cache.expiration.repeat-threshold:0.25}") double expirationRepeatThreshold,
+            @Value("${cache.expiration.cycle-budget-micros:1000}") long expirationCycleBudgetMicros,
+            @Value("${cache.expiration.cycle-interval-millis:100}") long expirationCycleIntervalMillis,
+            @Value("${cache.eviction.policy:lru}") String evictionPolicy,
+            @Value("${cache.eviction.sample-size:5}") int evictionSampleSize,
+            @Value("${cache.eviction.pool-size:16}") int evictionPoolSize,
+            @Value("${cache.max-size:1000}") int maxCacheSize,
+            @Value("${cache.breathable-space:100}") int breathableSpace,
+            @Value("${cache.max-bytes:0}") long maxBytes,
+            @Value("${cache.shards:1}") int shardCount
+    ) {
+        // every shard evicts from its own keys, the limits are split evenly
+        int shards = Math.max(1, shardCount);
+        SampledEviction sampledEviction = switch (EvictionPolicy.fromProperty(evictionPolicy)) {
+            case SAMPLED_LRU -> SampledEviction.LRU;
+            case SAMPLED_LFU -> SampledEviction.LFU;
+            default -> SampledEviction.NONE;
+        };
+        return CacheCoreConfig.builder()
+                .queueCapacity(queueCapacity)
+                .drainBatchSize(drainBatchSize)
+                .admissionPolicy(AdmissionPolicy.fromProperty(admissionPolicy))
+                .admissionTimeoutMillis(admissionTimeoutMillis)
+                .clientLaneWeight(clientLaneWeight)
+                .peerLaneWeight(peerLaneWeight)
+                .housekeepingLaneWeight(housekeepingLaneWeight)
+                .idleSpinTries(idleSpinTries)
+                .concurrentReads(concurrentReads)
+                .coalesceGets(coalesceGets)
+                .activeExpiration(SAMPLED_EXPIRATION.equalsIgnoreCase(expirationTracker))
+                .expirationSampleSize(expirationSampleSize)
+                .expirationRepeatThreshold(expirationRepeatThreshold)
+                .expirationCycleBudgetMicros(expirationCycleBudgetMicros)
+                .expirationCycleIntervalMillis(expirationCycleIntervalMillis)
+                .sampledEviction(sampledEviction)
+                .maximumEntries((maxCacheSize - breathableSpace + shards - 1) / shards)
+                .maximumBytes(maxBytes > 0 ? (maxBytes + shards - 1) / shards : 0)
+                .evictionSampleSize(evictionSampleSize)
+                .evictionPoolSize(evictionPoolSize)
+                .build();
     }
 
     @Bean
-    public IDistributedCache singleThreadedCacheCore(
+    public IDistributedCache cacheCore(
             @Value("${cache.name:core-worker-thread}") String workerThreadName,
+            @Value("${cache.shards:1}") int shardCount,
+            CacheCoreConfig cacheCoreConfig,
+            CacheStorageFactory cacheStorageFactory,
+            NearCache nearCache,
+            NearCacheInvalidator nearCacheInvalidator,
+            ObjectProvider<PersistenceLog> persistenceLog,
+            CacheQueue cacheQueue,
             IClusterService clusterService,
             CacheGrpcClient cacheGrpcClient
     ) {
-        return new SingleThreadedCacheCore(workerThreadName, cacheQueue(), cacheMetrics(), clusterService, cacheGrpcClient);
+        if (shardCount > 1) {
+            return new ShardedCacheCore(workerThreadName, shardCount, cacheCoreConfig, cacheStorageFactory, nearCache,
+                    nearCacheInvalidator, persistenceLog.getIfAvailable(), cacheQueue, cacheMetrics(),
+                    clusterService, cacheGrpcClient);
+        }
+        return new SingleThreadedCacheCore(workerThreadName, cacheCoreConfig, cacheStorageFactory, nearCache,
+                nearCacheInvalidator, persistenceLog.getIfAvailable(), cacheQueue, cacheMetrics(), clusterService,
+                cacheGrpcClient);
     }
 
-    @Bean
-    public FirstInFirstOutStrategy<String> firstInFirstOutStrategy() {
-        return new FirstInFirstOutStrategy<>();
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "cache.persistence.enabled", havingValue = "true")
+    public PersistenceLog persistenceLog(
+            @Value("${cache.persistence.directory:./data/cache-log}") String directory,
+            @Value("${cache.persistence.fsync-policy:interval}") String fsyncPolicy,
+            @Value("${cache.persistence.fsync-interval-millis:100}") long fsyncIntervalMillis,
+            @Value("${cache.persistence.segment-size-bytes:67108864}") long segmentSizeBytes,
+            @Value("${cache.persistence.queue-capacity:65536}") int queueCapacity
+    ) {
+        return new PersistenceLog(Path.of(directory), FsyncPolicy.fromProperty(fsyncPolicy), fsyncIntervalMillis,
+                segmentSizeBytes, queueCapacity, cacheMetrics());
     }
 
-    @Bean
-    public LeastRecentUsedStrategy<String> leastFrequentlyUsedStrategy() {
-        return new LeastRecentUsedStrategy<>();
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "cache.persistence.enabled", havingValue = "true")
+    public LogCompactor logCompactor(
+            PersistenceLog persistenceLog,
+            @Value("${cache.persistence.compaction.min-segments:4}") int minSealedSegments,
+            @Value("${cache.persistence.compaction.check-interval-millis:60000}") long checkIntervalMillis
+    ) {
+        return new LogCompactor(persistenceLog, minSealedSegments, checkIntervalMillis, cacheMetrics());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "cache.snapshot.enabled", havingValue = "true")
+    public SnapshotManager snapshotManager(
+            @Value("${cache.snapshot.directory:./data/snapshots}") String directory,
+            @Value("${cache.snapshot.interval-millis:300000}") long intervalMillis,
+            @Value("${cache.snapshot.retain:2}") int retain,
+            @Value("${cache.snapshot.load-threads:4}") int loadThreads,
+            @Value("${cache.snapshot.on-shutdown:true}") boolean snapshotOnShutdown,
+            IDistributedCache cacheCore,
+            ObjectProvider<PersistenceLog> persistenceLog
+    ) {
+        return new SnapshotManager(Path.of(directory), (IRecoverableCache) cacheCore, persistenceLog.getIfAvailable(),
+                intervalMillis, retain, loadThreads, snapshotOnShutdown, cacheMetrics());
+    }
+
+    /**
+     * Restores the latest snapshot and replays the persistence log, a no-op when both are disabled. Depends on the
+     * cleaner initializer so the eviction strategy sees the restored keys.
+     */
+    @Bean(initMethod = "recover")
+    public PersistenceRecovery persistenceRecovery(
+            ObjectProvider<PersistenceLog> persistenceLog,
+            ObjectProvider<SnapshotManager> snapshotManager,
+            IDistributedCache cacheCore,
+            CacheCleanerTaskInitializer cacheCleanerTaskInitializer
+    ) {
+        return new PersistenceRecovery(persistenceLog.getIfAvailable(), snapshotManager.getIfAvailable(),
+                (IRecoverableCache) cacheCore);
     }
 
     @Bean
-    public LeastRecentUsedStrategy<String> leastRecentUsedStrategy() {
-        return new LeastRecentUsedStrategy<>();
+    public IEvictionStrategy<String> evictionStrategy(
+            @Value("${cache.eviction.policy:lru}") String policy,
+            @Value("${cache.max-size:1000}") int maxCacheSize,
+            @Value("${cache.breathable-space:100}") int breathableSpace,
+            @Value("${cache.eviction.lfu.max-frequency:255}") int lfuMaximumFrequency,
+            @Value("${cache.eviction.lfu.aging-interval:#{null}}") Long lfuAgingInterval,
+            @Value("${cache.eviction.lfu.aging-period-millis:0}") long lfuAgingPeriodMillis
+    ) {
+        int maximumSize = maxCacheSize - breathableSpace;
+        return switch (EvictionPolicy.fromProperty(policy)) {
+            case LRU -> new LeastRecentUsedStrategy<>();
+            case LFU -> new AgingLeastFrequentlyUsedStrategy<>(lfuMaximumFrequency, lfuAgingInterval != null
+                    ? lfuAgingInterval : AgingLeastFrequentlyUsedStrategy.defaultAgingInterval(maximumSize),
+                    lfuAgingPeriodMillis);
+            case FIFO -> new FirstInFirstOutStrategy<>();
+            case W_TINYLFU -> new WindowTinyLfuStrategy<>(maximumSize);
+            case SIEVE -> new SieveStrategy<>();
+            case ARC -> new AdaptiveReplacementStrategy<>(maximumSize);
+            case SAMPLED_LRU, SAMPLED_LFU -> new NoOpEvictionStrategy<>();
+        };
     }
 
     @Bean
     public CacheCleanerTask cacheCleanerTask(
             @Value("${cache.max-size:1000}") int maxCacheSize,
             @Value("${cache.breathable-space:100}") int breathableSpace,
-            IDistributedCache singleThreadedCacheCore
+            @Value("${cache.max-bytes:0}") long maxBytes,
+            @Value("${cache.low-water-ratio:0.9}") double lowWaterRatio,
+            @Value("${cache.eviction.policy:lru}") String evictionPolicy,
+            CacheQueue cacheQueue,
+            IExpirationTracker expirationTracker,
+            IEvictionStrategy<String> evictionStrategy,
+            IDistributedCache cacheCore
     ) {
-        int maximumSize = maxCacheSize - breathableSpace;
+        // with sampled eviction the cores enforce the limits themselves
+        boolean sampled = EvictionPolicy.fromProperty(evictionPolicy).isSampled();
+        int maximumSize = sampled ? Integer.MAX_VALUE : maxCacheSize - breathableSpace;
+        long maximumBytes = sampled ? 0 : maxBytes;
         return new CacheCleanerTask(
-                cacheQueue(),
-                ttlQueue(),
-                leastFrequentlyUsedStrategy(),
+                cacheQueue,
+                expirationTracker,
+                evictionStrategy,
                 maximumSize,
+                maximumBytes,
+                (long) (maximumBytes * lowWaterRatio),
                 cacheMetrics(),
-                singleThreadedCacheCore
+                cacheCore
         );
     }
 
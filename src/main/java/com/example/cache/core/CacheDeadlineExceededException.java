@@ -0,0 +1,26 @@
+package com.example.cache.core;
+
+/**
+ * The deadline of the request passed before the core got to execute it, the task was skipped. Like an overload, it is
+ * only raised before any work was spent on the task.
+ */
+public class CacheDeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CacheDeadlineExceededException(String message) {
+        super(message, null, false, false);
+    }
+
+    /**
+     * @return True if the throwable, or one of its causes, is an exceeded deadline.
+     */
+    public static boolean isDeadlineExceeded(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CacheDeadlineExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
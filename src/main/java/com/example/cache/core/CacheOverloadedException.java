@@ -0,0 +1,26 @@
+package com.example.cache.core;
+
+/**
+ * The core could not admit the task because its inbox is full, the caller may retry later. Only raised before any
+ * work was spent on the task.
+ */
+public class CacheOverloadedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CacheOverloadedException(String message) {
+        super(message, null, false, false);
+    }
+
+    /**
+     * @return True if the throwable, or one of its causes, is an overload of a core.
+     */
+    public static boolean isOverloaded(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CacheOverloadedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.cache.core;
+
+import com.example.cache.cluster.IClusterService;
+import com.example.cache.cluster.grpc.CacheGrpcClient;
+import com.example.cache.core.domain.RequestOptions;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Splits a multi-key operation by owner node: the locally owned part is handed over to the local executor of the
+ * core (one task per batch), every remote part is sent as one batched RPC per peer. All the parts run in parallel and
+ * are merged into a single result. Every part gets the deadline of the whole operation.
+ */
+@Slf4j
+class ClusterBatchRouter {
+    private final IClusterService clusterService;
+    private final CacheGrpcClient grpcClient;
+
+    ClusterBatchRouter(IClusterService clusterService, CacheGrpcClient grpcClient) {
+        this.clusterService = clusterService;
+        this.grpcClient = grpcClient;
+    }
+
+    CompletableFuture<Map<String, byte[]>> multiGet(
+            Collection<String> keys, RequestOptions options, Function<List<String>, CompletableFuture<Map<String, byte[]>>> localExecutor) {
+        List<CompletableFuture<Map<String, byte[]>>> parts = new ArrayList<>();
+        groupKeysByOwner(keys).forEach((ownerId, ownerKeys) -> {
+            if (isLocal(ownerId)) {
+                parts.add(localExecutor.apply(ownerKeys));
+            } else {
+                parts.add(forward(ownerId, ownerKeys.size(), (address, future) ->
+                        grpcClient.forwardMultiGet(address, ownerKeys, options, future)));
+            }
+        });
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            Map<String, byte[]> merged = new HashMap<>();
+            parts.forEach(part -> merged.putAll(part.join()));
+            return merged;
+        });
+    }
+
+    CompletableFuture<Void> multiPut(Map<String, byte[]> entries, long ttlInSec, RequestOptions options,
+                                     Function<Map<String, byte[]>, CompletableFuture<Void>> localExecutor) {
+        Map<String, Map<String, byte[]>> entriesByOwner = new LinkedHashMap<>();
+        entries.forEach((key, value) ->
+                entriesByOwner.computeIfAbsent(clusterService.findOwnerNode(key), owner -> new LinkedHashMap<>())
+                        .put(key, value));
+
+        List<CompletableFuture<?>> parts = new ArrayList<>();
+        entriesByOwner.forEach((ownerId, ownerEntries) -> {
+            if (isLocal(ownerId)) {
+                parts.add(localExecutor.apply(ownerEntries));
+            } else {
+                parts.add(this.<Void>forward(ownerId, ownerEntries.size(), (address, future) ->
+                        grpcClient.forwardMultiPut(address, ownerEntries, ttlInSec, options, future)));
+            }
+        });
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]));
+    }
+
+    CompletableFuture<Void> multiDelete(Collection<String> keys, RequestOptions options,
+                                        Function<List<String>, CompletableFuture<Void>> localExecutor) {
+        List<CompletableFuture<?>> parts = new ArrayList<>();
+        groupKeysByOwner(keys).forEach((ownerId, ownerKeys) -> {
+            if (isLocal(ownerId)) {
+                parts.add(localExecutor.apply(ownerKeys));
+            } else {
+                parts.add(this.<Void>forward(ownerId, ownerKeys.size(), (address, future) ->
+                        grpcClient.forwardMultiDelete(address, ownerKeys, options, future)));
+            }
+        });
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private Map<String, List<String>> groupKeysByOwner(Collection<String> keys) {
+        Map<String, List<String>> keysByOwner = new LinkedHashMap<>();
+        for (String key : keys) {
+            keysByOwner.computeIfAbsent(clusterService.findOwnerNode(key), owner -> new ArrayList<>()).add(key);
+        }
+        return keysByOwner;
+    }
+
+    private boolean isLocal(String ownerId) {
+        return ownerId.equals(clusterService.getLocalNodeId());
+    }
+
+    private <T> CompletableFuture<T> forward(String ownerId, int keyCount, RemoteCall<T> remoteCall) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        String ownerNodeAddress = clusterService.getAddressForNodeId(ownerId);
+        if (ownerNodeAddress == null || ownerNodeAddress.isEmpty()) {
+            log.error("[Cluster.Routing:AddressNotFound] [msg=No address found for owner node] [Owner Node={}] [Keys={}]",
+                    ownerId, keyCount);
+            future.completeExceptionally(new RuntimeException("Address not found for owner node=" + ownerId));
+            return future;
+        }
+        log.debug("[Cluster.Routing:Forwarding.Batch] [Owner Node={}] [Target Address={}] [Keys={}]",
+                ownerId, ownerNodeAddress, keyCount);
+        remoteCall.call(ownerNodeAddress, future);
+        return future;
+    }
+
+    @FunctionalInterface
+    private interface RemoteCall<T> {
+        void call(String address, CompletableFuture<T> future);
+    }
+}
@@ -1,15 +1,169 @@
 package com.example.cache.core;
 
+import com.example.cache.core.domain.CacheEntry;
+import com.example.cache.core.domain.Lane;
+import com.example.cache.core.domain.RequestOptions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
+/**
+ * Every operation takes the {@link RequestOptions} of the caller: a task whose deadline has passed by the time the
+ * core gets to it is skipped and fails with {@link CacheDeadlineExceededException}, and forwarded requests carry the
+ * remaining budget to the owner node. The variants without options have no deadline.
+ */
 public interface IDistributedCache {
 
-    CompletableFuture<Void> submitPut(String key, String value, long ttlSeconds);
+    /**
+     * Returned by {@link #tryGetBytes(String)} when the key cannot be read on the caller thread, compared by identity.
+     */
+    byte[] NOT_READ_DIRECTLY = new byte[0];
+
+    /**
+     * Values are stored as raw bytes, this is the primary write API and the one used by the gRPC peers.
+     */
+    CompletableFuture<Void> submitPutBytes(String key, byte[] value, long ttlSeconds, RequestOptions options);
+
+    /**
+     * @return A future completed with the stored bytes, or null on a cache miss.
+     */
+    CompletableFuture<byte[]> submitGetBytes(String key, RequestOptions options);
+
+    /**
+     * Synchronous GET for the hottest path: a locally owned key of a core reading concurrently is read on the caller
+     * thread, without any future. Other keys are left to {@link #submitGetBytes(String, RequestOptions)}.
+     *
+     * @return The stored bytes, null on a cache miss, or {@link #NOT_READ_DIRECTLY}.
+     */
+    default byte[] tryGetBytes(String key) {
+        return NOT_READ_DIRECTLY;
+    }
+
+    /**
+     * PUT of a value already in the compressed form of {@link com.example.cache.core.storage.ValueCompressor}, it is
+     * stored without recompressing. Used by the gRPC peers.
+     */
+    CompletableFuture<Void> submitPutCompressed(String key, byte[] compressedValue, long ttlSeconds,
+                                                RequestOptions options);
+
+    /**
+     * GET of the entry as stored, its value stays compressed when {@link CacheEntry#isCompressed()}, so that it can be
+     * sent to a peer without decompressing. Used by the gRPC peers.
+     *
+     * @return A future completed with the entry, or null on a cache miss.
+     */
+    CompletableFuture<CacheEntry> submitGetStored(String key, RequestOptions options);
+
+    CompletableFuture<Void> submitDelete(String key, RequestOptions options);
 
-    CompletableFuture<String> submitGet(String key);
+    /**
+     * Batched GET, keys are grouped by owner so that each node (and each local shard) is visited once per batch.
+     *
+     * @return A future completed with the values of the keys that were found, missing keys are absent from the map.
+     */
+    CompletableFuture<Map<String, byte[]>> submitMultiGet(Collection<String> keys, RequestOptions options);
 
-    CompletableFuture<Void> submitDelete(String key);
+    /**
+     * Batched PUT, all the entries share the same TTL.
+     */
+    CompletableFuture<Void> submitMultiPut(Map<String, byte[]> entries, long ttlSeconds, RequestOptions options);
+
+    CompletableFuture<Void> submitMultiDelete(Collection<String> keys, RequestOptions options);
+
+    /**
+     * Internal bulk removal for the expiry and eviction of the cache cleaner: the keys are removed from the local
+     * storage in one housekeeping task per core, without ownership routing, without a future per key and without
+     * publishing DELETE operations back to the CacheQueue (the cleaner has already dropped them from its expiration
+     * tracker and eviction strategy). Removals are still logged when persistence is enabled.
+     * <p>
+     * A key written again after the cleaner picked it is removed all the same: evicting it is a capacity decision,
+     * the cleaner forgets the keys of the following PUT events once it finds them gone. Expired keys go through
+     * {@link #submitBulkExpire(Collection)} instead.
+     *
+     * @return A future completed once all the keys are removed.
+     */
+    CompletableFuture<Void> submitBulkRemove(Collection<String> keys);
+
+    /**
+     * Like {@link #submitBulkRemove(Collection)}, for the keys the cache cleaner found expired: the expiry is checked
+     * again when the housekeeping task runs, a key written again in the meantime (with a new TTL) is kept.
+     *
+     * @return A future completed once all the expired keys are removed.
+     */
+    CompletableFuture<Void> submitBulkExpire(Collection<String> keys);
 
     int size();
 
+    /**
+     * @return Estimated memory footprint of the locally stored entries, keys and values included.
+     */
+    long usedBytes();
+
+    /**
+     * @return Number of tasks waiting in the inbox of the core, of all its shards.
+     */
+    int inboxSize();
+
+    /**
+     * @return Number of tasks waiting in the given inbox lane of the core, of all its shards.
+     */
+    int inboxSize(Lane lane);
+
+    default CompletableFuture<Void> submitPutBytes(String key, byte[] value, long ttlSeconds) {
+        return submitPutBytes(key, value, ttlSeconds, RequestOptions.NONE);
+    }
+
+    default CompletableFuture<byte[]> submitGetBytes(String key) {
+        return submitGetBytes(key, RequestOptions.NONE);
+    }
+
+    default CompletableFuture<Void> submitPutCompressed(String key, byte[] compressedValue, long ttlSeconds) {
+        return submitPutCompressed(key, compressedValue, ttlSeconds, RequestOptions.NONE);
+    }
+
+    default CompletableFuture<CacheEntry> submitGetStored(String key) {
+        return submitGetStored(key, RequestOptions.NONE);
+    }
+
+    default CompletableFuture<Void> submitDelete(String key) {
+        return submitDelete(key, RequestOptions.NONE);
+    }
+
+    default CompletableFuture<Map<String, byte[]>> submitMultiGet(Collection<String> keys) {
+        return submitMultiGet(keys, RequestOptions.NONE);
+    }
+
+    default CompletableFuture<Void> submitMultiPut(Map<String, byte[]> entries, long ttlSeconds) {
+        return submitMultiPut(entries, ttlSeconds, RequestOptions.NONE);
+    }
+
+    default CompletableFuture<Void> submitMultiDelete(Collection<String> keys) {
+        return submitMultiDelete(keys, RequestOptions.NONE);
+    }
+
+    /**
+     * Convenience API for text values, the value is stored as UTF-8 bytes.
+     */
+    default CompletableFuture<Void> submitPut(String key, String value, long ttlSeconds, RequestOptions options) {
+        return submitPutBytes(key, value == null ? null : value.getBytes(StandardCharsets.UTF_8), ttlSeconds, options);
+    }
+
+    /**
+     * Convenience API for text values, the stored bytes are decoded as UTF-8.
+     */
+    default CompletableFuture<String> submitGet(String key, RequestOptions options) {
+        return submitGetBytes(key, options)
+                .thenApply(value -> value == null ? null : new String(value, StandardCharsets.UTF_8));
+    }
+
+    default CompletableFuture<Void> submitPut(String key, String value, long ttlSeconds) {
+        return submitPut(key, value, ttlSeconds, RequestOptions.NONE);
+    }
+
+    default CompletableFuture<String> submitGet(String key) {
+        return submitGet(key, RequestOptions.NONE);
+    }
+
 }
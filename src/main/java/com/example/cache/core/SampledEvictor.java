@@ -0,0 +1,199 @@
+package com.example.cache.core;
+
+import com.example.cache.core.domain.SampledEviction;
+import com.example.cache.core.storage.ICacheStorage;
+
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Redis style eviction from random samples, run by the owner thread of the storage. The storage keeps 24 bits of
+ * access metadata per entry ({@link ICacheStorage#accessInfo(String)}), nothing else is kept per key:
+ * <ul>
+ *     <li>LRU: the access clock, the time of the last access in seconds (wraps around after 194 days);</li>
+ *     <li>LFU: an 8-bit logarithmic access counter, and the time it was last decayed in minutes (16 bits). The counter
+ *     starts at {@value #LFU_INIT_VALUE} so that new keys get a chance to be accessed again, its increments get less
+ *     likely as it grows, and it loses one point per minute without access.</li>
+ * </ul>
+ * Every eviction samples a few random keys and merges them into a pool of the best candidates seen so far, sorted by
+ * score (idle time, or how rarely the key is accessed); the best one still stored is evicted. The pool makes up for
+ * the small samples, a good candidate that was not evicted this time is still considered the next time.
+ * <p>
+ * Not thread safe, only used by the owner thread.
+ */
+final class SampledEvictor {
+    private static final int CLOCK_MASK = (1 << 24) - 1;
+    private static final int LFU_MINUTES_MASK = (1 << 16) - 1;
+    private static final int LFU_COUNTER_MASK = (1 << 8) - 1;
+    private static final int LFU_INIT_VALUE = 5;
+    private static final int LFU_LOG_FACTOR = 10;
+
+    private final SampledEviction mode;
+    private final ICacheStorage storage;
+    private final int sampleSize;
+    private final RandomGenerator random;
+    private final LongSupplier clockMillis;
+
+    // candidates sorted by ascending score, the best one last
+    private final String[] poolKeys;
+    private final long[] poolScores;
+    private int poolCount;
+
+    /**
+     * Updates the access metadata of an entry on a read, handed to {@link ICacheStorage#updateAccessInfo}.
+     */
+    final IntUnaryOperator accessRecorder = this::onAccess;
+
+    SampledEvictor(SampledEviction mode, ICacheStorage storage, int sampleSize, int poolSize, RandomGenerator random) {
+        this(mode, storage, sampleSize, poolSize, random, System::currentTimeMillis);
+    }
+
+    SampledEvictor(SampledEviction mode, ICacheStorage storage, int sampleSize, int poolSize, RandomGenerator random,
+                   LongSupplier clockMillis) {
+        if (mode == SampledEviction.NONE) {
+            throw new IllegalArgumentException("'mode' must be LRU or LFU.");
+        }
+        this.mode = mode;
+        this.storage = storage;
+        this.sampleSize = Math.max(1, sampleSize);
+        this.random = random;
+        this.clockMillis = clockMillis;
+        this.poolKeys = new String[Math.max(1, poolSize)];
+        this.poolScores = new long[poolKeys.length];
+    }
+
+    /**
+     * @param previousAccessInfo Access metadata of the entry being replaced, -1 for a new key.
+     * @return Access metadata of the entry being stored: a new key starts fresh, replacing a value counts as an access.
+     */
+    int onPut(int previousAccessInfo) {
+        if (previousAccessInfo < 0) {
+            return mode == SampledEviction.LRU ? clock() : lfuInfo(minutes(), LFU_INIT_VALUE);
+        }
+        return onAccess(previousAccessInfo);
+    }
+
+    int onAccess(int accessInfo) {
+        if (mode == SampledEviction.LRU) {
+            return clock();
+        }
+        int minutes = minutes();
+        return lfuInfo(minutes, incrementCounter(decayedCounter(accessInfo, minutes)));
+    }
+
+    /**
+     * @return Higher for a better eviction candidate.
+     */
+    long score(int accessInfo) {
+        if (mode == SampledEviction.LRU) {
+            return (clock() - accessInfo) & CLOCK_MASK;
+        }
+        return LFU_COUNTER_MASK - decayedCounter(accessInfo, minutes());
+    }
+
+    /**
+     * @return The key to evict next, null if the storage is empty.
+     */
+    String nextVictim() {
+        while (true) {
+            int sampled = populatePool();
+            while (poolCount > 0) {
+                String key = poolKeys[--poolCount];
+                poolKeys[poolCount] = null;
+                // pooled in an earlier round, it may have been removed since
+                if (storage.accessInfo(key) >= 0) {
+                    return key;
+                }
+            }
+            if (sampled == 0) {
+                return null;
+            }
+        }
+    }
+
+    private int populatePool() {
+        int sampled = 0;
+        for (int i = 0; i < sampleSize; i++) {
+            String key = storage.randomKey(random);
+            if (key == null) {
+                break;
+            }
+            sampled++;
+            addToPool(key, score(storage.accessInfo(key)));
+        }
+        return sampled;
+    }
+
+    private void addToPool(String key, long score) {
+        // a key sampled again replaces its previous (possibly outdated) score
+        for (int i = 0; i < poolCount; i++) {
+            if (poolKeys[i].equals(key)) {
+                System.arraycopy(poolKeys, i + 1, poolKeys, i, poolCount - i - 1);
+                System.arraycopy(poolScores, i + 1, poolScores, i, poolCount - i - 1);
+                poolKeys[--poolCount] = null;
+                break;
+            }
+        }
+        int position = 0;
+        while (position < poolCount && poolScores[position] < score) {
+            position++;
+        }
+        if (poolCount < poolKeys.length) {
+            System.arraycopy(poolKeys, position, poolKeys, position + 1, poolCount - position);
+            System.arraycopy(poolScores, position, poolScores, position + 1, poolCount - position);
+            poolCount++;
+        } else if (position == 0) {
+            // worse than every candidate of a full pool
+            return;
+        } else {
+            // drop the worst candidate to make room
+            position--;
+            System.arraycopy(poolKeys, 1, poolKeys, 0, position);
+            System.arraycopy(poolScores, 1, poolScores, 0, position);
+        }
+        poolKeys[position] = key;
+        poolScores[position] = score;
+    }
+
+    int poolSize() {
+        return poolCount;
+    }
+
+    private int clock() {
+        return (int) (clockMillis.getAsLong() / 1000) & CLOCK_MASK;
+    }
+
+    private int minutes() {
+        return (int) (clockMillis.getAsLong() / 60_000) & LFU_MINUTES_MASK;
+    }
+
+    private static int lfuInfo(int minutes, int counter) {
+        return (minutes << 8) | counter;
+    }
+
+    static int lfuCounter(int accessInfo) {
+        return accessInfo & LFU_COUNTER_MASK;
+    }
+
+    /**
+     * One point lost per minute since the last access.
+     */
+    private static int decayedCounter(int accessInfo, int minutes) {
+        int elapsed = (minutes - (accessInfo >>> 8)) & LFU_MINUTES_MASK;
+        return Math.max(0, lfuCounter(accessInfo) - elapsed);
+    }
+
+    /**
+     * Logarithmic increment: the higher the counter above its initial value, the less likely it grows, about 1M
+     * accesses saturate it.
+     */
+    private int incrementCounter(int counter) {
+        if (counter == LFU_COUNTER_MASK) {
+            return counter;
+        }
+        int base = Math.max(0, counter - LFU_INIT_VALUE);
+        double probability = 1.0 / (base * LFU_LOG_FACTOR + 1);
+        return random.nextDouble() < probability ? counter + 1 : counter;
+    }
+}
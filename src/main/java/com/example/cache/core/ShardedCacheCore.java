@@ -0,0 +1,253 @@
+package com.example.cache.core;
+
+import com.example.cache.cluster.IClusterService;
+import com.example.cache.cluster.grpc.CacheGrpcClient;
+import com.example.cache.core.domain.CacheCoreConfig;
+import com.example.cache.core.domain.CacheEntry;
+import com.example.cache.core.domain.Lane;
+import com.example.cache.core.domain.RequestOptions;
+import com.example.cache.core.ds.CacheQueue;
+import com.example.cache.core.storage.CacheStorageFactory;
+import com.example.cache.metrics.CacheMetrics;
+import com.example.cache.nearcache.NearCache;
+import com.example.cache.nearcache.NearCacheInvalidator;
+import com.example.cache.persistence.IRecoverableCache;
+import com.example.cache.persistence.PersistenceLog;
+import com.example.cache.persistence.PersistenceRecord;
+import com.example.cache.persistence.SnapshotPartition;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Splits the local key space into N independent shards, each one being a {@link SingleThreadedCacheCore} with its own
+ * storage, task queue and worker thread. A key is always routed to the same shard, so the single writer guarantee of
+ * the event loop still holds per key while the node can use as many cores as there are shards.
+ * <p>
+ * CacheQueue and CacheMetrics are shared between the shards, both of them are safe for concurrent use, which keeps the
+ * eviction and metrics view aggregated for the whole node.
+ */
+@Slf4j
+public class ShardedCacheCore implements IDistributedCache, IRecoverableCache {
+    private final SingleThreadedCacheCore[] shards;
+    private final ClusterBatchRouter batchRouter;
+
+    public ShardedCacheCore(String workerThreadName, int shardCount, CacheQueue queue, CacheMetrics cacheMetrics,
+                            IClusterService clusterService, CacheGrpcClient grpcClient) {
+        this(workerThreadName, shardCount, CacheCoreConfig.defaults(), queue, cacheMetrics, clusterService, grpcClient);
+    }
+
+    public ShardedCacheCore(String workerThreadName, int shardCount, CacheCoreConfig config, CacheQueue queue,
+                            CacheMetrics cacheMetrics, IClusterService clusterService, CacheGrpcClient grpcClient) {
+        this(workerThreadName, shardCount, config, CacheStorageFactory.heap(), queue, cacheMetrics, clusterService,
+                grpcClient);
+    }
+
+    public ShardedCacheCore(String workerThreadName, int shardCount, CacheCoreConfig config,
+                            CacheStorageFactory storageFactory, CacheQueue queue, CacheMetrics cacheMetrics,
+                            IClusterService clusterService, CacheGrpcClient grpcClient) {
+        this(workerThreadName, shardCount, config, storageFactory, null, null, null, queue, cacheMetrics,
+                clusterService, grpcClient);
+    }
+
+    /**
+     * The near cache, its invalidator and the persistence log are shared by all the shards.
+     */
+    public ShardedCacheCore(String workerThreadName, int shardCount, CacheCoreConfig config,
+                            CacheStorageFactory storageFactory, NearCache nearCache,
+                            NearCacheInvalidator nearCacheInvalidator, PersistenceLog persistenceLog,
+                            CacheQueue queue, CacheMetrics cacheMetrics, IClusterService clusterService,
+                            CacheGrpcClient grpcClient) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("'shardCount' must be greater than 0.");
+        }
+        this.shards = new SingleThreadedCacheCore[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new SingleThreadedCacheCore(workerThreadName + "-" + i, config, storageFactory, nearCache,
+                    nearCacheInvalidator, persistenceLog, queue, cacheMetrics, clusterService, grpcClient);
+        }
+        this.batchRouter = new ClusterBatchRouter(clusterService, grpcClient);
+        log.info("[ShardedCacheCore.Initialized] [shardCount={}]", shardCount);
+    }
+
+    /**
+     * Spreads the higher bits of the hash code into the lower ones (same as HashMap does) before taking the modulo,
+     * keys with similar prefixes tend to differ only in the higher bits.
+     */
+    int shardIndex(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return (hash & 0x7fffffff) % shards.length;
+    }
+
+    private SingleThreadedCacheCore shardFor(String key) {
+        return shards[shardIndex(key)];
+    }
+
+    @Override
+    public CompletableFuture<Void> submitPutBytes(String key, byte[] value, long ttlSeconds,
+                                                  RequestOptions options) {
+        return shardFor(key).submitPutBytes(key, value, ttlSeconds, options);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> submitGetBytes(String key, RequestOptions options) {
+        return shardFor(key).submitGetBytes(key, options);
+    }
+
+    @Override
+    public byte[] tryGetBytes(String key) {
+        return shardFor(key).tryGetBytes(key);
+    }
+
+    @Override
+    public CompletableFuture<Void> submitPutCompressed(String key, byte[] compressedValue, long ttlSeconds,
+                                                       RequestOptions options) {
+        return shardFor(key).submitPutCompressed(key, compressedValue, ttlSeconds, options);
+    }
+
+    @Override
+    public CompletableFuture<CacheEntry> submitGetStored(String key, RequestOptions options) {
+        return shardFor(key).submitGetStored(key, options);
+    }
+
+    @Override
+    public CompletableFuture<Void> submitDelete(String key, RequestOptions options) {
+        return shardFor(key).submitDelete(key, options);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, byte[]>> submitMultiGet(Collection<String> keys, RequestOptions options) {
+        return batchRouter.multiGet(keys, options, localKeys -> {
+            List<CompletableFuture<Map<String, byte[]>>> parts = new ArrayList<>();
+            groupKeysByShard(localKeys).forEach((shard, shardKeys) -> parts.add(shards[shard].submitLocalMultiGet(shardKeys, options)));
+            return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+                Map<String, byte[]> merged = new HashMap<>();
+                parts.forEach(part -> merged.putAll(part.join()));
+                return merged;
+            });
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> submitMultiPut(Map<String, byte[]> entries, long ttlSeconds,
+                                                  RequestOptions options) {
+        entries.keySet().forEach(key -> shardFor(key).detachInFlightGet(key));
+        return batchRouter.multiPut(entries, ttlSeconds, options, localEntries -> {
+            Map<Integer, Map<String, byte[]>> entriesByShard = new LinkedHashMap<>();
+            localEntries.forEach((key, value) ->
+                    entriesByShard.computeIfAbsent(shardIndex(key), shard -> new LinkedHashMap<>()).put(key, value));
+            List<CompletableFuture<Void>> parts = new ArrayList<>();
+            entriesByShard.forEach((shard, shardEntries) ->
+                    parts.add(shards[shard].submitLocalMultiPut(shardEntries, ttlSeconds, options)));
+            return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]));
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> submitMultiDelete(Collection<String> keys, RequestOptions options) {
+        keys.forEach(key -> shardFor(key).detachInFlightGet(key));
+        return batchRouter.multiDelete(keys, options, localKeys -> {
+            List<CompletableFuture<Void>> parts = new ArrayList<>();
+            groupKeysByShard(localKeys).forEach((shard, shardKeys) -> parts.add(shards[shard].submitLocalMultiDelete(shardKeys, options)));
+            return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]));
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> submitBulkRemove(Collection<String> keys) {
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        groupKeysByShard(keys).forEach((shard, shardKeys) -> parts.add(shards[shard].submitBulkRemove(shardKeys)));
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture<?>[]::new));
+    }
+
+    @Override
+    public CompletableFuture<Void> submitBulkExpire(Collection<String> keys) {
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        groupKeysByShard(keys).forEach((shard, shardKeys) -> parts.add(shards[shard].submitBulkExpire(shardKeys)));
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture<?>[]::new));
+    }
+
+    private Map<Integer, List<String>> groupKeysByShard(Collection<String> keys) {
+        Map<Integer, List<String>> keysByShard = new LinkedHashMap<>();
+        for (String key : keys) {
+            keysByShard.computeIfAbsent(shardIndex(key), shard -> new ArrayList<>()).add(key);
+        }
+        return keysByShard;
+    }
+
+    @Override
+    public CompletableFuture<Void> submitRestore(PersistenceRecord record) {
+        return shardFor(record.key()).submitRestore(record);
+    }
+
+    @Override
+    public CompletableFuture<Void> submitRestoreAll(List<PersistenceRecord> records) {
+        Map<SingleThreadedCacheCore, List<PersistenceRecord>> recordsByShard = new HashMap<>();
+        for (PersistenceRecord record : records) {
+            recordsByShard.computeIfAbsent(shardFor(record.key()), shard -> new ArrayList<>()).add(record);
+        }
+        CompletableFuture<?>[] parts = recordsByShard.entrySet().stream()
+                .map(e -> e.getKey().submitRestoreAll(e.getValue()))
+                .toArray(CompletableFuture<?>[]::new);
+        return CompletableFuture.allOf(parts);
+    }
+
+    /**
+     * One partition per shard, every shard captures its own entries on its worker thread.
+     */
+    @Override
+    public List<CompletableFuture<SnapshotPartition>> submitCapture() {
+        List<CompletableFuture<SnapshotPartition>> partitions = new ArrayList<>(shards.length);
+        for (SingleThreadedCacheCore shard : shards) {
+            partitions.addAll(shard.submitCapture());
+        }
+        return partitions;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (SingleThreadedCacheCore shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long usedBytes() {
+        long usedBytes = 0;
+        for (SingleThreadedCacheCore shard : shards) {
+            usedBytes += shard.usedBytes();
+        }
+        return usedBytes;
+    }
+
+    @Override
+    public int inboxSize() {
+        int inboxSize = 0;
+        for (SingleThreadedCacheCore shard : shards) {
+            inboxSize += shard.inboxSize();
+        }
+        return inboxSize;
+    }
+
+    @Override
+    public int inboxSize(Lane lane) {
+        int inboxSize = 0;
+        for (SingleThreadedCacheCore shard : shards) {
+            inboxSize += shard.inboxSize(lane);
+        }
+        return inboxSize;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+}
@@ -2,55 +2,411 @@ package com.example.cache.core;
 
 import com.example.cache.cluster.IClusterService;
 import com.example.cache.cluster.grpc.CacheGrpcClient;
+import com.example.cache.core.domain.AdmissionPolicy;
+import com.example.cache.core.domain.CacheCoreConfig;
 import com.example.cache.core.domain.CacheEntry;
-import com.example.cache.core.domain.CacheOperation;
 import com.example.cache.core.domain.CacheOperationType;
+import com.example.cache.core.domain.Lane;
+import com.example.cache.core.domain.RequestOptions;
+import com.example.cache.core.domain.SampledEviction;
 import com.example.cache.core.ds.CacheQueue;
+import com.example.cache.core.ds.MpscRingBuffer;
+import com.example.cache.core.ds.ReadBuffer;
+import com.example.cache.core.storage.CacheStorageFactory;
+import com.example.cache.core.storage.ICacheStorage;
+import com.example.cache.core.storage.ValueCompressor;
 import com.example.cache.metrics.CacheMetrics;
+import com.example.cache.nearcache.NearCache;
+import com.example.cache.nearcache.NearCacheInvalidator;
+import com.example.cache.persistence.IRecoverableCache;
+import com.example.cache.persistence.PersistenceLog;
+import com.example.cache.persistence.PersistenceRecord;
+import com.example.cache.persistence.SnapshotPartition;
 import com.example.cache.util.SystemUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.SplittableRandom;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * Cache core owned by a single worker thread: every task that reads or changes the storage is queued in an inbox and
+ * applied by the worker, so the storage, the eviction metadata and the persistence log need no locking.
+ * <p>
+ * The inbox has one lane per {@link Lane}, drained by weight. Tasks are applied in order within a lane, not across
+ * lanes: a PUT forwarded by a peer can be applied before a DELETE of the same key queued earlier by a local client.
+ * Both callers are still waiting for their acknowledgement then, the operations overlap and either order is a valid
+ * outcome. Housekeeping tasks have no caller waiting and can run long after later client writes, so they must hold
+ * under any order: expiry batches only remove the keys still expired, eviction batches may remove a key written since
+ * it was picked (a capacity decision), recovery runs before the node serves traffic, captures copy whatever is stored.
+ */
 @Slf4j
-public class SingleThreadedCacheCore implements IDistributedCache {
+public class SingleThreadedCacheCore implements IDistributedCache, IRecoverableCache {
+    private static final CompletableFuture<byte[]> MISS = CompletableFuture.completedFuture(null);
+    private static final CompletableFuture<Void> DURABLE = CompletableFuture.completedFuture(null);
+    // An idle worker still wakes up at this interval to hand over reads that did not fill up a read buffer stripe
+    private static final long READ_BUFFER_DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
     private final CacheQueue queue;
     private final CacheMetrics cacheMetrics;
     private final IClusterService clusterService;
     private final CacheGrpcClient grpcClient;
+    private final CacheCoreConfig config;
+
+    private final ClusterBatchRouter batchRouter;
+
+    private final ICacheStorage storage;
+    // One inbox per lane, indexed by the lane ordinal, drained by weight: a backlog in one lane does not delay the others
+    private final MpscRingBuffer<CoreTask>[] lanes;
+    private final int[] laneQuotas;
+    private final Consumer<CoreTask> taskExecutor = this::executeTaskSafely;
+
+    // Only used with concurrent reads: GETs served on caller threads are recorded here and handed over to the
+    // CacheQueue by the worker thread, a dedicated task wakes up the worker when the buffer fills up.
+    private final ReadBuffer<String> readBuffer;
+    private final Consumer<String> readRecorder = this::recordRead;
+    private final AtomicBoolean readBufferDrainScheduled = new AtomicBoolean();
+    // Only used with the SHED_OLDEST admission policy: number of producers waiting for the oldest task of each lane
+    // to be shed
+    private final AtomicInteger[] pendingSheds = new AtomicInteger[Lane.all().length];
+    private final CacheTask drainReadBufferTask = new CacheTask(CacheOperationType.GET, null, null, 0,
+            RequestOptions.HOUSEKEEPING, null);
+
+    // Only used with GET coalescing: the in-flight GET per key, concurrent GETs of the same key join it instead of
+    // queueing their own task (or forwarding their own RPC when the key is owned by a peer).
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>> inFlightGets;
+
+    // Only set when the near cache is enabled: values of remotely owned keys are served from the near cache, changes
+    // of locally owned keys are published to the peers holding them.
+    private final NearCache nearCache;
+    private final NearCacheInvalidator nearCacheInvalidator;
+
+    // Only set when persistence is enabled, every PUT/DELETE applied to the storage is appended to it
+    private final PersistenceLog persistenceLog;
+
+    // Only used with active expiration and sampled eviction, the worker samples random keys every cycle interval
+    // (and on every write above the limits of the storage)
+    private final SplittableRandom random = new SplittableRandom();
+    private long nextExpirationCycleNanos;
+    private final long idleParkNanos;
 
-    private final Map<String, CacheEntry> storage = new HashMap<>();
-    private final BlockingQueue<CacheTask> taskQueue = new LinkedBlockingQueue<>();
+    // Only set with sampled eviction: the worker evicts by itself, reads update the access metadata of the entry
+    // instead of being recorded in the CacheQueue
+    private final SampledEvictor evictor;
 
     public SingleThreadedCacheCore(String workerThreadName, CacheQueue queue, CacheMetrics cacheMetrics,
                                    IClusterService clusterService, CacheGrpcClient grpcClient) {
+        this(workerThreadName, CacheCoreConfig.defaults(), queue, cacheMetrics, clusterService, grpcClient);
+    }
+
+    public SingleThreadedCacheCore(String workerThreadName, CacheCoreConfig config, CacheQueue queue,
+                                   CacheMetrics cacheMetrics, IClusterService clusterService,
+                                   CacheGrpcClient grpcClient) {
+        this(workerThreadName, config, CacheStorageFactory.heap(), queue, cacheMetrics, clusterService, grpcClient);
+    }
+
+    public SingleThreadedCacheCore(String workerThreadName, CacheCoreConfig config, CacheStorageFactory storageFactory,
+                                   CacheQueue queue, CacheMetrics cacheMetrics, IClusterService clusterService,
+                                   CacheGrpcClient grpcClient) {
+        this(workerThreadName, config, storageFactory, null, null, null, queue, cacheMetrics, clusterService,
+                grpcClient);
+    }
+
+    /**
+     * @param nearCache            Near cache for remotely owned keys, null or disabled to always forward.
+     * @param nearCacheInvalidator Publisher of the changes of locally owned keys to the peer near caches, can be null.
+     * @param persistenceLog       Log of the applied PUT/DELETE operations, null to keep the cache in memory only.
+     */
+    public SingleThreadedCacheCore(String workerThreadName, CacheCoreConfig config, CacheStorageFactory storageFactory,
+                                   NearCache nearCache, NearCacheInvalidator nearCacheInvalidator,
+                                   PersistenceLog persistenceLog, CacheQueue queue, CacheMetrics cacheMetrics,
+                                   IClusterService clusterService, CacheGrpcClient grpcClient) {
         this.queue = queue;
         this.cacheMetrics = cacheMetrics;
         this.clusterService = clusterService;
         this.grpcClient = grpcClient;
+        this.config = config;
+        this.batchRouter = new ClusterBatchRouter(clusterService, grpcClient);
+        this.lanes = newLanes(config);
+        this.laneQuotas = laneQuotas(config);
+        boolean sampledEviction = config.getSampledEviction() != SampledEviction.NONE;
+        this.storage = storageFactory.create(config.isConcurrentReads(),
+                config.isActiveExpiration() || sampledEviction);
+        this.evictor = sampledEviction
+                ? new SampledEvictor(config.getSampledEviction(), storage, config.getEvictionSampleSize(),
+                config.getEvictionPoolSize(), random)
+                : null;
+        this.readBuffer = config.isConcurrentReads()
+                ? new ReadBuffer<>(config.getReadBufferStripes(), config.getReadBufferStripeCapacity())
+                : null;
+        this.inFlightGets = config.isCoalesceGets() ? new ConcurrentHashMap<>() : null;
+        this.nearCache = nearCache != null && nearCache.isEnabled() ? nearCache : null;
+        this.nearCacheInvalidator = nearCacheInvalidator;
+        this.persistenceLog = persistenceLog;
+        long readBufferParkNanos = readBuffer != null ? READ_BUFFER_DRAIN_INTERVAL_NANOS : 0;
+        this.idleParkNanos = config.isActiveExpiration()
+                ? Math.min(readBufferParkNanos > 0 ? readBufferParkNanos : Long.MAX_VALUE,
+                TimeUnit.MILLISECONDS.toNanos(config.getExpirationCycleIntervalMillis()))
+                : readBufferParkNanos;
+        this.nextExpirationCycleNanos = System.nanoTime();
 
         Thread worker = new Thread(this::runEventLoop, workerThreadName);
         worker.setDaemon(true);
         worker.start();
     }
 
+    @SuppressWarnings("unchecked")
+    private MpscRingBuffer<CoreTask>[] newLanes(CacheCoreConfig config) {
+        MpscRingBuffer<CoreTask>[] lanes = (MpscRingBuffer<CoreTask>[]) new MpscRingBuffer<?>[Lane.all().length];
+        for (int lane = 0; lane < lanes.length; lane++) {
+            lanes[lane] = new MpscRingBuffer<>(config.getQueueCapacity());
+            pendingSheds[lane] = new AtomicInteger();
+        }
+        return lanes;
+    }
+
+    /**
+     * Number of tasks drained from each lane per round, the drain batch split by weight. Every lane gets at least
+     * one task per round so that none of them can starve.
+     */
+    private static int[] laneQuotas(CacheCoreConfig config) {
+        int totalWeight = 0;
+        for (Lane lane : Lane.all()) {
+            totalWeight += config.laneWeight(lane);
+        }
+        int[] quotas = new int[Lane.all().length];
+        for (Lane lane : Lane.all()) {
+            quotas[lane.ordinal()] = Math.max(1,
+                    config.getDrainBatchSize() * config.laneWeight(lane) / Math.max(1, totalWeight));
+        }
+        return quotas;
+    }
+
     private void runEventLoop() {
         log.info("Single-threaded cache core worker started");
         while (!Thread.currentThread().isInterrupted()) {
-            try {
-                CacheTask task = taskQueue.take();
-                executeTask(task);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (Exception e) {
-                log.error("Error processing cache task", e);
+            // drain a batch of tasks per wake-up, the worker only waits (spin, then park) once the inbox is empty
+            int drained = 0;
+            for (int lane = 0; lane < lanes.length; lane++) {
+                drained += lanes[lane].drain(taskExecutor, laneQuotas[lane]);
+            }
+            if (readBuffer != null) {
+                drainReadBuffer();
+            }
+            if (config.isActiveExpiration()) {
+                runExpirationCycleIfDue();
             }
+            if (drained == 0) {
+                MpscRingBuffer.awaitAny(config.getIdleSpinTries(), idleParkNanos, lanes);
+            }
+        }
+    }
+
+    /**
+     * Samples random keys and removes the expired ones, repeating while the expired fraction of a sample stays above
+     * the threshold (many keys are expiring) and the CPU budget of the cycle is not used up.
+     */
+    private void runExpirationCycleIfDue() {
+        long startTime = System.nanoTime();
+        if (startTime - nextExpirationCycleNanos < 0) {
+            return;
         }
+        nextExpirationCycleNanos = startTime + TimeUnit.MILLISECONDS.toNanos(config.getExpirationCycleIntervalMillis());
+        long deadline = startTime + TimeUnit.MICROSECONDS.toNanos(config.getExpirationCycleBudgetMicros());
+        long currentTimeInSec = SystemUtil.getCurrentTimeInSec();
+        int sampleSize = config.getExpirationSampleSize();
+        int sampled;
+        int expired;
+        do {
+            sampled = 0;
+            expired = 0;
+            for (int i = 0; i < sampleSize; i++) {
+                String key = storage.randomKey(random);
+                if (key == null) {
+                    break;
+                }
+                sampled++;
+                if (storage.getStored(key).isExpired(currentTimeInSec)) {
+                    expireLocal(key);
+                    expired++;
+                }
+            }
+            cacheMetrics.addExpirationSamples(sampled);
+        } while (sampled > 0 && expired > sampled * config.getExpirationRepeatThreshold()
+                && System.nanoTime() - deadline < 0);
+    }
+
+    /**
+     * Published and logged like any other removal.
+     */
+    private void expireLocal(String key) {
+        publishChange(key);
+        storage.remove(key);
+        cacheMetrics.incrementTtlExpirations();
+        queue.recordDelete(key);
+        if (persistenceLog != null) {
+            persistenceLog.append(PersistenceRecord.delete(key));
+        }
+    }
+
+    private void drainReadBuffer() {
+        readBufferDrainScheduled.set(false);
+        readBuffer.drainTo(readRecorder);
+    }
+
+    private void recordRead(String key) {
+        if (evictor != null) {
+            storage.updateAccessInfo(key, evictor.accessRecorder);
+        } else {
+            queue.recordRead(key);
+        }
+    }
+
+    /**
+     * Sampled eviction: evicts until the storage is back under its limits. An eviction is published and logged like
+     * any removal, the DELETE recorded in the CacheQueue lets the cleaner forget the expiration of the key.
+     */
+    private void evictIfNeeded() {
+        if (evictor == null) {
+            return;
+        }
+        while ((config.getMaximumEntries() > 0 && storage.size() > config.getMaximumEntries())
+                || (config.getMaximumBytes() > 0 && storage.usedBytes() > config.getMaximumBytes())) {
+            String key = evictor.nextVictim();
+            if (key == null) {
+                return;
+            }
+            publishChange(key);
+            storage.remove(key);
+            cacheMetrics.incrementEvictions();
+            queue.recordDelete(key);
+            if (persistenceLog != null) {
+                persistenceLog.append(PersistenceRecord.delete(key));
+            }
+            log.debug("[CacheCore.Eviction.Sampled] [key={}] [policy={}]", key, config.getSampledEviction());
+        }
+    }
+
+    private void executeTaskSafely(CoreTask task) {
+        if (task.future() != null) {
+            cacheMetrics.recordLaneWait(task.lane(), System.nanoTime() - task.enqueuedNanos());
+        }
+        if (shedIfRequested(task) || skipIfExpired(task)) {
+            return;
+        }
+        try {
+            switch (task) {
+                case CacheTask cacheTask -> executeTask(cacheTask);
+                case BatchTask batchTask -> executeBatch(batchTask);
+                case RestoreTask restoreTask -> executeRestore(restoreTask);
+                case CaptureTask captureTask -> executeCapture(captureTask);
+                case StoredGetTask storedGetTask -> executeStoredGet(storedGetTask);
+                case RemoveTask removeTask -> executeRemove(removeTask);
+            }
+        } catch (Exception e) {
+            log.error("Error processing cache task", e);
+            if (task.future() != null) {
+                task.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Inbox is bounded, housekeeping tasks back off until the worker frees a slot: the node must not drop its own
+     * expiry and eviction work, and its producers can afford to wait.
+     */
+    private void enqueue(CoreTask task) {
+        MpscRingBuffer<CoreTask> lane = lanes[task.lane().ordinal()];
+        while (!lane.offer(task)) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Enqueues a task of a client or a peer, applying the admission policy when its lane is full. A task that is not
+     * admitted fails right away with {@link CacheOverloadedException}, before any work is spent on it.
+     */
+    private void admit(CoreTask task) {
+        if (task.lane() == Lane.HOUSEKEEPING) {
+            enqueue(task);
+            return;
+        }
+        MpscRingBuffer<CoreTask> inbox = lanes[task.lane().ordinal()];
+        AtomicInteger pendingSheds = this.pendingSheds[task.lane().ordinal()];
+        if (inbox.offer(task)) {
+            return;
+        }
+        AdmissionPolicy policy = config.getAdmissionPolicy();
+        if (policy != AdmissionPolicy.REJECT) {
+            if (policy == AdmissionPolicy.SHED_OLDEST) {
+                pendingSheds.incrementAndGet();
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getAdmissionTimeoutMillis());
+            while (System.nanoTime() - deadline < 0) {
+                Thread.yield();
+                if (inbox.offer(task)) {
+                    return;
+                }
+            }
+            if (policy == AdmissionPolicy.SHED_OLDEST) {
+                // the worker did not get to it, nothing to shed for this task anymore
+                tryConsumeShed(pendingSheds);
+            }
+        }
+        cacheMetrics.incrementRejectedTasks();
+        task.future().completeExceptionally(new CacheOverloadedException(
+                "Cache core inbox is full, lane=" + task.lane().tagValue() + ", capacity=" + inbox.capacity()));
+    }
+
+    /**
+     * Fails the task instead of executing it when a producer of the same lane asked for the oldest task to be shed.
+     * Only client and peer tasks are shed, housekeeping tasks are always executed.
+     */
+    private boolean shedIfRequested(CoreTask task) {
+        AtomicInteger pendingSheds = this.pendingSheds[task.lane().ordinal()];
+        if (pendingSheds.get() == 0 || task.future() == null || !tryConsumeShed(pendingSheds)) {
+            return false;
+        }
+        cacheMetrics.incrementShedTasks();
+        task.future().completeExceptionally(new CacheOverloadedException("Task shed to admit a newer one."));
+        return true;
+    }
+
+    /**
+     * The caller has given up on a task whose deadline has passed (its REST request timed out, or the forwarding peer
+     * cancelled the call), executing it would only delay the tasks queued behind it.
+     */
+    private boolean skipIfExpired(CoreTask task) {
+        if (!task.options().isExpired()) {
+            return false;
+        }
+        cacheMetrics.incrementDeadlineExceededTasks();
+        task.future().completeExceptionally(new CacheDeadlineExceededException("Deadline passed before execution."));
+        return true;
+    }
+
+    private static boolean tryConsumeShed(AtomicInteger pendingSheds) {
+        int pending;
+        do {
+            pending = pendingSheds.get();
+            if (pending == 0) {
+                return false;
+            }
+        } while (!pendingSheds.compareAndSet(pending, pending - 1));
+        return true;
+    }
+
+    private boolean isOwner(String key) {
+        return clusterService.findOwnerNode(key).equals(clusterService.getLocalNodeId());
     }
 
     private boolean isNotOwner(String key) {
@@ -65,6 +421,10 @@ public class SingleThreadedCacheCore implements IDistributedCache {
     }
 
     private void executeTask(CacheTask task) {
+        if (task == drainReadBufferTask) {
+            drainReadBuffer();
+            return;
+        }
         if (isNotOwner(task.key)) {
             handleForwarding(task);
             return;
@@ -85,85 +445,576 @@ public class SingleThreadedCacheCore implements IDistributedCache {
             log.error("[Cluster.Routing:AddressNotFound] [msg=No address found for owner node] [Owner Node={}] [Key={}]",
                     ownerId, task.key);
             task.future.completeExceptionally(new RuntimeException("Address not found for owner node=" + ownerId));
+            return;
         }
 
         log.debug("[Cluster.Routing:Forwarding] [msg=Forwarding cache operation] [Owner Node={}] [Target Address={}] [Key={}]",
                 ownerId, ownerNodeAddress, task.key);
         switch (task.type) {
-            case PUT -> grpcClient.forwardPut("", task.key, task.value(), task.ttl, task.future);
-            case GET -> grpcClient.forwardGet("", task.key, task.future);
-            case DELETE -> grpcClient.forwardDelete("", task.key, task.future);
+            case PUT -> grpcClient.forwardPut(ownerNodeAddress, task.key, task.value, task.compressed, task.ttl,
+                    task.options, task.future);
+            // the owner only tracks the peers announcing themselves, it then publishes invalidations to them
+            case GET -> grpcClient.forwardGet(ownerNodeAddress, task.key,
+                    nearCache != null ? clusterService.getLocalNodeId() : null, task.options, task.future);
+            case DELETE -> grpcClient.forwardDelete(ownerNodeAddress, task.key, task.options, task.future);
         }
     }
 
     private void handleDelete(CacheTask task) {
-        storage.remove(task.key);
-        cacheMetrics.incrementRemoves();
-        queue.submit(CacheOperation.of(CacheOperationType.DELETE, task.key));
-        task.future.complete(null);
+        acknowledge(deleteLocal(task.key), task.future);
     }
 
     private void handleGet(CacheTask task, long currentTimeInSec) {
-        CacheEntry entry = storage.get(task.key);
+        task.future.complete(getLocal(task.key, currentTimeInSec));
+    }
+
+    private void handlePut(CacheTask task, long currentTimeInSec) {
+        acknowledge(putLocal(task.key, task.value, task.compressed, task.ttl, currentTimeInSec), task.future);
+    }
+
+    /**
+     * Completes the write once it is durable, only pending when the persistence log forces every commit.
+     */
+    private static <T> void acknowledge(CompletableFuture<Void> durable, CompletableFuture<T> future) {
+        durable.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(null);
+            }
+        });
+    }
+
+    /**
+     * Executes all the keys of a batch in one go, the batch only contains keys owned by this node (routing is done
+     * by the {@link ClusterBatchRouter} before the batch is submitted).
+     */
+    private void executeBatch(BatchTask batch) {
+        long currentTimeInSec = SystemUtil.getCurrentTimeInSec();
+        switch (batch.type) {
+            case GET -> {
+                Map<String, byte[]> values = new HashMap<>();
+                for (String key : batch.keys) {
+                    byte[] value = getLocal(key, currentTimeInSec);
+                    if (value != null) {
+                        values.put(key, value);
+                    }
+                }
+                batch.future.complete(values);
+            }
+            case PUT -> {
+                // the log is written in order, the batch is durable once its last record is
+                CompletableFuture<Void> durable = DURABLE;
+                for (int i = 0; i < batch.keys.size(); i++) {
+                    durable = putLocal(batch.keys.get(i), batch.values.get(i), false, batch.ttl, currentTimeInSec);
+                }
+                durable.whenComplete((result, throwable) -> completeBatch(batch, throwable));
+            }
+            case DELETE -> {
+                CompletableFuture<Void> durable = DURABLE;
+                for (String key : batch.keys) {
+                    durable = deleteLocal(key);
+                }
+                durable.whenComplete((result, throwable) -> completeBatch(batch, throwable));
+            }
+        }
+    }
+
+    private static void completeBatch(BatchTask batch, Throwable throwable) {
+        if (throwable != null) {
+            batch.future.completeExceptionally(throwable);
+        } else {
+            batch.future.complete(Map.of());
+        }
+    }
+
+    private void executeRestore(RestoreTask task) {
+        long currentTimeInSec = SystemUtil.getCurrentTimeInSec();
+        for (PersistenceRecord record : task.records) {
+            restore(record, currentTimeInSec);
+        }
+        evictIfNeeded();
+        task.future.complete(null);
+    }
+
+    /**
+     * An expired PUT removes the key like a DELETE, the value it overwrote must not come back.
+     */
+    private void restore(PersistenceRecord record, long currentTimeInSec) {
+        if (record.type() == CacheOperationType.DELETE || record.isExpired(currentTimeInSec)) {
+            if (storage.remove(record.key())) {
+                queue.recordDelete(record.key());
+            }
+        } else {
+            CacheEntry entry = CacheEntry.builder()
+                    .value(record.value())
+                    .expirationTime(record.expirationTime())
+                    .creationTime(currentTimeInSec)
+                    .estimatedBytes(CacheEntry.estimateBytes(record.key(), record.value()))
+                    .accessInfo(evictor != null ? evictor.onPut(storage.accessInfo(record.key())) : 0)
+                    .build();
+            storage.put(record.key(), entry);
+            queue.recordPut(record.key(), TimeUnit.SECONDS.toMillis(entry.getExpirationTime()));
+        }
+    }
+
+    /**
+     * Only captures references (or slab addresses) of the live entries, values are copied and serialized on the caller
+     * side, see {@link ICacheStorage#capture(long)}.
+     */
+    private void executeCapture(CaptureTask task) {
+        task.future.complete(storage.capture(SystemUtil.getCurrentTimeInSec()));
+    }
+
+    /**
+     * The key is owned by another node when the ring changed after the peer routed the GET, it is then forwarded and
+     * the value comes back decompressed.
+     */
+    private void executeStoredGet(StoredGetTask task) {
+        if (!isOwner(task.key)) {
+            CompletableFuture<byte[]> forwarded = new CompletableFuture<>();
+            forwarded.whenComplete((value, throwable) -> {
+                if (throwable != null) {
+                    task.future.completeExceptionally(throwable);
+                } else {
+                    task.future.complete(value == null ? null : CacheEntry.builder().value(value).build());
+                }
+            });
+            handleForwarding(new CacheTask(CacheOperationType.GET, task.key, null, 0, task.options, forwarded));
+            return;
+        }
+        task.future.complete(lookupLocal(task.key, SystemUtil.getCurrentTimeInSec(), true));
+    }
+
+    /**
+     * Bulk removal of the cleaner, the keys are already gone from its expiration tracker and eviction strategy:
+     * nothing is published to the CacheQueue, only the removals of keys that were present are logged. The cleaner does
+     * not wait for expiry batches, a key written again since it was found expired is left alone: its PUT event puts it
+     * back in the tracker and the strategy.
+     */
+    private void executeRemove(RemoveTask task) {
+        long currentTimeInSec = SystemUtil.getCurrentTimeInSec();
+        CompletableFuture<Void> durable = DURABLE;
+        for (String key : task.keys) {
+            if (task.expiredOnly) {
+                CacheEntry entry = storage.getStored(key);
+                if (entry == null || !entry.isExpired(currentTimeInSec)) {
+                    continue;
+                }
+            }
+            if (storage.remove(key)) {
+                publishChange(key);
+                if (persistenceLog != null) {
+                    durable = persistenceLog.append(PersistenceRecord.delete(key));
+                }
+            }
+        }
+        acknowledge(durable, task.future);
+    }
+
+    private CompletableFuture<Void> deleteLocal(String key) {
+        publishChange(key);
+        storage.remove(key);
+        cacheMetrics.incrementRemoves();
+        queue.recordDelete(key);
+        return persistenceLog != null ? persistenceLog.append(PersistenceRecord.delete(key)) : DURABLE;
+    }
+
+    private byte[] getLocal(String key, long currentTimeInSec) {
+        CacheEntry entry = lookupLocal(key, currentTimeInSec, false);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * @param stored Whether the entry is returned as stored (possibly compressed) or decompressed.
+     */
+    private CacheEntry lookupLocal(String key, long currentTimeInSec, boolean stored) {
+        CacheEntry entry = stored ? storage.getStored(key) : storage.get(key);
         if (entry == null || entry.isExpired(currentTimeInSec)) {
             if (entry != null) {
-                storage.remove(task.key);
-                cacheMetrics.incrementTtlExpirations();
-                queue.submit(CacheOperation.of(CacheOperationType.DELETE, task.key));
+                expireLocal(key);
             }
             cacheMetrics.incrementMisses();
-            task.future.complete(null);
-        } else {
-            cacheMetrics.incrementHits();
-            queue.submit(CacheOperation.of(CacheOperationType.GET, task.key));
-            task.future.complete(entry.getValue());
+            return null;
         }
+        cacheMetrics.incrementHits();
+        recordRead(key);
+        return entry;
     }
 
-    private void handlePut(CacheTask task, long currentTimeInSec) {
+    /**
+     * @param compressed Whether the value is already compressed (sent by a peer), it is then stored as is.
+     */
+    private CompletableFuture<Void> putLocal(String key, byte[] value, boolean compressed, long ttlInSec,
+                                             long currentTimeInSec) {
         CacheEntry newEntry = CacheEntry.builder()
-                .value(task.value)
-                .expirationTime(currentTimeInSec + task.ttl)
+                .value(value)
+                .expirationTime(currentTimeInSec + ttlInSec)
                 .creationTime(currentTimeInSec)
+                .estimatedBytes(CacheEntry.estimateBytes(key, value))
+                .compressed(compressed)
+                .accessInfo(evictor != null ? evictor.onPut(storage.accessInfo(key)) : 0)
                 .build();
-        storage.put(task.key, newEntry);
+        publishChange(key);
+        storage.put(key, newEntry);
         cacheMetrics.incrementPuts();
-        queue.submit(CacheOperation.of(CacheOperationType.PUT, task.key, newEntry));
-        task.future.complete(null);
+        queue.recordPut(key, TimeUnit.SECONDS.toMillis(newEntry.getExpirationTime()));
+        CompletableFuture<Void> durable = DURABLE;
+        if (persistenceLog != null) {
+            // the log keeps plain values, it does not depend on the compression settings
+            byte[] plainValue = compressed ? ValueCompressor.inflate(value) : value;
+            durable = persistenceLog.append(PersistenceRecord.put(key, plainValue, newEntry.getExpirationTime()));
+        }
+        // after the PUT is logged, the key itself may be the one evicted
+        evictIfNeeded();
+        return durable;
+    }
+
+    private void publishChange(String key) {
+        if (nearCacheInvalidator != null) {
+            nearCacheInvalidator.onKeyChanged(key);
+        }
     }
 
     @Override
-    public CompletableFuture<String> submitGet(String key) {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        taskQueue.add(new CacheTask(CacheOperationType.GET, key, null, 0, future));
+    public CompletableFuture<byte[]> submitGetBytes(String key, RequestOptions options) {
+        if (readBuffer != null && isOwner(key)) {
+            byte[] value = readDirect(key);
+            return value != null ? CompletableFuture.completedFuture(value) : MISS;
+        }
+        if (nearCache != null && !isOwner(key)) {
+            return getThroughNearCache(key, options);
+        }
+        return submitGetTask(key, options);
+    }
+
+    /**
+     * The stamp is taken before the GET is forwarded, a value fetched across an invalidation is not cached.
+     */
+    private CompletableFuture<byte[]> getThroughNearCache(String key, RequestOptions options) {
+        byte[] cached = nearCache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long stamp = nearCache.stamp();
+        return submitGetTask(key, options).thenApply(value -> {
+            nearCache.put(key, value, stamp);
+            return value;
+        });
+    }
+
+    private CompletableFuture<byte[]> submitGetTask(String key, RequestOptions options) {
+        if (inFlightGets != null) {
+            return submitCoalescedGet(key, options);
+        }
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        admit(new CacheTask(CacheOperationType.GET, key, null, 0, options, future));
         return future;
     }
 
+    /**
+     * Single-flight GET: the first caller queues the task, callers arriving while it is in flight get a copy of its
+     * future (a copy, so that one caller completing or cancelling its future does not affect the others). The shared
+     * task keeps the deadline of the first caller, joining callers may see it expire a bit before their own.
+     */
+    private CompletableFuture<byte[]> submitCoalescedGet(String key, RequestOptions options) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        CompletableFuture<byte[]> inFlight = inFlightGets.putIfAbsent(key, future);
+        if (inFlight != null) {
+            cacheMetrics.incrementCoalescedGets();
+            return inFlight.copy();
+        }
+        future.whenComplete((value, throwable) -> inFlightGets.remove(key, future));
+        admit(new CacheTask(CacheOperationType.GET, key, null, 0, options, future));
+        return future.copy();
+    }
+
+    /**
+     * A write must not be followed by a GET that joins a read queued before it, otherwise the caller could observe the
+     * value it just overwrote. Dropping the in-flight entry makes the next GET queue a fresh task behind the write.
+     * Applies to remotely owned keys as well, their GETs are forwarded and deduplicated the same way.
+     */
+    void detachInFlightGet(String key) {
+        if (inFlightGets != null) {
+            inFlightGets.remove(key);
+        }
+        invalidateNearCache(key);
+    }
+
+    /**
+     * The owner publishes the change as well, dropping the local copy right away keeps this node reading its own writes.
+     */
+    private void invalidateNearCache(String key) {
+        if (nearCache != null) {
+            nearCache.invalidate(key);
+        }
+    }
+
     @Override
-    public CompletableFuture<Void> submitPut(String key, String value, long ttlInSec) {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        taskQueue.add(new CacheTask(CacheOperationType.PUT, key, value, ttlInSec, future));
+    public CompletableFuture<Void> submitPutBytes(String key, byte[] value, long ttlInSec, RequestOptions options) {
+        detachInFlightGet(key);
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        admit(new CacheTask(CacheOperationType.PUT, key, value, ttlInSec, options, future));
         return future.thenApply(v -> null);
     }
 
     @Override
-    public CompletableFuture<Void> submitDelete(String key) {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        taskQueue.add(new CacheTask(CacheOperationType.DELETE, key, null, 0, future));
+    public CompletableFuture<Void> submitPutCompressed(String key, byte[] compressedValue, long ttlInSec,
+                                                       RequestOptions options) {
+        detachInFlightGet(key);
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        admit(new CacheTask(CacheOperationType.PUT, key, compressedValue, true, ttlInSec, options, future));
         return future.thenApply(v -> null);
     }
 
+    @Override
+    public CompletableFuture<CacheEntry> submitGetStored(String key, RequestOptions options) {
+        CompletableFuture<CacheEntry> future = new CompletableFuture<>();
+        admit(new StoredGetTask(key, options, future));
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> submitDelete(String key, RequestOptions options) {
+        detachInFlightGet(key);
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        admit(new CacheTask(CacheOperationType.DELETE, key, null, 0, options, future));
+        return future.thenApply(v -> null);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, byte[]>> submitMultiGet(Collection<String> keys, RequestOptions options) {
+        return batchRouter.multiGet(keys, options, localKeys -> submitLocalMultiGet(localKeys, options));
+    }
+
+    @Override
+    public CompletableFuture<Void> submitMultiPut(Map<String, byte[]> entries, long ttlInSec,
+                                                  RequestOptions options) {
+        entries.keySet().forEach(this::detachInFlightGet);
+        return batchRouter.multiPut(entries, ttlInSec, options,
+                localEntries -> submitLocalMultiPut(localEntries, ttlInSec, options));
+    }
+
+    @Override
+    public CompletableFuture<Void> submitMultiDelete(Collection<String> keys, RequestOptions options) {
+        keys.forEach(this::detachInFlightGet);
+        return batchRouter.multiDelete(keys, options, localKeys -> submitLocalMultiDelete(localKeys, options));
+    }
+
+    @Override
+    public CompletableFuture<Void> submitRestore(PersistenceRecord record) {
+        return submitRestoreAll(List.of(record));
+    }
+
+    @Override
+    public CompletableFuture<Void> submitRestoreAll(List<PersistenceRecord> records) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        enqueue(new RestoreTask(records, future));
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> submitBulkRemove(Collection<String> keys) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        enqueue(new RemoveTask(keys, false, future));
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> submitBulkExpire(Collection<String> keys) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        enqueue(new RemoveTask(keys, true, future));
+        return future;
+    }
+
+    @Override
+    public List<CompletableFuture<SnapshotPartition>> submitCapture() {
+        CompletableFuture<SnapshotPartition> future = new CompletableFuture<>();
+        enqueue(new CaptureTask(future));
+        return List.of(future);
+    }
+
+    /**
+     * Submits one task for all the given keys, without ownership routing. Used for the locally owned part of a batch.
+     */
+    CompletableFuture<Map<String, byte[]>> submitLocalMultiGet(List<String> keys, RequestOptions options) {
+        CompletableFuture<Map<String, byte[]>> future = new CompletableFuture<>();
+        admit(new BatchTask(CacheOperationType.GET, keys, null, 0, options, future));
+        return future;
+    }
+
+    /**
+     * The callers detach the in-flight GETs of every key of the batch, locally owned or not, before routing it.
+     */
+    CompletableFuture<Void> submitLocalMultiPut(Map<String, byte[]> entries, long ttlInSec, RequestOptions options) {
+        CompletableFuture<Map<String, byte[]>> future = new CompletableFuture<>();
+        admit(new BatchTask(CacheOperationType.PUT, new ArrayList<>(entries.keySet()),
+                new ArrayList<>(entries.values()), ttlInSec, options, future));
+        return future.thenApply(v -> null);
+    }
+
+    CompletableFuture<Void> submitLocalMultiDelete(List<String> keys, RequestOptions options) {
+        CompletableFuture<Map<String, byte[]>> future = new CompletableFuture<>();
+        admit(new BatchTask(CacheOperationType.DELETE, keys, null, 0, options, future));
+        return future.thenApply(v -> null);
+    }
+
+    @Override
+    public byte[] tryGetBytes(String key) {
+        return readBuffer != null && isOwner(key) ? readDirect(key) : NOT_READ_DIRECTLY;
+    }
+
+    /**
+     * Serves a GET on the caller thread, skipping the inbox hop. Reader threads never mutate the storage: an expired
+     * entry is reported as a miss and left for the TTL cleanup, and the access is recorded in the lossy read buffer.
+     *
+     * @return The stored bytes, null on a miss.
+     */
+    private byte[] readDirect(String key) {
+        CacheEntry entry = storage.get(key);
+        if (entry == null || entry.isExpired(SystemUtil.getCurrentTimeInSec())) {
+            cacheMetrics.incrementMisses();
+            return null;
+        }
+        cacheMetrics.incrementHits();
+        if (readBuffer.offer(key) == ReadBuffer.FULL && readBufferDrainScheduled.compareAndSet(false, true)) {
+            // best effort, if the inbox is full the worker drains the read buffer anyway after the current batch
+            if (!lanes[Lane.HOUSEKEEPING.ordinal()].offer(drainReadBufferTask)) {
+                readBufferDrainScheduled.set(false);
+            }
+        }
+        return entry.getValue();
+    }
+
     @Override
     public int size() {
         return storage.size();
     }
 
+    @Override
+    public long usedBytes() {
+        return storage.usedBytes();
+    }
+
+    @Override
+    public int inboxSize() {
+        int inboxSize = 0;
+        for (MpscRingBuffer<CoreTask> lane : lanes) {
+            inboxSize += lane.size();
+        }
+        return inboxSize;
+    }
+
+    @Override
+    public int inboxSize(Lane lane) {
+        return lanes[lane.ordinal()].size();
+    }
+
+    private sealed interface CoreTask permits CacheTask, BatchTask, RestoreTask, CaptureTask, StoredGetTask,
+            RemoveTask {
+        CompletableFuture<?> future();
+
+        /**
+         * {@link System#nanoTime()} when the task was created, right before it is enqueued.
+         */
+        long enqueuedNanos();
+
+        /**
+         * Internal tasks have no deadline.
+         */
+        default RequestOptions options() {
+            return RequestOptions.NONE;
+        }
+
+        default Lane lane() {
+            return options().getLane();
+        }
+    }
+
+    /**
+     * For PUT, {@code compressed} tells whether the value is already in compressed form.
+     */
     private record CacheTask(
             CacheOperationType type,
             String key,
-            String value,
+            byte[] value,
+            boolean compressed,
+            long ttl,
+            RequestOptions options,
+            CompletableFuture<byte[]> future,
+            long enqueuedNanos
+    ) implements CoreTask {
+        private CacheTask(CacheOperationType type, String key, byte[] value, boolean compressed, long ttl,
+                          RequestOptions options, CompletableFuture<byte[]> future) {
+            this(type, key, value, compressed, ttl, options, future, System.nanoTime());
+        }
+
+        private CacheTask(CacheOperationType type, String key, byte[] value, long ttl, RequestOptions options,
+                          CompletableFuture<byte[]> future) {
+            this(type, key, value, false, ttl, options, future);
+        }
+    }
+
+    /**
+     * Multi-key task, for PUT the values are aligned with the keys by index.
+     */
+    private record BatchTask(
+            CacheOperationType type,
+            List<String> keys,
+            List<byte[]> values,
             long ttl,
-            CompletableFuture<String> future
-    ) {
+            RequestOptions options,
+            CompletableFuture<Map<String, byte[]>> future,
+            long enqueuedNanos
+    ) implements CoreTask {
+        private BatchTask(CacheOperationType type, List<String> keys, List<byte[]> values, long ttl,
+                          RequestOptions options, CompletableFuture<Map<String, byte[]>> future) {
+            this(type, keys, values, ttl, options, future, System.nanoTime());
+        }
+    }
+
+    private record RestoreTask(List<PersistenceRecord> records, CompletableFuture<Void> future, long enqueuedNanos)
+            implements CoreTask {
+        private RestoreTask(List<PersistenceRecord> records, CompletableFuture<Void> future) {
+            this(records, future, System.nanoTime());
+        }
+
+        @Override
+        public Lane lane() {
+            return Lane.HOUSEKEEPING;
+        }
+    }
+
+    private record CaptureTask(CompletableFuture<SnapshotPartition> future, long enqueuedNanos) implements CoreTask {
+        private CaptureTask(CompletableFuture<SnapshotPartition> future) {
+            this(future, System.nanoTime());
+        }
+
+        @Override
+        public Lane lane() {
+            return Lane.HOUSEKEEPING;
+        }
+    }
+
+    /**
+     * With {@code expiredOnly}, only the keys still expired when the task runs are removed.
+     */
+    private record RemoveTask(Collection<String> keys, boolean expiredOnly, CompletableFuture<Void> future,
+                              long enqueuedNanos) implements CoreTask {
+        private RemoveTask(Collection<String> keys, boolean expiredOnly, CompletableFuture<Void> future) {
+            this(keys, expiredOnly, future, System.nanoTime());
+        }
+
+        @Override
+        public Lane lane() {
+            return Lane.HOUSEKEEPING;
+        }
+    }
+
+    private record StoredGetTask(String key, RequestOptions options, CompletableFuture<CacheEntry> future,
+                                 long enqueuedNanos) implements CoreTask {
+        private StoredGetTask(String key, RequestOptions options, CompletableFuture<CacheEntry> future) {
+            this(key, options, future, System.nanoTime());
+        }
     }
 }
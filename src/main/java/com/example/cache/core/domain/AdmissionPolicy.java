@@ -0,0 +1,26 @@
+package com.example.cache.core.domain;
+
+/**
+ * What a core does with a new task when its inbox is full.
+ */
+public enum AdmissionPolicy {
+    /**
+     * Fails the new task right away.
+     */
+    REJECT,
+    /**
+     * Fails the oldest queued task to make room for the new one, the oldest is the closest to timing out anyway.
+     */
+    SHED_OLDEST,
+    /**
+     * Waits for a free slot up to the admission timeout, then fails the new task.
+     */
+    BLOCK;
+
+    /**
+     * Parses the configuration value, e.g. {@code reject}, {@code shed-oldest} or {@code block}.
+     */
+    public static AdmissionPolicy fromProperty(String value) {
+        return AdmissionPolicy.valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.cache.core.domain;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Tuning knobs of a single core event loop, defaults are used for anything that is not set explicitly.
+ */
+@Getter
+@Builder
+@ToString
+public class CacheCoreConfig {
+
+    /**
+     * Number of preallocated slots of each inbox lane, rounded up to the next power of two.
+     */
+    @Builder.Default
+    private final int queueCapacity = 65536;
+
+    /**
+     * What happens to a new task when the inbox is full, tasks that are not admitted fail with
+     * {@link com.example.cache.core.CacheOverloadedException}. BLOCK and SHED_OLDEST wait up to
+     * {@code admissionTimeoutMillis} for a free slot.
+     */
+    @Builder.Default
+    private final AdmissionPolicy admissionPolicy = AdmissionPolicy.BLOCK;
+
+    @Builder.Default
+    private final long admissionTimeoutMillis = 100;
+
+    /**
+     * Maximum number of tasks executed per wake-up of the worker thread, shared by the lanes in proportion to their
+     * weight. A lane with nothing to do leaves its share to the others.
+     */
+    @Builder.Default
+    private final int drainBatchSize = 256;
+
+    @Builder.Default
+    private final int clientLaneWeight = 4;
+
+    @Builder.Default
+    private final int peerLaneWeight = 2;
+
+    /**
+     * Housekeeping always gets its share, so expiry and eviction keep up under load, but never more than its share
+     * while the other lanes are busy.
+     */
+    @Builder.Default
+    private final int housekeepingLaneWeight = 1;
+
+    /**
+     * @return Weight of the lane in the drain batch of the worker.
+     */
+    public int laneWeight(Lane lane) {
+        return switch (lane) {
+            case CLIENT -> clientLaneWeight;
+            case PEER -> peerLaneWeight;
+            case HOUSEKEEPING -> housekeepingLaneWeight;
+        };
+    }
+
+    /**
+     * Number of busy spins of an idle worker thread before it parks.
+     */
+    @Builder.Default
+    private final int idleSpinTries = 1000;
+
+    /**
+     * When enabled, GETs for locally owned keys are served on the caller thread from a concurrently readable storage,
+     * writes are still serialized through the worker thread.
+     */
+    @Builder.Default
+    private final boolean concurrentReads = false;
+
+    /**
+     * Number of stripes and slots per stripe of the buffer recording the reads served on caller threads.
+     */
+    @Builder.Default
+    private final int readBufferStripes = 16;
+
+    @Builder.Default
+    private final int readBufferStripeCapacity = 64;
+
+    /**
+     * When enabled, concurrent GETs of the same key share one task on the worker (or one forwarded RPC when the key is
+     * owned by a peer) instead of executing one each.
+     */
+    @Builder.Default
+    private final boolean coalesceGets = true;
+
+    /**
+     * When enabled, the worker actively expires keys by sampling random keys (Redis style) instead of relying on a
+     * per-key expiration index. A cycle runs every {@code expirationCycleIntervalMillis}: it checks samples of
+     * {@code expirationSampleSize} keys, and repeats while more than {@code expirationRepeatThreshold} of a sample was
+     * expired and the CPU budget of the cycle is not used up. Expired keys are also removed lazily when read.
+     */
+    @Builder.Default
+    private final boolean activeExpiration = false;
+
+    @Builder.Default
+    private final int expirationSampleSize = 20;
+
+    @Builder.Default
+    private final double expirationRepeatThreshold = 0.25;
+
+    @Builder.Default
+    private final long expirationCycleBudgetMicros = 1000;
+
+    @Builder.Default
+    private final long expirationCycleIntervalMillis = 100;
+
+    /**
+     * When set, the worker evicts by itself once its storage holds more than {@code maximumEntries} keys (or more than
+     * {@code maximumBytes}, 0 disables either limit): it samples {@code evictionSampleSize} random keys, merges them
+     * into a pool of the {@code evictionPoolSize} best candidates seen so far and evicts the best one. Every entry then
+     * carries its access metadata, no per-key structure is kept anywhere else.
+     */
+    @Builder.Default
+    private final SampledEviction sampledEviction = SampledEviction.NONE;
+
+    @Builder.Default
+    private final int maximumEntries = 0;
+
+    @Builder.Default
+    private final long maximumBytes = 0;
+
+    @Builder.Default
+    private final int evictionSampleSize = 5;
+
+    @Builder.Default
+    private final int evictionPoolSize = 16;
+
+    public static CacheCoreConfig defaults() {
+        return CacheCoreConfig.builder().build();
+    }
+}
@@ -3,17 +3,53 @@ package com.example.cache.core.domain;
 import lombok.Builder;
 import lombok.Getter;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.nio.charset.StandardCharsets;
 
-@Builder
+@Builder(toBuilder = true)
 @Getter
 public class CacheEntry {
+    /**
+     * Approximate per-entry cost on top of the key and value bytes: the entry object, the storage map node and the
+     * object headers of the key String and the value array.
+     */
+    public static final int ENTRY_OVERHEAD_BYTES = 136;
 
-    final String value;
+    final byte[] value;
     final long creationTime;
     final long expirationTime;
+    /**
+     * Estimated memory footprint of the entry and its key, see {@link #estimateBytes(String, int)}.
+     */
+    final long estimatedBytes;
+    /**
+     * Whether the value is in the compressed form of {@link com.example.cache.core.storage.ValueCompressor}. Storages
+     * hand out decompressed entries, only {@link com.example.cache.core.storage.ICacheStorage#getStored} and
+     * {@link com.example.cache.core.storage.ICacheStorage#forEach} may return compressed ones.
+     */
+    final boolean compressed;
+    /**
+     * Access metadata of sampled eviction, the 24-bit access clock (LRU) or the logarithmic access counter (LFU) of
+     * the entry, as of its PUT. Storages keep the current value on their side (a slot of the storage, or a copy of the
+     * entry replacing it), entries are never mutated in place.
+     */
+    final int accessInfo;
+
+    /**
+     * Keys are counted one byte per char, which is what compact strings use for the usual (latin-1) keys.
+     */
+    public static long estimateBytes(String key, int valueLength) {
+        return ENTRY_OVERHEAD_BYTES + key.length() + valueLength;
+    }
+
+    public static long estimateBytes(String key, byte[] value) {
+        return estimateBytes(key, value == null ? 0 : value.length);
+    }
 
     public boolean isExpired(long now) {
         return now >= expirationTime;
     }
+
+    public String getValueAsString() {
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
 }
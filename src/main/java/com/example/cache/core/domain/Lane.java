@@ -0,0 +1,30 @@
+package com.example.cache.core.domain;
+
+/**
+ * Inbox lane of a core task. Every lane is a separate queue and the worker drains them by weight, so that a backlog in
+ * one lane (e.g. a burst of expiry deletes) only delays the tasks of that lane.
+ */
+public enum Lane {
+    /**
+     * Requests of the clients of this node, REST or embedded.
+     */
+    CLIENT,
+    /**
+     * Requests forwarded by peer nodes.
+     */
+    PEER,
+    /**
+     * Work of the node itself: expiry and eviction deletes, snapshots, recovery.
+     */
+    HOUSEKEEPING;
+
+    private static final Lane[] VALUES = values();
+
+    public static Lane[] all() {
+        return VALUES;
+    }
+
+    public String tagValue() {
+        return name().toLowerCase();
+    }
+}
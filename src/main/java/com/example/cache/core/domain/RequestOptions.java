@@ -0,0 +1,60 @@
+package com.example.cache.core.domain;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per request settings given by the caller: the inbox lane of the request and its deadline. The deadline is a
+ * {@link System#nanoTime()} instant, so it is only meaningful inside this JVM: it is converted back to a remaining
+ * budget when the request is forwarded to a peer. The lane is not forwarded, the peer puts it in its own PEER lane.
+ */
+public final class RequestOptions {
+    /**
+     * Client request without a deadline.
+     */
+    public static final RequestOptions NONE = new RequestOptions(Lane.CLIENT, false, 0);
+    public static final RequestOptions PEER = new RequestOptions(Lane.PEER, false, 0);
+    public static final RequestOptions HOUSEKEEPING = new RequestOptions(Lane.HOUSEKEEPING, false, 0);
+
+    private final Lane lane;
+    private final boolean bounded;
+    private final long deadlineNanos;
+
+    private RequestOptions(Lane lane, boolean bounded, long deadlineNanos) {
+        this.lane = lane;
+        this.bounded = bounded;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Client request with a deadline.
+     */
+    public static RequestOptions withTimeout(long timeout, TimeUnit unit) {
+        return withTimeout(Lane.CLIENT, timeout, unit);
+    }
+
+    public static RequestOptions withTimeout(Lane lane, long timeout, TimeUnit unit) {
+        return new RequestOptions(lane, true, System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    public Lane getLane() {
+        return lane;
+    }
+
+    public boolean hasDeadline() {
+        return bounded;
+    }
+
+    /**
+     * @return True if the caller has given up on the request, never true without a deadline.
+     */
+    public boolean isExpired() {
+        return bounded && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * @return Time left until the deadline, negative once expired and {@link Long#MAX_VALUE} without a deadline.
+     */
+    public long remainingNanos() {
+        return bounded ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.cache.core.domain;
+
+/**
+ * Eviction performed by the core itself, from random samples of its keys (Redis style), instead of by the cache
+ * cleaner and its eviction strategy.
+ */
+public enum SampledEviction {
+    /**
+     * The core does not evict, the cache cleaner does.
+     */
+    NONE,
+    /**
+     * Approximated LRU: the sampled key idle for the longest time is evicted.
+     */
+    LRU,
+    /**
+     * Approximated LFU: the sampled key with the lowest (decayed) access counter is evicted.
+     */
+    LFU
+}
@@ -0,0 +1,15 @@
+package com.example.cache.core.ds;
+
+import com.example.cache.core.domain.CacheOperationType;
+
+/**
+ * Receives the events recorded in the {@link CacheQueue}, on the thread draining it.
+ */
+@FunctionalInterface
+public interface CacheEventHandler {
+
+    /**
+     * @param expirationTimeMillis Expiration time of the entry for a PUT, 0 for the other events.
+     */
+    void onEvent(CacheOperationType type, String key, long expirationTimeMillis);
+}
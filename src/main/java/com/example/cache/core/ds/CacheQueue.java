@@ -1,64 +1,169 @@
 package com.example.cache.core.ds;
 
-import com.example.cache.core.domain.CacheOperation;
+import com.example.cache.core.domain.CacheOperationType;
 import com.example.cache.metrics.CacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Optional;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
+/**
+ * Events of the cache cores (reads, PUTs and DELETEs) on their way to the cache cleaner, which replays them into the
+ * eviction strategy and the expiration tracker. Split in two buffers, the way Caffeine records them:
+ * <ul>
+ *     <li>reads go to a lossy, striped {@link ReadBuffer}: an access is only a hint for the eviction policy, it is
+ *     dropped (and counted as a dropped operation) when the stripe of the thread is full;</li>
+ *     <li>writes go to a lossless, bounded {@link WriteBuffer}: a producer finding it full wakes up the cleaner and
+ *     parks until the cleaner has drained it. The cleaner never waits for a core without draining (see
+ *     {@code CacheCleanerTask}), so the wait always ends; sized generously, the buffer only fills up when the cleaner
+ *     falls behind a burst of writes, and the waiting cores slow the writers down to its pace.</li>
+ * </ul>
+ * Reads are only dropped while the cleaner falls behind, and then in proportion to how often each key is read, so the
+ * popular keys stay popular for the eviction policy. Keeping them all would mean blocking the cores on the cleaner or
+ * an unbounded queue; {@code CacheQueueBenchmark} shows what a deep bounded queue costs the cores instead.
+ * <p>
+ * Both buffers are preallocated, recording an event allocates nothing unless its core has to wait for the cleaner.
+ * Only one thread (the cleaner) is allowed to call {@link #drain(long, TimeUnit, CacheEventHandler)}.
+ */
 @Slf4j
 public class CacheQueue {
-    private final BlockingQueue<CacheOperation> queue;
+    // Upper bound of a single park of a producer waiting for the cleaner, guards against a missed unpark
+    private static final long WRITE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ReadBuffer<String> readBuffer;
+    private final WriteBuffer writeBuffer;
     private final CacheMetrics cacheMetrics;
+    // Producers parked on a full write buffer, unparked by the cleaner once it drained writes
+    private final Queue<Thread> waitingProducers = new ConcurrentLinkedQueue<>();
+
+    // Cleaner thread while it is parked (or about to park), the first producer recording a write takes it and unparks
+    // it, the following ones find it gone and skip the unpark.
+    private final AtomicReference<Thread> parkedConsumer = new AtomicReference<>();
 
-    public CacheQueue(int capacity, CacheMetrics cacheMetrics) {
-        this.queue = new LinkedBlockingQueue<>(capacity);
+    /**
+     * @param readBufferStripes        Stripes of the read buffer, every producer thread records into one of them.
+     * @param readBufferStripeCapacity Reads a stripe holds before dropping the next ones.
+     * @param writeBufferCapacity      Writes the write buffer holds before the producers wait for the cleaner.
+     */
+    public CacheQueue(int readBufferStripes, int readBufferStripeCapacity, int writeBufferCapacity,
+                      CacheMetrics cacheMetrics) {
+        this.readBuffer = new ReadBuffer<>(readBufferStripes, readBufferStripeCapacity);
+        this.writeBuffer = new WriteBuffer(writeBufferCapacity);
         this.cacheMetrics = cacheMetrics;
     }
 
     /**
-     * Submits a new operation in the queue. Used by main cache threads (put/get/remove).
-     * Non-blocking if capacity is available.
-     *
-     * @param operation The operation payload
-     * @return True if successful, False if queue is full (dropped operation).
+     * Records an access to the key, never blocks.
      */
-    public boolean submit(CacheOperation operation) {
-        boolean submitResult = queue.offer(operation);
-        if (!submitResult) {
+    public void recordRead(String key) {
+        int result = readBuffer.offer(key);
+        if (result != ReadBuffer.SUCCESS) {
             cacheMetrics.incrementDroppedOperations();
-            log.debug("[Operation Dropped:CacheQueue.Submit] [operation={}] [msg=Queue is full.]", operation);
-        } else {
-            log.debug("[CacheQueue.Submit] [operation={}]", operation);
+            if (result == ReadBuffer.FULL) {
+                wakeUpConsumer();
+            }
         }
-        return submitResult;
+    }
+
+    public void recordPut(String key, long expirationTimeMillis) {
+        recordWrite(CacheOperationType.PUT, key, expirationTimeMillis);
+    }
+
+    public void recordDelete(String key) {
+        recordWrite(CacheOperationType.DELETE, key, 0);
     }
 
     /**
-     * Polls the queue for an operation, blocking up to a specified timeout
-     * Used by CacheCleanerTask
+     * Waits for a free slot when the write buffer is full, parked rather than spinning so that the cleaner gets the CPU.
+     * Only an interrupt (the core shutting down) gives up on the event, it is then counted as dropped.
+     */
+    private void recordWrite(CacheOperationType type, String key, long expirationTimeMillis) {
+        if (writeBuffer.offer(type, key, expirationTimeMillis)) {
+            wakeUpConsumer();
+            return;
+        }
+        cacheMetrics.incrementBlockedWrites();
+        Thread producer = Thread.currentThread();
+        waitingProducers.add(producer);
+        try {
+            while (!writeBuffer.offer(type, key, expirationTimeMillis)) {
+                if (producer.isInterrupted()) {
+                    cacheMetrics.incrementDroppedOperations();
+                    log.warn("[CacheQueue.Write.Dropped] [type={}] [key={}] [msg=Interrupted while the write buffer is "
+                            + "full.]", type, key);
+                    return;
+                }
+                wakeUpConsumer();
+                LockSupport.parkNanos(this, WRITE_PARK_NANOS);
+            }
+        } finally {
+            waitingProducers.remove(producer);
+        }
+        wakeUpConsumer();
+    }
+
+    private void wakeUpConsumer() {
+        Thread consumer = parkedConsumer.get();
+        if (consumer != null && parkedConsumer.compareAndSet(consumer, null)) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Waits up to the timeout for an event, then hands over all the recorded ones. Reads come first, so that an access
+     * recorded before the DELETE of its key is not replayed after it, then writes in the order they were recorded.
+     * Producers waiting for a free slot are woken up afterwards. Returns early on interrupt, the caller is expected to
+     * check the interrupt status.
      *
-     * @param timeout The maximum time to wait.
-     * @param unit    The time unit.
-     * @return An Optional containing the operation, or empty if timeout occurred.
+     * @return Number of events handed over.
+     */
+    public int drain(long timeout, TimeUnit unit, CacheEventHandler handler) {
+        awaitEvent(unit.toNanos(timeout));
+        Consumer<String> readHandler = key -> handler.onEvent(CacheOperationType.GET, key, 0);
+        int drained = readBuffer.drainTo(readHandler);
+        drained += writeBuffer.drainTo(handler, writeBuffer.capacity());
+        if (!waitingProducers.isEmpty()) {
+            waitingProducers.forEach(LockSupport::unpark);
+        }
+        return drained;
+    }
+
+    /**
+     * Parks until an event is recorded or the timeout elapses, early wake-ups (a left-over permit, a spurious one) park
+     * again for the time left.
      */
-    public Optional<CacheOperation> poll(long timeout, TimeUnit unit) {
+    private void awaitEvent(long timeoutNanos) {
+        if (timeoutNanos <= 0 || !isEmpty()) {
+            return;
+        }
+        Thread consumer = Thread.currentThread();
+        long deadline = System.nanoTime() + timeoutNanos;
         try {
-            CacheOperation operation = queue.poll(timeout, unit);
-            log.debug("[CacheQueue.Poll] [timeout={}, unit={}]", timeout, unit);
-            return Optional.ofNullable(operation);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return Optional.empty();
+            while (!consumer.isInterrupted()) {
+                parkedConsumer.set(consumer);
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0 || !isEmpty()) {
+                    return;
+                }
+                LockSupport.parkNanos(this, remainingNanos);
+            }
+        } finally {
+            parkedConsumer.set(null);
         }
     }
 
+    private boolean isEmpty() {
+        return writeBuffer.isEmpty() && readBuffer.size() == 0;
+    }
+
+    /**
+     * @return Number of recorded events not handed over yet.
+     */
     public int size() {
-        int size = queue.size();
-        log.debug("[CacheQueue.Size] [size={}]", size);
-        return size;
+        return readBuffer.size() + writeBuffer.size();
     }
 }
@@ -0,0 +1,29 @@
+package com.example.cache.core.ds;
+
+import java.util.function.Consumer;
+
+/**
+ * Tracks the expiration time of keys so that expired keys can be removed without scanning the cache. Implementations
+ * are owned by a single thread (the cache cleaner), only {@link #trackedKeys()} may be read from other threads.
+ */
+public interface IExpirationTracker {
+
+    /**
+     * Schedules the key, replacing its previous expiration time if it is already tracked.
+     */
+    void schedule(String key, long expirationTimeMillis);
+
+    /**
+     * Stops tracking the key, no-op if it is not tracked.
+     */
+    void cancel(String key);
+
+    /**
+     * Hands every key expiring at or before {@code nowMillis} to the consumer and stops tracking it.
+     *
+     * @return Number of expired keys.
+     */
+    int expire(long nowMillis, Consumer<String> expiredKeyConsumer);
+
+    int trackedKeys();
+}
@@ -0,0 +1,177 @@
+package com.example.cache.core.ds;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Bounded, preallocated multi-producer/single-consumer ring buffer used as the inbox of the cache core.
+ * <p>
+ * Producers claim a slot by CAS on the producer index and then publish the element into the claimed slot, no lock is
+ * taken and nothing is allocated per element (unlike LinkedBlockingQueue which allocates a node and locks on every
+ * offer). The single consumer drains the published elements in batches and waits with a spin-then-park strategy, so a
+ * busy consumer never pays a park/unpark round trip per element.
+ * <p>
+ * Only one thread is allowed to call {@link #drain(Consumer, int)} and {@link #await(int, long)}.
+ */
+public class MpscRingBuffer<E> {
+    private final AtomicReferenceArray<E> buffer;
+    private final int capacity;
+    private final int mask;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    // Consumer thread while it is parked (or about to park), producers unpark it after publishing an element.
+    private volatile Thread parkedConsumer;
+
+    public MpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity <= 0) {
+            throw new IllegalArgumentException("'requestedCapacity' must be greater than 0.");
+        }
+        // capacity is rounded to next power of two, so that slot index can be computed with a mask instead of modulo
+        this.capacity = requestedCapacity == 1 ? 1 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Inserts the element if there is free space in the buffer. Safe to be called from any number of threads.
+     *
+     * @param element The element to insert, cannot be null.
+     * @return True if the element was inserted, False if the buffer is full.
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new IllegalArgumentException("'element' cannot be null.");
+        }
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex.get() >= capacity) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+
+        buffer.setRelease((int) index & mask, element);
+
+        // producerIndex CAS happens before this volatile read, and the consumer publishes itself before re-checking
+        // producerIndex, so either the consumer sees the new element or we see the parked consumer (no lost wake-up).
+        Thread consumer = parkedConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Drains up to {@code limit} elements into the handler. Must only be called from the consumer thread.
+     *
+     * @return The number of drained elements.
+     */
+    public int drain(Consumer<E> handler, int limit) {
+        long index = consumerIndex.get();
+        int drained = 0;
+        while (drained < limit) {
+            int offset = (int) index & mask;
+            E element = buffer.getAcquire(offset);
+            if (element == null) {
+                if (index == producerIndex.get()) {
+                    break;  // buffer is empty
+                }
+                // slot is claimed by a producer but not published yet, it will be visible in a moment
+                Thread.onSpinWait();
+                continue;
+            }
+            buffer.lazySet(offset, null);
+            consumerIndex.lazySet(++index);
+            drained++;
+            handler.accept(element);
+        }
+        return drained;
+    }
+
+    /**
+     * Waits until at least one element is available: spins first and parks afterward. Must only be called from the
+     * consumer thread. Returns early on interrupt, the caller is expected to check the interrupt status.
+     *
+     * @param spinTries Number of busy spins before parking.
+     * @param parkNanos Maximum time to park, non positive value parks until an element is published.
+     */
+    public void await(int spinTries, long parkNanos) {
+        for (int i = 0; i < spinTries; i++) {
+            if (!isEmpty()) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        parkedConsumer = Thread.currentThread();
+        try {
+            if (isEmpty()) {
+                if (parkNanos > 0) {
+                    LockSupport.parkNanos(this, parkNanos);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        } finally {
+            parkedConsumer = null;
+        }
+    }
+
+    /**
+     * Same as {@link #await(int, long)} for a consumer draining several buffers: waits until any of them has an
+     * element. The consumer registers itself on every buffer before checking them, so a producer publishing to any of
+     * them either is seen by the check or unparks the consumer.
+     */
+    public static void awaitAny(int spinTries, long parkNanos, MpscRingBuffer<?>[] buffers) {
+        for (int i = 0; i < spinTries; i++) {
+            if (!allEmpty(buffers)) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        Thread consumer = Thread.currentThread();
+        for (MpscRingBuffer<?> buffer : buffers) {
+            buffer.parkedConsumer = consumer;
+        }
+        try {
+            if (allEmpty(buffers)) {
+                if (parkNanos > 0) {
+                    LockSupport.parkNanos(buffers, parkNanos);
+                } else {
+                    LockSupport.park(buffers);
+                }
+            }
+        } finally {
+            for (MpscRingBuffer<?> buffer : buffers) {
+                buffer.parkedConsumer = null;
+            }
+        }
+    }
+
+    private static boolean allEmpty(MpscRingBuffer<?>[] buffers) {
+        for (MpscRingBuffer<?> buffer : buffers) {
+            if (!buffer.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return consumerIndex.get() == producerIndex.get();
+    }
+
+    public int size() {
+        // consumer index is read first, so that the difference can never be negative
+        long consumed = consumerIndex.get();
+        long produced = producerIndex.get();
+        return (int) Math.min(produced - consumed, capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
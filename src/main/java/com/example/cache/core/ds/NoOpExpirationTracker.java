@@ -0,0 +1,32 @@
+package com.example.cache.core.ds;
+
+import java.util.function.Consumer;
+
+/**
+ * Tracks nothing, used when the cores expire keys themselves by sampling (see
+ * {@link com.example.cache.core.domain.CacheCoreConfig#isActiveExpiration()}) so that no per-key index is kept.
+ */
+public final class NoOpExpirationTracker implements IExpirationTracker {
+    public static final NoOpExpirationTracker INSTANCE = new NoOpExpirationTracker();
+
+    private NoOpExpirationTracker() {
+    }
+
+    @Override
+    public void schedule(String key, long expirationTimeMillis) {
+    }
+
+    @Override
+    public void cancel(String key) {
+    }
+
+    @Override
+    public int expire(long nowMillis, Consumer<String> expiredKeyConsumer) {
+        return 0;
+    }
+
+    @Override
+    public int trackedKeys() {
+        return 0;
+    }
+}
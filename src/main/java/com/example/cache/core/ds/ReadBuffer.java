@@ -0,0 +1,114 @@
+package com.example.cache.core.ds;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Lossy, striped buffer used to record reads without blocking the reader.
+ * <p>
+ * Every reader thread is mapped to one stripe, and each stripe is a small bounded ring. When the stripe is full or
+ * another reader wins the race for the same slot, the element is simply dropped: access recording is a hint for the
+ * eviction policy and losing some of it under heavy load is fine, blocking a GET on it is not. The buffer is drained
+ * by a single thread (the owner of the cache core).
+ */
+public class ReadBuffer<E> {
+    public static final int SUCCESS = 0;
+    public static final int FULL = 1;
+    public static final int FAILED = 2;
+
+    private final Stripe<E>[] stripes;
+    private final int stripeMask;
+    private final int stripeCapacity;
+    private final int stripeSlotMask;
+
+    @SuppressWarnings("unchecked")
+    public ReadBuffer(int stripeCount, int stripeCapacity) {
+        if (stripeCount <= 0 || stripeCapacity <= 0) {
+            throw new IllegalArgumentException("'stripeCount' and 'stripeCapacity' must be greater than 0.");
+        }
+        int stripes = ceilingPowerOfTwo(stripeCount);
+        this.stripeCapacity = ceilingPowerOfTwo(stripeCapacity);
+        this.stripeMask = stripes - 1;
+        this.stripeSlotMask = this.stripeCapacity - 1;
+        this.stripes = (Stripe<E>[]) new Stripe<?>[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe<>(this.stripeCapacity);
+        }
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return value == 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Records the element in the stripe of the calling thread, never blocks.
+     *
+     * @return {@link #SUCCESS} if recorded, {@link #FULL} if the stripe is full (the element is dropped and the buffer
+     * should be drained), {@link #FAILED} if another thread won the race for the slot (the element is dropped).
+     */
+    public int offer(E element) {
+        Stripe<E> stripe = stripes[stripeIndex()];
+        long head = stripe.readCounter.get();
+        long tail = stripe.writeCounter.get();
+        if (tail - head >= stripeCapacity) {
+            return FULL;
+        }
+        if (!stripe.writeCounter.compareAndSet(tail, tail + 1)) {
+            return FAILED;
+        }
+        stripe.slots.setRelease((int) tail & stripeSlotMask, element);
+        return SUCCESS;
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().threadId();
+        // mix the thread id so that sequential ids do not end up on the same stripes for every buffer size
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & stripeMask;
+    }
+
+    /**
+     * Drains all published elements of every stripe. Must only be called from the single consumer thread.
+     *
+     * @return Number of drained elements.
+     */
+    public int drainTo(Consumer<E> consumer) {
+        int drained = 0;
+        for (Stripe<E> stripe : stripes) {
+            long head = stripe.readCounter.get();
+            long tail = stripe.writeCounter.get();
+            while (head < tail) {
+                int offset = (int) head & stripeSlotMask;
+                E element = stripe.slots.getAcquire(offset);
+                if (element == null) {
+                    break;  // slot claimed but not published yet, it is picked up on the next drain
+                }
+                stripe.slots.lazySet(offset, null);
+                head++;
+                drained++;
+                consumer.accept(element);
+            }
+            stripe.readCounter.lazySet(head);
+        }
+        return drained;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<E> stripe : stripes) {
+            size += (int) (stripe.writeCounter.get() - stripe.readCounter.get());
+        }
+        return size;
+    }
+
+    private static final class Stripe<E> {
+        private final AtomicReferenceArray<E> slots;
+        private final AtomicLong readCounter = new AtomicLong();
+        private final AtomicLong writeCounter = new AtomicLong();
+
+        private Stripe(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+        }
+    }
+}
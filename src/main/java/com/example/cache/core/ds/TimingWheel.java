@@ -0,0 +1,181 @@
+package com.example.cache.core.ds;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: O(1) schedule, reschedule and cancel, and expiration cost proportional to the number of
+ * expired keys plus the number of buckets passed.
+ * <p>
+ * Every level has {@value #WHEEL_SIZE} buckets, a bucket of level {@code i + 1} spans a full rotation of level
+ * {@code i}. With the default 16ms tick the levels span about 1s, 65s, 70min, 75h and 200 days. A key goes into the
+ * lowest level whose rotation still covers its remaining time, and cascades down when the bucket holding it is
+ * reached; keys expiring beyond the top level are kept in its last bucket and rescheduled at every rotation.
+ * <p>
+ * Buckets are doubly linked lists and the key index points to the list node, so cancelling or rescheduling a key only
+ * unlinks its node. Tick and bucket spans are powers of two, bucket lookups are shifts and masks.
+ */
+public class TimingWheel implements IExpirationTracker {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 5;
+
+    private final int[] shifts = new int[LEVELS];
+    private final Node[][] wheels = new Node[LEVELS][WHEEL_SIZE];
+    private final Map<String, Node> index = new HashMap<>();
+    private volatile int trackedKeys;
+    private long currentTimeMillis;
+
+    /**
+     * @param tickMillis Resolution of the wheel, rounded up to the next power of two.
+     */
+    public TimingWheel(long tickMillis, long startTimeMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("'tickMillis' must be greater than 0.");
+        }
+        int tickShift = 64 - Long.numberOfLeadingZeros(tickMillis - 1);
+        for (int level = 0; level < LEVELS; level++) {
+            shifts[level] = tickShift + level * WHEEL_BITS;
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                Node sentinel = new Node(null, 0);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                wheels[level][slot] = sentinel;
+            }
+        }
+        this.currentTimeMillis = startTimeMillis;
+    }
+
+    public long getTickMillis() {
+        return 1L << shifts[0];
+    }
+
+    @Override
+    public void schedule(String key, long expirationTimeMillis) {
+        Node node = index.get(key);
+        if (node == null) {
+            node = new Node(key, expirationTimeMillis);
+            index.put(key, node);
+            trackedKeys++;
+        } else {
+            unlink(node);
+            node.expirationTimeMillis = expirationTimeMillis;
+        }
+        link(node);
+    }
+
+    @Override
+    public void cancel(String key) {
+        Node node = index.remove(key);
+        if (node != null) {
+            unlink(node);
+            trackedKeys--;
+        }
+    }
+
+    /**
+     * Advances the wheel to {@code nowMillis}: for every level, the buckets passed since the last call (the bucket of
+     * the previous time included) are detached, their expired keys are handed over and the others are rescheduled
+     * into a lower level.
+     */
+    @Override
+    public int expire(long nowMillis, Consumer<String> expiredKeyConsumer) {
+        long previousTimeMillis = currentTimeMillis;
+        if (nowMillis <= previousTimeMillis) {
+            return 0;
+        }
+        currentTimeMillis = nowMillis;
+        int expired = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            long previousTicks = previousTimeMillis >>> shifts[level];
+            long currentTicks = nowMillis >>> shifts[level];
+            if (currentTicks <= previousTicks) {
+                break;
+            }
+            int steps = (int) Math.min(currentTicks - previousTicks + 1, WHEEL_SIZE);
+            int start = (int) (previousTicks & WHEEL_MASK);
+            for (int i = start; i < start + steps; i++) {
+                expired += expireBucket(wheels[level][i & WHEEL_MASK], nowMillis, expiredKeyConsumer);
+            }
+        }
+        return expired;
+    }
+
+    private int expireBucket(Node sentinel, long nowMillis, Consumer<String> expiredKeyConsumer) {
+        // detach the whole list first, rescheduled nodes may land in the same bucket again
+        Node node = sentinel.next;
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        int expired = 0;
+        while (node != sentinel) {
+            Node next = node.next;
+            node.prev = null;
+            node.next = null;
+            if (node.expirationTimeMillis <= nowMillis) {
+                index.remove(node.key);
+                trackedKeys--;
+                expired++;
+                expiredKeyConsumer.accept(node.key);
+            } else {
+                link(node);
+            }
+            node = next;
+        }
+        return expired;
+    }
+
+    private void link(Node node) {
+        Node sentinel = bucketFor(node.expirationTimeMillis);
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.next != null) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+    }
+
+    private Node bucketFor(long expirationTimeMillis) {
+        long duration = expirationTimeMillis - currentTimeMillis;
+        if (duration < 0) {
+            // already due, picked up by the next expire call
+            return wheels[0][(int) ((currentTimeMillis >>> shifts[0]) & WHEEL_MASK)];
+        }
+        for (int level = 0; level < LEVELS - 1; level++) {
+            if (duration < (1L << shifts[level + 1])) {
+                return wheels[level][(int) ((expirationTimeMillis >>> shifts[level]) & WHEEL_MASK)];
+            }
+        }
+        int top = LEVELS - 1;
+        if (duration < (1L << (shifts[top] + WHEEL_BITS))) {
+            return wheels[top][(int) ((expirationTimeMillis >>> shifts[top]) & WHEEL_MASK)];
+        }
+        // beyond the top level, parked in the bucket reached last in a rotation
+        return wheels[top][(int) (((currentTimeMillis >>> shifts[top]) - 1) & WHEEL_MASK)];
+    }
+
+    @Override
+    public int trackedKeys() {
+        return trackedKeys;
+    }
+
+    private static final class Node {
+        private final String key;
+        private long expirationTimeMillis;
+        private Node prev;
+        private Node next;
+
+        private Node(String key, long expirationTimeMillis) {
+            this.key = key;
+            this.expirationTimeMillis = expirationTimeMillis;
+        }
+    }
+}
@@ -7,9 +7,14 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
 
+/**
+ * Expiration tracker with a one second resolution, backed by a skip list of second buckets. Superseded by the
+ * {@link TimingWheel}, kept as the {@code ttl-queue} tracker.
+ */
 @Slf4j
-public class TtlQueue {
+public class TtlQueue implements IExpirationTracker {
     private final ConcurrentSkipListMap<Long, Set<String>> expirationMap;
     private final ConcurrentHashMap<String, Long> reverseIndex;
 
@@ -28,7 +33,7 @@ public class TtlQueue {
         expirationMap.computeIfAbsent(ttlInSec, t -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(key);
         // update the entry in the reverseIndex for future cases
         reverseIndex.put(key, ttlInSec);
-        log.info("[TTLQueue.Add] [key={}] [ttlInSec={}]", key, ttlInSec);
+        log.debug("[TTLQueue.Add] [key={}] [ttlInSec={}]", key, ttlInSec);
     }
 
     /**
@@ -44,6 +49,38 @@ public class TtlQueue {
         }
     }
 
+    @Override
+    public void schedule(String key, long expirationTimeMillis) {
+        add(expirationTimeMillis / 1000, key);
+    }
+
+    @Override
+    public void cancel(String key) {
+        Long ttl = reverseIndex.remove(key);
+        if (ttl != null) {
+            removeInternal(key, ttl);
+        }
+    }
+
+    @Override
+    public int expire(long nowMillis, Consumer<String> expiredKeyConsumer) {
+        long nowInSec = nowMillis / 1000;
+        int expired = 0;
+        while (!isEmpty() && peek().filter(ttl -> ttl <= nowInSec).isPresent()) {
+            for (String key : poll().orElse(Set.of())) {
+                reverseIndex.remove(key);
+                expiredKeyConsumer.accept(key);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public int trackedKeys() {
+        return reverseIndex.size();
+    }
+
     public boolean isEmpty() {
         return expirationMap.isEmpty();
     }
@@ -0,0 +1,112 @@
+package com.example.cache.core.ds;
+
+import com.example.cache.core.domain.CacheOperationType;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer/single-consumer buffer of the write events (PUT/DELETE) recorded by the cache cores. Events
+ * are kept in preallocated parallel arrays (type, key, expiration time), nothing is allocated per event.
+ * <p>
+ * Every slot carries a sequence number: a producer claims the slot by CAS on the producer index, writes the fields and
+ * publishes them with a release store of the sequence, the consumer reads them after an acquire load of the sequence
+ * and hands the slot back to the producers of the next lap the same way. The buffer never drops an event, a full
+ * buffer fails the offer and the producer decides how to wait.
+ * <p>
+ * Only one thread is allowed to call {@link #drainTo(CacheEventHandler, int)}.
+ */
+public class WriteBuffer {
+    private static final CacheOperationType[] TYPES = CacheOperationType.values();
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final byte[] types;
+    private final String[] keys;
+    private final long[] expirationTimes;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    public WriteBuffer(int requestedCapacity) {
+        if (requestedCapacity <= 0) {
+            throw new IllegalArgumentException("'requestedCapacity' must be greater than 0.");
+        }
+        this.capacity = requestedCapacity == 1 ? 1 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.types = new byte[capacity];
+        this.keys = new String[capacity];
+        this.expirationTimes = new long[capacity];
+    }
+
+    /**
+     * Safe to be called from any number of threads.
+     *
+     * @return True if the event was recorded, False if the buffer is full.
+     */
+    public boolean offer(CacheOperationType type, String key, long expirationTimeMillis) {
+        while (true) {
+            long index = producerIndex.get();
+            int offset = (int) index & mask;
+            long sequence = sequences.getAcquire(offset);
+            if (sequence < index) {
+                return false;  // the slot still holds the event of the previous lap
+            }
+            if (sequence == index && producerIndex.compareAndSet(index, index + 1)) {
+                types[offset] = (byte) type.ordinal();
+                keys[offset] = key;
+                expirationTimes[offset] = expirationTimeMillis;
+                sequences.setRelease(offset, index + 1);
+                return true;
+            }
+            // another producer claimed the slot first, retry with the next one
+        }
+    }
+
+    /**
+     * Hands over up to {@code limit} events in the order they were recorded, stops at the first slot claimed but not
+     * published yet. Must only be called from the consumer thread.
+     *
+     * @return Number of drained events.
+     */
+    public int drainTo(CacheEventHandler handler, int limit) {
+        long index = consumerIndex.get();
+        int drained = 0;
+        while (drained < limit) {
+            int offset = (int) index & mask;
+            if (sequences.getAcquire(offset) != index + 1) {
+                break;
+            }
+            CacheOperationType type = TYPES[types[offset]];
+            String key = keys[offset];
+            long expirationTimeMillis = expirationTimes[offset];
+            keys[offset] = null;
+            sequences.setRelease(offset, index + capacity);
+            index++;
+            drained++;
+            handler.onEvent(type, key, expirationTimeMillis);
+        }
+        consumerIndex.lazySet(index);
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return consumerIndex.get() == producerIndex.get();
+    }
+
+    public int size() {
+        // consumer index is read first, so that the difference can never be negative
+        long consumed = consumerIndex.get();
+        long produced = producerIndex.get();
+        return (int) Math.min(produced - consumed, capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.cache.core.storage;
+
+import lombok.Getter;
+
+/**
+ * Creates the storage engine of each core (or core shard). All off-heap storages created by one factory share the
+ * same slab allocator, so that memory freed by one shard can be reused by another. When the value compressor is
+ * enabled, every storage is wrapped in a {@link CompressingCacheStorage}.
+ */
+public class CacheStorageFactory {
+    @Getter
+    private final StorageType storageType;
+    private final SlabAllocator slabAllocator;
+    private final ValueCompressor compressor;
+
+    public CacheStorageFactory(StorageType storageType, SlabAllocator slabAllocator) {
+        this(storageType, slabAllocator, ValueCompressor.disabled());
+    }
+
+    public CacheStorageFactory(StorageType storageType, SlabAllocator slabAllocator, ValueCompressor compressor) {
+        if (storageType == StorageType.OFF_HEAP && slabAllocator == null) {
+            throw new IllegalArgumentException("'slabAllocator' is required for off-heap storage.");
+        }
+        this.storageType = storageType;
+        this.slabAllocator = slabAllocator;
+        this.compressor = compressor;
+    }
+
+    public static CacheStorageFactory heap() {
+        return new CacheStorageFactory(StorageType.HEAP, null);
+    }
+
+    public ICacheStorage create(boolean concurrentReads) {
+        return create(concurrentReads, false);
+    }
+
+    /**
+     * @param randomSampling Whether {@link ICacheStorage#randomKey} is supported, costs one reference per key (the
+     *                       compact storage supports it natively).
+     * @throws IllegalArgumentException If concurrent reads are requested from the compact storage.
+     */
+    public ICacheStorage create(boolean concurrentReads, boolean randomSampling) {
+        ICacheStorage storage = switch (storageType) {
+            case HEAP -> new HeapCacheStorage(concurrentReads, randomSampling);
+            case OFF_HEAP -> new OffHeapCacheStorage(slabAllocator, concurrentReads, randomSampling);
+            case COMPACT -> {
+                if (concurrentReads) {
+                    throw new IllegalArgumentException("Compact storage does not support concurrent reads.");
+                }
+                yield new CompactCacheStorage();
+            }
+        };
+        return compressor.isEnabled() ? new CompressingCacheStorage(storage, compressor) : storage;
+    }
+}
@@ -0,0 +1,363 @@
+package com.example.cache.core.storage;
+
+import com.example.cache.core.domain.CacheEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.random.RandomGenerator;
+
+/**
+ * Open addressing hash index specialized for the cache: the entries live in parallel arrays (hash, key bytes, value,
+ * creation and expiration time, compressed flag, access metadata of sampled eviction) instead of a map node, an entry
+ * object and a String key per mapping. Keys are kept as their UTF-8 bytes. A slot costs 33 bytes (with compressed
+ * oops), plus the headers of the key and value arrays.
+ * <p>
+ * Collisions are resolved by linear probing, removals shift the following entries back so that no tombstones
+ * accumulate. Resizing is incremental: once the load factor is exceeded a table twice as large becomes the live one,
+ * and every access (reads included, so that a read-mostly workload drains it too) moves the next
+ * {@value #MIGRATION_STEP} slots of the previous table into it, so no single operation pays for a full rehash. While draining, lookups check both tables and entries leaving the previous table (migrated,
+ * overwritten or removed) are only marked as moved.
+ * <p>
+ * Only used by the owner thread, concurrent reads are not supported.
+ */
+public class CompactCacheStorage implements ICacheStorage {
+    private static final int MIN_CAPACITY = 16;
+    private static final int MIGRATION_STEP = 16;
+    private static final int EMPTY = 0;
+    // only found in the draining table, stored hashes always have their sign bit set
+    private static final int MOVED = 1;
+
+    private Table table;
+    // previous table while a resize is in progress, null otherwise
+    private Table draining;
+    private int migrationCursor;
+    private int size;
+    // only written by the owner thread
+    private volatile long usedBytes;
+
+    public CompactCacheStorage() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize Number of entries the storage should hold without resizing.
+     */
+    public CompactCacheStorage(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        this.table = new Table(capacity);
+    }
+
+    @Override
+    public CacheEntry get(String key) {
+        migrate();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        int slot = table.find(hash, keyBytes);
+        if (slot >= 0) {
+            return table.entry(key, slot);
+        }
+        if (draining != null) {
+            slot = draining.find(hash, keyBytes);
+            if (slot >= 0) {
+                return draining.entry(key, slot);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void put(String key, CacheEntry entry) {
+        migrate();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        byte[] value = entry.getValue();
+        long footprint = CacheEntry.estimateBytes(key, value);
+
+        int slot = table.find(hash, keyBytes);
+        if (slot >= 0) {
+            usedBytes += footprint - CacheEntry.estimateBytes(key, table.values[slot]);
+            table.set(slot, hash, keyBytes, entry);
+            return;
+        }
+        if (draining != null) {
+            slot = draining.find(hash, keyBytes);
+            if (slot >= 0) {
+                usedBytes -= CacheEntry.estimateBytes(key, draining.values[slot]);
+                draining.markMoved(slot);
+                size--;
+            }
+        }
+        if (table.count + 1 > table.threshold) {
+            resize();
+        }
+        table.set(table.freeSlot(hash), hash, keyBytes, entry);
+        table.count++;
+        size++;
+        usedBytes += footprint;
+    }
+
+    @Override
+    public boolean remove(String key) {
+        migrate();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        int slot = table.find(hash, keyBytes);
+        if (slot >= 0) {
+            usedBytes -= CacheEntry.estimateBytes(key, table.values[slot]);
+            table.delete(slot);
+            size--;
+            return true;
+        }
+        if (draining != null) {
+            slot = draining.find(hash, keyBytes);
+            if (slot >= 0) {
+                usedBytes -= CacheEntry.estimateBytes(key, draining.values[slot]);
+                draining.markMoved(slot);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int accessInfo(String key) {
+        migrate();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        Table source = table;
+        int slot = table.find(hash, keyBytes);
+        if (slot < 0 && draining != null) {
+            source = draining;
+            slot = draining.find(hash, keyBytes);
+        }
+        return slot >= 0 ? source.accessInfos[slot] : -1;
+    }
+
+    @Override
+    public void updateAccessInfo(String key, IntUnaryOperator update) {
+        migrate();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        Table source = table;
+        int slot = table.find(hash, keyBytes);
+        if (slot < 0 && draining != null) {
+            source = draining;
+            slot = draining.find(hash, keyBytes);
+        }
+        if (slot >= 0) {
+            source.accessInfos[slot] = update.applyAsInt(source.accessInfos[slot]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Picks a random slot and probes forward to the next entry. Keys following long runs of empty slots are picked
+     * a bit more often, which is fine for sampling; random sampling is always supported.
+     */
+    @Override
+    public String randomKey(RandomGenerator random) {
+        if (size == 0) {
+            return null;
+        }
+        Table source = draining != null && random.nextInt(size) < draining.count ? draining : table;
+        int slot = random.nextInt(source.hashes.length);
+        while (!source.isLive(slot)) {
+            slot = (slot + 1) & source.mask;
+        }
+        return new String(source.keys[slot], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, CacheEntry> visitor) {
+        table.forEach(visitor);
+        if (draining != null) {
+            draining.forEach(visitor);
+        }
+    }
+
+    int capacity() {
+        return table.hashes.length;
+    }
+
+    boolean isResizing() {
+        return draining != null;
+    }
+
+    private void resize() {
+        if (draining != null) {
+            // writes outpaced the migration, only possible with a tiny table
+            while (draining != null) {
+                migrate();
+            }
+        }
+        draining = table;
+        table = new Table(draining.hashes.length << 1);
+        migrationCursor = 0;
+    }
+
+    private void migrate() {
+        if (draining == null) {
+            return;
+        }
+        int end = Math.min(migrationCursor + MIGRATION_STEP, draining.hashes.length);
+        for (int slot = migrationCursor; slot < end; slot++) {
+            if (draining.isLive(slot)) {
+                int hash = draining.hashes[slot];
+                int target = table.freeSlot(hash);
+                table.hashes[target] = hash;
+                table.keys[target] = draining.keys[slot];
+                table.values[target] = draining.values[slot];
+                table.creationTimes[target] = draining.creationTimes[slot];
+                table.expirationTimes[target] = draining.expirationTimes[slot];
+                table.compressed[target] = draining.compressed[slot];
+                table.accessInfos[target] = draining.accessInfos[slot];
+                table.count++;
+                draining.markMoved(slot);
+            }
+        }
+        migrationCursor = end;
+        if (migrationCursor == draining.hashes.length) {
+            draining = null;
+        }
+    }
+
+    private static int hash(String key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) | Integer.MIN_VALUE;
+    }
+
+    private static final class Table {
+        private final int mask;
+        private final int threshold;
+        private final int[] hashes;
+        private final byte[][] keys;
+        private final byte[][] values;
+        private final long[] creationTimes;
+        private final long[] expirationTimes;
+        private final boolean[] compressed;
+        private final int[] accessInfos;
+        private int count;
+
+        private Table(int capacity) {
+            this.mask = capacity - 1;
+            this.threshold = capacity * 3 / 4;
+            this.hashes = new int[capacity];
+            this.keys = new byte[capacity][];
+            this.values = new byte[capacity][];
+            this.creationTimes = new long[capacity];
+            this.expirationTimes = new long[capacity];
+            this.compressed = new boolean[capacity];
+            this.accessInfos = new int[capacity];
+        }
+
+        private boolean isLive(int slot) {
+            return hashes[slot] != EMPTY && hashes[slot] != MOVED;
+        }
+
+        private int find(int hash, byte[] key) {
+            int slot = hash & mask;
+            while (hashes[slot] != EMPTY) {
+                if (hashes[slot] == hash && Arrays.equals(keys[slot], key)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * First empty slot of the probe sequence, the key must not be present.
+         */
+        private int freeSlot(int hash) {
+            int slot = hash & mask;
+            while (hashes[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void set(int slot, int hash, byte[] key, CacheEntry entry) {
+            hashes[slot] = hash;
+            keys[slot] = key;
+            values[slot] = entry.getValue();
+            creationTimes[slot] = entry.getCreationTime();
+            expirationTimes[slot] = entry.getExpirationTime();
+            compressed[slot] = entry.isCompressed();
+            accessInfos[slot] = entry.getAccessInfo();
+        }
+
+        private CacheEntry entry(String key, int slot) {
+            return CacheEntry.builder()
+                    .value(values[slot])
+                    .creationTime(creationTimes[slot])
+                    .expirationTime(expirationTimes[slot])
+                    .estimatedBytes(CacheEntry.estimateBytes(key, values[slot]))
+                    .compressed(compressed[slot])
+                    .accessInfo(accessInfos[slot])
+                    .build();
+        }
+
+        private void markMoved(int slot) {
+            hashes[slot] = MOVED;
+            keys[slot] = null;
+            values[slot] = null;
+            count--;
+        }
+
+        /**
+         * Backward shift deletion: the following entries of the cluster that may live at the freed slot are moved
+         * back into it, so that every entry stays reachable from its home slot.
+         */
+        private void delete(int slot) {
+            int free = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (hashes[next] == EMPTY) {
+                    break;
+                }
+                int home = hashes[next] & mask;
+                // the entry can move back unless its home slot lies cyclically in (free, next]
+                boolean stays = free <= next ? free < home && home <= next : free < home || home <= next;
+                if (!stays) {
+                    hashes[free] = hashes[next];
+                    keys[free] = keys[next];
+                    values[free] = values[next];
+                    creationTimes[free] = creationTimes[next];
+                    expirationTimes[free] = expirationTimes[next];
+                    compressed[free] = compressed[next];
+                    accessInfos[free] = accessInfos[next];
+                    free = next;
+                }
+            }
+            hashes[free] = EMPTY;
+            keys[free] = null;
+            values[free] = null;
+            count--;
+        }
+
+        private void forEach(BiConsumer<String, CacheEntry> visitor) {
+            for (int slot = 0; slot < hashes.length; slot++) {
+                if (isLive(slot)) {
+                    String key = new String(keys[slot], StandardCharsets.UTF_8);
+                    visitor.accept(key, entry(key, slot));
+                }
+            }
+        }
+    }
+}
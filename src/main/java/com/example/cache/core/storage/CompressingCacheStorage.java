@@ -0,0 +1,102 @@
+package com.example.cache.core.storage;
+
+import com.example.cache.core.domain.CacheEntry;
+import com.example.cache.persistence.SnapshotPartition;
+
+import java.util.function.BiConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.random.RandomGenerator;
+
+/**
+ * Transparent value compression on top of another storage: values above the threshold of the compressor are stored
+ * compressed (when that makes them smaller) and decompressed on {@link #get}. Smaller values skip the codec, the
+ * {@link CacheEntry#isCompressed()} flag tells both kinds apart.
+ * <p>
+ * Compression runs on the owner thread as part of the PUT, decompression on the thread reading the entry (the owner,
+ * or a reader thread with concurrent reads). Entries that arrive already compressed (from a peer) are stored as is.
+ */
+public class CompressingCacheStorage implements ICacheStorage {
+    private final ICacheStorage delegate;
+    private final ValueCompressor compressor;
+
+    public CompressingCacheStorage(ICacheStorage delegate, ValueCompressor compressor) {
+        this.delegate = delegate;
+        this.compressor = compressor;
+    }
+
+    @Override
+    public CacheEntry get(String key) {
+        CacheEntry entry = delegate.get(key);
+        if (entry == null || !entry.isCompressed()) {
+            return entry;
+        }
+        return CacheEntry.builder()
+                .value(compressor.decompress(entry.getValue()))
+                .creationTime(entry.getCreationTime())
+                .expirationTime(entry.getExpirationTime())
+                .estimatedBytes(entry.getEstimatedBytes())
+                .build();
+    }
+
+    @Override
+    public CacheEntry getStored(String key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public void put(String key, CacheEntry entry) {
+        byte[] compressed = entry.isCompressed() ? null : compressor.compress(entry.getValue());
+        if (compressed == null) {
+            delegate.put(key, entry);
+            return;
+        }
+        delegate.put(key, CacheEntry.builder()
+                .value(compressed)
+                .creationTime(entry.getCreationTime())
+                .expirationTime(entry.getExpirationTime())
+                .estimatedBytes(CacheEntry.estimateBytes(key, compressed))
+                .compressed(true)
+                .accessInfo(entry.getAccessInfo())
+                .build());
+    }
+
+    @Override
+    public boolean remove(String key) {
+        return delegate.remove(key);
+    }
+
+    @Override
+    public int accessInfo(String key) {
+        return delegate.accessInfo(key);
+    }
+
+    @Override
+    public void updateAccessInfo(String key, IntUnaryOperator update) {
+        delegate.updateAccessInfo(key, update);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public long usedBytes() {
+        return delegate.usedBytes();
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, CacheEntry> visitor) {
+        delegate.forEach(visitor);
+    }
+
+    @Override
+    public SnapshotPartition capture(long currentTimeInSec) {
+        return delegate.capture(currentTimeInSec);
+    }
+
+    @Override
+    public String randomKey(RandomGenerator random) {
+        return delegate.randomKey(random);
+    }
+}
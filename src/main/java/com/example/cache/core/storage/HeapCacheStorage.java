@@ -0,0 +1,106 @@
+package com.example.cache.core.storage;
+
+import com.example.cache.core.domain.CacheEntry;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.random.RandomGenerator;
+
+/**
+ * Keeps the entries (and their values) on the java heap.
+ */
+public class HeapCacheStorage implements ICacheStorage {
+    private final Map<String, CacheEntry> storage;
+    private final RandomKeySampler sampler;
+    // only written by the owner thread
+    private volatile long usedBytes;
+
+    public HeapCacheStorage(boolean concurrentReads) {
+        this(concurrentReads, false);
+    }
+
+    public HeapCacheStorage(boolean concurrentReads, boolean randomSampling) {
+        // ConcurrentHashMap safely publishes the (immutable) CacheEntry written by the worker to reader threads
+        this.storage = concurrentReads ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.sampler = randomSampling ? new RandomKeySampler() : null;
+    }
+
+    @Override
+    public CacheEntry get(String key) {
+        return storage.get(key);
+    }
+
+    @Override
+    public void put(String key, CacheEntry entry) {
+        CacheEntry previous = storage.put(key, entry);
+        if (previous == null && sampler != null) {
+            sampler.onInsert(key, storage.keySet());
+        }
+        usedBytes += footprint(key, entry) - (previous != null ? footprint(key, previous) : 0);
+    }
+
+    @Override
+    public boolean remove(String key) {
+        CacheEntry previous = storage.remove(key);
+        if (previous == null) {
+            return false;
+        }
+        usedBytes -= footprint(key, previous);
+        return true;
+    }
+
+    /**
+     * Entries built by the cores carry their footprint, it is only estimated here for the others.
+     */
+    private static long footprint(String key, CacheEntry entry) {
+        return entry.getEstimatedBytes() > 0 ? entry.getEstimatedBytes() : CacheEntry.estimateBytes(key, entry.getValue());
+    }
+
+    @Override
+    public int accessInfo(String key) {
+        CacheEntry entry = storage.get(key);
+        return entry != null ? entry.getAccessInfo() : -1;
+    }
+
+    /**
+     * Entries are immutable, a changed value replaces the entry with a copy. The LRU clock ticks once per second and
+     * the LFU counter grows logarithmically, so most reads leave the metadata unchanged and copy nothing.
+     */
+    @Override
+    public void updateAccessInfo(String key, IntUnaryOperator update) {
+        CacheEntry entry = storage.get(key);
+        if (entry == null) {
+            return;
+        }
+        int accessInfo = update.applyAsInt(entry.getAccessInfo());
+        if (accessInfo != entry.getAccessInfo()) {
+            storage.put(key, entry.toBuilder().accessInfo(accessInfo).build());
+        }
+    }
+
+    @Override
+    public int size() {
+        return storage.size();
+    }
+
+    @Override
+    public long usedBytes() {
+        return usedBytes;
+    }
+
+    @Override
+    public String randomKey(RandomGenerator random) {
+        if (sampler == null) {
+            throw new UnsupportedOperationException("Storage created without random sampling.");
+        }
+        return sampler.pick(random, storage.keySet());
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, CacheEntry> visitor) {
+        storage.forEach(visitor);
+    }
+}
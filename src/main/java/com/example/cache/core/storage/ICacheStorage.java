@@ -0,0 +1,95 @@
+package com.example.cache.core.storage;
+
+import com.example.cache.core.domain.CacheEntry;
+import com.example.cache.persistence.SnapshotPartition;
+
+import java.util.function.BiConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.random.RandomGenerator;
+
+/**
+ * Storage engine of a cache core. Mutations are only performed from the owner (worker) thread of the core, reads can
+ * come from other threads when the storage is created for concurrent reads.
+ */
+public interface ICacheStorage {
+
+    /**
+     * @param key The key to look up
+     * @return The entry stored for the key, null if there is none
+     */
+    CacheEntry get(String key);
+
+    /**
+     * Like {@link #get(String)}, but the value is returned as stored, compressed when {@link CacheEntry#isCompressed()}.
+     */
+    default CacheEntry getStored(String key) {
+        return get(key);
+    }
+
+    /**
+     * Stores the entry for the key, replacing (and releasing) the previous one if present. An entry that is already
+     * compressed is stored as is.
+     */
+    void put(String key, CacheEntry entry);
+
+    /**
+     * Removes the entry for the key and releases everything held by it.
+     *
+     * @return True if an entry was removed
+     */
+    boolean remove(String key);
+
+    /**
+     * @return Access metadata of the entry, see {@link CacheEntry#getAccessInfo()}, -1 if the key is not stored. Only
+     * called from the owner thread.
+     */
+    int accessInfo(String key);
+
+    /**
+     * Replaces the access metadata of the entry with the result of the update, a no-op if the key is not stored. Only
+     * called from the owner thread.
+     */
+    void updateAccessInfo(String key, IntUnaryOperator update);
+
+    int size();
+
+    /**
+     * @return Estimated memory footprint of all the stored entries, see {@link CacheEntry#estimateBytes(String, int)}.
+     */
+    long usedBytes();
+
+    /**
+     * Visits every entry, only called from the owner thread. The entries handed to the visitor stay valid after the
+     * visit (off-heap values are copied out of their slab). Values are handed over as stored, possibly compressed.
+     */
+    void forEach(BiConsumer<String, CacheEntry> visitor);
+
+    /**
+     * Captures the entries not expired at the given time, only called from the owner thread. The partition is read
+     * from another thread while the owner keeps writing, values as stored. By default the entry references are
+     * captured, entries are never mutated in place.
+     */
+    default SnapshotPartition capture(long currentTimeInSec) {
+        int capacity = size();
+        String[] keys = new String[capacity];
+        CacheEntry[] entries = new CacheEntry[capacity];
+        int[] size = new int[1];
+        forEach((key, entry) -> {
+            if (size[0] < capacity && !entry.isExpired(currentTimeInSec)) {
+                keys[size[0]] = key;
+                entries[size[0]] = entry;
+                size[0]++;
+            }
+        });
+        return SnapshotPartition.of(keys, entries, size[0]);
+    }
+
+    /**
+     * Picks a random stored key in O(1), only called from the owner thread. Only supported by storages created with
+     * random sampling.
+     *
+     * @return A random key, null if the storage is empty.
+     * @throws UnsupportedOperationException If the storage was created without random sampling.
+     */
+    String randomKey(RandomGenerator random);
+}
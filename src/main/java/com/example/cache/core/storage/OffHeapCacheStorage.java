@@ -0,0 +1,256 @@
+package com.example.cache.core.storage;
+
+import com.example.cache.core.domain.CacheEntry;
+import com.example.cache.persistence.SnapshotPartition;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.random.RandomGenerator;
+
+/**
+ * Keeps the value bytes in off-heap slabs, only a compact index (key to slab address, length and timestamps) stays on
+ * the heap, so that the GC does not have to trace (or copy) the values.
+ * <p>
+ * Reads from other threads are lock-free: the value is copied out of the slab first and the index is checked again
+ * afterward. A chunk is only released after its index entry is replaced or removed, so if the index still points to
+ * the same {@link SlabEntry} after the copy, the copied bytes are valid; otherwise the read is retried.
+ */
+public class OffHeapCacheStorage implements ICacheStorage {
+    private static final long NULL_VALUE = -1;
+
+    private final SlabAllocator slabAllocator;
+    private final Map<String, SlabEntry> index;
+    private final RandomKeySampler sampler;
+    // only written by the owner thread
+    private volatile long usedBytes;
+
+    public OffHeapCacheStorage(SlabAllocator slabAllocator, boolean concurrentReads) {
+        this(slabAllocator, concurrentReads, false);
+    }
+
+    public OffHeapCacheStorage(SlabAllocator slabAllocator, boolean concurrentReads, boolean randomSampling) {
+        this.slabAllocator = slabAllocator;
+        this.index = concurrentReads ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.sampler = randomSampling ? new RandomKeySampler() : null;
+    }
+
+    @Override
+    public CacheEntry get(String key) {
+        while (true) {
+            SlabEntry slabEntry = index.get(key);
+            if (slabEntry == null) {
+                return null;
+            }
+            byte[] value = null;
+            if (slabEntry.address != NULL_VALUE) {
+                value = slabAllocator.read(slabEntry.address, slabEntry.length);
+            }
+            if (index.get(key) == slabEntry) {
+                return CacheEntry.builder()
+                        .value(value)
+                        .creationTime(slabEntry.creationTime)
+                        .expirationTime(slabEntry.expirationTime)
+                        .estimatedBytes(CacheEntry.estimateBytes(key, slabEntry.length))
+                        .compressed(slabEntry.compressed)
+                        .build();
+            }
+        }
+    }
+
+    @Override
+    public void put(String key, CacheEntry entry) {
+        long address = NULL_VALUE;
+        int length = 0;
+        if (entry.getValue() != null) {
+            length = entry.getValue().length;
+            address = slabAllocator.allocate(length);
+            slabAllocator.write(address, entry.getValue());
+        }
+        SlabEntry previous = index.put(key,
+                new SlabEntry(address, length, entry.getCreationTime(), entry.getExpirationTime(), entry.isCompressed(),
+                        entry.getAccessInfo()));
+        if (previous == null && sampler != null) {
+            sampler.onInsert(key, index.keySet());
+        }
+        release(previous);
+        usedBytes += CacheEntry.estimateBytes(key, length)
+                - (previous != null ? CacheEntry.estimateBytes(key, previous.length) : 0);
+    }
+
+    @Override
+    public boolean remove(String key) {
+        SlabEntry slabEntry = index.remove(key);
+        release(slabEntry);
+        if (slabEntry == null) {
+            return false;
+        }
+        usedBytes -= CacheEntry.estimateBytes(key, slabEntry.length);
+        return true;
+    }
+
+    private void release(SlabEntry slabEntry) {
+        if (slabEntry != null && slabEntry.address != NULL_VALUE) {
+            slabAllocator.free(slabEntry.address, slabEntry.length);
+        }
+    }
+
+    @Override
+    public int accessInfo(String key) {
+        SlabEntry slabEntry = index.get(key);
+        return slabEntry != null ? slabEntry.accessInfo : -1;
+    }
+
+    @Override
+    public void updateAccessInfo(String key, IntUnaryOperator update) {
+        SlabEntry slabEntry = index.get(key);
+        if (slabEntry != null) {
+            slabEntry.accessInfo = update.applyAsInt(slabEntry.accessInfo);
+        }
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public long usedBytes() {
+        return usedBytes;
+    }
+
+    @Override
+    public String randomKey(RandomGenerator random) {
+        if (sampler == null) {
+            throw new UnsupportedOperationException("Storage created without random sampling.");
+        }
+        return sampler.pick(random, index.keySet());
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, CacheEntry> visitor) {
+        index.forEach((key, slabEntry) -> visitor.accept(key, CacheEntry.builder()
+                .value(slabEntry.address != NULL_VALUE ? slabAllocator.read(slabEntry.address, slabEntry.length) : null)
+                .creationTime(slabEntry.creationTime)
+                .expirationTime(slabEntry.expirationTime)
+                .estimatedBytes(CacheEntry.estimateBytes(key, slabEntry.length))
+                .compressed(slabEntry.compressed)
+                .build()));
+    }
+
+    /**
+     * Captures the slab addresses of the live entries, not their values: the allocator is pinned so that the captured
+     * chunks are not reused, and the values are copied out of them by the thread writing the snapshot. The worker is
+     * only paused for a few primitives per key, whatever the size of the values.
+     */
+    @Override
+    public SnapshotPartition capture(long currentTimeInSec) {
+        int capacity = index.size();
+        String[] keys = new String[capacity];
+        long[] addresses = new long[capacity];
+        int[] lengths = new int[capacity];
+        long[] expirationTimes = new long[capacity];
+        BitSet compressed = new BitSet(capacity);
+        int size = 0;
+        slabAllocator.pin();
+        for (Map.Entry<String, SlabEntry> indexEntry : index.entrySet()) {
+            SlabEntry slabEntry = indexEntry.getValue();
+            if (size == capacity || currentTimeInSec >= slabEntry.expirationTime) {
+                continue;
+            }
+            keys[size] = indexEntry.getKey();
+            addresses[size] = slabEntry.address;
+            lengths[size] = slabEntry.length;
+            expirationTimes[size] = slabEntry.expirationTime;
+            compressed.set(size, slabEntry.compressed);
+            size++;
+        }
+        return new SlabPartition(slabAllocator, keys, addresses, lengths, expirationTimes, compressed, size);
+    }
+
+    /**
+     * Partition of captured slab addresses, holding a pin of the allocator until released.
+     */
+    private static final class SlabPartition implements SnapshotPartition {
+        private final SlabAllocator slabAllocator;
+        private final String[] keys;
+        private final long[] addresses;
+        private final int[] lengths;
+        private final long[] expirationTimes;
+        private final BitSet compressed;
+        private final int size;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private SlabPartition(SlabAllocator slabAllocator, String[] keys, long[] addresses, int[] lengths,
+                              long[] expirationTimes, BitSet compressed, int size) {
+            this.slabAllocator = slabAllocator;
+            this.keys = keys;
+            this.addresses = addresses;
+            this.lengths = lengths;
+            this.expirationTimes = expirationTimes;
+            this.compressed = compressed;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String key(int index) {
+            return keys[index];
+        }
+
+        @Override
+        public long expirationTime(int index) {
+            return expirationTimes[index];
+        }
+
+        @Override
+        public boolean isCompressed(int index) {
+            return compressed.get(index);
+        }
+
+        @Override
+        public byte[] value(int index) {
+            if (released.get()) {
+                throw new IllegalStateException("Partition already released.");
+            }
+            return addresses[index] != NULL_VALUE ? slabAllocator.read(addresses[index], lengths[index]) : null;
+        }
+
+        @Override
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                slabAllocator.unpin();
+            }
+        }
+    }
+
+    /**
+     * Immutable but for the access metadata of sampled eviction, which only the owner thread reads and writes.
+     */
+    private static final class SlabEntry {
+        private final long address;
+        private final int length;
+        private final long creationTime;
+        private final long expirationTime;
+        private final boolean compressed;
+        private int accessInfo;
+
+        private SlabEntry(long address, int length, long creationTime, long expirationTime, boolean compressed,
+                          int accessInfo) {
+            this.address = address;
+            this.length = length;
+            this.creationTime = creationTime;
+            this.expirationTime = expirationTime;
+            this.compressed = compressed;
+            this.accessInfo = accessInfo;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.cache.core.storage;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.random.RandomGenerator;
+
+/**
+ * Dense array of the stored keys, giving hash map based storages an O(1) random key pick. Only used by the owner
+ * thread of the storage.
+ * <p>
+ * Removals are lazy: a removed key stays in the array until it is picked, at which point it is swapped with the last
+ * key and dropped. A key removed and inserted again may be present twice until then, the array is rebuilt from the
+ * live keys once it holds more than twice as many keys, or when a few picks in a row only found removed keys. The cost
+ * is one reference per key.
+ */
+final class RandomKeySampler {
+    private static final int MAX_PICK_TRIES = 8;
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] keys = new String[MIN_CAPACITY];
+    private int size;
+
+    /**
+     * Called when a key that was not stored is inserted.
+     */
+    void onInsert(String key, Collection<String> liveKeys) {
+        if (size > 2 * liveKeys.size() + MIN_CAPACITY) {
+            rebuild(liveKeys);
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[size++] = key;
+    }
+
+    /**
+     * @param liveKeys The stored keys, with a constant time {@code contains}.
+     * @return A random live key, null only if there is none.
+     */
+    String pick(RandomGenerator random, Collection<String> liveKeys) {
+        for (int i = 0; i < MAX_PICK_TRIES && size > 0; i++) {
+            int index = random.nextInt(size);
+            String key = keys[index];
+            if (liveKeys.contains(key)) {
+                return key;
+            }
+            keys[index] = keys[--size];
+            keys[size] = null;
+        }
+        if (liveKeys.isEmpty()) {
+            return null;
+        }
+        // mostly removed keys left, every key of the rebuilt array is live
+        rebuild(liveKeys);
+        return keys[random.nextInt(size)];
+    }
+
+    private void rebuild(Collection<String> liveKeys) {
+        keys = liveKeys.toArray(new String[Math.max(MIN_CAPACITY, liveKeys.size() * 2)]);
+        size = liveKeys.size();
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.cache.core.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Memcached style slab allocator on top of direct (off-heap) ByteBuffers.
+ * <p>
+ * Memory is reserved in slabs of a fixed size, and every slab is carved into equally sized chunks of one size class.
+ * Size classes grow by a factor of 1.25 from 64 bytes up to the slab size, so that a value wastes at most ~20% of its
+ * chunk. Freed chunks go back to the free list of their class and are reused by the next allocation of that class,
+ * slabs are never handed back to the OS.
+ * <p>
+ * An allocation is addressed by a single long: size class index in the upper 32 bits and the chunk number within the
+ * class in the lower 32 bits. Allocation and release are synchronized as the allocator is shared by all the core
+ * shards, reads and writes of the chunk content are lock-free (absolute ByteBuffer access).
+ * <p>
+ * While the allocator is pinned (see {@link #pin()}), freed chunks are set aside instead of being reused, so that a
+ * snapshot can copy the chunks it captured on its own thread while the cores keep writing.
+ */
+@Slf4j
+public class SlabAllocator {
+    private static final int MIN_CHUNK_SIZE = 64;
+    private static final double GROWTH_FACTOR = 1.25;
+    private static final int CHUNK_ALIGNMENT = 8;
+
+    private final int slabSize;
+    private final long maxReservedBytes;
+    private final SizeClass[] sizeClasses;
+    // chunks freed while pinned, released by the last unpin
+    private int pins;
+    private long[] deferredAddresses = new long[0];
+    private int[] deferredLengths = new int[0];
+    private int deferredCount;
+
+    // updated only under the allocator lock, volatile so that gauges can read them without locking
+    private volatile long reservedBytes;
+    private volatile long usedChunkBytes;
+    private volatile long usedValueBytes;
+
+    /**
+     * @param slabSize         Size of a single slab, it is also the maximum size of a single allocation.
+     * @param maxReservedBytes Upper bound of the off-heap memory, non positive value means unbounded.
+     */
+    public SlabAllocator(int slabSize, long maxReservedBytes) {
+        if (slabSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("'slabSize' must be at least " + MIN_CHUNK_SIZE + " bytes.");
+        }
+        this.slabSize = slabSize;
+        this.maxReservedBytes = maxReservedBytes > 0 ? maxReservedBytes : Long.MAX_VALUE;
+
+        List<SizeClass> classes = new ArrayList<>();
+        int chunkSize = MIN_CHUNK_SIZE;
+        while (chunkSize < slabSize) {
+            classes.add(new SizeClass(chunkSize, slabSize / chunkSize));
+            int next = (int) Math.ceil(chunkSize * GROWTH_FACTOR);
+            chunkSize = (next + CHUNK_ALIGNMENT - 1) / CHUNK_ALIGNMENT * CHUNK_ALIGNMENT;
+        }
+        classes.add(new SizeClass(slabSize, 1));
+        this.sizeClasses = classes.toArray(new SizeClass[0]);
+        log.info("[SlabAllocator.Initialized] [slabSize={}] [maxReservedBytes={}] [sizeClasses={}]",
+                slabSize, maxReservedBytes, sizeClasses.length);
+    }
+
+    /**
+     * Allocates a chunk large enough for the given number of bytes.
+     *
+     * @return Address of the allocated chunk.
+     * @throws IllegalArgumentException If the length is larger than a slab.
+     * @throws IllegalStateException    If a new slab is needed but the memory limit is reached.
+     */
+    public synchronized long allocate(int length) {
+        int classIndex = sizeClassIndex(length);
+        SizeClass sizeClass = sizeClasses[classIndex];
+        if (sizeClass.freeCount == 0) {
+            reserveSlab(sizeClass);
+        }
+        int chunk = sizeClass.freeChunks[--sizeClass.freeCount];
+        usedChunkBytes += sizeClass.chunkSize;
+        usedValueBytes += length;
+        return ((long) classIndex << 32) | chunk;
+    }
+
+    /**
+     * Returns the chunk to the free list of its size class, so that it is reused by the next allocation of that class.
+     * While pinned the chunk is only released by the last {@link #unpin()}, it stays counted as used until then.
+     *
+     * @param length The length used at allocation time.
+     */
+    public synchronized void free(long address, int length) {
+        if (pins > 0) {
+            if (deferredCount == deferredAddresses.length) {
+                int capacity = Math.max(16, deferredCount * 2);
+                deferredAddresses = Arrays.copyOf(deferredAddresses, capacity);
+                deferredLengths = Arrays.copyOf(deferredLengths, capacity);
+            }
+            deferredAddresses[deferredCount] = address;
+            deferredLengths[deferredCount] = length;
+            deferredCount++;
+            return;
+        }
+        release(address, length);
+    }
+
+    /**
+     * Keeps every chunk handed out so far from being reused until the matching {@link #unpin()}, pins nest.
+     */
+    public synchronized void pin() {
+        pins++;
+    }
+
+    public synchronized void unpin() {
+        if (pins == 0) {
+            throw new IllegalStateException("Allocator is not pinned.");
+        }
+        if (--pins > 0) {
+            return;
+        }
+        for (int i = 0; i < deferredCount; i++) {
+            release(deferredAddresses[i], deferredLengths[i]);
+        }
+        log.debug("[SlabAllocator.Unpin] [releasedChunks={}]", deferredCount);
+        deferredCount = 0;
+        deferredAddresses = new long[0];
+        deferredLengths = new int[0];
+    }
+
+    private void release(long address, int length) {
+        SizeClass sizeClass = sizeClasses[(int) (address >>> 32)];
+        sizeClass.freeChunks[sizeClass.freeCount++] = (int) address;
+        usedChunkBytes -= sizeClass.chunkSize;
+        usedValueBytes -= length;
+    }
+
+    public void write(long address, byte[] bytes) {
+        SizeClass sizeClass = sizeClasses[(int) (address >>> 32)];
+        int chunk = (int) address;
+        sizeClass.slabs.get(chunk / sizeClass.chunksPerSlab)
+                .put((chunk % sizeClass.chunksPerSlab) * sizeClass.chunkSize, bytes);
+    }
+
+    public byte[] read(long address, int length) {
+        SizeClass sizeClass = sizeClasses[(int) (address >>> 32)];
+        int chunk = (int) address;
+        byte[] bytes = new byte[length];
+        sizeClass.slabs.get(chunk / sizeClass.chunksPerSlab)
+                .get((chunk % sizeClass.chunksPerSlab) * sizeClass.chunkSize, bytes);
+        return bytes;
+    }
+
+    int sizeClassIndex(int length) {
+        if (length > slabSize) {
+            throw new IllegalArgumentException("Value of " + length + " bytes exceeds the maximum of " + slabSize
+                    + " bytes for off-heap storage.");
+        }
+        int low = 0;
+        int high = sizeClasses.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sizeClasses[mid].chunkSize < length) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    int chunkSize(int classIndex) {
+        return sizeClasses[classIndex].chunkSize;
+    }
+
+    private void reserveSlab(SizeClass sizeClass) {
+        if (reservedBytes + slabSize > maxReservedBytes) {
+            throw new IllegalStateException("Off-heap storage is full, reserved=" + reservedBytes + " bytes.");
+        }
+        int slabIndex = sizeClass.slabs.size();
+        sizeClass.slabs.add(ByteBuffer.allocateDirect(slabSize));
+        reservedBytes += slabSize;
+
+        // the free list must be able to hold every chunk of the class, all of them may be freed at once
+        int totalChunks = sizeClass.slabs.size() * sizeClass.chunksPerSlab;
+        if (sizeClass.freeChunks.length < totalChunks) {
+            sizeClass.freeChunks = Arrays.copyOf(sizeClass.freeChunks,
+                    Math.max(sizeClass.freeChunks.length * 2, totalChunks));
+        }
+        // pushed in reverse order, so that chunks of the new slab are handed out from the start of the slab
+        int firstChunk = slabIndex * sizeClass.chunksPerSlab;
+        for (int i = sizeClass.chunksPerSlab - 1; i >= 0; i--) {
+            sizeClass.freeChunks[sizeClass.freeCount++] = firstChunk + i;
+        }
+        log.debug("[SlabAllocator.ReserveSlab] [chunkSize={}] [slabs={}] [reservedBytes={}]",
+                sizeClass.chunkSize, sizeClass.slabs.size(), reservedBytes);
+    }
+
+    /**
+     * Off-heap memory reserved by all the slabs.
+     */
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * Memory of all the chunks currently handed out.
+     */
+    public long getUsedChunkBytes() {
+        return usedChunkBytes;
+    }
+
+    /**
+     * Memory actually used by the values stored in the handed out chunks.
+     */
+    public long getUsedValueBytes() {
+        return usedValueBytes;
+    }
+
+    /**
+     * Internal fragmentation, fraction of the handed out chunk memory not used by the values.
+     */
+    public double getFragmentationRatio() {
+        long chunkBytes = usedChunkBytes;
+        return chunkBytes > 0 ? 1.0 - (double) usedValueBytes / chunkBytes : 0.0;
+    }
+
+    private static final class SizeClass {
+        private final int chunkSize;
+        private final int chunksPerSlab;
+        // slabs are appended rarely and read on every access (possibly from reader threads), copy on write fits that
+        private final List<ByteBuffer> slabs = new CopyOnWriteArrayList<>();
+        private int[] freeChunks = new int[0];
+        private int freeCount;
+
+        private SizeClass(int chunkSize, int chunksPerSlab) {
+            this.chunkSize = chunkSize;
+            this.chunksPerSlab = chunksPerSlab;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.cache.core.storage;
+
+public enum StorageType {
+    HEAP, OFF_HEAP, COMPACT;
+
+    /**
+     * Parses the configuration value, e.g. {@code heap}, {@code off-heap} or {@code compact}.
+     */
+    public static StorageType fromProperty(String value) {
+        return StorageType.valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.cache.core.storage;
+
+import com.example.cache.metrics.CacheMetrics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses values above a size threshold with the JDK deflate codec at its fastest level.
+ * <p>
+ * Compressed form: {@code [int originalLength][deflate stream]}. The original length makes decompression a single
+ * pass into an exactly sized array, and the form is self-contained: any node can decompress it, whatever its own
+ * threshold, see {@link #inflate(byte[])}. A value is only stored compressed when that makes it smaller.
+ * <p>
+ * Thread-safe, every thread uses its own (reused) deflater and inflater.
+ */
+public class ValueCompressor {
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+    private static final ValueCompressor DISABLED = new ValueCompressor(0, null);
+
+    private final int thresholdBytes;
+    private final CacheMetrics cacheMetrics;
+
+    /**
+     * @param thresholdBytes Values of at least this size are compressed, non positive value disables compression.
+     */
+    public ValueCompressor(int thresholdBytes, CacheMetrics cacheMetrics) {
+        this.thresholdBytes = thresholdBytes;
+        this.cacheMetrics = cacheMetrics;
+    }
+
+    public static ValueCompressor disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return thresholdBytes > 0;
+    }
+
+    public boolean shouldCompress(byte[] value) {
+        return thresholdBytes > 0 && value != null && value.length >= thresholdBytes;
+    }
+
+    /**
+     * @return The compressed form, or null if the value is under the threshold or does not get smaller.
+     */
+    public byte[] compress(byte[] value) {
+        if (!shouldCompress(value)) {
+            return null;
+        }
+        long startTime = System.nanoTime();
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(value);
+        deflater.finish();
+        // anything that does not fit in the original size is not worth storing compressed
+        byte[] output = new byte[value.length];
+        int length = Integer.BYTES;
+        while (!deflater.finished() && length < output.length) {
+            length += deflater.deflate(output, length, output.length - length);
+        }
+        byte[] compressed = null;
+        if (deflater.finished() && length < value.length) {
+            ByteBuffer.wrap(output).putInt(value.length);
+            compressed = Arrays.copyOf(output, length);
+        }
+        cacheMetrics.recordCompression(value.length, compressed != null ? compressed.length : value.length,
+                System.nanoTime() - startTime);
+        return compressed;
+    }
+
+    public byte[] decompress(byte[] compressed) {
+        long startTime = System.nanoTime();
+        byte[] value = inflate(compressed);
+        cacheMetrics.recordDecompression(System.nanoTime() - startTime);
+        return value;
+    }
+
+    /**
+     * Decompresses without recording metrics, for the paths that do not own a compressor (peers, persistence).
+     *
+     * @throws IllegalArgumentException If the bytes are not a compressed form.
+     */
+    public static byte[] inflate(byte[] compressed) {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(compressed, Integer.BYTES, compressed.length - Integer.BYTES);
+        byte[] value = new byte[ByteBuffer.wrap(compressed).getInt()];
+        try {
+            int length = 0;
+            while (length < value.length && !inflater.finished()) {
+                int inflated = inflater.inflate(value, length, value.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != value.length) {
+                throw new IllegalArgumentException("Compressed value is truncated, " + length + " of "
+                        + value.length + " bytes.");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid compressed value.", e);
+        }
+        return value;
+    }
+}
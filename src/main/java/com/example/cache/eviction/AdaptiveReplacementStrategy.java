@@ -0,0 +1,180 @@
+package com.example.cache.eviction;
+
+import com.example.cache.eviction.ds.DoublyLinkedList;
+import com.example.cache.eviction.ds.GhostList;
+import com.example.cache.eviction.ds.domain.Node;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * ARC (Adaptive Replacement Cache): the tracked keys are split in two LRU lists, <i>T1</i> for the keys seen once
+ * recently and <i>T2</i> for the keys seen at least twice. Each has a <i>ghost</i> list of the keys it evicted recently,
+ * <i>B1</i> and <i>B2</i>, holding only their hashes (see {@link GhostList}).
+ * <p>
+ * The split between recency and frequency adapts online: the target size of T1, {@code p}, grows when a key evicted
+ * from T1 comes back (a hit in B1, T1 was too small) and shrinks when a key evicted from T2 comes back (a hit in B2),
+ * by the ratio of the ghost list sizes. Keys coming back from a ghost list go to T2. A scan only goes through T1 and
+ * B1, while p stays small the keys of T2 are not displaced by it.
+ * <p>
+ * Like the other strategies, {@link #evict()} only picks the victim; when the caller deletes it through
+ * {@link #onDelete(Object)} its hash moves to the ghost list of its list. Keys deleted otherwise (expired, removed)
+ * leave no ghost. The target is read by the metrics from any thread, the other methods must be called from a single
+ * thread.
+ */
+@Slf4j
+public class AdaptiveReplacementStrategy<K> implements IEvictionStrategy<K> {
+
+    private enum Region {
+        RECENT, FREQUENT
+    }
+
+    private final int maximumSize;
+    private final Map<K, Node<K, Region>> elementMap;
+    // T1 and T2, least recently used first
+    private final DoublyLinkedList<K, Region> recent;
+    private final DoublyLinkedList<K, Region> frequent;
+    // B1 and B2
+    private final GhostList recentGhosts;
+    private final GhostList frequentGhosts;
+    // p, the target size of T1
+    private volatile int targetRecentSize;
+    // whether the last new key came back from B2, which favours evicting from T1 when it is exactly at its target
+    private boolean lastInsertFromFrequentGhost;
+    // victim returned by evict(), its deletion is an eviction
+    private Node<K, Region> pendingVictim;
+
+    /**
+     * @param maximumSize Number of keys the cache holds before evicting, each ghost list remembers as many hashes.
+     */
+    public AdaptiveReplacementStrategy(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("'maximumSize' must be positive.");
+        }
+        this.maximumSize = maximumSize;
+        this.elementMap = new HashMap<>();
+        this.recent = new DoublyLinkedList<>();
+        this.frequent = new DoublyLinkedList<>();
+        this.recentGhosts = new GhostList(maximumSize);
+        this.frequentGhosts = new GhostList(maximumSize);
+    }
+
+    @Override
+    public void onPut(K key) {
+        Node<K, Region> node = elementMap.get(key);
+        if (node != null) {
+            // replacing the value of a tracked key counts as an access
+            onAccess(node);
+            log.debug("[Eviction.Strategy.ARC.PUT] [key={}]", key);
+            return;
+        }
+        int hash = key.hashCode();
+        int target = targetRecentSize;
+        lastInsertFromFrequentGhost = false;
+        if (recentGhosts.remove(hash)) {
+            // B1 hit, T1 evicted a key it should have kept: grow T1, the larger B2 the faster
+            int delta = Math.max(1, frequentGhosts.size() / (recentGhosts.size() + 1));
+            targetRecentSize = Math.min(maximumSize, target + delta);
+            frequent.insertLast(key, Region.FREQUENT);
+            elementMap.put(key, frequent.getLast());
+        } else if (frequentGhosts.remove(hash)) {
+            // B2 hit, T2 evicted a key it should have kept: shrink T1
+            int delta = Math.max(1, recentGhosts.size() / (frequentGhosts.size() + 1));
+            targetRecentSize = Math.max(0, target - delta);
+            lastInsertFromFrequentGhost = true;
+            frequent.insertLast(key, Region.FREQUENT);
+            elementMap.put(key, frequent.getLast());
+        } else {
+            recent.insertLast(key, Region.RECENT);
+            elementMap.put(key, recent.getLast());
+            trimGhosts();
+        }
+        log.debug("[Eviction.Strategy.ARC.PUT] [key={}] [targetRecentSize={}]", key, targetRecentSize);
+    }
+
+    @Override
+    public void onGet(K key) {
+        Node<K, Region> node = elementMap.get(key);
+        if (node != null) {
+            onAccess(node);
+        }
+        log.debug("[Eviction.Strategy.ARC.ACCESS] [key={}]", key);
+    }
+
+    /**
+     * A tracked key accessed again goes to the most recently used end of T2, wherever it was.
+     */
+    private void onAccess(Node<K, Region> node) {
+        listOf(node).deleteNode(node);
+        node.setMetadata(Region.FREQUENT);
+        frequent.linkLast(node);
+    }
+
+    @Override
+    public void onDelete(K key) {
+        Node<K, Region> node = elementMap.remove(key);
+        if (node != null) {
+            listOf(node).deleteNode(node);
+            if (node == pendingVictim) {
+                pendingVictim = null;
+                (node.getMetadata() == Region.RECENT ? recentGhosts : frequentGhosts).add(key.hashCode());
+                trimGhosts();
+            }
+        }
+        // No need to perform any operation if key is not present in elementMap, there is nothing to delete in that case.
+        log.debug("[Eviction.Strategy.ARC.REMOVE] [key={}]", key);
+    }
+
+    /**
+     * Evicts from T1 while it is above its target (or at its target when the last new key came back from B2),
+     * otherwise from T2; from whichever list is not empty if one of them is.
+     */
+    @Override
+    public Optional<K> evict() {
+        int target = targetRecentSize;
+        boolean fromRecent = !recent.isEmpty() && (frequent.isEmpty() || recent.size() > target
+                || (lastInsertFromFrequentGhost && recent.size() == target));
+        Node<K, Region> victim = fromRecent ? recent.getFirst() : frequent.getFirst();
+        if (victim == null) {
+            log.debug("[Eviction.Strategy.ARC.EVICT] [<empty>]");
+            return Optional.empty();
+        }
+        pendingVictim = victim;
+        log.debug("[Eviction.Strategy.ARC.EVICT] [region={}] [targetRecentSize={}]", victim.getMetadata(), target);
+        return Optional.of(victim.getData());
+    }
+
+    /**
+     * @return Current target size of T1, the keys seen once recently; T2 gets the rest of the maximum size.
+     */
+    public int getTargetRecentSize() {
+        return targetRecentSize;
+    }
+
+    /**
+     * @return Current target size of T1 as a fraction of the maximum size: 0 favours frequency, 1 recency.
+     */
+    public double getTargetRecentRatio() {
+        return (double) targetRecentSize / maximumSize;
+    }
+
+    /**
+     * Keeps the directory bounded as ARC does: T1 and B1 together at most the maximum size, all four lists at most
+     * twice the maximum size. Resident keys are never dropped here, that is the job of {@link #evict()}.
+     */
+    private void trimGhosts() {
+        while (recentGhosts.size() > 0 && recent.size() + recentGhosts.size() > maximumSize) {
+            recentGhosts.removeOldest();
+        }
+        while (frequentGhosts.size() > 0
+                && elementMap.size() + recentGhosts.size() + frequentGhosts.size() > 2 * maximumSize) {
+            frequentGhosts.removeOldest();
+        }
+    }
+
+    private DoublyLinkedList<K, Region> listOf(Node<K, Region> node) {
+        return node.getMetadata() == Region.RECENT ? recent : frequent;
+    }
+}
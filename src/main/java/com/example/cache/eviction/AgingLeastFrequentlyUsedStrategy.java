@@ -0,0 +1,262 @@
+package com.example.cache.eviction;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * O(1) LFU kept in primitive arrays: every tracked key owns a slot, and the slots of the keys with the same frequency
+ * form a doubly linked list (through the {@code previous} / {@code next} index arrays) in the bucket of that
+ * frequency, least recently used first. An access moves the slot to the next bucket, the victim is the head of the
+ * lowest non-empty bucket. Nothing is allocated per access, only a new key costs a map entry (and the arrays grow
+ * when all the slots are taken).
+ * <p>
+ * Frequencies are capped at the maximum frequency, and aged so that keys that used to be popular can be evicted once
+ * they are not anymore: every frequency is halved after a number of accesses, after a period of time, or both. Keys
+ * keep their relative order within a bucket when aged.
+ * <p>
+ * Not thread safe, only used by the cache cleaner thread.
+ */
+@Slf4j
+public class AgingLeastFrequentlyUsedStrategy<K> implements IEvictionStrategy<K> {
+    private static final int NIL = -1;
+    private static final int INITIAL_CAPACITY = 16;
+    // aging halves every counter in O(n), so it runs every few accesses per key, as the sketch of W-TinyLFU does
+    private static final int AGING_ACCESSES_PER_KEY = 10;
+
+    private final Map<K, Integer> slots;
+    private final int maximumFrequency;
+    private final long agingInterval;
+    private final long agingPeriodNanos;
+    private final LongSupplier nanoClock;
+
+    // per slot
+    private Object[] keys;
+    private int[] frequencies;
+    private int[] previous;
+    private int[] next;
+    // per frequency, indexed from 1 to maximumFrequency; the spare pair is filled while aging, then swapped in
+    private int[] bucketHeads;
+    private int[] bucketTails;
+    private int[] spareBucketHeads;
+    private int[] spareBucketTails;
+
+    // never above the lowest frequency of a tracked key, the buckets are scanned upward from there
+    private int minimumFrequency = 1;
+    // slots freed by deletes are chained through next
+    private int freeSlot = NIL;
+    private int unusedSlot;
+    private long accessesSinceAging;
+    private long lastAgingNanos;
+
+    /**
+     * @param maximumFrequency  Frequency at which the counter of a key stops, at least 2.
+     * @param agingInterval     Accesses (puts and gets) after which every frequency is halved, 0 disables it.
+     * @param agingPeriodMillis Time after which every frequency is halved, 0 disables it.
+     */
+    public AgingLeastFrequentlyUsedStrategy(int maximumFrequency, long agingInterval, long agingPeriodMillis) {
+        this(maximumFrequency, agingInterval, agingPeriodMillis, System::nanoTime);
+    }
+
+    /**
+     * @param maximumSize Number of keys the cache holds before evicting.
+     * @return Default aging interval for a cache of that size, ten accesses per key.
+     */
+    public static long defaultAgingInterval(int maximumSize) {
+        return AGING_ACCESSES_PER_KEY * (long) Math.max(1, maximumSize);
+    }
+
+    AgingLeastFrequentlyUsedStrategy(int maximumFrequency, long agingInterval, long agingPeriodMillis,
+                                     LongSupplier nanoClock) {
+        if (maximumFrequency < 2) {
+            throw new IllegalArgumentException("'maximumFrequency' must be at least 2.");
+        }
+        this.slots = new HashMap<>();
+        this.maximumFrequency = maximumFrequency;
+        this.agingInterval = agingInterval;
+        this.agingPeriodNanos = agingPeriodMillis * 1_000_000;
+        this.nanoClock = nanoClock;
+        this.keys = new Object[INITIAL_CAPACITY];
+        this.frequencies = new int[INITIAL_CAPACITY];
+        this.previous = new int[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        this.bucketHeads = emptyBuckets();
+        this.bucketTails = emptyBuckets();
+        this.spareBucketHeads = emptyBuckets();
+        this.spareBucketTails = emptyBuckets();
+        this.lastAgingNanos = agingPeriodNanos > 0 ? nanoClock.getAsLong() : 0;
+    }
+
+    @Override
+    public void onPut(K key) {
+        Integer slot = slots.get(key);
+        if (slot != null) {
+            increment(slot);
+        } else {
+            int newSlot = allocateSlot();
+            keys[newSlot] = key;
+            frequencies[newSlot] = 1;
+            link(newSlot, 1);
+            slots.put(key, newSlot);
+            minimumFrequency = 1;
+        }
+        recordAccess();
+        log.debug("[Eviction.Strategy.LFU.PUT] [key={}]", key);
+    }
+
+    @Override
+    public void onGet(K key) {
+        Integer slot = slots.get(key);
+        if (slot != null) {
+            increment(slot);
+            recordAccess();
+        }
+        log.debug("[Eviction.Strategy.LFU.ACCESS] [key={}]", key);
+    }
+
+    @Override
+    public void onDelete(K key) {
+        Integer slot = slots.remove(key);
+        if (slot != null) {
+            unlink(slot, frequencies[slot]);
+            keys[slot] = null;
+            next[slot] = freeSlot;
+            freeSlot = slot;
+        }
+        // No need to perform any operation if key is not present, there is nothing to delete in that case.
+        log.debug("[Eviction.Strategy.LFU.REMOVE] [key={}]", key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<K> evict() {
+        if (slots.isEmpty()) {
+            log.debug("[Eviction.Strategy.LFU.EVICT] [<empty>]");
+            return Optional.empty();
+        }
+        while (bucketHeads[minimumFrequency] == NIL) {
+            minimumFrequency++;
+        }
+        log.debug("[Eviction.Strategy.LFU.EVICT] [frequency={}]", minimumFrequency);
+        return Optional.of((K) keys[bucketHeads[minimumFrequency]]);
+    }
+
+    int frequency(K key) {
+        Integer slot = slots.get(key);
+        return slot == null ? 0 : frequencies[slot];
+    }
+
+    /**
+     * Moves the slot to the tail of the next bucket, or to the tail of its own once the frequency is capped.
+     */
+    private void increment(int slot) {
+        int frequency = frequencies[slot];
+        unlink(slot, frequency);
+        if (frequency < maximumFrequency) {
+            if (minimumFrequency == frequency && bucketHeads[frequency] == NIL) {
+                minimumFrequency = frequency + 1;
+            }
+            frequency++;
+            frequencies[slot] = frequency;
+        }
+        link(slot, frequency);
+    }
+
+    private void recordAccess() {
+        accessesSinceAging++;
+        if (agingInterval > 0 && accessesSinceAging >= agingInterval) {
+            age();
+        } else if (agingPeriodNanos > 0 && nanoClock.getAsLong() - lastAgingNanos >= agingPeriodNanos) {
+            age();
+        }
+    }
+
+    /**
+     * Halves every frequency (never below 1). Buckets are visited from the lowest frequency, so a key only lands behind
+     * the keys that had a lower or equal frequency before.
+     */
+    private void age() {
+        Arrays.fill(spareBucketHeads, NIL);
+        Arrays.fill(spareBucketTails, NIL);
+        for (int frequency = 1; frequency <= maximumFrequency; frequency++) {
+            int aged = Math.max(1, frequency >>> 1);
+            int slot = bucketHeads[frequency];
+            while (slot != NIL) {
+                int following = next[slot];
+                frequencies[slot] = aged;
+                append(slot, aged, spareBucketHeads, spareBucketTails);
+                slot = following;
+            }
+        }
+        int[] heads = bucketHeads;
+        int[] tails = bucketTails;
+        bucketHeads = spareBucketHeads;
+        bucketTails = spareBucketTails;
+        spareBucketHeads = heads;
+        spareBucketTails = tails;
+
+        minimumFrequency = 1;
+        accessesSinceAging = 0;
+        if (agingPeriodNanos > 0) {
+            lastAgingNanos = nanoClock.getAsLong();
+        }
+        log.debug("[Eviction.Strategy.LFU.Aging] [keys={}]", slots.size());
+    }
+
+    private void link(int slot, int frequency) {
+        append(slot, frequency, bucketHeads, bucketTails);
+    }
+
+    private void append(int slot, int frequency, int[] heads, int[] tails) {
+        int tail = tails[frequency];
+        previous[slot] = tail;
+        next[slot] = NIL;
+        if (tail == NIL) {
+            heads[frequency] = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tails[frequency] = slot;
+    }
+
+    private void unlink(int slot, int frequency) {
+        int before = previous[slot];
+        int after = next[slot];
+        if (before == NIL) {
+            bucketHeads[frequency] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after == NIL) {
+            bucketTails[frequency] = before;
+        } else {
+            previous[after] = before;
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeSlot != NIL) {
+            int slot = freeSlot;
+            freeSlot = next[slot];
+            return slot;
+        }
+        if (unusedSlot == keys.length) {
+            int capacity = keys.length << 1;
+            keys = Arrays.copyOf(keys, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        return unusedSlot++;
+    }
+
+    private int[] emptyBuckets() {
+        int[] buckets = new int[maximumFrequency + 1];
+        Arrays.fill(buckets, NIL);
+        return buckets;
+    }
+}
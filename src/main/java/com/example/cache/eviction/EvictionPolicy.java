@@ -0,0 +1,20 @@
+package com.example.cache.eviction;
+
+public enum EvictionPolicy {
+    LRU, LFU, FIFO, W_TINYLFU, SIEVE, ARC, SAMPLED_LRU, SAMPLED_LFU;
+
+    /**
+     * Parses the configuration value, e.g. {@code lru}, {@code lfu}, {@code fifo}, {@code w-tinylfu}, {@code sieve},
+     * {@code arc}, {@code sampled-lru} or {@code sampled-lfu}.
+     */
+    public static EvictionPolicy fromProperty(String value) {
+        return EvictionPolicy.valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+
+    /**
+     * @return Whether the cores evict by themselves from random samples of their keys, instead of the cache cleaner.
+     */
+    public boolean isSampled() {
+        return this == SAMPLED_LRU || this == SAMPLED_LFU;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.cache.eviction;
+
+import java.util.Optional;
+
+/**
+ * Tracks nothing and never picks a victim, used by the cache cleaner when the cores evict by themselves (sampled
+ * eviction) so that no per-key structure is kept on its side.
+ */
+public class NoOpEvictionStrategy<K> implements IEvictionStrategy<K> {
+
+    @Override
+    public void onPut(K key) {
+        // no-op
+    }
+
+    @Override
+    public void onGet(K key) {
+        // no-op
+    }
+
+    @Override
+    public void onDelete(K key) {
+        // no-op
+    }
+
+    @Override
+    public Optional<K> evict() {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.cache.eviction;
+
+import com.example.cache.eviction.ds.DoublyLinkedList;
+import com.example.cache.eviction.ds.domain.Node;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SIEVE, a CLOCK-family policy: keys are kept in insertion order with one visited bit each. An access only sets the
+ * bit, nothing is reordered. To find a victim a hand moves from the oldest key towards the newest, clearing the bits
+ * it passes, and stops at the first key that was not visited since the hand last passed it; the hand stays there and
+ * resumes from that position next time (wrapping around to the oldest key at the end).
+ * <p>
+ * Unlike CLOCK, a key that survives is not moved: new keys that are not accessed again are evicted quickly, while
+ * visited keys stay behind the hand. On web traces this matches or beats LRU.
+ * <p>
+ * {@link #onGet(Object)} is a concurrent map lookup and a single store, it can be called from any thread, e.g. readers
+ * serving GETs. The other methods change the list and must be called from a single thread.
+ */
+@Slf4j
+public class SieveStrategy<K> implements IEvictionStrategy<K> {
+    // newest first, the hand moves from the last (oldest) node towards the first one
+    private final DoublyLinkedList<K, Boolean> queue;
+    private final Map<K, Node<K, Boolean>> elementMap;
+    private Node<K, Boolean> hand;
+
+    public SieveStrategy() {
+        this.queue = new DoublyLinkedList<>();
+        this.elementMap = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void onPut(K key) {
+        Node<K, Boolean> existingNode = elementMap.get(key);
+        if (existingNode != null) {
+            // replacing the value of a tracked key counts as an access
+            existingNode.setMetadata(Boolean.TRUE);
+        } else {
+            queue.insertFirst(key, Boolean.FALSE);
+            elementMap.put(key, queue.getFirst());
+        }
+        log.debug("[Eviction.Strategy.SIEVE.PUT] [key={}]", key);
+    }
+
+    @Override
+    public void onGet(K key) {
+        Node<K, Boolean> node = elementMap.get(key);
+        if (node != null) {
+            node.setMetadata(Boolean.TRUE);
+        }
+        log.debug("[Eviction.Strategy.SIEVE.ACCESS] [key={}]", key);
+    }
+
+    @Override
+    public void onDelete(K key) {
+        Node<K, Boolean> node = elementMap.remove(key);
+        if (node != null) {
+            if (hand == node) {
+                // the hand moves on to the next newer key
+                hand = node.getPrev();
+            }
+            queue.deleteNode(node);
+        }
+        // No need to perform any operation if key is not present in elementMap, there is nothing to delete in that case.
+        log.debug("[Eviction.Strategy.SIEVE.REMOVE] [key={}]", key);
+    }
+
+    /**
+     * Moves the hand to the victim and returns it, the victim stays tracked until deleted: calling this again without
+     * deleting it returns the same key.
+     */
+    @Override
+    public Optional<K> evict() {
+        if (queue.isEmpty()) {
+            log.debug("[Eviction.Strategy.SIEVE.EVICT] [<empty>]");
+            return Optional.empty();
+        }
+        Node<K, Boolean> node = hand != null ? hand : queue.getLast();
+        // every visited key passed is cleared, so at most one full round is needed
+        while (node.getMetadata()) {
+            node.setMetadata(Boolean.FALSE);
+            node = node.getPrev() != null ? node.getPrev() : queue.getLast();
+        }
+        hand = node;
+        log.debug("[Eviction.Strategy.SIEVE.EVICT]");
+        return Optional.of(node.getData());
+    }
+}
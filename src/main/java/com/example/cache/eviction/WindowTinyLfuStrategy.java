@@ -0,0 +1,156 @@
+package com.example.cache.eviction;
+
+import com.example.cache.eviction.ds.DoublyLinkedList;
+import com.example.cache.eviction.ds.FrequencySketch;
+import com.example.cache.eviction.ds.domain.Node;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * W-TinyLFU: LRU behind a frequency based admission filter, so that a burst of keys accessed only once (a scan) does
+ * not flush the keys accessed over and over.
+ * <ul>
+ *     <li>New keys enter a small LRU <i>window</i> (1% of the maximum size), which absorbs recency bursts.</li>
+ *     <li>The <i>main</i> region holds the rest, segmented in <i>probation</i> (keys admitted from the window) and
+ *     <i>protected</i> (80% of main, keys accessed again while in probation). A protected key falling off its segment
+ *     goes back to probation.</li>
+ *     <li>A key leaving the window has to displace the least recently used key of probation: the {@link FrequencySketch}
+ *     decides, the key with the lower estimated frequency is the one evicted.</li>
+ * </ul>
+ * The sketch counts every access, including the ones to keys not (or no longer) tracked, in constant memory; the
+ * strategy itself keeps one node per tracked key.
+ * <p>
+ * Like the other strategies, {@link #evict()} only picks the victim, which the caller then deletes through
+ * {@link #onDelete(Object)}. Keys are moved from the window to the main region lazily, when a victim is requested.
+ */
+@Slf4j
+public class WindowTinyLfuStrategy<K> implements IEvictionStrategy<K> {
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private enum Region {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    private final FrequencySketch<K> sketch;
+    private final Map<K, Node<K, Region>> elementMap;
+    private final DoublyLinkedList<K, Region> window;
+    private final DoublyLinkedList<K, Region> probation;
+    private final DoublyLinkedList<K, Region> protectedSegment;
+    private final int windowMaximum;
+    private final int mainMaximum;
+    private final int protectedMaximum;
+
+    /**
+     * @param maximumSize Number of keys the cache holds before evicting.
+     */
+    public WindowTinyLfuStrategy(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("'maximumSize' must be positive.");
+        }
+        this.sketch = new FrequencySketch<>(maximumSize);
+        this.elementMap = new HashMap<>();
+        this.window = new DoublyLinkedList<>();
+        this.probation = new DoublyLinkedList<>();
+        this.protectedSegment = new DoublyLinkedList<>();
+        this.windowMaximum = Math.max(1, (int) (maximumSize * WINDOW_RATIO));
+        this.mainMaximum = maximumSize - windowMaximum;
+        this.protectedMaximum = (int) (mainMaximum * PROTECTED_RATIO);
+    }
+
+    @Override
+    public void onPut(K key) {
+        sketch.increment(key);
+        Node<K, Region> node = elementMap.get(key);
+        if (node != null) {
+            // replacing the value of a tracked key counts as an access
+            onAccess(node);
+        } else {
+            window.insertLast(key, Region.WINDOW);
+            elementMap.put(key, window.getLast());
+        }
+        log.debug("[Eviction.Strategy.WTinyLFU.PUT] [key={}]", key);
+    }
+
+    @Override
+    public void onGet(K key) {
+        sketch.increment(key);
+        Node<K, Region> node = elementMap.get(key);
+        if (node != null) {
+            onAccess(node);
+        }
+        log.debug("[Eviction.Strategy.WTinyLFU.ACCESS] [key={}]", key);
+    }
+
+    private void onAccess(Node<K, Region> node) {
+        switch (node.getMetadata()) {
+            case WINDOW -> moveTo(node, window, Region.WINDOW);
+            case PROTECTED -> moveTo(node, protectedSegment, Region.PROTECTED);
+            case PROBATION -> {
+                moveTo(node, protectedSegment, Region.PROTECTED);
+                if (protectedSegment.size() > protectedMaximum) {
+                    moveTo(protectedSegment.getFirst(), probation, Region.PROBATION);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onDelete(K key) {
+        Node<K, Region> node = elementMap.remove(key);
+        if (node != null) {
+            segmentOf(node).deleteNode(node);
+        }
+        // No need to perform any operation if key is not present in elementMap, there is nothing to delete in that case.
+        log.debug("[Eviction.Strategy.WTinyLFU.REMOVE] [key={}]", key);
+    }
+
+    /**
+     * While the main region has room, keys leaving the window are admitted for free. Once it is full, the least
+     * recently used key of the window (the candidate) competes with the least recently used key of probation (the
+     * victim, or of protected if probation is empty): the candidate is only admitted when it is estimated to be
+     * accessed more often, otherwise it is the one evicted. Ties go to the victim, a key of the main region has
+     * already proven itself.
+     */
+    @Override
+    public Optional<K> evict() {
+        while (window.size() > windowMaximum && probation.size() + protectedSegment.size() < mainMaximum) {
+            moveTo(window.getFirst(), probation, Region.PROBATION);
+        }
+        Node<K, Region> candidate = window.size() > windowMaximum ? window.getFirst() : null;
+        Node<K, Region> victim = probation.isEmpty() ? protectedSegment.getFirst() : probation.getFirst();
+
+        Node<K, Region> evicted;
+        if (candidate == null) {
+            evicted = victim != null ? victim : window.getFirst();
+        } else if (victim == null) {
+            evicted = candidate;
+        } else {
+            boolean admit = sketch.frequency(candidate.getData()) > sketch.frequency(victim.getData());
+            evicted = admit ? victim : candidate;
+        }
+        if (evicted == null) {
+            log.debug("[Eviction.Strategy.WTinyLFU.EVICT] [<empty>]");
+            return Optional.empty();
+        }
+        log.debug("[Eviction.Strategy.WTinyLFU.EVICT] [region={}]", evicted.getMetadata());
+        return Optional.of(evicted.getData());
+    }
+
+    private void moveTo(Node<K, Region> node, DoublyLinkedList<K, Region> target, Region region) {
+        segmentOf(node).deleteNode(node);
+        node.setMetadata(region);
+        target.linkLast(node);
+    }
+
+    private DoublyLinkedList<K, Region> segmentOf(Node<K, Region> node) {
+        return switch (node.getMetadata()) {
+            case WINDOW -> window;
+            case PROBATION -> probation;
+            case PROTECTED -> protectedSegment;
+        };
+    }
+}
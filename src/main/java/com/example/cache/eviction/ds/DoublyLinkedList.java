@@ -54,6 +54,22 @@ public class DoublyLinkedList<Item, Metadata> {
         size.incrementAndGet();
     }
 
+    /**
+     * Appends a node previously removed with {@link #deleteNode(Node)}, from this or another list, without allocating
+     * a new one: moving a key between lists (or to the back of its list) keeps the node of the key.
+     */
+    public void linkLast(Node<Item, Metadata> node) {
+        node.setNext(null);
+        node.setPrev(last);
+        if (first == null) {    // this means empty list
+            first = node;
+        } else {
+            last.setNext(node);
+        }
+        last = node;
+        size.incrementAndGet();
+    }
+
     public void deleteNode(Node<Item, Metadata> node) {
         if (null == node) {
             throw new IllegalArgumentException("'node' cannot be null.");
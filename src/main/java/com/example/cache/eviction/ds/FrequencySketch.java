@@ -0,0 +1,98 @@
+package com.example.cache.eviction.ds;
+
+/**
+ * Approximate access frequency of keys, kept in constant memory whatever the number of distinct keys seen: a count-min
+ * sketch of 4-bit counters, 16 of them packed per {@code long}. A key maps to one counter in each of 4 rows, its
+ * frequency is the smallest of them, so collisions can only overestimate it. Counters saturate at 15.
+ * <p>
+ * Aging: once the number of increments reaches 10 times the maximum size, every counter is halved, so that keys that
+ * used to be popular fade out and the recent history dominates.
+ * <p>
+ * Not thread safe, only used by the cache cleaner thread.
+ */
+public class FrequencySketch<K> {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAX_FREQUENCY = 15;
+    private static final int MAX_TABLE_SIZE = 1 << 30;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param maximumSize Number of keys the cache holds, the sketch takes one {@code long} (16 counters) per key.
+     */
+    public FrequencySketch(int maximumSize) {
+        int size = Math.max(maximumSize, 8);
+        int tableSize = size >= MAX_TABLE_SIZE ? MAX_TABLE_SIZE : Integer.highestOneBit(size - 1) << 1;
+        this.table = new long[tableSize];
+        this.tableMask = tableSize - 1;
+        this.sampleSize = (int) Math.min(10L * size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Estimated number of accesses to the key since it was last aged, between 0 and 15.
+     */
+    public int frequency(K key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAX_FREQUENCY;
+        for (int depth = 0; depth < SEEDS.length; depth++) {
+            long counters = table[indexOf(hash, depth)];
+            frequency = Math.min(frequency, (int) ((counters >>> ((start + depth) << 2)) & 0xfL));
+        }
+        return frequency;
+    }
+
+    public void increment(K key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int depth = 0; depth < SEEDS.length; depth++) {
+            added |= incrementAt(indexOf(hash, depth), start + depth);
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) == mask) {
+            return false;
+        }
+        table[index] += 1L << offset;
+        return true;
+    }
+
+    /**
+     * Halves every counter. The odd counters lose their lowest bit, which the number of additions accounts for (4
+     * counters per key).
+     */
+    private void reset() {
+        int oddCounters = 0;
+        for (int i = 0; i < table.length; i++) {
+            oddCounters += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = (additions - (oddCounters >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int hash, int depth) {
+        long index = (hash + SEEDS[depth]) * SEEDS[depth];
+        index += index >>> 32;
+        return (int) index & tableMask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
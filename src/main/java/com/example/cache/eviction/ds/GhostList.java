@@ -0,0 +1,215 @@
+package com.example.cache.eviction.ds;
+
+/**
+ * Bounded set of key hashes in LRU order, the ghost lists of ARC: it remembers that a key was evicted recently without
+ * keeping the key itself, so its memory only depends on the capacity, not on the size of the keys. Two keys with the
+ * same hash share an entry; a false ghost hit only nudges the adaptation of ARC, it never affects correctness.
+ * <p>
+ * Entries live in parallel int arrays linked by slot index, a hash index with linear probing maps a hash to its slot.
+ * The arrays grow on demand up to the capacity, adding a hash allocates nothing afterwards. Not thread-safe.
+ */
+public class GhostList {
+    private static final int NIL = -1;
+    private static final int MIN_SLOTS = 16;
+
+    private final int capacity;
+    private int[] hashes;
+    private int[] previous;
+    private int[] next;
+    // slot + 1 of the hash, 0 for an empty position; kept at most half full
+    private int[] index;
+    private int indexMask;
+    // least recently added first
+    private int head = NIL;
+    private int tail = NIL;
+    private int size;
+    // slots freed by removals, linked through next
+    private int freeSlots = NIL;
+    private int usedSlots;
+
+    /**
+     * @param capacity Hashes kept before the oldest one is dropped.
+     */
+    public GhostList(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        allocate(Math.min(capacity, MIN_SLOTS));
+    }
+
+    public boolean contains(int hash) {
+        return position(hash) >= 0;
+    }
+
+    /**
+     * Adds the hash as the most recent one (moving it there if it is already present), dropping the oldest hash when
+     * the list is full.
+     */
+    public void add(int hash) {
+        int position = position(hash);
+        if (position >= 0) {
+            int slot = index[position] - 1;
+            unlink(slot);
+            linkLast(slot);
+            return;
+        }
+        if (size == capacity) {
+            removeOldest();
+        }
+        int slot = allocateSlot();
+        hashes[slot] = hash;
+        linkLast(slot);
+        index[freePosition(hash)] = slot + 1;
+        size++;
+    }
+
+    /**
+     * @return Whether the hash was present.
+     */
+    public boolean remove(int hash) {
+        int position = position(hash);
+        if (position < 0) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    /**
+     * @return Whether a hash was dropped, false if the list is empty.
+     */
+    public boolean removeOldest() {
+        if (head == NIL) {
+            return false;
+        }
+        removeAt(position(hashes[head]));
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private void removeAt(int position) {
+        int slot = index[position] - 1;
+        unlink(slot);
+        deletePosition(position);
+        next[slot] = freeSlots;
+        freeSlots = slot;
+        size--;
+    }
+
+    private void linkLast(int slot) {
+        previous[slot] = tail;
+        next[slot] = NIL;
+        if (tail == NIL) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        if (previous[slot] == NIL) {
+            head = next[slot];
+        } else {
+            next[previous[slot]] = next[slot];
+        }
+        if (next[slot] == NIL) {
+            tail = previous[slot];
+        } else {
+            previous[next[slot]] = previous[slot];
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeSlots != NIL) {
+            int slot = freeSlots;
+            freeSlots = next[slot];
+            return slot;
+        }
+        if (usedSlots == hashes.length) {
+            grow();
+        }
+        return usedSlots++;
+    }
+
+    /**
+     * Only called once every slot is in use, so the free list is empty and the slots keep their index.
+     */
+    private void grow() {
+        int slots = (int) Math.min((long) hashes.length << 1, capacity);
+        int[] oldHashes = hashes;
+        int[] oldPrevious = previous;
+        int[] oldNext = next;
+        allocate(slots);
+        System.arraycopy(oldHashes, 0, hashes, 0, oldHashes.length);
+        System.arraycopy(oldPrevious, 0, previous, 0, oldPrevious.length);
+        System.arraycopy(oldNext, 0, next, 0, oldNext.length);
+        for (int slot = 0; slot < oldHashes.length; slot++) {
+            index[freePosition(hashes[slot])] = slot + 1;
+        }
+    }
+
+    private void allocate(int slots) {
+        hashes = new int[slots];
+        previous = new int[slots];
+        next = new int[slots];
+        int positions = Integer.highestOneBit(slots) << 2;
+        index = new int[positions];
+        indexMask = positions - 1;
+    }
+
+    private int position(int hash) {
+        int position = home(hash);
+        while (index[position] != 0) {
+            if (hashes[index[position] - 1] == hash) {
+                return position;
+            }
+            position = (position + 1) & indexMask;
+        }
+        return NIL;
+    }
+
+    private int freePosition(int hash) {
+        int position = home(hash);
+        while (index[position] != 0) {
+            position = (position + 1) & indexMask;
+        }
+        return position;
+    }
+
+    /**
+     * Backward shift deletion, as in {@code CompactCacheStorage}: the following positions of the cluster that may
+     * live at the freed one are moved back into it.
+     */
+    private void deletePosition(int position) {
+        int free = position;
+        int current = position;
+        while (true) {
+            current = (current + 1) & indexMask;
+            if (index[current] == 0) {
+                break;
+            }
+            int home = home(hashes[index[current] - 1]);
+            // the position can move back unless its home lies cyclically in (free, current]
+            boolean stays = free <= current ? free < home && home <= current : free < home || home <= current;
+            if (!stays) {
+                index[free] = index[current];
+                free = current;
+            }
+        }
+        index[free] = 0;
+    }
+
+    private int home(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return (mixed ^ (mixed >>> 16)) & indexMask;
+    }
+}
@@ -1,47 +1,307 @@
 package com.example.cache.metrics;
 
-import lombok.Getter;
+import com.example.cache.core.domain.Lane;
 
-@Getter
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters are backed by {@link LongAdder} as they are updated from multiple threads (core shards, cleaner, gRPC
+ * callbacks), a plain long would lose increments once the core runs on more than one worker thread.
+ */
 public class CacheMetrics {
-    private long hits;
-    private long misses;
-    private long puts;
-    private long removes;
-    private long evictions;
-    private long ttlExpirations;
-    private long droppedOperations;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder removes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder ttlExpirations = new LongAdder();
+    private final LongAdder expirationSamples = new LongAdder();
+    private final LongAdder droppedOperations = new LongAdder();
+    private final LongAdder blockedWrites = new LongAdder();
+    private final LongAdder rejectedTasks = new LongAdder();
+    private final LongAdder shedTasks = new LongAdder();
+    private final LongAdder deadlineExceededTasks = new LongAdder();
+    // indexed by the lane ordinal
+    private final LongAdder[] laneWaitNanos = newAdders(Lane.all().length);
+    private final LongAdder[] laneTasks = newAdders(Lane.all().length);
+    private final LongAdder coalescedGets = new LongAdder();
+    private final LongAdder nearCacheHits = new LongAdder();
+    private final LongAdder nearCacheMisses = new LongAdder();
+    private final LongAdder nearCacheInvalidations = new LongAdder();
+    private final LongAdder persistenceRecordsWritten = new LongAdder();
+    private final LongAdder persistenceBytesWritten = new LongAdder();
+    private final LongAdder persistenceFsyncs = new LongAdder();
+    private final LongAdder persistenceCompactions = new LongAdder();
+    private final LongAdder persistenceReplayedRecords = new LongAdder();
+    private volatile long persistenceReplayMillis;
+    private final LongAdder snapshotsTaken = new LongAdder();
+    private final LongAdder snapshotEntriesLoaded = new LongAdder();
+    private volatile long snapshotMillis;
+    private volatile long snapshotLoadMillis;
+    private final LongAdder compressionInputBytes = new LongAdder();
+    private final LongAdder compressionOutputBytes = new LongAdder();
+    private final LongAdder compressionNanos = new LongAdder();
+    private final LongAdder decompressionNanos = new LongAdder();
 
     public void incrementHits() {
-        hits++;
+        hits.increment();
     }
 
     public void incrementMisses() {
-        misses++;
+        misses.increment();
     }
 
     public void incrementPuts() {
-        puts++;
+        puts.increment();
     }
 
     public void incrementRemoves() {
-        removes++;
+        removes.increment();
     }
 
     public void incrementEvictions() {
-        evictions++;
+        evictions.increment();
     }
 
     public void incrementTtlExpirations() {
-        ttlExpirations++;
+        ttlExpirations.increment();
+    }
+
+    public void addExpirationSamples(long samples) {
+        expirationSamples.add(samples);
     }
 
     public void incrementDroppedOperations() {
-        droppedOperations++;
+        droppedOperations.increment();
+    }
+
+    public void incrementBlockedWrites() {
+        blockedWrites.increment();
+    }
+
+    public void incrementRejectedTasks() {
+        rejectedTasks.increment();
+    }
+
+    public void incrementShedTasks() {
+        shedTasks.increment();
+    }
+
+    public void incrementDeadlineExceededTasks() {
+        deadlineExceededTasks.increment();
+    }
+
+    /**
+     * @param waitNanos Time the task spent in its inbox lane before the worker took it.
+     */
+    public void recordLaneWait(Lane lane, long waitNanos) {
+        laneWaitNanos[lane.ordinal()].add(waitNanos);
+        laneTasks[lane.ordinal()].increment();
+    }
+
+    public void incrementCoalescedGets() {
+        coalescedGets.increment();
+    }
+
+    public void incrementNearCacheHits() {
+        nearCacheHits.increment();
+    }
+
+    public void incrementNearCacheMisses() {
+        nearCacheMisses.increment();
+    }
+
+    public void incrementNearCacheInvalidations(long count) {
+        nearCacheInvalidations.add(count);
+    }
+
+    public void incrementPersistenceRecordsWritten() {
+        persistenceRecordsWritten.increment();
+    }
+
+    public void addPersistenceBytesWritten(long bytes) {
+        persistenceBytesWritten.add(bytes);
+    }
+
+    public void incrementPersistenceFsyncs() {
+        persistenceFsyncs.increment();
+    }
+
+    public void incrementPersistenceCompactions() {
+        persistenceCompactions.increment();
+    }
+
+    public void addPersistenceReplayedRecords(long records) {
+        persistenceReplayedRecords.add(records);
+    }
+
+    public void setPersistenceReplayMillis(long millis) {
+        persistenceReplayMillis = millis;
+    }
+
+    public void recordSnapshot(long millis) {
+        snapshotsTaken.increment();
+        snapshotMillis = millis;
+    }
+
+    public void addSnapshotEntriesLoaded(long entries) {
+        snapshotEntriesLoaded.add(entries);
+    }
+
+    public void setSnapshotLoadMillis(long millis) {
+        snapshotLoadMillis = millis;
+    }
+
+    /**
+     * @param outputBytes Size of the compressed form, the input size when the value was not worth compressing.
+     */
+    public void recordCompression(long inputBytes, long outputBytes, long nanos) {
+        compressionInputBytes.add(inputBytes);
+        compressionOutputBytes.add(outputBytes);
+        compressionNanos.add(nanos);
+    }
+
+    public void recordDecompression(long nanos) {
+        decompressionNanos.add(nanos);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getPuts() {
+        return puts.sum();
+    }
+
+    public long getRemoves() {
+        return removes.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getTtlExpirations() {
+        return ttlExpirations.sum();
+    }
+
+    public long getExpirationSamples() {
+        return expirationSamples.sum();
+    }
+
+    public long getDroppedOperations() {
+        return droppedOperations.sum();
+    }
+
+    public long getBlockedWrites() {
+        return blockedWrites.sum();
+    }
+
+    public long getRejectedTasks() {
+        return rejectedTasks.sum();
+    }
+
+    public long getShedTasks() {
+        return shedTasks.sum();
+    }
+
+    public long getDeadlineExceededTasks() {
+        return deadlineExceededTasks.sum();
+    }
+
+    public long getLaneWaitNanos(Lane lane) {
+        return laneWaitNanos[lane.ordinal()].sum();
+    }
+
+    public long getLaneTasks(Lane lane) {
+        return laneTasks[lane.ordinal()].sum();
+    }
+
+    public long getCoalescedGets() {
+        return coalescedGets.sum();
+    }
+
+    public long getNearCacheHits() {
+        return nearCacheHits.sum();
+    }
+
+    public long getNearCacheMisses() {
+        return nearCacheMisses.sum();
+    }
+
+    public long getNearCacheInvalidations() {
+        return nearCacheInvalidations.sum();
+    }
+
+    public long getPersistenceRecordsWritten() {
+        return persistenceRecordsWritten.sum();
+    }
+
+    public long getPersistenceBytesWritten() {
+        return persistenceBytesWritten.sum();
+    }
+
+    public long getPersistenceFsyncs() {
+        return persistenceFsyncs.sum();
+    }
+
+    public long getPersistenceCompactions() {
+        return persistenceCompactions.sum();
+    }
+
+    public long getPersistenceReplayedRecords() {
+        return persistenceReplayedRecords.sum();
+    }
+
+    public long getPersistenceReplayMillis() {
+        return persistenceReplayMillis;
+    }
+
+    public long getSnapshotsTaken() {
+        return snapshotsTaken.sum();
+    }
+
+    public long getSnapshotEntriesLoaded() {
+        return snapshotEntriesLoaded.sum();
+    }
+
+    public long getSnapshotMillis() {
+        return snapshotMillis;
+    }
+
+    public long getSnapshotLoadMillis() {
+        return snapshotLoadMillis;
+    }
+
+    /**
+     * @return Bytes given to the compressor divided by the bytes it stored, 1 before anything was compressed.
+     */
+    public double getCompressionRatio() {
+        long output = compressionOutputBytes.sum();
+        return output > 0 ? (double) compressionInputBytes.sum() / output : 1.0;
+    }
+
+    public long getCompressionNanos() {
+        return compressionNanos.sum();
+    }
+
+    public long getDecompressionNanos() {
+        return decompressionNanos.sum();
     }
 
     public long getTotalRequests() {
-        return hits + misses;
+        return getHits() + getMisses();
     }
-}
 
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -1,7 +1,13 @@
 package com.example.cache.metrics;
 
+import com.example.cache.core.IDistributedCache;
+import com.example.cache.core.domain.Lane;
 import com.example.cache.core.ds.CacheQueue;
-import com.example.cache.core.ds.TtlQueue;
+import com.example.cache.core.ds.IExpirationTracker;
+import com.example.cache.core.storage.SlabAllocator;
+import com.example.cache.eviction.AdaptiveReplacementStrategy;
+import com.example.cache.eviction.IEvictionStrategy;
+import com.example.cache.nearcache.NearCache;
 import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -9,13 +15,23 @@ import io.micrometer.core.instrument.binder.MeterBinder;
 
 public class CacheMetricsBinder implements MeterBinder {
     private final CacheMetrics cacheMetrics;
-    private final TtlQueue ttlQueue;
+    private final IExpirationTracker expirationTracker;
     private final CacheQueue cacheQueue;
+    private final SlabAllocator slabAllocator;
+    private final NearCache nearCache;
+    private final IDistributedCache cacheCore;
+    private final IEvictionStrategy<String> evictionStrategy;
 
-    public CacheMetricsBinder(CacheMetrics cacheMetrics, TtlQueue ttlQueue, CacheQueue cacheQueue) {
+    public CacheMetricsBinder(CacheMetrics cacheMetrics, IExpirationTracker expirationTracker, CacheQueue cacheQueue,
+                              SlabAllocator slabAllocator, NearCache nearCache, IDistributedCache cacheCore,
+                              IEvictionStrategy<String> evictionStrategy) {
         this.cacheMetrics = cacheMetrics;
-        this.ttlQueue = ttlQueue;
+        this.expirationTracker = expirationTracker;
         this.cacheQueue = cacheQueue;
+        this.slabAllocator = slabAllocator;
+        this.nearCache = nearCache;
+        this.cacheCore = cacheCore;
+        this.evictionStrategy = evictionStrategy;
     }
 
     @Override
@@ -43,6 +59,53 @@ public class CacheMetricsBinder implements MeterBinder {
                 .description("Total number of remove operations")
                 .register(registry);
 
+        FunctionCounter.builder(cacheName + ".gets.coalesced.total", cacheMetrics, CacheMetrics::getCoalescedGets)
+                .tag("operation", "get")
+                .description("Total number of GETs served by joining an in-flight GET of the same key")
+                .register(registry);
+
+        // Near cache counter
+        FunctionCounter.builder(cacheName + ".nearcache.hits.total", cacheMetrics, CacheMetrics::getNearCacheHits)
+                .tag("operation", "get")
+                .description("Total number of GETs of remotely owned keys served from the near cache")
+                .register(registry);
+        FunctionCounter.builder(cacheName + ".nearcache.misses.total", cacheMetrics, CacheMetrics::getNearCacheMisses)
+                .tag("operation", "get")
+                .description("Total number of GETs of remotely owned keys forwarded to the owner")
+                .register(registry);
+        FunctionCounter.builder(cacheName + ".nearcache.invalidations.total", cacheMetrics,
+                        CacheMetrics::getNearCacheInvalidations)
+                .description("Total number of near cache keys invalidated by their owner")
+                .register(registry);
+
+        // Persistence log counter, write and replay throughput are the rates of these
+        FunctionCounter.builder(cacheName + ".persistence.records.written.total", cacheMetrics,
+                        CacheMetrics::getPersistenceRecordsWritten)
+                .description("Total number of records appended to the persistence log")
+                .register(registry);
+        FunctionCounter.builder(cacheName + ".persistence.bytes.written.total", cacheMetrics,
+                        CacheMetrics::getPersistenceBytesWritten)
+                .description("Total number of bytes appended to the persistence log")
+                .register(registry);
+        FunctionCounter.builder(cacheName + ".persistence.fsync.total", cacheMetrics, CacheMetrics::getPersistenceFsyncs)
+                .description("Total number of forces of the persistence log to the disk")
+                .register(registry);
+        FunctionCounter.builder(cacheName + ".persistence.compactions.total", cacheMetrics,
+                        CacheMetrics::getPersistenceCompactions)
+                .description("Total number of compactions of the persistence log")
+                .register(registry);
+        FunctionCounter.builder(cacheName + ".persistence.replay.records.total", cacheMetrics,
+                        CacheMetrics::getPersistenceReplayedRecords)
+                .description("Total number of records replayed from the persistence log on startup")
+                .register(registry);
+        FunctionCounter.builder(cacheName + ".snapshot.taken.total", cacheMetrics, CacheMetrics::getSnapshotsTaken)
+                .description("Total number of snapshots of the keyspace written to the disk")
+                .register(registry);
+        FunctionCounter.builder(cacheName + ".snapshot.loaded.entries.total", cacheMetrics,
+                        CacheMetrics::getSnapshotEntriesLoaded)
+                .description("Total number of entries loaded from a snapshot on startup")
+                .register(registry);
+
         // Cleanup counter
         FunctionCounter.builder(cacheName + ".eviction.total", cacheMetrics, CacheMetrics::getEvictions)
                 .description("Total number of keys evicted because of capacity limits")
@@ -50,26 +113,131 @@ public class CacheMetricsBinder implements MeterBinder {
         FunctionCounter.builder(cacheName + ".expirations.total", cacheMetrics, CacheMetrics::getTtlExpirations)
                 .description("Total number of keys expired because of TTL")
                 .register(registry);
+        FunctionCounter.builder(cacheName + ".expiration.samples.total", cacheMetrics, CacheMetrics::getExpirationSamples)
+                .description("Total number of keys sampled by the active expiration cycles")
+                .register(registry);
 
-        // Operation dropped counter
+        // Value compression, CPU time spent in the codec
+        FunctionCounter.builder(cacheName + ".compression.seconds.total", cacheMetrics,
+                        metrics -> metrics.getCompressionNanos() / 1e9)
+                .description("Total CPU time spent compressing values")
+                .register(registry);
+        FunctionCounter.builder(cacheName + ".decompression.seconds.total", cacheMetrics,
+                        metrics -> metrics.getDecompressionNanos() / 1e9)
+                .description("Total CPU time spent decompressing values")
+                .register(registry);
+
+        // Reads dropped by a full read buffer stripe, writes are never dropped
         FunctionCounter.builder(cacheName + ".operation.dropped.total", cacheMetrics, CacheMetrics::getDroppedOperations)
-                .description("Total number of operation dropped due full queue")
+                .description("Total number of read events dropped due to a full read buffer")
                 .register(registry);
 
+        // Writes that found the write buffer full, their core waited for the cleaner to drain it
+        FunctionCounter.builder(cacheName + ".operation.write.blocked.total", cacheMetrics,
+                        CacheMetrics::getBlockedWrites)
+                .description("Total number of write events that waited for a full write buffer")
+                .register(registry);
+
+        // Tasks not admitted to a full core inbox, the caller got an overloaded error
+        FunctionCounter.builder(cacheName + ".core.rejected.total", cacheMetrics, CacheMetrics::getRejectedTasks)
+                .description("Total number of tasks rejected because the core inbox was full")
+                .register(registry);
+
+        // Queued tasks failed by the SHED_OLDEST admission policy to make room for newer ones
+        FunctionCounter.builder(cacheName + ".core.shed.total", cacheMetrics, CacheMetrics::getShedTasks)
+                .description("Total number of queued tasks shed to admit newer ones")
+                .register(registry);
+
+        // Queued tasks skipped because their deadline passed before the worker got to them
+        FunctionCounter.builder(cacheName + ".core.deadline.exceeded.total", cacheMetrics,
+                        CacheMetrics::getDeadlineExceededTasks)
+                .description("Total number of tasks skipped because their deadline had passed")
+                .register(registry);
+
+        // Time spent by the tasks in their inbox lane before the worker took them, per lane
+        for (Lane lane : Lane.all()) {
+            FunctionCounter.builder(cacheName + ".core.lane.wait.seconds", cacheMetrics,
+                            metrics -> metrics.getLaneWaitNanos(lane) / 1e9)
+                    .tag("lane", lane.tagValue())
+                    .description("Total time the tasks of the lane waited in the core inbox")
+                    .register(registry);
+            FunctionCounter.builder(cacheName + ".core.lane.tasks.total", cacheMetrics,
+                            metrics -> metrics.getLaneTasks(lane))
+                    .tag("lane", lane.tagValue())
+                    .description("Total number of tasks taken from the lane by the core worker")
+                    .register(registry);
+        }
+
         // --- Gauges (Real-time Values) ---
         // Current Cache Size
         /*Gauge.builder(cacheName + ".size", cacheMap, ConcurrentHashMap::size)
                 .description("The current number of element in the cache map")
                 .register(registry);*/
 
-        // TTL Queue Size
-        Gauge.builder(cacheName + ".ttl.queue.size", ttlQueue, TtlQueue::size)
-                .description("The current number of element in TTL queue")
+        // Estimated memory footprint of the local entries, compared against cache.max-bytes
+        Gauge.builder(cacheName + ".used.bytes", cacheCore, IDistributedCache::usedBytes)
+                .description("The estimated memory footprint of the locally stored entries")
+                .register(registry);
+
+        // Tasks waiting for the core worker threads
+        Gauge.builder(cacheName + ".core.inbox.size", cacheCore, IDistributedCache::inboxSize)
+                .description("The number of tasks waiting in the core inbox")
+                .register(registry);
+        for (Lane lane : Lane.all()) {
+            Gauge.builder(cacheName + ".core.lane.size", cacheCore, core -> core.inboxSize(lane))
+                    .tag("lane", lane.tagValue())
+                    .description("The number of tasks waiting in the inbox lane")
+                    .register(registry);
+        }
+
+        // Original size of the values given to the compressor divided by their stored size
+        Gauge.builder(cacheName + ".compression.ratio", cacheMetrics, CacheMetrics::getCompressionRatio)
+                .description("The compression ratio of the values above the compression threshold")
+                .register(registry);
+
+        // Share of the keys ARC currently targets for the recently used list, the rest goes to the frequently used one
+        if (evictionStrategy instanceof AdaptiveReplacementStrategy<String> arc) {
+            Gauge.builder(cacheName + ".eviction.arc.target.ratio", arc,
+                            AdaptiveReplacementStrategy::getTargetRecentRatio)
+                    .description("The target size of the ARC recency list as a fraction of the maximum size")
+                    .register(registry);
+        }
+
+        // Keys tracked for expiration
+        Gauge.builder(cacheName + ".ttl.queue.size", expirationTracker, IExpirationTracker::trackedKeys)
+                .description("The current number of keys tracked for expiration")
                 .register(registry);
 
         // Cache Queue Size
         Gauge.builder(cacheName + ".cache.queue.size", cacheQueue, CacheQueue::size)
-                .description("The current number of element in cache queue")
+                .description("The current number of events recorded for the cleaner and not replayed yet")
+                .register(registry);
+
+        // Off-heap slab usage
+        Gauge.builder(cacheName + ".offheap.reserved.bytes", slabAllocator, SlabAllocator::getReservedBytes)
+                .description("The off-heap memory reserved by slabs")
+                .register(registry);
+        Gauge.builder(cacheName + ".offheap.used.bytes", slabAllocator, SlabAllocator::getUsedChunkBytes)
+                .description("The off-heap memory of the slab chunks holding values")
+                .register(registry);
+        Gauge.builder(cacheName + ".offheap.fragmentation.ratio", slabAllocator, SlabAllocator::getFragmentationRatio)
+                .description("The fraction of used slab chunk memory not occupied by values")
+                .register(registry);
+
+        // Duration of the startup replay, together with the replayed records it gives the replay throughput
+        Gauge.builder(cacheName + ".persistence.replay.duration.ms", cacheMetrics, CacheMetrics::getPersistenceReplayMillis)
+                .description("Duration of the replay of the persistence log on startup")
+                .register(registry);
+        Gauge.builder(cacheName + ".snapshot.duration.ms", cacheMetrics, CacheMetrics::getSnapshotMillis)
+                .description("Duration of the last snapshot, capture and write")
+                .register(registry);
+        Gauge.builder(cacheName + ".snapshot.load.duration.ms", cacheMetrics, CacheMetrics::getSnapshotLoadMillis)
+                .description("Duration of the load of the latest snapshot on startup")
+                .register(registry);
+
+        // Near cache size
+        Gauge.builder(cacheName + ".nearcache.size", nearCache, NearCache::size)
+                .description("The current number of remotely owned values held in the near cache")
                 .register(registry);
 
         // --- Custom Gauge (Calculated Metrics) ---
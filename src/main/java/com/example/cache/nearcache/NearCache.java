@@ -0,0 +1,116 @@
+package com.example.cache.nearcache;
+
+import com.example.cache.metrics.CacheMetrics;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, node local copy of values fetched from peers, so that reads of remotely owned keys that rarely change do not
+ * pay a gRPC round trip every time.
+ * <p>
+ * Entries are evicted in LRU order once {@code maxEntries} is reached and expire after a short TTL. The owner of a key
+ * publishes an invalidation when the key changes (see {@link NearCacheInvalidator}), the TTL bounds the staleness when
+ * an invalidation is lost (peer down, owner not tracking the key anymore, ownership moved).
+ */
+public class NearCache {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final CacheMetrics cacheMetrics;
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Bumped by every invalidation, a fetch started before an invalidation must not fill the near cache as the value
+    // it brings back may be the one that was just invalidated.
+    private final AtomicLong invalidationStamp = new AtomicLong();
+
+    public NearCache(int maxEntries, long ttlMillis, CacheMetrics cacheMetrics) {
+        if (maxEntries < 0 || ttlMillis < 0) {
+            throw new IllegalArgumentException("'maxEntries' and 'ttlMillis' must not be negative.");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.cacheMetrics = cacheMetrics;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > NearCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static NearCache disabled(CacheMetrics cacheMetrics) {
+        return new NearCache(0, 0, cacheMetrics);
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && ttlNanos > 0;
+    }
+
+    /**
+     * @return The cached value, or null if it is not cached or expired.
+     */
+    public byte[] get(String key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            cacheMetrics.incrementNearCacheMisses();
+            return null;
+        }
+        cacheMetrics.incrementNearCacheHits();
+        return entry.value;
+    }
+
+    /**
+     * Must be read before the value is fetched from the owner and handed over to {@link #put(String, byte[], long)}.
+     */
+    public long stamp() {
+        return invalidationStamp.get();
+    }
+
+    /**
+     * Caches the value unless an invalidation happened since the given stamp was taken.
+     */
+    public void put(String key, byte[] value, long stamp) {
+        if (value == null) {
+            return;
+        }
+        synchronized (entries) {
+            if (invalidationStamp.get() == stamp) {
+                entries.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+            }
+        }
+    }
+
+    public void invalidate(String key) {
+        synchronized (entries) {
+            invalidationStamp.incrementAndGet();
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll(Collection<String> keys) {
+        synchronized (entries) {
+            invalidationStamp.incrementAndGet();
+            keys.forEach(entries::remove);
+        }
+        cacheMetrics.incrementNearCacheInvalidations(keys.size());
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Entry(byte[] value, long expiresAt) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.cache.nearcache;
+
+import com.example.cache.cluster.IClusterService;
+import com.example.cache.cluster.grpc.CacheGrpcClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owner side of the near cache: remembers which peers fetched a locally owned key and tells them to drop it when the
+ * key changes.
+ * <p>
+ * Invalidations are not sent from the core worker thread, they are collected per peer and flushed as one batched RPC
+ * per peer at a fixed interval. The number of tracked keys is bounded, reads above the bound are not tracked and the
+ * peer copy is only bounded by the near cache TTL.
+ */
+@Slf4j
+public class NearCacheInvalidator {
+    private final IClusterService clusterService;
+    private final CacheGrpcClient grpcClient;
+    private final int maxTrackedKeys;
+
+    private final Map<String, Set<String>> readersByKey = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> pendingByNode = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public NearCacheInvalidator(IClusterService clusterService, CacheGrpcClient grpcClient, int maxTrackedKeys,
+                                long flushIntervalMillis) {
+        this.clusterService = clusterService;
+        this.grpcClient = grpcClient;
+        this.maxTrackedKeys = maxTrackedKeys;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "near-cache-invalidator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records that the given peer fetched the key and may keep a copy of it. Must be called before the read is served,
+     * so that a write racing with the read is always published.
+     */
+    public void registerReader(String key, String nodeId) {
+        Set<String> readers = readersByKey.get(key);
+        if (readers == null) {
+            if (readersByKey.size() >= maxTrackedKeys) {
+                return;
+            }
+            readers = readersByKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet());
+        }
+        readers.add(nodeId);
+    }
+
+    /**
+     * Called by the owner core when a key is written or removed, cheap enough for the worker thread.
+     */
+    public void onKeyChanged(String key) {
+        Set<String> readers = readersByKey.remove(key);
+        if (readers == null) {
+            return;
+        }
+        for (String nodeId : readers) {
+            pendingByNode.computeIfAbsent(nodeId, n -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    int trackedKeys() {
+        return readersByKey.size();
+    }
+
+    void flush() {
+        for (String nodeId : List.copyOf(pendingByNode.keySet())) {
+            Set<String> keys = pendingByNode.remove(nodeId);
+            if (keys == null || keys.isEmpty()) {
+                continue;
+            }
+            String address = clusterService.getAddressForNodeId(nodeId);
+            if (address == null || address.isEmpty()) {
+                log.warn("[NearCacheInvalidator.Flush] [msg=No address found for node, dropping invalidations] [node={}] [keys={}]",
+                        nodeId, keys.size());
+                continue;
+            }
+            grpcClient.sendInvalidations(address, new ArrayList<>(keys));
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("[NearCacheInvalidator.Flush] [msg=Error while publishing invalidations]", e);
+        }
+    }
+
+    public void shutdown() {
+        flusher.shutdownNow();
+    }
+}
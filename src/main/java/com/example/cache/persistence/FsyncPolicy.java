@@ -0,0 +1,26 @@
+package com.example.cache.persistence;
+
+/**
+ * When the persistence log forces its writes to the disk.
+ */
+public enum FsyncPolicy {
+    /**
+     * After every group commit, writes are acknowledged only once they are on the disk.
+     */
+    ALWAYS,
+    /**
+     * At most every configured interval, a crash loses at most that interval of acknowledged writes.
+     */
+    INTERVAL,
+    /**
+     * Never forced explicitly, the OS decides when dirty pages are written back.
+     */
+    OS;
+
+    /**
+     * Parses the configuration value, e.g. {@code always}, {@code interval} or {@code os}.
+     */
+    public static FsyncPolicy fromProperty(String value) {
+        return FsyncPolicy.valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.cache.persistence;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cache core that can be rebuilt on startup, from the persistence log or from a snapshot.
+ */
+public interface IRecoverableCache {
+
+    /**
+     * Applies a logged operation to the local storage, without ownership routing and without logging it again.
+     * Expired PUTs are skipped.
+     */
+    CompletableFuture<Void> submitRestore(PersistenceRecord record);
+
+    /**
+     * Bulk variant of {@link #submitRestore(PersistenceRecord)}, applied as one task per core.
+     */
+    CompletableFuture<Void> submitRestoreAll(List<PersistenceRecord> records);
+
+    /**
+     * Captures the entries of every core at a point in time, one partition per core.
+     */
+    List<CompletableFuture<SnapshotPartition>> submitCapture();
+}
@@ -0,0 +1,165 @@
+package com.example.cache.persistence;
+
+import com.example.cache.core.domain.CacheOperationType;
+import com.example.cache.metrics.CacheMetrics;
+import com.example.cache.util.SystemUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges the sealed segments of the {@link PersistenceLog} (and the previous compacted file) into a single compacted
+ * file holding only the last PUT of every live key: overwritten values, deletes and expired entries are dropped.
+ * <p>
+ * Runs on its own thread and only reads sealed segments, the writer thread is never blocked. Two passes are used so
+ * that only the position of the last record of every key is kept in memory, never the values.
+ */
+@Slf4j
+public class LogCompactor {
+    private final PersistenceLog persistenceLog;
+    private final int minSealedSegments;
+    private final CacheMetrics cacheMetrics;
+    private final ScheduledExecutorService scheduler;
+
+    public LogCompactor(PersistenceLog persistenceLog, int minSealedSegments, long checkIntervalMillis,
+                        CacheMetrics cacheMetrics) {
+        if (minSealedSegments <= 0) {
+            throw new IllegalArgumentException("'minSealedSegments' must be greater than 0.");
+        }
+        this.persistenceLog = persistenceLog;
+        this.minSealedSegments = minSealedSegments;
+        this.cacheMetrics = cacheMetrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "persistence-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::compactSafely, checkIntervalMillis, checkIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void compactSafely() {
+        try {
+            compactIfNeeded();
+        } catch (Exception e) {
+            log.error("[LogCompactor.Compact] [msg=Error while compacting the log]", e);
+        }
+    }
+
+    /**
+     * @return True if a compaction was done.
+     */
+    boolean compactIfNeeded() throws IOException {
+        synchronized (persistenceLog.segmentsLock) {
+            Path directory = persistenceLog.getDirectory();
+            deleteObsoleteFiles(directory);
+            long activeSegment = persistenceLog.getSegmentSequence();
+            List<Path> inputs = LogFiles.liveFiles(directory).stream()
+                    .filter(file -> LogFiles.sequenceOf(file) < activeSegment)
+                    .toList();
+            long sealedSegments = inputs.stream().filter(file -> !isCompacted(directory, file)).count();
+            if (sealedSegments < minSealedSegments) {
+                return false;
+            }
+            compact(directory, inputs);
+            return true;
+        }
+    }
+
+    private void compact(Path directory, List<Path> inputs) throws IOException {
+        long startTime = System.nanoTime();
+        long now = SystemUtil.getCurrentTimeInSec();
+
+        // first pass: position of the last record of every key
+        Map<String, Location> lastRecords = new HashMap<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            int fileIndex = i;
+            LogFiles.read(inputs.get(i), (record, offset) ->
+                    lastRecords.put(record.key(), new Location(fileIndex, offset)));
+        }
+
+        // second pass: copy the last record of every key, unless it is a delete or already expired
+        long sequence = LogFiles.sequenceOf(inputs.getLast());
+        Path target = LogFiles.compacted(directory, sequence);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long[] written = new long[2];
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16)) {
+            for (int i = 0; i < inputs.size(); i++) {
+                int fileIndex = i;
+                LogFiles.read(inputs.get(i), (record, offset) -> {
+                    Location last = lastRecords.get(record.key());
+                    if (last.fileIndex() != fileIndex || last.offset() != offset
+                            || record.type() == CacheOperationType.DELETE || record.isExpired(now)) {
+                        return;
+                    }
+                    byte[] encoded = record.encode();
+                    output.write(encoded);
+                    written[0]++;
+                    written[1] += encoded.length;
+                });
+            }
+            output.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+
+        // the compacted file now covers every input, they can go
+        long reclaimedBytes = -written[1];
+        for (Path input : inputs) {
+            reclaimedBytes += Files.size(input);
+            Files.delete(input);
+        }
+        cacheMetrics.incrementPersistenceCompactions();
+        log.info("[LogCompactor.Compact] [inputs={}] [records={}] [bytes={}] [reclaimedBytes={}] [durationMs={}]",
+                inputs.size(), written[0], written[1], reclaimedBytes,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    /**
+     * Leftovers of a compaction interrupted between the rename of the compacted file and the deletion of its inputs.
+     */
+    private void deleteObsoleteFiles(Path directory) throws IOException {
+        List<Path> compacted = LogFiles.compactedFiles(directory);
+        if (compacted.isEmpty()) {
+            return;
+        }
+        long compactedSequence = LogFiles.sequenceOf(compacted.getLast());
+        List<Path> obsolete = new ArrayList<>(compacted.subList(0, compacted.size() - 1));
+        for (Path segment : LogFiles.segments(directory)) {
+            if (LogFiles.sequenceOf(segment) <= compactedSequence) {
+                obsolete.add(segment);
+            }
+        }
+        for (Path file : obsolete) {
+            Files.delete(file);
+        }
+    }
+
+    private static boolean isCompacted(Path directory, Path file) {
+        return file.equals(LogFiles.compacted(directory, LogFiles.sequenceOf(file)));
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private record Location(int fileIndex, long offset) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.cache.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * File layout of the persistence log directory.
+ * <p>
+ * The log is a sequence of numbered segments ({@code segment-<seq>.log}), only the segment with the highest sequence
+ * is written to. Compaction merges the sealed segments into {@code compacted-<seq>.log}, which holds the live state up
+ * to and including segment {@code seq}: once it exists, segments with a lower or equal sequence are obsolete, so a
+ * crash at any point of a compaction leaves a readable log.
+ */
+final class LogFiles {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String COMPACTED_PREFIX = "compacted-";
+    private static final String SUFFIX = ".log";
+
+    private LogFiles() {
+        // no-op
+    }
+
+    static Path segment(Path directory, long sequence) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%020d", sequence) + SUFFIX);
+    }
+
+    static Path compacted(Path directory, long sequence) {
+        return directory.resolve(COMPACTED_PREFIX + String.format("%020d", sequence) + SUFFIX);
+    }
+
+    static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        String prefix = name.startsWith(SEGMENT_PREFIX) ? SEGMENT_PREFIX : COMPACTED_PREFIX;
+        return Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+    }
+
+    static List<Path> segments(Path directory) {
+        return list(directory, SEGMENT_PREFIX);
+    }
+
+    static List<Path> compactedFiles(Path directory) {
+        return list(directory, COMPACTED_PREFIX);
+    }
+
+    /**
+     * @return The files to read, in order, to rebuild the state: the latest compacted file (if any) followed by the
+     * segments it does not cover.
+     */
+    static List<Path> liveFiles(Path directory) {
+        List<Path> compacted = compactedFiles(directory);
+        long compactedSequence = compacted.isEmpty() ? 0 : sequenceOf(compacted.getLast());
+        List<Path> files = new ArrayList<>();
+        if (!compacted.isEmpty()) {
+            files.add(compacted.getLast());
+        }
+        for (Path segment : segments(directory)) {
+            if (sequenceOf(segment) > compactedSequence) {
+                files.add(segment);
+            }
+        }
+        return files;
+    }
+
+    private static List<Path> list(Path directory, String prefix) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(LogFiles::sequenceOf))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the records of a file in order, stops at the first torn or corrupted record.
+     *
+     * @return False if the file ended with a torn or corrupted record.
+     */
+    static boolean read(Path file, RecordVisitor visitor) throws IOException {
+        long size = Files.size(file);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            long offset = 0;
+            while (true) {
+                int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException e) {
+                    return true;
+                }
+                if (length <= 0 || offset + Integer.BYTES + length > size) {
+                    return false;
+                }
+                byte[] body = new byte[length];
+                try {
+                    input.readFully(body);
+                } catch (EOFException e) {
+                    return false;
+                }
+                PersistenceRecord record = PersistenceRecord.decode(body);
+                if (record == null) {
+                    return false;
+                }
+                visitor.visit(record, offset);
+                offset += Integer.BYTES + length;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(PersistenceRecord record, long offset) throws IOException;
+    }
+}
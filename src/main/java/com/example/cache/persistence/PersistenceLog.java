@@ -0,0 +1,305 @@
+package com.example.cache.persistence;
+
+import com.example.cache.core.ds.MpscRingBuffer;
+import com.example.cache.metrics.CacheMetrics;
+import com.example.cache.util.SystemUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of the PUT/DELETE operations applied by the cache cores, replayed on startup to rebuild the cache.
+ * <p>
+ * Cores only hand the record over to an inbox, a dedicated writer thread drains it and writes every drained batch with
+ * a single write call (group commit). Depending on the {@link FsyncPolicy} the batch is forced to the disk right away
+ * (the writes of the batch are acknowledged after the force), at a fixed interval, or never explicitly.
+ * <p>
+ * The log rolls over to a new segment once the current one reaches the segment size, sealed segments are merged in
+ * the background by the {@link LogCompactor}.
+ */
+@Slf4j
+public class PersistenceLog {
+    private static final CompletableFuture<Void> ACKNOWLEDGED = CompletableFuture.completedFuture(null);
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int DRAIN_BATCH_SIZE = 1024;
+    private static final int REPLAY_BATCH_SIZE = 4096;
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final long segmentSizeBytes;
+    private final CacheMetrics cacheMetrics;
+
+    private final MpscRingBuffer<PendingAppend> inbox;
+    private final Consumer<PendingAppend> appender = this::appendToBuffer;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Replay and compaction both read the sealed segments, compaction must not delete them under a running replay
+    final Object segmentsLock = new Object();
+
+    // Owned by the writer thread
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final List<CompletableFuture<Void>> pendingAcks = new ArrayList<>();
+    private FileChannel channel;
+    private volatile long segmentSequence;
+    private long segmentBytes;
+    private boolean dirty;
+    private long lastForceNanos = System.nanoTime();
+
+    public PersistenceLog(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis, long segmentSizeBytes,
+                          int queueCapacity, CacheMetrics cacheMetrics) {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.segmentSizeBytes = segmentSizeBytes;
+        this.cacheMetrics = cacheMetrics;
+        this.inbox = new MpscRingBuffer<>(queueCapacity);
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = LogFiles.segments(directory);
+            List<Path> compacted = LogFiles.compactedFiles(directory);
+            long lastSequence = Math.max(
+                    segments.isEmpty() ? 0 : LogFiles.sequenceOf(segments.getLast()),
+                    compacted.isEmpty() ? 0 : LogFiles.sequenceOf(compacted.getLast()));
+            // never append to a segment of a previous run, its tail may be torn
+            openSegment(lastSequence + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open persistence log in " + directory, e);
+        }
+
+        this.writer = new Thread(this::runWriteLoop, "persistence-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("[PersistenceLog.Initialized] [directory={}] [fsyncPolicy={}] [segment={}]", directory, fsyncPolicy,
+                segmentSequence);
+    }
+
+    /**
+     * Called by the cache cores, never blocks on the disk.
+     *
+     * @return A future completed once the record is durable according to the fsync policy: after the force of its
+     * batch with {@link FsyncPolicy#ALWAYS}, right away otherwise.
+     */
+    public CompletableFuture<Void> append(PersistenceRecord record) {
+        CompletableFuture<Void> ack = fsyncPolicy == FsyncPolicy.ALWAYS ? new CompletableFuture<>() : null;
+        PendingAppend append = new PendingAppend(record, ack);
+        while (!inbox.offer(append)) {
+            Thread.yield();
+        }
+        return ack != null ? ack : ACKNOWLEDGED;
+    }
+
+    /**
+     * Replays the log into the cache. Must run before the node serves traffic. An expired PUT is replayed as a DELETE
+     * of its key: it may have overwritten a value that is still live in an earlier record (or in the snapshot the log
+     * is replayed on top of), which must not come back.
+     *
+     * @return Number of replayed records.
+     */
+    public long replayInto(IRecoverableCache cache) {
+        return replayInto(cache, 0);
+    }
+
+    /**
+     * Replays only the files from the given segment on, used on top of a snapshot that already holds the state of the
+     * earlier segments. Only valid if {@link #isReplayableFrom(long)}.
+     */
+    public long replayInto(IRecoverableCache cache, long fromSegment) {
+        long startTime = System.nanoTime();
+        long[] replayed = new long[1];
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>(REPLAY_BATCH_SIZE);
+        long now = SystemUtil.getCurrentTimeInSec();
+        long currentSegment = segmentSequence;
+        synchronized (segmentsLock) {
+            for (Path file : LogFiles.liveFiles(directory)) {
+                long sequence = LogFiles.sequenceOf(file);
+                if (sequence >= currentSegment || (fromSegment > 0 && sequence < fromSegment)) {
+                    continue;   // written by this run, or already part of the snapshot
+                }
+                try {
+                    boolean complete = LogFiles.read(file, (record, offset) -> {
+                        inFlight.add(cache.submitRestore(
+                                record.isExpired(now) ? PersistenceRecord.delete(record.key()) : record));
+                        replayed[0]++;
+                        if (inFlight.size() == REPLAY_BATCH_SIZE) {
+                            // bounds the memory of the pending futures and keeps the core inbox from filling up
+                            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).join();
+                            inFlight.clear();
+                        }
+                    });
+                    if (!complete) {
+                        log.warn("[PersistenceLog.Replay] [msg=Torn or corrupted record, rest of the file is skipped] [file={}]",
+                                file);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to replay " + file, e);
+                }
+            }
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).join();
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        cacheMetrics.addPersistenceReplayedRecords(replayed[0]);
+        cacheMetrics.setPersistenceReplayMillis(elapsedMillis);
+        log.info("[PersistenceLog.Replay] [records={}] [durationMs={}]", replayed[0], elapsedMillis);
+        return replayed[0];
+    }
+
+    /**
+     * A compacted file covering the segment has dropped the deletes of that segment, replaying it on top of an older
+     * state could bring deleted keys back: the log must then be replayed from the start instead.
+     *
+     * @return True if the segments from the given one on are all still present, uncompacted.
+     */
+    public boolean isReplayableFrom(long segment) {
+        synchronized (segmentsLock) {
+            List<Path> compacted = LogFiles.compactedFiles(directory);
+            return compacted.isEmpty() || LogFiles.sequenceOf(compacted.getLast()) < segment;
+        }
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Segments with a lower sequence are sealed, they are never written again.
+     */
+    public long getSegmentSequence() {
+        return segmentSequence;
+    }
+
+    private void runWriteLoop() {
+        while (running || !inbox.isEmpty()) {
+            try {
+                int drained = inbox.drain(appender, DRAIN_BATCH_SIZE);
+                if (drained > 0) {
+                    commit();
+                } else {
+                    if (dirty && fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastForceNanos >= fsyncIntervalNanos) {
+                        force();
+                    }
+                    inbox.await(100, fsyncPolicy == FsyncPolicy.INTERVAL ? fsyncIntervalNanos : TimeUnit.MILLISECONDS.toNanos(100));
+                }
+            } catch (IOException e) {
+                log.error("[PersistenceLog.Write] [msg=Error while writing the log] [segment={}]", segmentSequence, e);
+                failPendingAcks(e);
+            }
+        }
+        try {
+            if (dirty) {
+                force();
+            }
+            channel.close();
+        } catch (IOException e) {
+            log.error("[PersistenceLog.Close] [msg=Error while closing the log] [segment={}]", segmentSequence, e);
+        }
+    }
+
+    private void appendToBuffer(PendingAppend append) {
+        if (append.ack != null) {
+            pendingAcks.add(append.ack);
+        }
+        try {
+            byte[] encoded = append.record.encode();
+            if (encoded.length > writeBuffer.remaining()) {
+                flushBuffer();
+            }
+            if (encoded.length > writeBuffer.capacity()) {
+                writeFully(ByteBuffer.wrap(encoded));
+            } else {
+                writeBuffer.put(encoded);
+            }
+            segmentBytes += encoded.length;
+            cacheMetrics.incrementPersistenceRecordsWritten();
+            cacheMetrics.addPersistenceBytesWritten(encoded.length);
+        } catch (IOException e) {
+            log.error("[PersistenceLog.Write] [msg=Error while writing the log] [segment={}]", segmentSequence, e);
+            failPendingAcks(e);
+        }
+    }
+
+    /**
+     * Group commit: one write for the whole drained batch, then one force if the policy requires it.
+     */
+    private void commit() throws IOException {
+        flushBuffer();
+        if (fsyncPolicy == FsyncPolicy.ALWAYS
+                || (fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastForceNanos >= fsyncIntervalNanos)) {
+            force();
+        }
+        pendingAcks.forEach(ack -> ack.complete(null));
+        pendingAcks.clear();
+        if (segmentBytes >= segmentSizeBytes) {
+            rollSegment();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        dirty = true;
+    }
+
+    private void force() throws IOException {
+        channel.force(false);
+        dirty = false;
+        lastForceNanos = System.nanoTime();
+        cacheMetrics.incrementPersistenceFsyncs();
+    }
+
+    private void failPendingAcks(Exception e) {
+        writeBuffer.clear();
+        pendingAcks.forEach(ack -> ack.completeExceptionally(e));
+        pendingAcks.clear();
+    }
+
+    private void rollSegment() throws IOException {
+        // sealed segments are always durable, whatever the policy, compaction relies on it
+        force();
+        channel.close();
+        openSegment(segmentSequence + 1);
+        log.info("[PersistenceLog.Roll] [segment={}]", segmentSequence);
+    }
+
+    private void openSegment(long sequence) throws IOException {
+        channel = FileChannel.open(LogFiles.segment(directory, sequence),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentSequence = sequence;
+        segmentBytes = 0;
+    }
+
+    /**
+     * Stops the writer once the inbox is drained, the last batch is forced whatever the policy.
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record PendingAppend(PersistenceRecord record, CompletableFuture<Void> ack) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.cache.persistence;
+
+import com.example.cache.core.domain.CacheOperationType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * One PUT or DELETE of the persistence log.
+ * <p>
+ * Binary layout: {@code [int length][byte type][long expirationTime][int keyLength][key][int valueLength][value][int crc]},
+ * the length covers everything after itself and the CRC covers everything between the length and itself. The
+ * expiration time is absolute (epoch seconds), so TTLs keep running while the node is down.
+ */
+public record PersistenceRecord(CacheOperationType type, String key, byte[] value, long expirationTime) {
+    private static final byte PUT = 0;
+    private static final byte DELETE = 1;
+    // type + expirationTime + keyLength + valueLength + crc
+    private static final int FIXED_BODY_SIZE = 1 + Long.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES;
+
+    public static PersistenceRecord put(String key, byte[] value, long expirationTime) {
+        return new PersistenceRecord(CacheOperationType.PUT, key, value, expirationTime);
+    }
+
+    public static PersistenceRecord delete(String key) {
+        return new PersistenceRecord(CacheOperationType.DELETE, key, null, 0);
+    }
+
+    public boolean isExpired(long now) {
+        return type == CacheOperationType.PUT && now >= expirationTime;
+    }
+
+    /**
+     * @return The encoded record, length prefix included.
+     */
+    public byte[] encode() {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = value == null ? -1 : value.length;
+        int bodySize = FIXED_BODY_SIZE + keyBytes.length + Math.max(valueLength, 0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + bodySize);
+        buffer.putInt(bodySize);
+        buffer.put(type == CacheOperationType.PUT ? PUT : DELETE);
+        buffer.putLong(expirationTime);
+        buffer.putInt(keyBytes.length);
+        buffer.put(keyBytes);
+        buffer.putInt(valueLength);
+        if (value != null) {
+            buffer.put(value);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), Integer.BYTES, bodySize - Integer.BYTES);
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a record body (everything after the length prefix).
+     *
+     * @return The record, or null if the body is corrupted (torn write).
+     */
+    public static PersistenceRecord decode(byte[] body) {
+        if (body.length < FIXED_BODY_SIZE) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(body, 0, body.length - Integer.BYTES);
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        if (buffer.getInt(body.length - Integer.BYTES) != (int) crc.getValue()) {
+            return null;
+        }
+
+        byte type = buffer.get();
+        long expirationTime = buffer.getLong();
+        int keyLength = buffer.getInt();
+        String key = new String(body, buffer.position(), keyLength, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + keyLength);
+        int valueLength = buffer.getInt();
+        byte[] value = null;
+        if (valueLength >= 0) {
+            value = new byte[valueLength];
+            buffer.get(value);
+        }
+        return new PersistenceRecord(type == PUT ? CacheOperationType.PUT : CacheOperationType.DELETE, key, value,
+                expirationTime);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.cache.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rebuilds the cache on startup, created after the cache cleaner so that the restored keys are seen by the eviction
+ * strategy.
+ * <p>
+ * The latest snapshot is loaded first (if snapshots are enabled), then the persistence log (if enabled) is replayed
+ * from the segment recorded in the snapshot. A snapshot older than the last compaction of the log is not used: the
+ * compacted file has dropped deletes that the snapshot would bring back, the full log is replayed instead.
+ */
+@Slf4j
+public class PersistenceRecovery {
+    private final PersistenceLog persistenceLog;
+    private final SnapshotManager snapshotManager;
+    private final IRecoverableCache cache;
+
+    public PersistenceRecovery(PersistenceLog persistenceLog, IRecoverableCache cache) {
+        this(persistenceLog, null, cache);
+    }
+
+    /**
+     * @param persistenceLog  Null when the persistence log is disabled.
+     * @param snapshotManager Null when snapshots are disabled.
+     */
+    public PersistenceRecovery(PersistenceLog persistenceLog, SnapshotManager snapshotManager, IRecoverableCache cache) {
+        this.persistenceLog = persistenceLog;
+        this.snapshotManager = snapshotManager;
+        this.cache = cache;
+    }
+
+    public void recover() {
+        log.info("[PersistenceRecovery.Start] [log={}] [snapshots={}]", persistenceLog != null, snapshotManager != null);
+        SnapshotInfo snapshot = null;
+        if (snapshotManager != null) {
+            snapshot = snapshotManager.load(info -> persistenceLog == null
+                    || (info.logSegment() > 0 && persistenceLog.isReplayableFrom(info.logSegment())));
+        }
+        if (persistenceLog != null) {
+            if (snapshot != null) {
+                persistenceLog.replayInto(cache, snapshot.logSegment());
+            } else {
+                persistenceLog.replayInto(cache);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.cache.persistence;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Manifest of a snapshot, written last: a snapshot directory without a manifest is incomplete.
+ *
+ * @param logSegment Segment of the persistence log that was active when the snapshot was captured, 0 without a log.
+ *                   Replaying the log from this segment on top of the snapshot gives the latest state.
+ */
+public record SnapshotInfo(Path directory, long createdAtMillis, int partitions, long entries, long logSegment) {
+    static final String MANIFEST = "manifest.properties";
+
+    void write() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("createdAtMillis", Long.toString(createdAtMillis));
+        properties.setProperty("partitions", Integer.toString(partitions));
+        properties.setProperty("entries", Long.toString(entries));
+        properties.setProperty("logSegment", Long.toString(logSegment));
+        try (Writer writer = Files.newBufferedWriter(directory.resolve(MANIFEST))) {
+            properties.store(writer, "cache snapshot");
+        }
+    }
+
+    static SnapshotInfo read(Path directory) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(directory.resolve(MANIFEST))) {
+            properties.load(reader);
+        }
+        return new SnapshotInfo(directory,
+                Long.parseLong(properties.getProperty("createdAtMillis")),
+                Integer.parseInt(properties.getProperty("partitions")),
+                Long.parseLong(properties.getProperty("entries")),
+                Long.parseLong(properties.getProperty("logSegment")));
+    }
+
+    Path partition(int index) {
+        return directory.resolve("partition-" + index + ".bin");
+    }
+}
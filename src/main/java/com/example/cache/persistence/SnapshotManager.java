@@ -0,0 +1,464 @@
+package com.example.cache.persistence;
+
+import com.example.cache.core.storage.ValueCompressor;
+import com.example.cache.metrics.CacheMetrics;
+import com.example.cache.util.SystemUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time snapshots of the whole keyspace, used for a fast warm restart.
+ * <p>
+ * Every core captures the references of its live entries on its worker thread (entries are immutable), the
+ * serialization and the IO happen on the snapshot thread so the event loop is only paused for the capture. A snapshot
+ * is a directory {@code snapshot-<createdAt>} with one file per partition (core) and a manifest written last; it is
+ * written under a temporary name and renamed once complete.
+ * <p>
+ * On startup the partition files of the latest snapshot are memory-mapped and loaded in parallel, expired entries are
+ * skipped. When the persistence log is enabled, the manifest records the log segment active at capture time and the
+ * log is replayed from it on top of the snapshot.
+ */
+@Slf4j
+public class SnapshotManager {
+    private static final int MAGIC = 0x43534E50;    // "CSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES * 3;
+    private static final int TRAILER_SIZE = Integer.BYTES;
+    private static final String PREFIX = "snapshot-";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int RESTORE_BATCH_SIZE = 4096;
+    private static final int MAX_IN_FLIGHT_BATCHES = 8;
+    // Mapped window of a partition file, files bigger than that are mapped window by window
+    private static final long MAX_WINDOW_SIZE = 1L << 30;
+
+    private final Path directory;
+    private final IRecoverableCache cache;
+    private final PersistenceLog persistenceLog;
+    private final int retain;
+    private final int loadThreads;
+    private final boolean snapshotOnShutdown;
+    private final CacheMetrics cacheMetrics;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param persistenceLog Null when the persistence log is disabled.
+     * @param intervalMillis Interval between two snapshots, 0 disables the periodic snapshots.
+     * @param snapshotOnShutdown Takes a last snapshot on {@link #shutdown()}.
+     */
+    public SnapshotManager(Path directory, IRecoverableCache cache, PersistenceLog persistenceLog, long intervalMillis,
+                           int retain, int loadThreads, boolean snapshotOnShutdown, CacheMetrics cacheMetrics) {
+        if (retain <= 0 || loadThreads <= 0) {
+            throw new IllegalArgumentException("'retain' and 'loadThreads' must be greater than 0.");
+        }
+        this.directory = directory;
+        this.cache = cache;
+        this.persistenceLog = persistenceLog;
+        this.retain = retain;
+        this.loadThreads = loadThreads;
+        this.snapshotOnShutdown = snapshotOnShutdown;
+        this.cacheMetrics = cacheMetrics;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create snapshot directory " + directory, e);
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::snapshotSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void snapshotSafely() {
+        try {
+            takeSnapshot();
+        } catch (Exception e) {
+            log.error("[SnapshotManager.Snapshot] [msg=Error while taking a snapshot]", e);
+        }
+    }
+
+    /**
+     * Captures every core and writes the snapshot, blocks until it is durable.
+     */
+    public synchronized SnapshotInfo takeSnapshot() throws IOException {
+        long startTime = System.nanoTime();
+        // read before the capture: every write missing from the snapshot goes to this segment or a later one
+        long logSegment = persistenceLog != null ? persistenceLog.getSegmentSequence() : 0;
+        List<CompletableFuture<SnapshotPartition>> captures = cache.submitCapture();
+
+        long createdAt = System.currentTimeMillis();
+        Path tmp = directory.resolve(name(createdAt) + TMP_SUFFIX);
+        Files.createDirectories(tmp);
+        long entries = 0;
+        try {
+            for (int i = 0; i < captures.size(); i++) {
+                SnapshotPartition partition = captures.get(i).join();
+                try {
+                    writePartition(tmp.resolve("partition-" + i + ".bin"), partition);
+                } finally {
+                    partition.release();
+                }
+                entries += partition.size();
+            }
+        } catch (IOException | RuntimeException e) {
+            // the partitions not written yet still hold on to their off-heap chunks
+            captures.forEach(capture -> capture.thenAccept(SnapshotPartition::release));
+            throw e;
+        }
+        new SnapshotInfo(tmp, createdAt, captures.size(), entries, logSegment).write();
+        force(tmp.resolve(SnapshotInfo.MANIFEST));
+
+        Path target = directory.resolve(name(createdAt));
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        deleteOldSnapshots();
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        cacheMetrics.recordSnapshot(elapsedMillis);
+        log.info("[SnapshotManager.Snapshot] [snapshot={}] [entries={}] [logSegment={}] [durationMs={}]",
+                target.getFileName(), entries, logSegment, elapsedMillis);
+        return new SnapshotInfo(target, createdAt, captures.size(), entries, logSegment);
+    }
+
+    private static String name(long createdAt) {
+        return PREFIX + String.format("%020d", createdAt);
+    }
+
+    /**
+     * Layout: [int magic][int version][int count], count times [int keyLen][key][long exp][int valLen][val], then the
+     * CRC32C of everything before it.
+     */
+    private void writePartition(Path file, SnapshotPartition partition) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            CRC32C crc = new CRC32C();
+            DataOutputStream output = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(partition.size());
+            for (int i = 0; i < partition.size(); i++) {
+                byte[] key = partition.key(i).getBytes(StandardCharsets.UTF_8);
+                // snapshots keep plain values, so that they load whatever the compression settings
+                byte[] value = partition.isCompressed(i)
+                        ? ValueCompressor.inflate(partition.value(i))
+                        : partition.value(i);
+                output.writeInt(key.length);
+                output.write(key);
+                output.writeLong(partition.expirationTime(i));
+                output.writeInt(value.length);
+                output.write(value);
+            }
+            output.writeInt((int) crc.getValue());
+            output.flush();
+            channel.force(true);
+        }
+    }
+
+    private static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private void deleteOldSnapshots() throws IOException {
+        List<Path> snapshots = completeSnapshots();
+        for (int i = 0; i < snapshots.size() - retain; i++) {
+            deleteRecursively(snapshots.get(i));
+        }
+        for (Path leftover : list(name -> name.endsWith(TMP_SUFFIX))) {
+            deleteRecursively(leftover);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * @return Complete snapshots, oldest first.
+     */
+    List<Path> completeSnapshots() {
+        return list(name -> !name.endsWith(TMP_SUFFIX)).stream()
+                .filter(snapshot -> Files.exists(snapshot.resolve(SnapshotInfo.MANIFEST)))
+                .toList();
+    }
+
+    private List<Path> list(Predicate<String> filter) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return Files.isDirectory(file) && name.startsWith(PREFIX) && filter.test(name);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Loads the latest valid snapshot accepted by the filter into the cache, falls back to the previous one if a
+     * partition is corrupted. Must run before the node serves traffic.
+     *
+     * @return The loaded snapshot, null if there is none.
+     */
+    public SnapshotInfo load(Predicate<SnapshotInfo> usable) {
+        List<Path> snapshots = completeSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            SnapshotInfo info;
+            try {
+                info = SnapshotInfo.read(snapshots.get(i));
+            } catch (IOException | RuntimeException e) {
+                log.warn("[SnapshotManager.Load] [msg=Unreadable manifest, snapshot is skipped] [snapshot={}]",
+                        snapshots.get(i), e);
+                continue;
+            }
+            if (!usable.test(info)) {
+                log.info("[SnapshotManager.Load] [msg=Snapshot not usable with the persistence log, skipped] [snapshot={}]",
+                        snapshots.get(i));
+                continue;
+            }
+            if (load(info)) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    private boolean load(SnapshotInfo info) {
+        long startTime = System.nanoTime();
+        ExecutorService loaders = Executors.newFixedThreadPool(Math.min(loadThreads, Math.max(1, info.partitions())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-snapshot-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            // every partition is validated before anything is applied, a corrupted snapshot leaves the cache untouched
+            List<Future<Boolean>> validations = new ArrayList<>();
+            for (int i = 0; i < info.partitions(); i++) {
+                Path partition = info.partition(i);
+                validations.add(loaders.submit(() -> isValid(partition)));
+            }
+            for (int i = 0; i < validations.size(); i++) {
+                if (!validations.get(i).get()) {
+                    log.warn("[SnapshotManager.Load] [msg=Corrupted partition, snapshot is skipped] [partition={}]",
+                            info.partition(i));
+                    return false;
+                }
+            }
+
+            long now = SystemUtil.getCurrentTimeInSec();
+            List<Future<Integer>> loads = new ArrayList<>();
+            for (int i = 0; i < info.partitions(); i++) {
+                Path partition = info.partition(i);
+                loads.add(loaders.submit(() -> loadPartition(partition, now)));
+            }
+            long loaded = 0;
+            for (Future<Integer> load : loads) {
+                loaded += load.get();
+            }
+
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            cacheMetrics.addSnapshotEntriesLoaded(loaded);
+            cacheMetrics.setSnapshotLoadMillis(elapsedMillis);
+            log.info("[SnapshotManager.Load] [snapshot={}] [entries={}] [skippedExpired={}] [durationMs={}]",
+                    info.directory().getFileName(), loaded, info.entries() - loaded, elapsedMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + info.directory(), e);
+        } catch (ExecutionException e) {
+            log.warn("[SnapshotManager.Load] [msg=Unreadable partition, snapshot is skipped] [snapshot={}]",
+                    info.directory(), e.getCause());
+            return false;
+        } finally {
+            loaders.shutdownNow();
+        }
+    }
+
+    private static boolean isValid(Path file) throws IOException {
+        try (MappedReader reader = new MappedReader(file)) {
+            if (reader.size() < HEADER_SIZE + TRAILER_SIZE) {
+                return false;
+            }
+            long bodySize = reader.size() - TRAILER_SIZE;
+            CRC32C crc = new CRC32C();
+            while (reader.position() < bodySize) {
+                crc.update(reader.slice(bodySize - reader.position()));
+            }
+            return reader.readInt() == (int) crc.getValue()
+                    && reader.seek(0).readInt() == MAGIC
+                    && reader.readInt() == VERSION;
+        }
+    }
+
+    /**
+     * @return Number of loaded (not expired) entries.
+     */
+    private int loadPartition(Path file, long now) throws IOException {
+        int loaded = 0;
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>(MAX_IN_FLIGHT_BATCHES);
+        try (MappedReader reader = new MappedReader(file)) {
+            reader.seek(Integer.BYTES * 2);
+            int count = reader.readInt();
+            List<PersistenceRecord> batch = new ArrayList<>(RESTORE_BATCH_SIZE);
+            for (int i = 0; i < count; i++) {
+                String key = new String(reader.readBytes(reader.readInt()), StandardCharsets.UTF_8);
+                long expirationTime = reader.readLong();
+                int valueLength = reader.readInt();
+                if (now >= expirationTime) {
+                    reader.skip(valueLength);
+                    continue;
+                }
+                batch.add(PersistenceRecord.put(key, reader.readBytes(valueLength), expirationTime));
+                loaded++;
+                if (batch.size() == RESTORE_BATCH_SIZE) {
+                    inFlight.add(cache.submitRestoreAll(batch));
+                    batch = new ArrayList<>(RESTORE_BATCH_SIZE);
+                    if (inFlight.size() == MAX_IN_FLIGHT_BATCHES) {
+                        // keeps the core inbox and the memory of the decoded batches bounded
+                        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).join();
+                        inFlight.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                inFlight.add(cache.submitRestoreAll(batch));
+            }
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).join();
+        return loaded;
+    }
+
+    /**
+     * Takes a last snapshot if configured, then stops the periodic snapshots.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if (snapshotOnShutdown) {
+            snapshotSafely();
+        }
+    }
+
+    /**
+     * Sequential reader over a memory-mapped file. The file is mapped in windows of at most {@link #MAX_WINDOW_SIZE},
+     * a read crossing the end of the window remaps the file from the current position.
+     */
+    private static final class MappedReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        private MappedReader(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+            map(0);
+        }
+
+        private void map(long start) throws IOException {
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAX_WINDOW_SIZE, size - start));
+        }
+
+        long size() {
+            return size;
+        }
+
+        long position() {
+            return windowStart + window.position();
+        }
+
+        MappedReader seek(long position) throws IOException {
+            if (position >= windowStart && position <= windowStart + window.limit()) {
+                window.position((int) (position - windowStart));
+            } else {
+                map(position);
+            }
+            return this;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (bytes < 0 || position() + bytes > size) {
+                throw new IOException("Truncated snapshot partition");
+            }
+            if (window.remaining() < bytes) {
+                map(position());
+            }
+        }
+
+        /**
+         * @return At most {@code maxBytes} of the current window, the position moves past them.
+         */
+        ByteBuffer slice(long maxBytes) throws IOException {
+            if (!window.hasRemaining()) {
+                map(position());
+            }
+            int length = (int) Math.min(maxBytes, window.remaining());
+            ByteBuffer slice = window.slice(window.position(), length);
+            window.position(window.position() + length);
+            return slice;
+        }
+
+        int readInt() throws IOException {
+            ensure(Integer.BYTES);
+            return window.getInt();
+        }
+
+        long readLong() throws IOException {
+            ensure(Long.BYTES);
+            return window.getLong();
+        }
+
+        byte[] readBytes(int length) throws IOException {
+            ensure(length);
+            byte[] bytes = new byte[length];
+            window.get(bytes);
+            return bytes;
+        }
+
+        void skip(int length) throws IOException {
+            ensure(length);
+            window.position(window.position() + length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.cache.persistence;
+
+import com.example.cache.core.domain.CacheEntry;
+
+/**
+ * Entries of one core (shard) captured at a point in time, read by index on the thread writing the snapshot while
+ * the core keeps serving. Values are handed over as stored, compressed when {@link #isCompressed(int)}.
+ * <p>
+ * Heap entries are immutable, only their references are captured. Off-heap values stay in their slabs, they are only
+ * copied out when read here; the capture keeps their chunks from being reused until {@link #release()}.
+ */
+public interface SnapshotPartition {
+
+    int size();
+
+    String key(int index);
+
+    long expirationTime(int index);
+
+    boolean isCompressed(int index);
+
+    byte[] value(int index);
+
+    /**
+     * Releases what the capture holds on to once the partition is written, further calls have no effect. Nothing can
+     * be read afterwards.
+     */
+    default void release() {
+    }
+
+    /**
+     * @return Partition of captured entry references, keys and entries aligned by index.
+     */
+    static SnapshotPartition of(String[] keys, CacheEntry[] entries, int size) {
+        return new EntryPartition(keys, entries, size);
+    }
+
+    record EntryPartition(String[] keys, CacheEntry[] entries, int size) implements SnapshotPartition {
+
+        @Override
+        public String key(int index) {
+            return keys[index];
+        }
+
+        @Override
+        public long expirationTime(int index) {
+            return entries[index].getExpirationTime();
+        }
+
+        @Override
+        public boolean isCompressed(int index) {
+            return entries[index].isCompressed();
+        }
+
+        @Override
+        public byte[] value(int index) {
+            return entries[index].getValue();
+        }
+    }
+}
@@ -1,36 +1,63 @@
 package com.example.cache.task;
 
 import com.example.cache.core.IDistributedCache;
-import com.example.cache.core.domain.CacheOperation;
+import com.example.cache.core.domain.CacheOperationType;
+import com.example.cache.core.ds.CacheEventHandler;
 import com.example.cache.core.ds.CacheQueue;
-import com.example.cache.core.ds.TtlQueue;
+import com.example.cache.core.ds.IExpirationTracker;
 import com.example.cache.eviction.IEvictionStrategy;
 import com.example.cache.metrics.CacheMetrics;
 import com.example.cache.util.SystemUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class CacheCleanerTask implements Runnable {
+    // Keys removed per core task while expiring keys and enforcing the entry limit
+    private static final int REMOVAL_BATCH_SIZE = 512;
+    // Keys removed per round trip to the core while enforcing the byte limit
+    private static final int BYTE_EVICTION_BATCH_SIZE = 64;
+    // Time the cleaner parks between two drains of the CacheQueue while it waits for the core
+    private static final long AWAIT_DRAIN_MICROS = 100;
+
     private final CacheQueue cacheQueue;
-    private final TtlQueue ttlQueue;
+    private final IExpirationTracker expirationTracker;
     private final IEvictionStrategy<String> evictionStrategy;
     private final int maximumSize;
+    private final long maximumBytes;
+    private final long lowWaterBytes;
     private final CacheMetrics cacheMetrics;
     private final IDistributedCache cacheCore;
+    private final CacheEventHandler eventHandler = this::dispatchOperation;
 
     private volatile boolean running = true;
 
-    public CacheCleanerTask(CacheQueue cacheQueue, TtlQueue ttlQueue, IEvictionStrategy<String> evictionStrategy,
+    public CacheCleanerTask(CacheQueue cacheQueue, IExpirationTracker expirationTracker, IEvictionStrategy<String> evictionStrategy,
                             int maximumCacheSize, CacheMetrics cacheMetrics, IDistributedCache cacheCore) {
+        this(cacheQueue, expirationTracker, evictionStrategy, maximumCacheSize, 0, 0, cacheMetrics, cacheCore);
+    }
 
+    /**
+     * @param maximumBytes  Estimated memory footprint above which keys are evicted, 0 disables the byte limit.
+     * @param lowWaterBytes Once the byte limit is exceeded, keys are evicted until the footprint drops under this mark.
+     */
+    public CacheCleanerTask(CacheQueue cacheQueue, IExpirationTracker expirationTracker, IEvictionStrategy<String> evictionStrategy,
+                            int maximumCacheSize, long maximumBytes, long lowWaterBytes, CacheMetrics cacheMetrics,
+                            IDistributedCache cacheCore) {
+        if (maximumBytes > 0 && (lowWaterBytes <= 0 || lowWaterBytes > maximumBytes)) {
+            throw new IllegalArgumentException("'lowWaterBytes' must be greater than 0 and at most 'maximumBytes'.");
+        }
         this.cacheQueue = cacheQueue;
-        this.ttlQueue = ttlQueue;
+        this.expirationTracker = expirationTracker;
         this.evictionStrategy = evictionStrategy;
         this.maximumSize = maximumCacheSize;
+        this.maximumBytes = maximumBytes;
+        this.lowWaterBytes = lowWaterBytes;
         this.cacheMetrics = cacheMetrics;
         this.cacheCore = cacheCore;
     }
@@ -40,9 +67,10 @@ public class CacheCleanerTask implements Runnable {
         log.info("[CacheCleanerTask.Start]");
         while (running) {
             try {
-                cacheQueue.poll(100, TimeUnit.MILLISECONDS).ifPresent(this::dispatchOperation);
+                cacheQueue.drain(100, TimeUnit.MILLISECONDS, eventHandler);
                 cleanupExpiredKeys();
                 enforceCapacityLimit();
+                enforceMemoryLimit();
             } catch (Exception e) {
                 log.error("[CacheCleanerTask.Error] [ErrorMessage={}]", e.getMessage(), e);
             }
@@ -54,49 +82,115 @@ public class CacheCleanerTask implements Runnable {
         this.running = false;
     }
 
-    private void dispatchOperation(CacheOperation operation) {
-        switch (operation.getType()) {
+    private void dispatchOperation(CacheOperationType type, String key, long expirationTimeMillis) {
+        switch (type) {
             case PUT:
-                evictionStrategy.onPut(operation.getKey());
-                log.debug("[CacheCleanerTask.Dispatch.PUT] [key={}]", operation.getKey());
-                ttlQueue.add(operation.getEntry().getExpirationTime(), operation.getKey());
+                evictionStrategy.onPut(key);
+                log.debug("[CacheCleanerTask.Dispatch.PUT] [key={}]", key);
+                expirationTracker.schedule(key, expirationTimeMillis);
                 break;
             case GET:
-                evictionStrategy.onGet(operation.getKey());
-                log.debug("[CacheCleanerTask.Dispatch.ACCESS] [key={}]", operation.getKey());
+                evictionStrategy.onGet(key);
+                log.debug("[CacheCleanerTask.Dispatch.ACCESS] [key={}]", key);
                 break;
             case DELETE:
-                evictionStrategy.onDelete(operation.getKey());
-                log.debug("[CacheCleanerTask.Dispatch.REMOVE] [key={}]", operation.getKey());
+                evictionStrategy.onDelete(key);
+                expirationTracker.cancel(key);
+                log.debug("[CacheCleanerTask.Dispatch.REMOVE] [key={}]", key);
                 break;
         }
     }
 
+    /**
+     * Keeps replaying the recorded events while waiting for the core: a core worker finding the write buffer of the
+     * CacheQueue full waits for the cleaner, which must not be waiting for that worker at the same time.
+     */
+    private void await(CompletableFuture<Void> removal) {
+        while (!removal.isDone()) {
+            cacheQueue.drain(AWAIT_DRAIN_MICROS, TimeUnit.MICROSECONDS, eventHandler);
+        }
+        removal.join();
+    }
+
+    /**
+     * Expired keys are removed in bulk, a wave of expirations costs one core task per {@value #REMOVAL_BATCH_SIZE}
+     * keys. Each batch is awaited while draining, a cleaner blocked on a full housekeeping lane could not drain the
+     * write buffer its core waits on. The core checks the expiry again, a key written again in the meantime is kept.
+     */
     private void cleanupExpiredKeys() {
-        long currentTimeInSec = SystemUtil.getCurrentTimeInSec();
-        while (!ttlQueue.isEmpty() && ttlQueue.peek().filter(ttl -> ttl <= currentTimeInSec).isPresent()) {
-            ttlQueue.poll().stream().flatMap(Set::stream).forEach(key -> {
-                cacheCore.submitDelete(key);
-                evictionStrategy.onDelete(key);
-                cacheMetrics.incrementTtlExpirations();
-                log.debug("[CacheCleanerTask.Cleanup.TTL.ExpiredKeys] [key={}]", key);
-            });
+        List<String> expiredKeys = new ArrayList<>();
+        expirationTracker.expire(SystemUtil.getCurrentTimeInMillis(), key -> {
+            expiredKeys.add(key);
+            evictionStrategy.onDelete(key);
+            cacheMetrics.incrementTtlExpirations();
+            log.debug("[CacheCleanerTask.Cleanup.TTL.ExpiredKeys] [key={}]", key);
+        });
+        for (int from = 0; from < expiredKeys.size(); from += REMOVAL_BATCH_SIZE) {
+            await(cacheCore.submitBulkExpire(expiredKeys.subList(from,
+                    Math.min(from + REMOVAL_BATCH_SIZE, expiredKeys.size()))));
         }
     }
 
+    /**
+     * The size is only read again once a batch of removals is done, so that no more keys are evicted than needed.
+     */
     private void enforceCapacityLimit() {
-        while (cacheCore.size() > maximumSize) {
-            Optional<String> keyToEvict = evictionStrategy.evict();
-            if (keyToEvict.isPresent()) {
+        int size = cacheCore.size();
+        while (size > maximumSize) {
+            int keysToEvict = Math.min(size - maximumSize, REMOVAL_BATCH_SIZE);
+            List<String> batch = new ArrayList<>(keysToEvict);
+            while (batch.size() < keysToEvict) {
+                Optional<String> keyToEvict = evictionStrategy.evict();
+                if (keyToEvict.isEmpty()) {
+                    break;
+                }
                 String key = keyToEvict.get();
-                cacheCore.submitDelete(key);
+                batch.add(key);
                 evictionStrategy.onDelete(key);
                 cacheMetrics.incrementEvictions();
                 log.debug("[CacheCleanerTask.Eviction] [key={}] [strategy={}]", key, evictionStrategy.getClass().getName());
-            } else {
+            }
+            if (batch.isEmpty()) {
                 log.error("[CacheCleanerTask.Eviction.Error] [strategy={}]", evictionStrategy.getClass().getName());
-                break;
+                return;
+            }
+            await(cacheCore.submitBulkRemove(batch));
+            size = cacheCore.size();
+        }
+    }
+
+    /**
+     * Deletes are applied asynchronously by the core, the footprint is only read again once a batch of deletes is
+     * done. Batches are sized from the average entry footprint so that little is evicted beyond the low-water mark.
+     */
+    private void enforceMemoryLimit() {
+        if (maximumBytes <= 0 || cacheCore.usedBytes() <= maximumBytes) {
+            return;
+        }
+        long usedBytes = cacheCore.usedBytes();
+        while (usedBytes > lowWaterBytes) {
+            long averageEntryBytes = Math.max(1, usedBytes / Math.max(1, cacheCore.size()));
+            long keysToEvict = (usedBytes - lowWaterBytes + averageEntryBytes - 1) / averageEntryBytes;
+            List<String> batch = new ArrayList<>((int) Math.min(keysToEvict, BYTE_EVICTION_BATCH_SIZE));
+            while (batch.size() < keysToEvict && batch.size() < BYTE_EVICTION_BATCH_SIZE) {
+                Optional<String> keyToEvict = evictionStrategy.evict();
+                if (keyToEvict.isEmpty()) {
+                    break;
+                }
+                String key = keyToEvict.get();
+                batch.add(key);
+                evictionStrategy.onDelete(key);
+                cacheMetrics.incrementEvictions();
+                log.debug("[CacheCleanerTask.Eviction.Bytes] [key={}] [strategy={}]", key,
+                        evictionStrategy.getClass().getName());
+            }
+            if (batch.isEmpty()) {
+                log.error("[CacheCleanerTask.Eviction.Error] [strategy={}] [usedBytes={}]",
+                        evictionStrategy.getClass().getName(), usedBytes);
+                return;
             }
+            await(cacheCore.submitBulkRemove(batch));
+            usedBytes = cacheCore.usedBytes();
         }
     }
 }
@@ -6,6 +6,10 @@ import java.time.ZoneOffset;
 public final class SystemUtil {
 
     public static final String DEFAULT_ERROR_CODE = "ERROR.DEFAULT";
+    // the cache core is overloaded, the request was not executed and can be retried
+    public static final String OVERLOADED_ERROR_CODE = "ERROR.OVERLOADED";
+    // the request ran out of time, it may or may not have been executed
+    public static final String TIMEOUT_ERROR_CODE = "TIMEOUT";
 
     private SystemUtil() {
         // no-op
@@ -14,4 +18,11 @@ public final class SystemUtil {
     public static long getCurrentTimeInSec() {
         return LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
     }
+
+    /**
+     * Same clock as {@link #getCurrentTimeInSec()}, with a millisecond resolution.
+     */
+    public static long getCurrentTimeInMillis() {
+        return LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
 }
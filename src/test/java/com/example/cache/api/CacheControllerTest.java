@@ -2,24 +2,39 @@ package com.example.cache.api;
 
 import com.example.cache.api.advice.GlobalResponseAdvice;
 import com.example.cache.api.domain.GetResponse;
+import com.example.cache.api.domain.MultiGetRequest;
+import com.example.cache.api.domain.MultiGetResponse;
+import com.example.cache.api.domain.MultiPutRequest;
 import com.example.cache.api.domain.PutRequest;
 import com.example.cache.api.domain.PutResponse;
 import com.example.cache.api.domain.DeleteResponse;
+import com.example.cache.core.CacheDeadlineExceededException;
+import com.example.cache.core.CacheOverloadedException;
 import com.example.cache.core.IDistributedCache;
+import com.example.cache.core.domain.RequestOptions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import tools.jackson.databind.ObjectMapper;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static com.example.cache.util.SystemUtil.DEFAULT_ERROR_CODE;
+import static com.example.cache.util.SystemUtil.OVERLOADED_ERROR_CODE;
+import static com.example.cache.util.SystemUtil.TIMEOUT_ERROR_CODE;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 public class CacheControllerTest {
@@ -36,6 +51,7 @@ public class CacheControllerTest {
     public void setup() {
         objectMapper = new ObjectMapper();
         cacheCore = mock(IDistributedCache.class);
+        when(cacheCore.tryGetBytes(any())).thenReturn(IDistributedCache.NOT_READ_DIRECTLY);
 
         CacheController cacheController = new CacheController(cacheCore);
         mockMvc = MockMvcBuilders.standaloneSetup(cacheController)
@@ -45,7 +61,7 @@ public class CacheControllerTest {
 
     @Test
     public void testPutSuccess() throws Exception {
-        when(cacheCore.submitPut(TEST_KEY, TEST_VALUE, TEST_TTL)).thenReturn(CompletableFuture.completedFuture(null));
+        when(cacheCore.submitPut(eq(TEST_KEY), eq(TEST_VALUE), eq(TEST_TTL), any())).thenReturn(CompletableFuture.completedFuture(null));
 
         PutRequest request = new PutRequest();
         request.setKey(TEST_KEY);
@@ -62,7 +78,7 @@ public class CacheControllerTest {
                 .andExpect(status().isOk())
                 .andReturn().getResponse().getContentAsString();
 
-        verify(cacheCore, times(1)).submitPut(TEST_KEY, TEST_VALUE, TEST_TTL);
+        verify(cacheCore, times(1)).submitPut(eq(TEST_KEY), eq(TEST_VALUE), eq(TEST_TTL), any());
 
         PutResponse response = objectMapper.readValue(responseContent, PutResponse.class);
         assertTrue(response.isPutStatus());
@@ -77,7 +93,7 @@ public class CacheControllerTest {
         request.setTtlInSec(TEST_TTL);
 
         String errorMessage = "Storage capacity exceeded.";
-        when(cacheCore.submitPut(TEST_KEY, TEST_VALUE, TEST_TTL))
+        when(cacheCore.submitPut(eq(TEST_KEY), eq(TEST_VALUE), eq(TEST_TTL), any()))
                 .thenReturn(CompletableFuture.failedFuture(new RuntimeException(errorMessage)));
 
         MvcResult mvcResult = mockMvc.perform(put(CACHE_ENDPOINT)
@@ -96,9 +112,35 @@ public class CacheControllerTest {
         assertFalse(response.isPutStatus());
     }
 
+    @Test
+    public void testPutOverloaded() throws Exception {
+        PutRequest request = new PutRequest();
+        request.setKey(TEST_KEY);
+        request.setValue(TEST_VALUE);
+        request.setTtlInSec(TEST_TTL);
+
+        when(cacheCore.submitPut(eq(TEST_KEY), eq(TEST_VALUE), eq(TEST_TTL), any())).thenReturn(CompletableFuture.failedFuture(
+                new CompletionException(new CacheOverloadedException("Cache core inbox is full"))));
+
+        MvcResult mvcResult = mockMvc.perform(put(CACHE_ENDPOINT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String responseContent = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, GlobalResponseAdvice.RETRY_AFTER_SECONDS))
+                .andReturn().getResponse().getContentAsString();
+
+        PutResponse response = objectMapper.readValue(responseContent, PutResponse.class);
+        assertEquals(OVERLOADED_ERROR_CODE, response.getErrorCode());
+        assertFalse(response.isPutStatus());
+    }
+
     @Test
     public void testGetSuccess() throws Exception {
-        when(cacheCore.submitGet(TEST_KEY)).thenReturn(CompletableFuture.completedFuture(TEST_VALUE));
+        when(cacheCore.submitGet(eq(TEST_KEY), any())).thenReturn(CompletableFuture.completedFuture(TEST_VALUE));
 
         MvcResult mvcResult = mockMvc.perform(get(CACHE_ENDPOINT)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -109,15 +151,67 @@ public class CacheControllerTest {
                 .andExpect(status().isOk())
                 .andReturn().getResponse().getContentAsString();
 
-        verify(cacheCore, times(1)).submitGet(TEST_KEY);
+        verify(cacheCore, times(1)).submitGet(eq(TEST_KEY), any());
         GetResponse response = objectMapper.readValue(responseContent, GetResponse.class);
         assertNull(response.getErrorCode());
         assertEquals(TEST_VALUE, response.getValue());
     }
 
+    @Test
+    public void testGetOfLocalKeyIsServedWithoutFuture() throws Exception {
+        when(cacheCore.tryGetBytes(TEST_KEY)).thenReturn(TEST_VALUE.getBytes(StandardCharsets.UTF_8));
+
+        MvcResult mvcResult = mockMvc.perform(get(CACHE_ENDPOINT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .param("key", TEST_KEY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String responseContent = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        verify(cacheCore, never()).submitGet(any(), any());
+        assertEquals(TEST_VALUE, objectMapper.readValue(responseContent, GetResponse.class).getValue());
+    }
+
+    @Test
+    public void testTimeoutHeaderSetsDeadlineOfRequest() throws Exception {
+        when(cacheCore.submitGet(eq(TEST_KEY), any())).thenReturn(CompletableFuture.completedFuture(TEST_VALUE));
+
+        MvcResult mvcResult = mockMvc.perform(get(CACHE_ENDPOINT)
+                        .param("key", TEST_KEY)
+                        .header(CacheController.TIMEOUT_HEADER, "5000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+
+        ArgumentCaptor<RequestOptions> options = ArgumentCaptor.forClass(RequestOptions.class);
+        verify(cacheCore).submitGet(eq(TEST_KEY), options.capture());
+        assertTrue(options.getValue().hasDeadline());
+        // well above the default timeout of 500ms
+        assertTrue(options.getValue().remainingNanos() > TimeUnit.SECONDS.toNanos(4));
+    }
+
+    @Test
+    public void testSkippedRequestIsReportedAsTimeout() throws Exception {
+        when(cacheCore.submitDelete(eq(TEST_KEY), any())).thenReturn(CompletableFuture.failedFuture(
+                new CacheDeadlineExceededException("Deadline passed before execution.")));
+
+        MvcResult mvcResult = mockMvc.perform(delete(CACHE_ENDPOINT)
+                        .param("key", TEST_KEY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String responseContent = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isInternalServerError())
+                .andReturn().getResponse().getContentAsString();
+
+        DeleteResponse response = objectMapper.readValue(responseContent, DeleteResponse.class);
+        assertEquals(TIMEOUT_ERROR_CODE, response.getErrorCode());
+    }
+
     @Test
     public void testGetSuccessWithCacheMiss() throws Exception {
-        when(cacheCore.submitGet(TEST_KEY)).thenReturn(CompletableFuture.completedFuture(null));
+        when(cacheCore.submitGet(eq(TEST_KEY), any())).thenReturn(CompletableFuture.completedFuture(null));
 
         MvcResult mvcResult = mockMvc.perform(get(CACHE_ENDPOINT)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -128,7 +222,7 @@ public class CacheControllerTest {
                 .andExpect(status().isOk())
                 .andReturn().getResponse().getContentAsString();
 
-        verify(cacheCore, times(1)).submitGet(TEST_KEY);
+        verify(cacheCore, times(1)).submitGet(eq(TEST_KEY), any());
         GetResponse response = objectMapper.readValue(responseContent, GetResponse.class);
         assertNull(response.getErrorCode());
         assertNull(response.getValue());
@@ -137,7 +231,7 @@ public class CacheControllerTest {
     @Test
     public void testGetFailure() throws Exception {
         String errorMessage = "Internal server error while accessing cache.";
-        when(cacheCore.submitGet(TEST_KEY))
+        when(cacheCore.submitGet(eq(TEST_KEY), any()))
                 .thenReturn(CompletableFuture.failedFuture(new RuntimeException(errorMessage)));
 
         MvcResult mvcResult = mockMvc.perform(get(CACHE_ENDPOINT)
@@ -157,7 +251,7 @@ public class CacheControllerTest {
 
     @Test
     public void testRemoveSuccess() throws Exception {
-        when(cacheCore.submitDelete(TEST_KEY)).thenReturn(CompletableFuture.completedFuture(null));
+        when(cacheCore.submitDelete(eq(TEST_KEY), any())).thenReturn(CompletableFuture.completedFuture(null));
 
         MvcResult mvcResult = mockMvc.perform(delete(CACHE_ENDPOINT)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -168,7 +262,7 @@ public class CacheControllerTest {
                 .andExpect(status().isOk())
                 .andReturn().getResponse().getContentAsString();
 
-        verify(cacheCore, times(1)).submitDelete(TEST_KEY);
+        verify(cacheCore, times(1)).submitDelete(eq(TEST_KEY), any());
         DeleteResponse response = objectMapper.readValue(responseContent, DeleteResponse.class);
         assertTrue(response.isRemoveStatus());
         assertNull(response.getErrorCode());
@@ -177,7 +271,7 @@ public class CacheControllerTest {
     @Test
     public void testRemoveFailure() throws Exception {
         String errorMessage = "Cache unavailable at moment.";
-        when(cacheCore.submitDelete(TEST_KEY))
+        when(cacheCore.submitDelete(eq(TEST_KEY), any()))
                 .thenReturn(CompletableFuture.failedFuture(new RuntimeException(errorMessage)));
 
         MvcResult mvcResult = mockMvc.perform(delete(CACHE_ENDPOINT)
@@ -194,4 +288,132 @@ public class CacheControllerTest {
         assertEquals(errorMessage, response.getErrorMessage());
         assertFalse(response.isRemoveStatus());
     }
+
+    @Test
+    public void testPutRawSuccess() throws Exception {
+        byte[] value = new byte[]{0, 1, 2, (byte) 0xFF};
+        when(cacheCore.submitPutBytes(eq(TEST_KEY), eq(value), eq(TEST_TTL), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        MvcResult mvcResult = mockMvc.perform(put(CACHE_ENDPOINT + "/raw")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .param("key", TEST_KEY)
+                        .param("ttlInSec", String.valueOf(TEST_TTL))
+                        .content(value))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk());
+
+        verify(cacheCore, times(1)).submitPutBytes(eq(TEST_KEY), eq(value), eq(TEST_TTL), any());
+    }
+
+    @Test
+    public void testPutRawFailure() throws Exception {
+        when(cacheCore.submitPutBytes(eq(TEST_KEY), any(byte[].class), eq(TEST_TTL), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Storage capacity exceeded.")));
+
+        MvcResult mvcResult = mockMvc.perform(put(CACHE_ENDPOINT + "/raw")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .param("key", TEST_KEY)
+                        .param("ttlInSec", String.valueOf(TEST_TTL))
+                        .content(new byte[]{1}))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isInternalServerError())
+                .andExpect(header().string(CacheController.ERROR_CODE_HEADER, DEFAULT_ERROR_CODE));
+    }
+
+    @Test
+    public void testGetRawSuccess() throws Exception {
+        byte[] value = TEST_VALUE.getBytes(StandardCharsets.UTF_8);
+        when(cacheCore.submitGetBytes(eq(TEST_KEY), any())).thenReturn(CompletableFuture.completedFuture(value));
+
+        MvcResult mvcResult = mockMvc.perform(get(CACHE_ENDPOINT + "/raw")
+                        .accept(MediaType.APPLICATION_OCTET_STREAM)
+                        .param("key", TEST_KEY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] responseContent = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertArrayEquals(value, responseContent);
+    }
+
+    @Test
+    public void testGetRawOfLocalKeyCacheMiss() throws Exception {
+        when(cacheCore.tryGetBytes(TEST_KEY)).thenReturn(null);
+
+        MvcResult mvcResult = mockMvc.perform(get(CACHE_ENDPOINT + "/raw")
+                        .accept(MediaType.APPLICATION_OCTET_STREAM)
+                        .param("key", TEST_KEY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotFound());
+        verify(cacheCore, never()).submitGetBytes(any(), any());
+    }
+
+    @Test
+    public void testGetRawCacheMiss() throws Exception {
+        when(cacheCore.submitGetBytes(eq(TEST_KEY), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        MvcResult mvcResult = mockMvc.perform(get(CACHE_ENDPOINT + "/raw")
+                        .accept(MediaType.APPLICATION_OCTET_STREAM)
+                        .param("key", TEST_KEY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testMultiGetSuccess() throws Exception {
+        List<String> keys = List.of(TEST_KEY, "missingKey");
+        when(cacheCore.submitMultiGet(eq(keys), any()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of(TEST_KEY, TEST_VALUE.getBytes(StandardCharsets.UTF_8))));
+
+        MultiGetRequest request = new MultiGetRequest();
+        request.setKeys(keys);
+
+        MvcResult mvcResult = mockMvc.perform(post(CACHE_ENDPOINT + "/multi-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String responseContent = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        MultiGetResponse response = objectMapper.readValue(responseContent, MultiGetResponse.class);
+        assertEquals(Map.of(TEST_KEY, TEST_VALUE), response.getValues());
+        assertNull(response.getErrorCode());
+    }
+
+    @Test
+    public void testMultiPutFailure() throws Exception {
+        when(cacheCore.submitMultiPut(anyMap(), eq(TEST_TTL), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Address not found")));
+
+        MultiPutRequest request = new MultiPutRequest();
+        request.setEntries(Map.of(TEST_KEY, TEST_VALUE));
+        request.setTtlInSec(TEST_TTL);
+
+        MvcResult mvcResult = mockMvc.perform(put(CACHE_ENDPOINT + "/multi")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String responseContent = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isInternalServerError())
+                .andReturn().getResponse().getContentAsString();
+
+        PutResponse response = objectMapper.readValue(responseContent, PutResponse.class);
+        assertFalse(response.isPutStatus());
+        assertEquals(DEFAULT_ERROR_CODE, response.getErrorCode());
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.cache.core;
+
+import com.example.cache.core.domain.CacheEntry;
+import com.example.cache.core.domain.SampledEviction;
+import com.example.cache.core.storage.HeapCacheStorage;
+import com.example.cache.core.storage.ICacheStorage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SampledEvictorTest {
+
+    // large enough for every sample to cover the few keys of a test
+    private static final int SAMPLE_SIZE = 64;
+
+    private ICacheStorage storage;
+    private final AtomicLong clockMillis = new AtomicLong(TimeUnit.DAYS.toMillis(1));
+
+    @BeforeEach
+    public void setup() {
+        storage = new HeapCacheStorage(false, true);
+    }
+
+    private SampledEvictor evictor(SampledEviction mode) {
+        return new SampledEvictor(mode, storage, SAMPLE_SIZE, 16, new SplittableRandom(42), clockMillis::get);
+    }
+
+    private void put(SampledEvictor evictor, String key) {
+        storage.put(key, CacheEntry.builder()
+                .value(new byte[]{1})
+                .accessInfo(evictor.onPut(storage.accessInfo(key)))
+                .build());
+    }
+
+    private void evictNext(SampledEvictor evictor, String expectedKey) {
+        String victim = evictor.nextVictim();
+        Assertions.assertEquals(expectedKey, victim);
+        storage.remove(victim);
+    }
+
+    @Test
+    public void testAccessUpdateLeavesHandedOutEntriesUnchanged() {
+        SampledEvictor evictor = evictor(SampledEviction.LRU);
+        put(evictor, "key-1");
+        CacheEntry handedOut = storage.get("key-1");
+        int accessInfo = handedOut.getAccessInfo();
+        clockMillis.addAndGet(10_000);
+
+        storage.updateAccessInfo("key-1", evictor.accessRecorder);
+
+        Assertions.assertEquals(accessInfo, handedOut.getAccessInfo());
+        Assertions.assertEquals(accessInfo + 10, storage.accessInfo("key-1"));
+        Assertions.assertArrayEquals(handedOut.getValue(), storage.get("key-1").getValue());
+    }
+
+    @Test
+    public void testLruEvictsKeyIdleForTheLongestTime() {
+        SampledEvictor evictor = evictor(SampledEviction.LRU);
+        put(evictor, "key-1");
+        clockMillis.addAndGet(10_000);
+        put(evictor, "key-2");
+        clockMillis.addAndGet(10_000);
+        put(evictor, "key-3");
+        clockMillis.addAndGet(10_000);
+        // read access refreshes the clock of key-1
+        storage.updateAccessInfo("key-1", evictor.accessRecorder);
+
+        Assertions.assertEquals(20, evictor.score(storage.accessInfo("key-2")));
+        evictNext(evictor, "key-2");
+        evictNext(evictor, "key-3");
+        evictNext(evictor, "key-1");
+        Assertions.assertNull(evictor.nextVictim());
+    }
+
+    @Test
+    public void testLfuEvictsLeastFrequentlyUsedKey() {
+        SampledEvictor evictor = evictor(SampledEviction.LFU);
+        put(evictor, "hot-key");
+        put(evictor, "cold-key");
+        // the first increment above the initial value always happens, the next ones get less and less likely
+        for (int i = 0; i < 100; i++) {
+            storage.updateAccessInfo("hot-key", evictor.accessRecorder);
+        }
+        Assertions.assertEquals(5, SampledEvictor.lfuCounter(storage.accessInfo("cold-key")));
+        Assertions.assertTrue(SampledEvictor.lfuCounter(storage.accessInfo("hot-key")) > 6);
+
+        evictNext(evictor, "cold-key");
+        evictNext(evictor, "hot-key");
+    }
+
+    @Test
+    public void testLfuCounterDecaysOverTime() {
+        SampledEvictor evictor = evictor(SampledEviction.LFU);
+        put(evictor, "test-key");
+        Assertions.assertEquals(255 - 5, evictor.score(storage.accessInfo("test-key")));
+
+        clockMillis.addAndGet(TimeUnit.MINUTES.toMillis(3));
+        Assertions.assertEquals(255 - 2, evictor.score(storage.accessInfo("test-key")));
+        // an access applies the decay, then increments
+        storage.updateAccessInfo("test-key", evictor.accessRecorder);
+        Assertions.assertEquals(3, SampledEvictor.lfuCounter(storage.accessInfo("test-key")));
+
+        clockMillis.addAndGet(TimeUnit.MINUTES.toMillis(30));
+        Assertions.assertEquals(255, evictor.score(storage.accessInfo("test-key")));
+    }
+
+    @Test
+    public void testPooledCandidatesRemovedMeanwhileAreSkipped() {
+        SampledEvictor evictor = evictor(SampledEviction.LRU);
+        for (int i = 0; i < 10; i++) {
+            put(evictor, "key-" + i);
+            clockMillis.addAndGet(1000);
+        }
+        evictNext(evictor, "key-0");
+        Assertions.assertTrue(evictor.poolSize() > 0);
+
+        // removed by a DELETE while still in the pool
+        storage.remove("key-1");
+        storage.remove("key-2");
+        evictNext(evictor, "key-3");
+    }
+}
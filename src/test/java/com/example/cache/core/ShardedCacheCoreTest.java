@@ -0,0 +1,121 @@
+package com.example.cache.core;
+
+import com.example.cache.cluster.IClusterService;
+import com.example.cache.cluster.grpc.CacheGrpcClient;
+import com.example.cache.core.ds.CacheQueue;
+import com.example.cache.metrics.CacheMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ShardedCacheCoreTest {
+
+    private CacheMetrics cacheMetrics;
+    private ShardedCacheCore cacheCore;
+
+    private final String LOCAL_NODE_ID = "local-node-1";
+    private final int SHARD_COUNT = 4;
+    private final long TTL = 60;
+
+    @BeforeEach
+    public void setup() {
+        CacheQueue queue = mock(CacheQueue.class);
+        IClusterService clusterService = mock(IClusterService.class);
+        CacheGrpcClient grpcClient = mock(CacheGrpcClient.class);
+        cacheMetrics = new CacheMetrics();
+
+        when(clusterService.findOwnerNode(anyString())).thenReturn(LOCAL_NODE_ID);
+        when(clusterService.getLocalNodeId()).thenReturn(LOCAL_NODE_ID);
+
+        cacheCore = new ShardedCacheCore("sharded-worker-thread", SHARD_COUNT, queue, cacheMetrics,
+                clusterService, grpcClient);
+    }
+
+    @Test
+    public void testInvalidShardCount() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedCacheCore("invalid", 0,
+                mock(CacheQueue.class), cacheMetrics, mock(IClusterService.class), mock(CacheGrpcClient.class)));
+    }
+
+    @Test
+    public void testShardIndexIsStableAndInRange() {
+        for (int i = 0; i < 1000; i++) {
+            String key = "key-" + i;
+            int index = cacheCore.shardIndex(key);
+            assertTrue(index >= 0 && index < SHARD_COUNT);
+            assertEquals(index, cacheCore.shardIndex(key));
+        }
+    }
+
+    @Test
+    public void testKeysAreSpreadAcrossShards() {
+        Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            usedShards.add(cacheCore.shardIndex("key-" + i));
+        }
+        assertEquals(SHARD_COUNT, usedShards.size());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testPutGetDeleteAcrossShards() throws Exception {
+        List<CompletableFuture<Void>> puts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            puts.add(cacheCore.submitPut("key-" + i, "value-" + i, TTL));
+        }
+        CompletableFuture.allOf(puts.toArray(new CompletableFuture[0])).get();
+
+        // size is aggregated over all the shards
+        assertEquals(100, cacheCore.size());
+        assertEquals(100, cacheMetrics.getPuts());
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value-" + i, cacheCore.submitGet("key-" + i).get());
+        }
+        assertEquals(100, cacheMetrics.getHits());
+
+        cacheCore.submitDelete("key-0").get();
+        assertNull(cacheCore.submitGet("key-0").get());
+        assertEquals(99, cacheCore.size());
+        assertEquals(1, cacheMetrics.getMisses());
+        assertEquals(SHARD_COUNT, cacheCore.getShardCount());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testMultiOpsAcrossShards() throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entries.put("key-" + i, ("value-" + i).getBytes());
+            keys.add("key-" + i);
+        }
+        cacheCore.submitMultiPut(entries, TTL).get();
+        assertEquals(100, cacheCore.size());
+
+        keys.add("missing-key");
+        Map<String, byte[]> values = cacheCore.submitMultiGet(keys).get();
+        assertEquals(100, values.size());
+        assertArrayEquals("value-42".getBytes(), values.get("key-42"));
+        assertFalse(values.containsKey("missing-key"));
+
+        cacheCore.submitMultiDelete(keys.subList(0, 50)).get();
+        assertEquals(50, cacheCore.size());
+        assertNull(cacheCore.submitGet("key-0").get());
+        assertEquals("value-50", cacheCore.submitGet("key-50").get());
+    }
+}
@@ -2,10 +2,23 @@ package com.example.cache.core;
 
 import com.example.cache.cluster.IClusterService;
 import com.example.cache.cluster.grpc.CacheGrpcClient;
-import com.example.cache.core.domain.CacheOperation;
+import com.example.cache.core.domain.AdmissionPolicy;
+import com.example.cache.core.domain.CacheCoreConfig;
+import com.example.cache.core.domain.CacheEntry;
 import com.example.cache.core.domain.CacheOperationType;
+import com.example.cache.core.domain.Lane;
+import com.example.cache.core.domain.RequestOptions;
+import com.example.cache.core.domain.SampledEviction;
 import com.example.cache.core.ds.CacheQueue;
+import com.example.cache.core.storage.CacheStorageFactory;
+import com.example.cache.core.storage.StorageType;
+import com.example.cache.core.storage.ValueCompressor;
 import com.example.cache.metrics.CacheMetrics;
+import com.example.cache.nearcache.NearCache;
+import com.example.cache.nearcache.NearCacheInvalidator;
+import com.example.cache.persistence.PersistenceLog;
+import com.example.cache.persistence.PersistenceRecord;
+import com.example.cache.persistence.SnapshotPartition;
 import com.example.cache.util.SystemUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,11 +26,21 @@ import org.junit.jupiter.api.Timeout;
 import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @SuppressWarnings("unchecked")
@@ -71,33 +94,33 @@ public class SingleThreadedCacheCoreTest {
         putFuture.get();
 
         {
-            ArgumentCaptor<CacheOperation> cacheOperationCaptor = ArgumentCaptor.forClass(CacheOperation.class);
             assertEquals(1, cacheCore.size());
             verify(cacheMetrics, times(1)).incrementPuts();
-            verify(queue, times(1)).submit(cacheOperationCaptor.capture());
-
-            CacheOperation cacheOperation = cacheOperationCaptor.getValue();
-            assertEquals(TEST_KEY, cacheOperation.getKey());
-            assertEquals(CacheOperationType.PUT, cacheOperation.getType());
-            assertEquals(TEST_VALUE, cacheOperation.getEntry().getValue());
+            ArgumentCaptor<Long> expirationCaptor = ArgumentCaptor.forClass(Long.class);
+            verify(queue, times(1)).recordPut(eq(TEST_KEY), expirationCaptor.capture());
+            assertTrue(expirationCaptor.getValue() > System.currentTimeMillis());
         }
 
         CompletableFuture<String> getFuture = cacheCore.submitGet(TEST_KEY);
         String result = getFuture.get();
 
         {
-            ArgumentCaptor<CacheOperation> cacheOperationCaptor = ArgumentCaptor.forClass(CacheOperation.class);
             assertEquals(TEST_VALUE, result);
             verify(cacheMetrics, times(1)).incrementHits();
-            // 2 times, coz it was called once in the previous block as well
-            verify(queue, times(2)).submit(cacheOperationCaptor.capture());
-
-            CacheOperation cacheOperation = cacheOperationCaptor.getValue();
-            assertEquals(CacheOperationType.GET, cacheOperation.getType());
-            assertEquals(TEST_KEY, cacheOperation.getKey());
+            verify(queue, times(1)).recordRead(TEST_KEY);
         }
     }
 
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testPutAndGetBinaryValue() throws Exception {
+        mockForOwnerNode(TEST_KEY);
+        byte[] value = new byte[]{0, (byte) 0xC3, 0x28, (byte) 0xFF}; // not valid UTF-8
+
+        cacheCore.submitPutBytes(TEST_KEY, value, TTL).get();
+        assertArrayEquals(value, cacheCore.submitGetBytes(TEST_KEY).get());
+    }
+
     @Test
     @Timeout(value = 2, unit = TimeUnit.SECONDS)
     public void testGetCacheMiss() throws Exception {
@@ -124,12 +147,8 @@ public class SingleThreadedCacheCoreTest {
         deleteResult.get();
         assertEquals(0, cacheCore.size());
         verify(cacheMetrics, times(1)).incrementRemoves();
-        ArgumentCaptor<CacheOperation> cacheOperationCaptor = ArgumentCaptor.forClass(CacheOperation.class);
-        // 2 times, coz it must have been called at get as well
-        verify(queue, times(2)).submit(cacheOperationCaptor.capture());
-        CacheOperation cacheOperation = cacheOperationCaptor.getValue();
-        assertEquals(CacheOperationType.DELETE, cacheOperation.getType());
-        assertEquals(TEST_KEY, cacheOperation.getKey());
+        verify(queue, times(1)).recordPut(eq(TEST_KEY), anyLong());
+        verify(queue, times(1)).recordDelete(TEST_KEY);
     }
 
     @Test
@@ -147,6 +166,40 @@ public class SingleThreadedCacheCoreTest {
         assertEquals(1, cacheCore.size());
     }
 
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testBulkRemoveSkipsRoutingAndCacheQueue() throws Exception {
+        mockForOwnerNode(TEST_KEY, "key-2");
+        cacheCore.submitPut(TEST_KEY, TEST_VALUE, TTL).get();
+        cacheCore.submitPut("key-2", TEST_VALUE, TTL).get();
+        clearInvocations(queue, clusterService);
+
+        cacheCore.submitBulkRemove(List.of(TEST_KEY, "key-2", "missing-key")).get();
+
+        assertEquals(0, cacheCore.size());
+        verify(queue, never()).recordDelete(anyString());
+        verify(clusterService, never()).findOwnerNode(anyString());
+        verify(cacheMetrics, never()).incrementRemoves();
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testBulkExpireKeepsKeysWrittenAgainSinceTheCleanerPickedThem() throws Exception {
+        mockForOwnerNode(TEST_KEY, "key-2");
+        // a TTL of 0 expires right away, the cleaner picks both keys
+        cacheCore.submitPut(TEST_KEY, TEST_VALUE, 0).get();
+        cacheCore.submitPut("key-2", TEST_VALUE, 0).get();
+        // a client PUT is applied before the housekeeping task
+        cacheCore.submitPut(TEST_KEY, "newValue", TTL).get();
+        clearInvocations(queue);
+
+        cacheCore.submitBulkExpire(List.of(TEST_KEY, "key-2", "missing-key")).get();
+
+        assertEquals(1, cacheCore.size());
+        assertEquals("newValue", cacheCore.submitGet(TEST_KEY).get());
+        verify(queue, never()).recordDelete(anyString());
+    }
+
     // @Test
     // TODO: Fix this test case later
     public void testGetExpired() throws Exception {
@@ -178,7 +231,7 @@ public class SingleThreadedCacheCoreTest {
     // TODO: Test case failing, fix it later
     public void testRoutingWhenNotOwner() throws Exception {
         mockForNonOwnerNode(TEST_KEY);
-        doNothing().when(grpcClient).forwardPut(anyString(), anyString(), anyString(), anyLong(), any(CompletableFuture.class));
+        doNothing().when(grpcClient).forwardPut(anyString(), anyString(), any(byte[].class), anyLong(), any(CompletableFuture.class));
 
         cacheCore.submitPut(TEST_KEY, TEST_VALUE, TTL).get();
 
@@ -203,4 +256,485 @@ public class SingleThreadedCacheCoreTest {
 
     }
 
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testConcurrentReadServedOnCallerThread() throws Exception {
+        mockForOwnerNode(TEST_KEY);
+        CacheCoreConfig config = CacheCoreConfig.builder().concurrentReads(true).build();
+        SingleThreadedCacheCore concurrentReadCore = new SingleThreadedCacheCore("concurrent-read-worker", config,
+                queue, cacheMetrics, clusterService, grpcClient);
+
+        concurrentReadCore.submitPut(TEST_KEY, TEST_VALUE, TTL).get();
+
+        // no inbox hop for the read, the returned future is already completed
+        CompletableFuture<String> getFuture = concurrentReadCore.submitGet(TEST_KEY);
+        assertTrue(getFuture.isDone());
+        assertEquals(TEST_VALUE, getFuture.get());
+        verify(cacheMetrics, times(1)).incrementHits();
+
+        // access is recorded through the read buffer, and handed over to the CacheQueue by the worker thread
+        verify(queue, timeout(1000).times(1)).recordRead(TEST_KEY);
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testConcurrentReadMiss() throws Exception {
+        String nonExistentKey = "non-existent-key";
+        mockForOwnerNode(nonExistentKey);
+        CacheCoreConfig config = CacheCoreConfig.builder().concurrentReads(true).build();
+        SingleThreadedCacheCore concurrentReadCore = new SingleThreadedCacheCore("concurrent-read-worker", config,
+                queue, cacheMetrics, clusterService, grpcClient);
+
+        CompletableFuture<String> getFuture = concurrentReadCore.submitGet(nonExistentKey);
+        assertTrue(getFuture.isDone());
+        assertNull(getFuture.get());
+        verify(cacheMetrics, times(1)).incrementMisses();
+        verify(queue, never()).recordRead(anyString());
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testTryGetBytesOnlyReadsLocalKeysOfConcurrentReadCores() throws Exception {
+        mockForOwnerNode(TEST_KEY, "missing");
+        mockForNonOwnerNode("remote");
+        CacheCoreConfig config = CacheCoreConfig.builder().concurrentReads(true).build();
+        SingleThreadedCacheCore concurrentReadCore = new SingleThreadedCacheCore("concurrent-read-worker", config,
+                queue, cacheMetrics, clusterService, grpcClient);
+        concurrentReadCore.submitPut(TEST_KEY, TEST_VALUE, TTL).get();
+
+        assertArrayEquals(TEST_VALUE.getBytes(), concurrentReadCore.tryGetBytes(TEST_KEY));
+        assertNull(concurrentReadCore.tryGetBytes("missing"));
+        assertSame(IDistributedCache.NOT_READ_DIRECTLY, concurrentReadCore.tryGetBytes("remote"));
+        assertSame(IDistributedCache.NOT_READ_DIRECTLY, cacheCore.tryGetBytes(TEST_KEY));
+    }
+
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testMultiGetMergesLocalAndRemoteParts() throws Exception {
+        mockForOwnerNode("local-1", "local-2");
+        mockForNonOwnerNode("remote-1");
+        mockForNonOwnerNode("remote-2");
+        doAnswer(invocation -> {
+            CompletableFuture<Map<String, byte[]>> future = invocation.getArgument(3);
+            future.complete(Map.of("remote-1", "remote-value".getBytes()));
+            return null;
+        }).when(grpcClient).forwardMultiGet(eq("node-2-address"), anyList(), any(), any());
+
+        cacheCore.submitMultiPut(Map.of("local-1", "local-value".getBytes()), TTL).get();
+        Map<String, byte[]> values = cacheCore.submitMultiGet(List.of("local-1", "local-2", "remote-1", "remote-2")).get();
+
+        // remote keys of the same owner are sent in one batched call
+        verify(grpcClient, times(1)).forwardMultiGet(eq("node-2-address"), eq(List.of("remote-1", "remote-2")), any(), any());
+        verify(grpcClient, never()).forwardGet(anyString(), anyString(), any(), any(), any());
+        assertEquals(2, values.size());
+        assertArrayEquals("local-value".getBytes(), values.get("local-1"));
+        assertArrayEquals("remote-value".getBytes(), values.get("remote-1"));
+        assertFalse(values.containsKey("local-2"));
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testMultiDeleteFailsWhenOwnerAddressIsMissing() throws Exception {
+        mockForOwnerNode(TEST_KEY);
+        when(clusterService.findOwnerNode("remote-1")).thenReturn("node-3");
+
+        CompletableFuture<Void> future = cacheCore.submitMultiDelete(List.of(TEST_KEY, "remote-1"));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+        assertTrue(exception.getCause().getMessage().contains("node-3"));
+        verify(grpcClient, never()).forwardMultiDelete(anyString(), anyList(), any(), any());
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testConcurrentGetsAreCoalescedIntoOneForward() throws Exception {
+        mockForNonOwnerNode(TEST_KEY);
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(cacheCore.submitGet(TEST_KEY));
+        }
+
+        ArgumentCaptor<CompletableFuture<byte[]>> forwarded = ArgumentCaptor.forClass(CompletableFuture.class);
+        verify(grpcClient, timeout(1000).times(1)).forwardGet(eq("node-2-address"), eq(TEST_KEY), isNull(), any(),
+                forwarded.capture());
+        verify(cacheMetrics, times(9)).incrementCoalescedGets();
+
+        forwarded.getValue().complete(TEST_VALUE.getBytes());
+        for (CompletableFuture<String> future : futures) {
+            assertEquals(TEST_VALUE, future.get());
+        }
+
+        // the in-flight entry is gone once completed, the next GET is forwarded again
+        cacheCore.submitGet(TEST_KEY);
+        verify(grpcClient, timeout(1000).times(2)).forwardGet(eq("node-2-address"), eq(TEST_KEY), isNull(), any(), any());
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testGetAfterWriteDoesNotJoinEarlierGet() throws Exception {
+        mockForNonOwnerNode(TEST_KEY);
+
+        cacheCore.submitGet(TEST_KEY);
+        cacheCore.submitPut(TEST_KEY, TEST_VALUE, TTL);
+        cacheCore.submitGet(TEST_KEY);
+
+        verify(grpcClient, timeout(1000).times(2)).forwardGet(eq("node-2-address"), eq(TEST_KEY), isNull(), any(), any());
+        verify(cacheMetrics, never()).incrementCoalescedGets();
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testGetAfterBatchWriteDoesNotJoinEarlierGet() throws Exception {
+        mockForNonOwnerNode(TEST_KEY);
+
+        cacheCore.submitGet(TEST_KEY);
+        cacheCore.submitMultiPut(Map.of(TEST_KEY, TEST_VALUE.getBytes()), TTL);
+        cacheCore.submitGet(TEST_KEY);
+        cacheCore.submitMultiDelete(List.of(TEST_KEY));
+        cacheCore.submitGet(TEST_KEY);
+
+        verify(grpcClient, timeout(1000).times(3)).forwardGet(eq("node-2-address"), eq(TEST_KEY), isNull(), any(), any());
+        verify(cacheMetrics, never()).incrementCoalescedGets();
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testRemoteGetIsServedFromNearCache() throws Exception {
+        mockForNonOwnerNode(TEST_KEY);
+        NearCache nearCache = new NearCache(100, 60_000, cacheMetrics);
+        cacheCore = new SingleThreadedCacheCore("near-cache-worker-thread", CacheCoreConfig.defaults(),
+                CacheStorageFactory.heap(), nearCache, null, null, queue, cacheMetrics, clusterService, grpcClient);
+        doAnswer(invocation -> {
+            CompletableFuture<byte[]> future = invocation.getArgument(4);
+            future.complete(TEST_VALUE.getBytes());
+            return null;
+        }).when(grpcClient).forwardGet(eq("node-2-address"), eq(TEST_KEY), eq(LOCAL_NODE_ID), any(), any());
+
+        assertEquals(TEST_VALUE, cacheCore.submitGet(TEST_KEY).get());
+        assertEquals(TEST_VALUE, cacheCore.submitGet(TEST_KEY).get());
+        verify(grpcClient, times(1)).forwardGet(eq("node-2-address"), eq(TEST_KEY), eq(LOCAL_NODE_ID), any(), any());
+        verify(cacheMetrics, times(1)).incrementNearCacheHits();
+
+        // a local write drops the near cache copy, the next GET goes to the owner again
+        cacheCore.submitPut(TEST_KEY, "newValue", TTL);
+        assertEquals(TEST_VALUE, cacheCore.submitGet(TEST_KEY).get());
+        verify(grpcClient, times(2)).forwardGet(eq("node-2-address"), eq(TEST_KEY), eq(LOCAL_NODE_ID), any(), any());
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testLocalChangesArePublishedToNearCaches() throws Exception {
+        mockForOwnerNode(TEST_KEY);
+        NearCacheInvalidator invalidator = mock(NearCacheInvalidator.class);
+        cacheCore = new SingleThreadedCacheCore("near-cache-worker-thread", CacheCoreConfig.defaults(),
+                CacheStorageFactory.heap(), null, invalidator, null, queue, cacheMetrics, clusterService, grpcClient);
+
+        cacheCore.submitPut(TEST_KEY, TEST_VALUE, TTL).get();
+        cacheCore.submitGet(TEST_KEY).get();
+        cacheCore.submitDelete(TEST_KEY).get();
+
+        verify(invalidator, times(2)).onKeyChanged(TEST_KEY);
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testWritesAreAcknowledgedOnceDurable() throws Exception {
+        mockForOwnerNode(TEST_KEY);
+        PersistenceLog persistenceLog = mock(PersistenceLog.class);
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        when(persistenceLog.append(any())).thenReturn(durable);
+        cacheCore = new SingleThreadedCacheCore("persistent-worker-thread", CacheCoreConfig.defaults(),
+                CacheStorageFactory.heap(), null, null, persistenceLog, queue, cacheMetrics, clusterService, grpcClient);
+
+        CompletableFuture<Void> put = cacheCore.submitPut(TEST_KEY, TEST_VALUE, TTL);
+        ArgumentCaptor<PersistenceRecord> record = ArgumentCaptor.forClass(PersistenceRecord.class);
+        verify(persistenceLog, timeout(1000)).append(record.capture());
+        assertEquals(CacheOperationType.PUT, record.getValue().type());
+        assertEquals(TEST_KEY, record.getValue().key());
+        assertFalse(put.isDone());
+
+        durable.complete(null);
+        put.get();
+        assertEquals(TEST_VALUE, cacheCore.submitGet(TEST_KEY).get());
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testRestoreIsAppliedWithoutLogging() throws Exception {
+        mockForOwnerNode(TEST_KEY, "expired");
+        PersistenceLog persistenceLog = mock(PersistenceLog.class);
+        cacheCore = new SingleThreadedCacheCore("persistent-worker-thread", CacheCoreConfig.defaults(),
+                CacheStorageFactory.heap(), null, null, persistenceLog, queue, cacheMetrics, clusterService, grpcClient);
+        long now = SystemUtil.getCurrentTimeInSec();
+
+        cacheCore.submitRestore(PersistenceRecord.put(TEST_KEY, TEST_VALUE.getBytes(), now + TTL)).get();
+        cacheCore.submitRestore(PersistenceRecord.put("expired", TEST_VALUE.getBytes(), now - 1)).get();
+
+        assertEquals(1, cacheCore.size());
+        assertEquals(TEST_VALUE, cacheCore.submitGet(TEST_KEY).get());
+        verify(persistenceLog, never()).append(any());
+
+        cacheCore.submitRestore(PersistenceRecord.delete(TEST_KEY)).get();
+        assertEquals(0, cacheCore.size());
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testRestoreOfAnExpiredOverwriteRemovesTheOlderValue() throws Exception {
+        mockForOwnerNode(TEST_KEY);
+        long now = SystemUtil.getCurrentTimeInSec();
+        cacheCore.submitRestore(PersistenceRecord.put(TEST_KEY, "older".getBytes(), now + TTL)).get();
+
+        cacheCore.submitRestore(PersistenceRecord.put(TEST_KEY, TEST_VALUE.getBytes(), now - 1)).get();
+
+        assertEquals(0, cacheCore.size());
+        assertNull(cacheCore.submitGet(TEST_KEY).get());
+        verify(queue).recordDelete(TEST_KEY);
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testCaptureSkipsExpiredEntries() throws Exception {
+        mockForOwnerNode(TEST_KEY, "expired");
+        long now = SystemUtil.getCurrentTimeInSec();
+        cacheCore.submitRestoreAll(List.of(PersistenceRecord.put(TEST_KEY, TEST_VALUE.getBytes(), now + TTL))).get();
+        // a TTL of 0 expires right away, the entry stays in the storage until it is read or cleaned
+        cacheCore.submitPut("expired", TEST_VALUE, 0).get();
+        assertEquals(2, cacheCore.size());
+
+        List<CompletableFuture<SnapshotPartition>> partitions = cacheCore.submitCapture();
+        assertEquals(1, partitions.size());
+        SnapshotPartition partition = partitions.getFirst().get();
+        assertEquals(1, partition.size());
+        assertEquals(TEST_KEY, partition.key(0));
+        assertArrayEquals(TEST_VALUE.getBytes(), partition.value(0));
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testActiveExpirationRemovesExpiredKeysWithoutReads() throws Exception {
+        mockForOwnerNode(TEST_KEY, "expired-1", "expired-2");
+        CacheCoreConfig config = CacheCoreConfig.builder()
+                .activeExpiration(true)
+                .expirationCycleIntervalMillis(10)
+                .build();
+        cacheCore = new SingleThreadedCacheCore("active-expiration-worker", config, queue, cacheMetrics,
+                clusterService, grpcClient);
+
+        cacheCore.submitPut(TEST_KEY, TEST_VALUE, TTL).get();
+        // a TTL of 0 expires right away
+        cacheCore.submitPut("expired-1", TEST_VALUE, 0).get();
+        cacheCore.submitPut("expired-2", TEST_VALUE, 0).get();
+
+        verify(cacheMetrics, timeout(1000).times(2)).incrementTtlExpirations();
+        assertEquals(1, cacheCore.size());
+        assertEquals(TEST_VALUE, cacheCore.submitGet(TEST_KEY).get());
+        verify(queue, times(1)).recordDelete("expired-1");
+        verify(queue, times(1)).recordDelete("expired-2");
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testSampledEvictionKeepsStorageUnderMaximumEntries() throws Exception {
+        mockForOwnerNode("key-1", "key-2", "key-3", "key-4", "key-5");
+        CacheCoreConfig config = CacheCoreConfig.builder()
+                .sampledEviction(SampledEviction.LFU)
+                .maximumEntries(3)
+                .evictionSampleSize(64)
+                .build();
+        cacheCore = new SingleThreadedCacheCore("sampled-eviction-worker", config, queue, cacheMetrics,
+                clusterService, grpcClient);
+
+        cacheCore.submitPut("key-1", TEST_VALUE, TTL).get();
+        // accessed keys get a higher counter than the new ones, they are never the victim
+        assertEquals(TEST_VALUE, cacheCore.submitGet("key-1").get());
+        for (int i = 2; i <= 5; i++) {
+            cacheCore.submitPut("key-" + i, TEST_VALUE, TTL).get();
+        }
+
+        assertEquals(3, cacheCore.size());
+        assertEquals(TEST_VALUE, cacheCore.submitGet("key-1").get());
+        verify(cacheMetrics, times(2)).incrementEvictions();
+        verify(queue, times(2)).recordDelete(anyString());
+        // reads only update the entry, there is no eviction strategy to feed
+        verify(queue, never()).recordRead(anyString());
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testCompressedValuesArePassedThrough() throws Exception {
+        mockForOwnerNode(TEST_KEY, "missing");
+        PersistenceLog persistenceLog = mock(PersistenceLog.class);
+        when(persistenceLog.append(any())).thenReturn(CompletableFuture.completedFuture(null));
+        ValueCompressor compressor = new ValueCompressor(64, new CacheMetrics());
+        cacheCore = new SingleThreadedCacheCore("compressing-worker-thread", CacheCoreConfig.defaults(),
+                new CacheStorageFactory(StorageType.HEAP, null, compressor), null, null, persistenceLog, queue,
+                cacheMetrics, clusterService, grpcClient);
+        byte[] value = TEST_VALUE.repeat(50).getBytes();
+        byte[] compressed = compressor.compress(value);
+
+        cacheCore.submitPutCompressed(TEST_KEY, compressed, TTL).get();
+
+        CacheEntry stored = cacheCore.submitGetStored(TEST_KEY).get();
+        assertTrue(stored.isCompressed());
+        assertArrayEquals(compressed, stored.getValue());
+        assertArrayEquals(value, cacheCore.submitGetBytes(TEST_KEY).get());
+        // the log keeps the plain value
+        ArgumentCaptor<PersistenceRecord> recordCaptor = ArgumentCaptor.forClass(PersistenceRecord.class);
+        verify(persistenceLog).append(recordCaptor.capture());
+        assertArrayEquals(value, recordCaptor.getValue().value());
+        assertNull(cacheCore.submitGetStored("missing").get());
+    }
+
+    /**
+     * Starts a core with an inbox of 2 tasks and parks its worker on a PUT of "slow" until the latch is released.
+     */
+    private void startOverloadableCore(AdmissionPolicy policy, long timeoutMillis, CountDownLatch release)
+            throws InterruptedException {
+        mockForOwnerNode("k1", "k2", "k3");
+        CountDownLatch started = new CountDownLatch(1);
+        when(clusterService.findOwnerNode("slow")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return LOCAL_NODE_ID;
+        });
+        CacheCoreConfig config = CacheCoreConfig.builder()
+                .queueCapacity(2)
+                .admissionPolicy(policy)
+                .admissionTimeoutMillis(timeoutMillis)
+                .build();
+        cacheCore = new SingleThreadedCacheCore("overloaded-worker", config, queue, cacheMetrics, clusterService,
+                grpcClient);
+        cacheCore.submitPut("slow", TEST_VALUE, TTL);
+        started.await();
+    }
+
+    private static void assertOverloaded(CompletableFuture<?> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof CacheOverloadedException);
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testRejectPolicyFailsFastWhenInboxIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        startOverloadableCore(AdmissionPolicy.REJECT, 0, release);
+        CompletableFuture<Void> first = cacheCore.submitPut("k1", TEST_VALUE, TTL);
+        CompletableFuture<Void> second = cacheCore.submitPut("k2", TEST_VALUE, TTL);
+
+        CompletableFuture<Void> rejected = cacheCore.submitPut("k3", TEST_VALUE, TTL);
+
+        assertTrue(rejected.isCompletedExceptionally());
+        assertOverloaded(rejected);
+        assertEquals(2, cacheCore.inboxSize());
+        verify(cacheMetrics).incrementRejectedTasks();
+        release.countDown();
+        first.get();
+        second.get();
+        assertNull(cacheCore.submitGet("k3").get());
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testBlockPolicyGivesUpAfterTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        startOverloadableCore(AdmissionPolicy.BLOCK, 50, release);
+        cacheCore.submitPut("k1", TEST_VALUE, TTL);
+        cacheCore.submitPut("k2", TEST_VALUE, TTL);
+
+        long startTime = System.nanoTime();
+        CompletableFuture<Void> rejected = cacheCore.submitPut("k3", TEST_VALUE, TTL);
+
+        assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertOverloaded(rejected);
+        verify(cacheMetrics).incrementRejectedTasks();
+        release.countDown();
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testShedOldestPolicyFailsOldestQueuedTask() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        startOverloadableCore(AdmissionPolicy.SHED_OLDEST, 2000, release);
+        CompletableFuture<Void> oldest = cacheCore.submitPut("k1", TEST_VALUE, TTL);
+        CompletableFuture<Void> second = cacheCore.submitPut("k2", TEST_VALUE, TTL);
+
+        CompletableFuture<CompletableFuture<Void>> newest = CompletableFuture.supplyAsync(
+                () -> cacheCore.submitPut("k3", TEST_VALUE, TTL));
+        // let the producer find the inbox full before the worker resumes
+        Thread.sleep(200);
+        release.countDown();
+
+        newest.get().get();
+        second.get();
+        assertOverloaded(oldest);
+        verify(cacheMetrics).incrementShedTasks();
+        verify(cacheMetrics, never()).incrementRejectedTasks();
+        assertNull(cacheCore.submitGet("k1").get());
+        assertEquals(TEST_VALUE, cacheCore.submitGet("k3").get());
+    }
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.SECONDS)
+    public void testTaskIsSkippedOnceItsDeadlinePassed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        startOverloadableCore(AdmissionPolicy.BLOCK, 100, release);
+        CompletableFuture<Void> expired = cacheCore.submitPut("k1", TEST_VALUE, TTL,
+                RequestOptions.withTimeout(10, TimeUnit.MILLISECONDS));
+        CompletableFuture<Void> unbounded = cacheCore.submitPut("k2", TEST_VALUE, TTL);
+
+        Thread.sleep(50);
+        release.countDown();
+
+        ExecutionException e = assertThrows(ExecutionException.class, expired::get);
+        assertTrue(e.getCause() instanceof CacheDeadlineExceededException);
+        unbounded.get();
+        verify(cacheMetrics).incrementDeadlineExceededTasks();
+        assertNull(cacheCore.submitGet("k1").get());
+        assertEquals(TEST_VALUE, cacheCore.submitGet("k2").get());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testClientLaneIsNotDelayedByHousekeepingBacklog() throws Exception {
+        mockForOwnerNode(TEST_KEY);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(clusterService.findOwnerNode("slow")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return LOCAL_NODE_ID;
+        });
+        CacheCoreConfig config = CacheCoreConfig.builder()
+                .queueCapacity(1024)
+                .drainBatchSize(7)
+                .build();
+        cacheCore = new SingleThreadedCacheCore("lanes-worker", config, queue, cacheMetrics, clusterService,
+                grpcClient);
+        cacheCore.submitPut("slow", TEST_VALUE, TTL);
+        started.await();
+
+        List<CompletableFuture<Void>> expiryDeletes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String key = "expired-" + i;
+            when(clusterService.findOwnerNode(key)).thenReturn(LOCAL_NODE_ID);
+            expiryDeletes.add(cacheCore.submitDelete(key, RequestOptions.HOUSEKEEPING));
+        }
+        CompletableFuture<String> get = cacheCore.submitGet(TEST_KEY);
+        assertEquals(500, cacheCore.inboxSize(Lane.HOUSEKEEPING));
+        assertEquals(1, cacheCore.inboxSize(Lane.CLIENT));
+        // runs on the worker thread, when the GET completes
+        CompletableFuture<Long> deletesDoneBeforeGet = get.thenApply(value ->
+                expiryDeletes.stream().filter(CompletableFuture::isDone).count());
+        release.countDown();
+
+        assertNull(get.get());
+        // the worker drains 4 client tasks, 2 peer tasks and 1 housekeeping task per round
+        assertTrue(deletesDoneBeforeGet.get() <= 2);
+        CompletableFuture.allOf(expiryDeletes.toArray(new CompletableFuture[0])).get();
+        verify(cacheMetrics, times(500)).recordLaneWait(eq(Lane.HOUSEKEEPING), anyLong());
+        verify(cacheMetrics, times(2)).recordLaneWait(eq(Lane.CLIENT), anyLong());
+    }
 }
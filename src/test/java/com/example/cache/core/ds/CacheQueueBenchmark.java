@@ -0,0 +1,262 @@
+package com.example.cache.core.ds;
+
+import com.example.cache.core.domain.CacheOperationType;
+import com.example.cache.metrics.CacheMetrics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cost per recorded event of the previous CacheQueue (an operation object and an Instant per event, offered to a
+ * LinkedBlockingQueue) and of the read/write buffers: producer CPU time and bytes allocated per event (waits for a
+ * full write buffer included), and the fraction of the reads and of the writes that reached the consumer. Producers
+ * record one PUT for every 9 reads, a cleaner drains concurrently.
+ * <p>
+ * Two scenarios: <i>saturated</i>, the producers do nothing but record, far more events than any single consumer
+ * drains, the read buffer has to drop most reads; <i>paced</i>, each event follows some simulated request work, as
+ * when the core worker records it, the consumer keeps up. The CPU time of a run without any channel is subtracted so
+ * only the recording is counted.
+ * <p>
+ * Skipped in the regular build, run with: {@code mvn test -Dtest=CacheQueueBenchmark -Dbenchmark=true}
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class CacheQueueBenchmark {
+
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS_PER_PRODUCER = 5_000_000;
+    private static final int PACED_EVENTS_PER_PRODUCER = 1_000_000;
+    // rounds of xorshift per event in the paced scenario, a few hundred nanoseconds
+    private static final int WORK_PER_EVENT = 200;
+    private static final int KEYS = 1024;
+
+    private interface EventChannel {
+        void recordRead(String key);
+
+        void recordPut(String key, long expirationTimeMillis);
+
+        /**
+         * Waits up to 100ms for events and hands them over to the consumer.
+         *
+         * @param delivered Incremented by the number of reads at 0, of writes at 1.
+         * @return Number of events handed over.
+         */
+        int drain(long[] delivered);
+    }
+
+    private static final class NoChannel implements EventChannel {
+        @Override
+        public void recordRead(String key) {
+        }
+
+        @Override
+        public void recordPut(String key, long expirationTimeMillis) {
+        }
+
+        @Override
+        public int drain(long[] delivered) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            return 0;
+        }
+    }
+
+    private record Operation(CacheOperationType type, String key, long expirationTimeMillis, Instant timestamp) {
+    }
+
+    /**
+     * Previous implementation: bounded LinkedBlockingQueue, events are dropped once it is full.
+     */
+    private static final class BlockingQueueChannel implements EventChannel {
+        private final BlockingQueue<Operation> queue;
+
+        private BlockingQueueChannel(int capacity) {
+            this.queue = new LinkedBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void recordRead(String key) {
+            queue.offer(new Operation(CacheOperationType.GET, key, 0, Instant.now()));
+        }
+
+        @Override
+        public void recordPut(String key, long expirationTimeMillis) {
+            queue.offer(new Operation(CacheOperationType.PUT, key, expirationTimeMillis, Instant.now()));
+        }
+
+        @Override
+        public int drain(long[] delivered) {
+            try {
+                Operation operation = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (operation == null) {
+                    return 0;
+                }
+                delivered[operation.type() == CacheOperationType.GET ? 0 : 1]++;
+                return 1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+    }
+
+    private static final class CacheQueueChannel implements EventChannel {
+        private final CacheQueue cacheQueue;
+
+        private CacheQueueChannel(int readBufferStripeCapacity) {
+            this.cacheQueue = new CacheQueue(16, readBufferStripeCapacity, 65536, new CacheMetrics());
+        }
+
+        @Override
+        public void recordRead(String key) {
+            cacheQueue.recordRead(key);
+        }
+
+        @Override
+        public void recordPut(String key, long expirationTimeMillis) {
+            cacheQueue.recordPut(key, expirationTimeMillis);
+        }
+
+        @Override
+        public int drain(long[] delivered) {
+            return cacheQueue.drain(100, TimeUnit.MILLISECONDS, (type, key, expirationTimeMillis) ->
+                    delivered[type == CacheOperationType.GET ? 0 : 1]++);
+        }
+    }
+
+    @Test
+    public void benchmarkCacheQueue() throws Exception {
+        String[] keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "key-" + i;
+        }
+        // first round of each one is a warm-up
+        run("saturated", "none (warm-up)", new NoChannel(), keys, EVENTS_PER_PRODUCER, 0, 0);
+        run("saturated", "LinkedBlockingQueue(10) (warm-up)", new BlockingQueueChannel(10), keys,
+                EVENTS_PER_PRODUCER, 0, 0);
+        run("saturated", "CacheQueue(16x1024) (warm-up)", new CacheQueueChannel(1024), keys, EVENTS_PER_PRODUCER, 0, 0);
+
+        long baselineNanos = run("saturated", "none", new NoChannel(), keys, EVENTS_PER_PRODUCER, 0, 0);
+        run("saturated", "LinkedBlockingQueue(10)", new BlockingQueueChannel(10), keys, EVENTS_PER_PRODUCER, 0,
+                baselineNanos);
+        run("saturated", "LinkedBlockingQueue(65536)", new BlockingQueueChannel(65536), keys, EVENTS_PER_PRODUCER, 0,
+                baselineNanos);
+        run("saturated", "CacheQueue(16x1024)", new CacheQueueChannel(1024), keys, EVENTS_PER_PRODUCER, 0,
+                baselineNanos);
+        run("saturated", "CacheQueue(16x4096)", new CacheQueueChannel(4096), keys, EVENTS_PER_PRODUCER, 0,
+                baselineNanos);
+
+        baselineNanos = run("paced", "none", new NoChannel(), keys, PACED_EVENTS_PER_PRODUCER, WORK_PER_EVENT, 0);
+        run("paced", "LinkedBlockingQueue(10)", new BlockingQueueChannel(10), keys, PACED_EVENTS_PER_PRODUCER,
+                WORK_PER_EVENT, baselineNanos);
+        run("paced", "LinkedBlockingQueue(65536)", new BlockingQueueChannel(65536), keys, PACED_EVENTS_PER_PRODUCER,
+                WORK_PER_EVENT, baselineNanos);
+        run("paced", "CacheQueue(16x1024)", new CacheQueueChannel(1024), keys, PACED_EVENTS_PER_PRODUCER,
+                WORK_PER_EVENT, baselineNanos);
+        run("paced", "CacheQueue(16x4096)", new CacheQueueChannel(4096), keys, PACED_EVENTS_PER_PRODUCER,
+                WORK_PER_EVENT, baselineNanos);
+    }
+
+    /**
+     * @param baselineNanos Producer CPU time of the same scenario without a channel, subtracted from the reported one.
+     * @return Producer CPU time of the run.
+     */
+    private long run(String scenario, String name, EventChannel channel, String[] keys, int eventsPerProducer,
+                     int workPerEvent, long baselineNanos) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] producerNanos = new long[PRODUCERS];
+        long[] producerBytes = new long[PRODUCERS];
+        long[] work = new long[PRODUCERS];
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            producers[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long threadId = Thread.currentThread().threadId();
+                long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+                long cpuBefore = threads.getThreadCpuTime(threadId);
+                long state = producer + 1;
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    for (int w = 0; w < workPerEvent; w++) {
+                        state ^= state << 13;
+                        state ^= state >>> 7;
+                        state ^= state << 17;
+                    }
+                    String key = keys[(i * 31 + producer) & (KEYS - 1)];
+                    if (i % 10 == 0) {
+                        channel.recordPut(key, i);
+                    } else {
+                        channel.recordRead(key);
+                    }
+                }
+                producerNanos[producer] = threads.getThreadCpuTime(threadId) - cpuBefore;
+                producerBytes[producer] = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+                // keeps the simulated work from being optimized away
+                work[producer] = state;
+            });
+            producers[p].start();
+        }
+
+        AtomicBoolean producing = new AtomicBoolean(true);
+        long[] delivered = new long[2];
+        long[] consumerNanos = new long[1];
+        Thread consumer = new Thread(() -> {
+            long cpuBefore = threads.getThreadCpuTime(Thread.currentThread().threadId());
+            while (producing.get()) {
+                channel.drain(delivered);
+            }
+            // whatever is left once the producers are done
+            while (channel.drain(delivered) > 0) {
+                // keep draining
+            }
+            consumerNanos[0] = threads.getThreadCpuTime(Thread.currentThread().threadId()) - cpuBefore;
+        });
+        consumer.start();
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        producing.set(false);
+        consumer.join();
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        long totalEvents = (long) PRODUCERS * eventsPerProducer;
+        long totalWrites = (long) PRODUCERS * ((eventsPerProducer + 9) / 10);
+        long totalReads = totalEvents - totalWrites;
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (int p = 0; p < PRODUCERS; p++) {
+            totalNanos += producerNanos[p];
+            totalBytes += producerBytes[p];
+        }
+        System.out.printf("[CacheQueueBenchmark] [scenario=%s] [channel=%s] [cpuNanos/event=%.1f] "
+                        + "[bytes/event=%.1f] [readsDelivered=%.1f%%] [writesDelivered=%.1f%%] "
+                        + "[consumerNanos/delivered=%.1f] [elapsedMillis=%d] [work=%x]%n",
+                scenario,
+                name,
+                (double) Math.max(0, totalNanos - baselineNanos) / totalEvents,
+                (double) totalBytes / totalEvents,
+                totalReads == 0 ? 0 : 100.0 * delivered[0] / totalReads,
+                100.0 * delivered[1] / totalWrites,
+                (double) consumerNanos[0] / Math.max(1, delivered[0] + delivered[1]),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                work[0] & 0xF);
+        return totalNanos;
+    }
+}
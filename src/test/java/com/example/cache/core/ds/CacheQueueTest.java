@@ -1,100 +1,151 @@
 package com.example.cache.core.ds;
 
-import com.example.cache.core.domain.CacheOperation;
 import com.example.cache.core.domain.CacheOperationType;
 import com.example.cache.metrics.CacheMetrics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 public class CacheQueueTest {
 
+    private CacheMetrics cacheMetrics;
     private CacheQueue cacheQueue;
 
+    private record Event(CacheOperationType type, String key, long expirationTimeMillis) {
+    }
+
     @BeforeEach
     public void setup() {
-        CacheMetrics cacheMetrics = new CacheMetrics();
-        cacheQueue = new CacheQueue(100, cacheMetrics);
+        cacheMetrics = new CacheMetrics();
+        cacheQueue = new CacheQueue(1, 4, 4, cacheMetrics);
+    }
+
+    private List<Event> drain(long timeoutMillis) {
+        List<Event> events = new ArrayList<>();
+        cacheQueue.drain(timeoutMillis, TimeUnit.MILLISECONDS,
+                (type, key, expirationTimeMillis) -> events.add(new Event(type, key, expirationTimeMillis)));
+        return events;
     }
 
     @Test
-    public void testQueueInsertionSingleOperation() {
-        String key = "testKey";
-        cacheQueue.submit(CacheOperation.of(CacheOperationType.PUT, key));
+    public void testRecordedEventsAreCounted() {
+        cacheQueue.recordPut("putKey", 1000);
+        cacheQueue.recordRead("getKey");
+        cacheQueue.recordDelete("deleteKey");
 
-        Assertions.assertEquals(1, cacheQueue.size());
+        Assertions.assertEquals(3, cacheQueue.size());
     }
 
     @Test
-    public void testQueueInsertionMultipleOperation() {
-        String[] keys = new String[]{"putKey", "getKey", "deleteKey"};
-        cacheQueue.submit(CacheOperation.of(CacheOperationType.PUT, keys[0]));
-        cacheQueue.submit(CacheOperation.of(CacheOperationType.GET, keys[1]));
-        cacheQueue.submit(CacheOperation.of(CacheOperationType.DELETE, keys[2]));
+    public void testDrainHandsOverReadsFirstThenWritesInOrder() {
+        cacheQueue.recordPut("key1", 1000);
+        cacheQueue.recordRead("key1");
+        cacheQueue.recordDelete("key1");
+        cacheQueue.recordPut("key2", 2000);
 
-        Assertions.assertEquals(3, cacheQueue.size());
+        List<Event> events = drain(100);
+
+        Assertions.assertEquals(List.of(
+                new Event(CacheOperationType.GET, "key1", 0),
+                new Event(CacheOperationType.PUT, "key1", 1000),
+                new Event(CacheOperationType.DELETE, "key1", 0),
+                new Event(CacheOperationType.PUT, "key2", 2000)), events);
+        Assertions.assertEquals(0, cacheQueue.size());
+    }
+
+    @Test
+    public void testDrainForEmptyQueueWaitsForTimeout() {
+        long startTime = System.nanoTime();
+        Assertions.assertTrue(drain(50).isEmpty());
+        Assertions.assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+
+    @Test
+    public void testDrainKeepsWaitingAfterAnEarlyWakeUp() {
+        // a permit left over from an earlier unpark ends the first park right away
+        LockSupport.unpark(Thread.currentThread());
+        long startTime = System.nanoTime();
+        Assertions.assertTrue(drain(50).isEmpty());
+        Assertions.assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(50));
     }
 
     @Test
-    public void testQueuePollWithMultipleEntriesUntillEmpty() {
-        String[] keys = new String[]{"putKey", "getKey", "deleteKey"};
-        cacheQueue.submit(CacheOperation.of(CacheOperationType.PUT, keys[0]));
-        cacheQueue.submit(CacheOperation.of(CacheOperationType.GET, keys[1]));
-        cacheQueue.submit(CacheOperation.of(CacheOperationType.DELETE, keys[2]));
-
-        {
-            Assertions.assertEquals(3, cacheQueue.size());
-            Optional<CacheOperation> operation = cacheQueue.poll(100, TimeUnit.MILLISECONDS);
-            Assertions.assertTrue(operation.isPresent());
-            Assertions.assertEquals(CacheOperationType.PUT, operation.get().getType());
-            Assertions.assertEquals(keys[0], operation.get().getKey());
-            Assertions.assertEquals(2, cacheQueue.size());
+    public void testReadsAreDroppedWhenStripeIsFull() {
+        for (int i = 0; i < 6; i++) {
+            cacheQueue.recordRead("key" + i);
         }
-        {
-            Assertions.assertEquals(2, cacheQueue.size());
-            Optional<CacheOperation> operation = cacheQueue.poll(100, TimeUnit.MILLISECONDS);
-            Assertions.assertTrue(operation.isPresent());
-            Assertions.assertEquals(CacheOperationType.GET, operation.get().getType());
-            Assertions.assertEquals(keys[1], operation.get().getKey());
-            Assertions.assertEquals(1, cacheQueue.size());
+
+        Assertions.assertEquals(4, drain(0).size());
+        Assertions.assertEquals(2, cacheMetrics.getDroppedOperations());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testWriterWaitsForTheCleanerWhenWriteBufferIsFull() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            cacheQueue.recordPut("key" + i, i);
         }
-        {
-            Assertions.assertEquals(1, cacheQueue.size());
-            Optional<CacheOperation> operation = cacheQueue.poll(100, TimeUnit.MILLISECONDS);
-            Assertions.assertTrue(operation.isPresent());
-            Assertions.assertEquals(CacheOperationType.DELETE, operation.get().getType());
-            Assertions.assertEquals(keys[2], operation.get().getKey());
-            Assertions.assertEquals(0, cacheQueue.size());
+        Thread producer = new Thread(() -> {
+            for (int i = 4; i < 6; i++) {
+                cacheQueue.recordPut("key" + i, i);
+            }
+            cacheQueue.recordDelete("key0");
+        });
+        producer.start();
+        while (cacheMetrics.getBlockedWrites() == 0) {
+            Thread.onSpinWait();
         }
+
+        List<Event> events = new ArrayList<>();
+        while (events.size() < 7) {
+            events.addAll(drain(100));
+        }
+        producer.join();
+
+        for (int i = 0; i < 6; i++) {
+            Assertions.assertEquals(new Event(CacheOperationType.PUT, "key" + i, i), events.get(i));
+        }
+        Assertions.assertEquals(new Event(CacheOperationType.DELETE, "key0", 0), events.get(6));
+        Assertions.assertEquals(0, cacheMetrics.getDroppedOperations());
     }
 
     @Test
-    public void testQueuePollBeyondEmptyWithSingleEntry() {
-        String key = "testKey";
-        cacheQueue.submit(CacheOperation.of(CacheOperationType.PUT, key));
-
-        {
-            Assertions.assertEquals(1, cacheQueue.size());
-            Optional<CacheOperation> operation = cacheQueue.poll(100, TimeUnit.MILLISECONDS);
-            Assertions.assertTrue(operation.isPresent());
-            Assertions.assertEquals(CacheOperationType.PUT, operation.get().getType());
-            Assertions.assertEquals(key, operation.get().getKey());
-            Assertions.assertEquals(0, cacheQueue.size());
-        }
-        {
-            Assertions.assertEquals(0, cacheQueue.size());
-            Optional<CacheOperation> operation = cacheQueue.poll(100, TimeUnit.MILLISECONDS);
-            Assertions.assertTrue(operation.isEmpty());
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testInterruptedWriterGivesUpOnFullWriteBuffer() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            cacheQueue.recordPut("key" + i, i);
         }
+        Thread producer = new Thread(() -> cacheQueue.recordPut("key4", 4));
+        producer.start();
+        producer.interrupt();
+        producer.join();
+
+        Assertions.assertEquals(4, drain(0).size());
+        Assertions.assertEquals(1, cacheMetrics.getDroppedOperations());
     }
 
     @Test
-    public void testQueuePollForEmptyQueue() {
-        Assertions.assertEquals(0, cacheQueue.size());
-        Optional<CacheOperation> operation = cacheQueue.poll(100, TimeUnit.MILLISECONDS);
-        Assertions.assertTrue(operation.isEmpty());
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testWriteWakesUpWaitingConsumer() throws Exception {
+        CountDownLatch drained = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            if (!drain(10_000).isEmpty()) {
+                drained.countDown();
+            }
+        });
+        consumer.start();
+        Thread.sleep(50);
+
+        cacheQueue.recordPut("key", 1000);
+
+        Assertions.assertTrue(drained.await(1, TimeUnit.SECONDS));
+        consumer.join();
     }
 }
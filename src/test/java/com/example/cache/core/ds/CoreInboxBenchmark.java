@@ -0,0 +1,124 @@
+package com.example.cache.core.ds;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Compares the previous core inbox (LinkedBlockingQueue + take per task) with MpscRingBuffer (batched drain +
+ * spin-then-park). Reports throughput and p99 enqueue-to-execute latency.
+ * <p>
+ * Skipped in the regular build, run with: {@code mvn test -Dtest=CoreInboxBenchmark -Dbenchmark=true}
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class CoreInboxBenchmark {
+
+    private static final int PRODUCERS = 4;
+    private static final int TASKS_PER_PRODUCER = 1_000_000;
+    private static final int DRAIN_BATCH_SIZE = 256;
+
+    private interface Inbox {
+        void submit(long enqueueTime);
+
+        /**
+         * Consumes all tasks, returns the latency in nanos of every one of them.
+         */
+        long[] consume(int totalTasks) throws InterruptedException;
+    }
+
+    private static final class BlockingQueueInbox implements Inbox {
+        private final BlockingQueue<Long> queue = new LinkedBlockingQueue<>();
+
+        @Override
+        public void submit(long enqueueTime) {
+            queue.add(enqueueTime);
+        }
+
+        @Override
+        public long[] consume(int totalTasks) throws InterruptedException {
+            long[] latencies = new long[totalTasks];
+            for (int i = 0; i < totalTasks; i++) {
+                long enqueueTime = queue.take();
+                latencies[i] = System.nanoTime() - enqueueTime;
+            }
+            return latencies;
+        }
+    }
+
+    private static final class RingBufferInbox implements Inbox {
+        private final MpscRingBuffer<Long> ringBuffer = new MpscRingBuffer<>(65536);
+
+        @Override
+        public void submit(long enqueueTime) {
+            Long task = enqueueTime;
+            while (!ringBuffer.offer(task)) {
+                Thread.yield();
+            }
+        }
+
+        @Override
+        public long[] consume(int totalTasks) {
+            long[] latencies = new long[totalTasks];
+            int[] consumed = new int[1];
+            while (consumed[0] < totalTasks) {
+                int drained = ringBuffer.drain(enqueueTime -> latencies[consumed[0]++] = System.nanoTime() - enqueueTime,
+                        DRAIN_BATCH_SIZE);
+                if (drained == 0) {
+                    ringBuffer.await(1000, 0);
+                }
+            }
+            return latencies;
+        }
+    }
+
+    @Test
+    public void benchmarkCoreInbox() throws Exception {
+        // first round of each one is a warm-up
+        run("LinkedBlockingQueue (warm-up)", new BlockingQueueInbox());
+        run("MpscRingBuffer (warm-up)", new RingBufferInbox());
+        run("LinkedBlockingQueue", new BlockingQueueInbox());
+        run("MpscRingBuffer", new RingBufferInbox());
+    }
+
+    private void run(String name, Inbox inbox) throws Exception {
+        int totalTasks = PRODUCERS * TASKS_PER_PRODUCER;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            producers[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < TASKS_PER_PRODUCER; i++) {
+                    inbox.submit(System.nanoTime());
+                }
+            });
+            producers[p].start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        long[] latencies = inbox.consume(totalTasks);
+        long elapsed = System.nanoTime() - startTime;
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("[CoreInboxBenchmark] [inbox=%s] [ops/sec=%,.0f] [p50=%,d ns] [p99=%,d ns] [p99.9=%,d ns]%n",
+                name,
+                totalTasks / (elapsed / 1_000_000_000.0),
+                latencies[(int) (totalTasks * 0.50)],
+                latencies[(int) (totalTasks * 0.99)],
+                latencies[(int) (totalTasks * 0.999)]);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.cache.core.ds;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+import java.util.function.LongFunction;
+
+/**
+ * Compares TtlQueue (skip list of second buckets) with TimingWheel at 10M keys: schedule, reschedule of every key
+ * (a PUT overwriting a key) and expiration of all of them.
+ * <p>
+ * Skipped in the regular build, run with: {@code mvn test -Dtest=ExpirationTrackerBenchmark -Dbenchmark=true}
+ * (needs a few GB of heap, e.g. {@code -DargLine=-Xmx8g}).
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ExpirationTrackerBenchmark {
+
+    private static final int KEYS = 10_000_000;
+    private static final long START = 1_700_000_000_000L;
+    // TTLs spread over one hour
+    private static final long MAX_TTL_MILLIS = 3_600_000;
+
+    @Test
+    public void benchmarkExpirationTrackers() {
+        String[] keys = new String[KEYS];
+        long[] expirations = new long[KEYS];
+        long[] rescheduled = new long[KEYS];
+        Random random = new Random(42);
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "key-" + i;
+            expirations[i] = START + 1 + (long) (random.nextDouble() * MAX_TTL_MILLIS);
+            rescheduled[i] = START + 1 + (long) (random.nextDouble() * MAX_TTL_MILLIS);
+        }
+
+        run("TtlQueue", start -> new TtlQueue(), keys, expirations, rescheduled);
+        run("TimingWheel", start -> new TimingWheel(16, start), keys, expirations, rescheduled);
+    }
+
+    private void run(String name, LongFunction<IExpirationTracker> factory, String[] keys, long[] expirations,
+                     long[] rescheduled) {
+        System.gc();
+        IExpirationTracker tracker = factory.apply(START);
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < keys.length; i++) {
+            tracker.schedule(keys[i], expirations[i]);
+        }
+        long scheduleNanos = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < keys.length; i++) {
+            tracker.schedule(keys[i], rescheduled[i]);
+        }
+        long rescheduleNanos = System.nanoTime() - startTime;
+
+        // the cleaner advances the tracker every 100ms
+        startTime = System.nanoTime();
+        long expired = 0;
+        for (long now = START; now <= START + MAX_TTL_MILLIS + 1000; now += 100) {
+            expired += tracker.expire(now, key -> { });
+        }
+        long expireNanos = System.nanoTime() - startTime;
+
+        System.out.printf("[ExpirationTrackerBenchmark] [tracker=%s] [keys=%,d] [schedule=%,.0f ns/op] "
+                        + "[reschedule=%,.0f ns/op] [expire=%,.0f ns/key] [expired=%,d]%n",
+                name, keys.length, (double) scheduleNanos / keys.length, (double) rescheduleNanos / keys.length,
+                (double) expireNanos / keys.length, expired);
+    }
+}
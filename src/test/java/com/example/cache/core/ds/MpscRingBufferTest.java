@@ -0,0 +1,155 @@
+package com.example.cache.core.ds;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("unchecked")
+public class MpscRingBufferTest {
+
+    @Test
+    public void testCapacityIsRoundedToPowerOfTwo() {
+        Assertions.assertEquals(1, new MpscRingBuffer<String>(1).capacity());
+        Assertions.assertEquals(8, new MpscRingBuffer<String>(5).capacity());
+        Assertions.assertEquals(16, new MpscRingBuffer<String>(16).capacity());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<String>(0));
+    }
+
+    @Test
+    public void testOfferNullElement() {
+        MpscRingBuffer<String> ringBuffer = new MpscRingBuffer<>(4);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ringBuffer.offer(null));
+    }
+
+    @Test
+    public void testOfferUntilFull() {
+        MpscRingBuffer<String> ringBuffer = new MpscRingBuffer<>(4);
+        Assertions.assertTrue(ringBuffer.isEmpty());
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(ringBuffer.offer("element-" + i));
+        }
+        Assertions.assertFalse(ringBuffer.offer("element-4"));
+        Assertions.assertEquals(4, ringBuffer.size());
+        Assertions.assertFalse(ringBuffer.isEmpty());
+    }
+
+    @Test
+    public void testDrainInFifoOrderWithLimit() {
+        MpscRingBuffer<String> ringBuffer = new MpscRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            ringBuffer.offer("element-" + i);
+        }
+
+        List<String> drained = new ArrayList<>();
+        Assertions.assertEquals(3, ringBuffer.drain(drained::add, 3));
+        Assertions.assertEquals(List.of("element-0", "element-1", "element-2"), drained);
+        Assertions.assertEquals(2, ringBuffer.size());
+
+        Assertions.assertEquals(2, ringBuffer.drain(drained::add, 10));
+        Assertions.assertEquals("element-4", drained.get(4));
+        Assertions.assertTrue(ringBuffer.isEmpty());
+        Assertions.assertEquals(0, ringBuffer.drain(drained::add, 10));
+    }
+
+    @Test
+    public void testSlotsAreReusedAfterDrain() {
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(2);
+        List<Integer> drained = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(ringBuffer.offer(i));
+            Assertions.assertEquals(1, ringBuffer.drain(drained::add, 1));
+        }
+        Assertions.assertEquals(10, drained.size());
+        Assertions.assertEquals(9, drained.get(9));
+    }
+
+    @Test
+    public void testAwaitReturnsWhenElementIsAvailable() {
+        MpscRingBuffer<String> ringBuffer = new MpscRingBuffer<>(4);
+        ringBuffer.offer("element");
+        // element is already there, so await should not park at all
+        ringBuffer.await(0, 0);
+        Assertions.assertEquals(1, ringBuffer.size());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testAwaitAnyIsWokenUpByAnyBuffer() throws Exception {
+        MpscRingBuffer<?>[] buffers = {new MpscRingBuffer<String>(4), new MpscRingBuffer<String>(4)};
+        MpscRingBuffer<String> second = (MpscRingBuffer<String>) buffers[1];
+        CountDownLatch parked = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                parked.await();
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            second.offer("element");
+        });
+        producer.start();
+
+        long startTime = System.nanoTime();
+        parked.countDown();
+        // parks without a timeout, only the offer to the second buffer can wake it up (park may also return early on
+        // a permit left by a previous test, hence the loop)
+        while (second.isEmpty()) {
+            MpscRingBuffer.awaitAny(0, 0, buffers);
+        }
+
+        Assertions.assertEquals(1, second.size());
+        Assertions.assertTrue(buffers[0].isEmpty());
+        Assertions.assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(4));
+        producer.join();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void testMultipleProducersSingleConsumer() throws Exception {
+        int producers = 4;
+        int elementsPerProducer = 50_000;
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producerId = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < elementsPerProducer; i++) {
+                    while (!ringBuffer.offer(producerId * elementsPerProducer + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        Set<Integer> received = new HashSet<>();
+        start.countDown();
+        while (received.size() < producers * elementsPerProducer) {
+            if (ringBuffer.drain(received::add, 256) == 0) {
+                ringBuffer.await(100, TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertEquals(producers * elementsPerProducer, received.size());
+        Assertions.assertTrue(ringBuffer.isEmpty());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.cache.core.ds;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReadBufferTest {
+
+    @Test
+    public void testInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ReadBuffer<String>(0, 16));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ReadBuffer<String>(4, 0));
+    }
+
+    @Test
+    public void testOfferAndDrain() {
+        ReadBuffer<String> readBuffer = new ReadBuffer<>(4, 8);
+        Assertions.assertEquals(ReadBuffer.SUCCESS, readBuffer.offer("key1"));
+        Assertions.assertEquals(ReadBuffer.SUCCESS, readBuffer.offer("key2"));
+        Assertions.assertEquals(2, readBuffer.size());
+
+        List<String> drained = new ArrayList<>();
+        Assertions.assertEquals(2, readBuffer.drainTo(drained::add));
+        Assertions.assertEquals(List.of("key1", "key2"), drained);
+        Assertions.assertEquals(0, readBuffer.size());
+    }
+
+    @Test
+    public void testOfferWhenStripeIsFull() {
+        // single stripe, so that the calling thread always maps to the same stripe
+        ReadBuffer<String> readBuffer = new ReadBuffer<>(1, 2);
+        Assertions.assertEquals(ReadBuffer.SUCCESS, readBuffer.offer("key1"));
+        Assertions.assertEquals(ReadBuffer.SUCCESS, readBuffer.offer("key2"));
+        Assertions.assertEquals(ReadBuffer.FULL, readBuffer.offer("key3"));
+
+        List<String> drained = new ArrayList<>();
+        readBuffer.drainTo(drained::add);
+        Assertions.assertEquals(List.of("key1", "key2"), drained);
+
+        // slots are available again once drained
+        Assertions.assertEquals(ReadBuffer.SUCCESS, readBuffer.offer("key3"));
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void testConcurrentReadersNeverExceedCapacity() throws Exception {
+        ReadBuffer<Integer> readBuffer = new ReadBuffer<>(2, 16);
+        AtomicInteger recorded = new AtomicInteger();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread reader = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (readBuffer.offer(i) == ReadBuffer.SUCCESS) {
+                        recorded.incrementAndGet();
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        AtomicInteger drained = new AtomicInteger();
+        boolean alive = true;
+        while (alive) {
+            readBuffer.drainTo(e -> drained.incrementAndGet());
+            alive = readers.stream().anyMatch(Thread::isAlive);
+        }
+        // published but not yet drained elements are picked up by the last drain
+        readBuffer.drainTo(e -> drained.incrementAndGet());
+
+        Assertions.assertEquals(recorded.get(), drained.get());
+        Assertions.assertEquals(0, readBuffer.size());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.cache.core.ds;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    public void testTickIsRoundedToPowerOfTwo() {
+        Assertions.assertEquals(16, new TimingWheel(10, START).getTickMillis());
+        Assertions.assertEquals(1, new TimingWheel(1, START).getTickMillis());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TimingWheel(0, START));
+    }
+
+    @Test
+    public void testExpiresWithSubSecondResolution() {
+        TimingWheel timingWheel = new TimingWheel(16, START);
+        timingWheel.schedule("key-100", START + 100);
+        timingWheel.schedule("key-500", START + 500);
+        Assertions.assertEquals(2, timingWheel.trackedKeys());
+
+        List<String> expired = new ArrayList<>();
+        Assertions.assertEquals(0, timingWheel.expire(START + 50, expired::add));
+        Assertions.assertEquals(1, timingWheel.expire(START + 120, expired::add));
+        Assertions.assertEquals(List.of("key-100"), expired);
+        Assertions.assertEquals(1, timingWheel.expire(START + 520, expired::add));
+        Assertions.assertEquals(List.of("key-100", "key-500"), expired);
+        Assertions.assertEquals(0, timingWheel.trackedKeys());
+    }
+
+    @Test
+    public void testRescheduleAndCancel() {
+        TimingWheel timingWheel = new TimingWheel(16, START);
+        timingWheel.schedule("rescheduled", START + 100);
+        timingWheel.schedule("rescheduled", START + TimeUnit.MINUTES.toMillis(5));
+        timingWheel.schedule("cancelled", START + 100);
+        timingWheel.cancel("cancelled");
+        timingWheel.cancel("missing");
+        Assertions.assertEquals(1, timingWheel.trackedKeys());
+
+        List<String> expired = new ArrayList<>();
+        timingWheel.expire(START + TimeUnit.MINUTES.toMillis(4), expired::add);
+        Assertions.assertTrue(expired.isEmpty());
+        timingWheel.expire(START + TimeUnit.MINUTES.toMillis(5) + 20, expired::add);
+        Assertions.assertEquals(List.of("rescheduled"), expired);
+    }
+
+    @Test
+    public void testOverdueKeyExpiresOnNextTick() {
+        TimingWheel timingWheel = new TimingWheel(16, START);
+        timingWheel.expire(START + 1000, key -> { });
+        timingWheel.schedule("overdue", START + 10);
+
+        // picked up once the wheel moves to the next tick
+        List<String> expired = new ArrayList<>();
+        timingWheel.expire(START + 1000 + timingWheel.getTickMillis(), expired::add);
+        Assertions.assertEquals(List.of("overdue"), expired);
+    }
+
+    @Test
+    public void testKeysCascadeThroughAllLevels() {
+        TimingWheel timingWheel = new TimingWheel(16, START);
+        Random random = new Random(42);
+        long[] expirations = new long[2000];
+        for (int i = 0; i < expirations.length; i++) {
+            // from a few millis up to beyond the span of the top level (~200 days)
+            long delay = (long) Math.pow(10, 1 + random.nextDouble() * 9.5);
+            expirations[i] = START + delay;
+            timingWheel.schedule("key-" + i, expirations[i]);
+        }
+
+        long[] expiredAt = new long[expirations.length];
+        long now = START;
+        long end = START + (long) Math.pow(10, 10.5) + TimeUnit.DAYS.toMillis(300);
+        while (timingWheel.trackedKeys() > 0 && now < end) {
+            // irregular steps, with long pauses
+            now += random.nextInt(10) == 0 ? random.nextInt(10_000_000) : random.nextInt(50);
+            long time = now;
+            timingWheel.expire(time, key -> expiredAt[Integer.parseInt(key.substring(4))] = time);
+        }
+
+        Assertions.assertEquals(0, timingWheel.trackedKeys());
+        for (int i = 0; i < expirations.length; i++) {
+            Assertions.assertTrue(expiredAt[i] >= expirations[i], "key-" + i + " expired early");
+        }
+    }
+
+    @Test
+    public void testTtlQueueAsTracker() {
+        IExpirationTracker ttlQueue = new TtlQueue();
+        ttlQueue.schedule("key-1", 5_000);
+        ttlQueue.schedule("key-2", 7_000);
+        ttlQueue.schedule("key-3", 7_500);
+        ttlQueue.cancel("key-3");
+        Assertions.assertEquals(2, ttlQueue.trackedKeys());
+
+        List<String> expired = new ArrayList<>();
+        Assertions.assertEquals(1, ttlQueue.expire(6_000, expired::add));
+        Assertions.assertEquals(List.of("key-1"), expired);
+        Assertions.assertEquals(1, ttlQueue.trackedKeys());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.cache.core.ds;
+
+import com.example.cache.core.domain.CacheOperationType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class WriteBufferTest {
+
+    @Test
+    public void testInvalidCapacity() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new WriteBuffer(0));
+    }
+
+    @Test
+    public void testCapacityIsRoundedToPowerOfTwo() {
+        Assertions.assertEquals(8, new WriteBuffer(5).capacity());
+    }
+
+    @Test
+    public void testOfferFailsWhenFullAndSucceedsOnceDrained() {
+        WriteBuffer writeBuffer = new WriteBuffer(2);
+        Assertions.assertTrue(writeBuffer.offer(CacheOperationType.PUT, "key1", 1000));
+        Assertions.assertTrue(writeBuffer.offer(CacheOperationType.DELETE, "key2", 0));
+        Assertions.assertFalse(writeBuffer.offer(CacheOperationType.PUT, "key3", 3000));
+        Assertions.assertEquals(2, writeBuffer.size());
+
+        List<String> drained = new ArrayList<>();
+        Assertions.assertEquals(1, writeBuffer.drainTo((type, key, expirationTimeMillis) ->
+                drained.add(type + ":" + key + ":" + expirationTimeMillis), 1));
+        Assertions.assertEquals(List.of("PUT:key1:1000"), drained);
+
+        Assertions.assertTrue(writeBuffer.offer(CacheOperationType.PUT, "key3", 3000));
+        writeBuffer.drainTo((type, key, expirationTimeMillis) ->
+                drained.add(type + ":" + key + ":" + expirationTimeMillis), 10);
+        Assertions.assertEquals(List.of("PUT:key1:1000", "DELETE:key2:0", "PUT:key3:3000"), drained);
+        Assertions.assertTrue(writeBuffer.isEmpty());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void testConcurrentProducersLoseNothingAndKeepTheirOrder() throws Exception {
+        int producers = 4;
+        int eventsPerProducer = 50_000;
+        WriteBuffer writeBuffer = new WriteBuffer(64);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            String key = "producer-" + p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    while (!writeBuffer.offer(CacheOperationType.PUT, key, i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        long[] lastSequence = {-1, -1, -1, -1};
+        int[] received = new int[1];
+        while (received[0] < producers * eventsPerProducer) {
+            int drained = writeBuffer.drainTo((type, key, sequence) -> {
+                int producer = key.charAt(key.length() - 1) - '0';
+                Assertions.assertEquals(lastSequence[producer] + 1, sequence);
+                lastSequence[producer] = sequence;
+                received[0]++;
+            }, 256);
+            if (drained == 0) {
+                Thread.yield();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertTrue(writeBuffer.isEmpty());
+    }
+}
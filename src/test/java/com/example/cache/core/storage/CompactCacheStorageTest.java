@@ -0,0 +1,176 @@
+package com.example.cache.core.storage;
+
+import com.example.cache.core.domain.CacheEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+public class CompactCacheStorageTest {
+
+    private CompactCacheStorage storage;
+
+    @BeforeEach
+    public void setup() {
+        storage = new CompactCacheStorage();
+    }
+
+    private CacheEntry entry(String value, long expirationTime) {
+        byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        return CacheEntry.builder().value(bytes).creationTime(100).expirationTime(expirationTime).build();
+    }
+
+    @Test
+    public void testPutGetReplaceAndRemove() {
+        storage.put("nyckel", entry("värde", 160));
+        storage.put("null-value", entry(null, 170));
+
+        CacheEntry cacheEntry = storage.get("nyckel");
+        Assertions.assertEquals("värde", cacheEntry.getValueAsString());
+        Assertions.assertEquals(100, cacheEntry.getCreationTime());
+        Assertions.assertEquals(160, cacheEntry.getExpirationTime());
+        Assertions.assertNull(storage.get("null-value").getValue());
+        Assertions.assertNull(storage.get("missing"));
+
+        storage.put("nyckel", entry("other", 180));
+        Assertions.assertEquals(2, storage.size());
+        Assertions.assertEquals("other", storage.get("nyckel").getValueAsString());
+        Assertions.assertEquals(180, storage.get("nyckel").getExpirationTime());
+
+        Assertions.assertTrue(storage.remove("nyckel"));
+        Assertions.assertFalse(storage.remove("nyckel"));
+        Assertions.assertNull(storage.get("nyckel"));
+        Assertions.assertEquals(1, storage.size());
+        Assertions.assertEquals(CacheEntry.ENTRY_OVERHEAD_BYTES + "null-value".length(), storage.usedBytes());
+    }
+
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        // small key space, so that probe clusters, backward shifts and resizes interleave with removals
+        Random random = new Random(42);
+        Map<String, Long> expected = new HashMap<>();
+        boolean resized = false;
+        for (int i = 0; i < 200_000; i++) {
+            String key = "key-" + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals(expected.remove(key) != null, storage.remove(key));
+            } else {
+                long expirationTime = random.nextLong();
+                storage.put(key, entry(key, expirationTime));
+                expected.put(key, expirationTime);
+            }
+            resized |= storage.isResizing();
+            if (i % 1000 == 0) {
+                for (Map.Entry<String, Long> mapping : expected.entrySet()) {
+                    CacheEntry cacheEntry = storage.get(mapping.getKey());
+                    Assertions.assertNotNull(cacheEntry, mapping.getKey());
+                    Assertions.assertEquals(mapping.getValue(), cacheEntry.getExpirationTime());
+                    Assertions.assertEquals(mapping.getKey(), cacheEntry.getValueAsString());
+                }
+            }
+            Assertions.assertEquals(expected.size(), storage.size());
+        }
+        Assertions.assertTrue(resized);
+
+        Map<String, Long> visited = new HashMap<>();
+        storage.forEach((key, cacheEntry) -> visited.put(key, cacheEntry.getExpirationTime()));
+        Assertions.assertEquals(expected, visited);
+    }
+
+    @Test
+    public void testResizeIsIncremental() {
+        int capacity = storage.capacity();
+        for (int i = 0; i <= capacity * 3 / 4; i++) {
+            storage.put("key-" + i, entry("v", 160));
+        }
+        // the larger table is live, the previous one is drained by the following accesses
+        Assertions.assertEquals(capacity * 2, storage.capacity());
+        Assertions.assertTrue(storage.isResizing());
+
+        storage.put("another", entry("v", 160));
+        Assertions.assertFalse(storage.isResizing());
+        Assertions.assertEquals(capacity * 3 / 4 + 2, storage.size());
+        for (int i = 0; i <= capacity * 3 / 4; i++) {
+            Assertions.assertNotNull(storage.get("key-" + i));
+        }
+    }
+
+    @Test
+    public void testReadsDrainThePreviousTable() {
+        int capacity = storage.capacity();
+        for (int i = 0; i <= capacity * 3 / 4; i++) {
+            storage.put("key-" + i, entry("v", 160));
+        }
+        Assertions.assertTrue(storage.isResizing());
+
+        // no more writes, a read-mostly workload must not keep probing both tables forever
+        Assertions.assertNotNull(storage.get("key-0"));
+        Assertions.assertFalse(storage.isResizing());
+
+        for (int i = 0; i <= capacity * 3 / 4; i++) {
+            storage.put("other-" + i, entry("v", 160));
+        }
+        Assertions.assertTrue(storage.isResizing());
+        while (storage.isResizing()) {
+            Assertions.assertEquals(-1, storage.accessInfo("missing"));
+        }
+        for (int i = 0; i <= capacity * 3 / 4; i++) {
+            Assertions.assertNotNull(storage.get("key-" + i));
+            Assertions.assertNotNull(storage.get("other-" + i));
+        }
+    }
+
+    @Test
+    public void testRandomKey() {
+        SplittableRandom random = new SplittableRandom(42);
+        Assertions.assertNull(storage.randomKey(random));
+        for (int i = 0; i < 100; i++) {
+            storage.put("key-" + i, entry("v", 160));
+        }
+        for (int i = 0; i < 90; i++) {
+            storage.remove("key-" + i);
+        }
+        Set<String> picked = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            picked.add(storage.randomKey(random));
+        }
+        Assertions.assertEquals(10, picked.size());
+        picked.forEach(key -> Assertions.assertNotNull(storage.get(key)));
+    }
+
+    @Test
+    public void testFactoryRejectsConcurrentReads() {
+        CacheStorageFactory factory = new CacheStorageFactory(StorageType.fromProperty("compact"), null);
+        Assertions.assertInstanceOf(CompactCacheStorage.class, factory.create(false, true));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> factory.create(true));
+    }
+
+    @Test
+    public void testAccessInfoSurvivesResizeAndBackwardShift() {
+        for (int i = 0; i < 1000; i++) {
+            storage.put("key-" + i, CacheEntry.builder().value(new byte[]{1}).accessInfo(i).build());
+            // the first half of the keys get their metadata updated once, while the table may be migrating
+            if (i % 2 == 0) {
+                storage.updateAccessInfo("key-" + (i / 2), info -> info + 1_000_000);
+            }
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            storage.remove("key-" + i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            int expected = i % 3 == 0 ? -1 : (i < 500 ? i + 1_000_000 : i);
+            Assertions.assertEquals(expected, storage.accessInfo("key-" + i), "key-" + i);
+        }
+        Assertions.assertEquals(-1, storage.accessInfo("missing"));
+        storage.updateAccessInfo("missing", info -> 42);
+        Assertions.assertNull(storage.get("missing"));
+    }
+}
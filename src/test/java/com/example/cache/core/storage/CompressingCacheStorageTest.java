@@ -0,0 +1,96 @@
+package com.example.cache.core.storage;
+
+import com.example.cache.core.domain.CacheEntry;
+import com.example.cache.metrics.CacheMetrics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class CompressingCacheStorageTest {
+
+    private static final String JSON = "{\"id\":42,\"name\":\"compressible\",\"tags\":[\"a\",\"b\",\"c\"]}".repeat(20);
+
+    private CacheMetrics cacheMetrics;
+    private ValueCompressor compressor;
+    private ICacheStorage storage;
+
+    @BeforeEach
+    public void setup() {
+        cacheMetrics = new CacheMetrics();
+        compressor = new ValueCompressor(256, cacheMetrics);
+        storage = new CacheStorageFactory(StorageType.HEAP, null, compressor).create(false);
+    }
+
+    private CacheEntry entry(byte[] value) {
+        return CacheEntry.builder().value(value).creationTime(100).expirationTime(160).build();
+    }
+
+    @Test
+    public void testLargeValuesAreStoredCompressed() {
+        byte[] value = JSON.getBytes(StandardCharsets.UTF_8);
+        storage.put("json", entry(value));
+
+        CacheEntry stored = storage.getStored("json");
+        Assertions.assertTrue(stored.isCompressed());
+        Assertions.assertTrue(stored.getValue().length < value.length / 4);
+        Assertions.assertEquals(CacheEntry.ENTRY_OVERHEAD_BYTES + 4 + stored.getValue().length, storage.usedBytes());
+
+        CacheEntry entry = storage.get("json");
+        Assertions.assertFalse(entry.isCompressed());
+        Assertions.assertArrayEquals(value, entry.getValue());
+        Assertions.assertEquals(160, entry.getExpirationTime());
+        Assertions.assertTrue(cacheMetrics.getCompressionRatio() > 4);
+        Assertions.assertTrue(cacheMetrics.getDecompressionNanos() > 0);
+    }
+
+    @Test
+    public void testSmallAndIncompressibleValuesSkipTheCodec() {
+        byte[] small = "small".getBytes(StandardCharsets.UTF_8);
+        byte[] random = new byte[1024];
+        new Random(42).nextBytes(random);
+        storage.put("small", entry(small));
+        storage.put("random", entry(random));
+        storage.put("null", entry(null));
+
+        Assertions.assertFalse(storage.getStored("small").isCompressed());
+        Assertions.assertFalse(storage.getStored("random").isCompressed());
+        Assertions.assertArrayEquals(random, storage.get("random").getValue());
+        Assertions.assertNull(storage.get("null").getValue());
+        Assertions.assertNull(compressor.compress(small));
+    }
+
+    @Test
+    public void testCompressedEntriesArePassedThrough() {
+        byte[] value = JSON.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = compressor.compress(value);
+        ICacheStorage[] candidates = {
+                storage,
+                new CacheStorageFactory(StorageType.OFF_HEAP, new SlabAllocator(4096, 0), compressor).create(false),
+                new CacheStorageFactory(StorageType.COMPACT, null, compressor).create(false)
+        };
+        for (ICacheStorage candidate : candidates) {
+            candidate.put("json", CacheEntry.builder().value(compressed).expirationTime(160).compressed(true).build());
+
+            // stored as received, not compressed twice
+            Assertions.assertArrayEquals(compressed, candidate.getStored("json").getValue());
+            Assertions.assertArrayEquals(value, candidate.get("json").getValue());
+            Map<String, CacheEntry> visited = new HashMap<>();
+            candidate.forEach(visited::put);
+            Assertions.assertTrue(visited.get("json").isCompressed());
+        }
+        Assertions.assertArrayEquals(value, ValueCompressor.inflate(compressed));
+    }
+
+    @Test
+    public void testInvalidCompressedValue() {
+        byte[] compressed = compressor.compress(JSON.getBytes(StandardCharsets.UTF_8));
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ValueCompressor.inflate(truncated));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.cache.core.storage;
+
+import com.example.cache.core.domain.CacheEntry;
+import com.example.cache.persistence.SnapshotPartition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+public class OffHeapCacheStorageTest {
+
+    private SlabAllocator slabAllocator;
+    private ICacheStorage storage;
+
+    @BeforeEach
+    public void setup() {
+        slabAllocator = new SlabAllocator(4096, 0);
+        storage = new CacheStorageFactory(StorageType.OFF_HEAP, slabAllocator).create(true);
+    }
+
+    private CacheEntry entry(String value) {
+        byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        return CacheEntry.builder().value(bytes).creationTime(100).expirationTime(160).build();
+    }
+
+    @Test
+    public void testFactoryRequiresAllocatorForOffHeap() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CacheStorageFactory(StorageType.OFF_HEAP, null));
+        Assertions.assertInstanceOf(HeapCacheStorage.class, CacheStorageFactory.heap().create(false));
+        Assertions.assertEquals(StorageType.OFF_HEAP, StorageType.fromProperty("off-heap"));
+    }
+
+    @Test
+    public void testPutAndGet() {
+        storage.put("key", entry("värde"));
+
+        CacheEntry entry = storage.get("key");
+        Assertions.assertEquals("värde", entry.getValueAsString());
+        Assertions.assertEquals(100, entry.getCreationTime());
+        Assertions.assertEquals(160, entry.getExpirationTime());
+        Assertions.assertEquals(1, storage.size());
+        Assertions.assertNull(storage.get("missing"));
+    }
+
+    @Test
+    public void testNullValue() {
+        storage.put("key", entry(null));
+
+        Assertions.assertNull(storage.get("key").getValueAsString());
+        Assertions.assertEquals(0, slabAllocator.getUsedChunkBytes());
+    }
+
+    @Test
+    public void testReplaceReleasesPreviousChunk() {
+        storage.put("key", entry("a".repeat(10)));
+        storage.put("key", entry("b".repeat(100)));
+
+        Assertions.assertEquals("b".repeat(100), storage.get("key").getValueAsString());
+        Assertions.assertEquals(100, slabAllocator.getUsedValueBytes());
+        Assertions.assertEquals(1, storage.size());
+    }
+
+    @Test
+    public void testRemoveReleasesChunk() {
+        storage.put("key", entry("value"));
+
+        Assertions.assertTrue(storage.remove("key"));
+        Assertions.assertFalse(storage.remove("key"));
+        Assertions.assertNull(storage.get("key"));
+        Assertions.assertEquals(0, slabAllocator.getUsedChunkBytes());
+        Assertions.assertEquals(0, storage.size());
+    }
+
+    @Test
+    public void testValueLargerThanSlab() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> storage.put("key", entry("x".repeat(5000))));
+        Assertions.assertEquals(0, storage.size());
+    }
+
+    @Test
+    public void testUsedBytesFollowsPutsAndRemoves() {
+        ICacheStorage heapStorage = CacheStorageFactory.heap().create(false);
+        for (ICacheStorage candidate : new ICacheStorage[]{storage, heapStorage}) {
+            candidate.put("key", entry("a".repeat(10)));
+            Assertions.assertEquals(CacheEntry.ENTRY_OVERHEAD_BYTES + 3 + 10, candidate.usedBytes());
+
+            candidate.put("key", entry("a".repeat(100)));
+            candidate.put("other", entry(null));
+            Assertions.assertEquals(2L * CacheEntry.ENTRY_OVERHEAD_BYTES + 3 + 100 + 5, candidate.usedBytes());
+
+            candidate.remove("key");
+            candidate.remove("missing");
+            Assertions.assertEquals(CacheEntry.ENTRY_OVERHEAD_BYTES + 5, candidate.usedBytes());
+        }
+    }
+
+    @Test
+    public void testRandomKeyOnlyReturnsLiveKeys() {
+        SplittableRandom random = new SplittableRandom(42);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> storage.randomKey(random));
+
+        ICacheStorage[] candidates = {
+                new CacheStorageFactory(StorageType.OFF_HEAP, slabAllocator).create(false, true),
+                CacheStorageFactory.heap().create(true, true)
+        };
+        for (ICacheStorage candidate : candidates) {
+            Assertions.assertNull(candidate.randomKey(random));
+            for (int i = 0; i < 100; i++) {
+                candidate.put("key-" + i, entry("v"));
+            }
+            // removed keys are dropped lazily when picked, re-inserted ones must not be lost
+            for (int i = 0; i < 90; i++) {
+                candidate.remove("key-" + i);
+            }
+            candidate.put("key-0", entry("v"));
+
+            Set<String> picked = new HashSet<>();
+            for (int i = 0; i < 1000; i++) {
+                String key = candidate.randomKey(random);
+                if (key != null) {
+                    Assertions.assertNotNull(candidate.get(key));
+                    picked.add(key);
+                }
+            }
+            Assertions.assertEquals(11, picked.size());
+        }
+    }
+
+    @Test
+    public void testCaptureReadsValuesOverwrittenSinceUntilReleased() {
+        storage.put("key", entry("before"));
+        storage.put("expired", CacheEntry.builder().value(new byte[1]).creationTime(100).expirationTime(150).build());
+
+        SnapshotPartition partition = storage.capture(155);
+        storage.remove("key");
+        storage.put("other", entry("after!"));
+
+        Assertions.assertEquals(1, partition.size());
+        Assertions.assertEquals("key", partition.key(0));
+        Assertions.assertEquals(160, partition.expirationTime(0));
+        Assertions.assertEquals("before", new String(partition.value(0), StandardCharsets.UTF_8));
+
+        partition.release();
+        partition.release();
+        Assertions.assertThrows(IllegalStateException.class, () -> partition.value(0));
+        // the chunk of the removed value is reused once released
+        storage.put("key", entry("again!"));
+        Assertions.assertEquals(3 * 64, slabAllocator.getUsedChunkBytes());
+    }
+}
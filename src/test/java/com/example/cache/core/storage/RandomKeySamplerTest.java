@@ -0,0 +1,42 @@
+package com.example.cache.core.storage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+public class RandomKeySamplerTest {
+
+    @Test
+    public void testPickFindsTheLastLiveKeyAmongRemovedOnes() {
+        RandomKeySampler sampler = new RandomKeySampler();
+        Set<String> liveKeys = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            liveKeys.add("key-" + i);
+            sampler.onInsert("key-" + i, liveKeys);
+        }
+        liveKeys.removeIf(key -> !key.equals("key-500"));
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals("key-500", sampler.pick(random, liveKeys));
+        }
+        // the removed keys are gone after the fallback
+        Assertions.assertEquals(1, sampler.size());
+    }
+
+    @Test
+    public void testPickReturnsNullOnlyWhenEmpty() {
+        RandomKeySampler sampler = new RandomKeySampler();
+        Set<String> liveKeys = new HashSet<>();
+        SplittableRandom random = new SplittableRandom(42);
+        Assertions.assertNull(sampler.pick(random, liveKeys));
+
+        liveKeys.add("key-1");
+        sampler.onInsert("key-1", liveKeys);
+        liveKeys.clear();
+        Assertions.assertNull(sampler.pick(random, liveKeys));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.cache.core.storage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class SlabAllocatorTest {
+
+    private final int SLAB_SIZE = 4096;
+
+    private SlabAllocator slabAllocator;
+
+    @BeforeEach
+    public void setup() {
+        slabAllocator = new SlabAllocator(SLAB_SIZE, 4 * SLAB_SIZE);
+    }
+
+    @Test
+    public void testInvalidSlabSize() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SlabAllocator(16, 0));
+    }
+
+    @Test
+    public void testSizeClassSelection() {
+        Assertions.assertEquals(0, slabAllocator.sizeClassIndex(0));
+        Assertions.assertEquals(0, slabAllocator.sizeClassIndex(64));
+        Assertions.assertEquals(1, slabAllocator.sizeClassIndex(65));
+        for (int length = 1; length <= SLAB_SIZE; length += 37) {
+            int classIndex = slabAllocator.sizeClassIndex(length);
+            // smallest class that fits the value
+            Assertions.assertTrue(slabAllocator.chunkSize(classIndex) >= length);
+            if (classIndex > 0) {
+                Assertions.assertTrue(slabAllocator.chunkSize(classIndex - 1) < length);
+            }
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> slabAllocator.sizeClassIndex(SLAB_SIZE + 1));
+    }
+
+    @Test
+    public void testWriteAndRead() {
+        byte[] value = "off-heap value".getBytes(StandardCharsets.UTF_8);
+        long address = slabAllocator.allocate(value.length);
+        slabAllocator.write(address, value);
+
+        Assertions.assertArrayEquals(value, slabAllocator.read(address, value.length));
+        Assertions.assertEquals(SLAB_SIZE, slabAllocator.getReservedBytes());
+        Assertions.assertEquals(64, slabAllocator.getUsedChunkBytes());
+        Assertions.assertEquals(value.length, slabAllocator.getUsedValueBytes());
+        Assertions.assertEquals(1.0 - value.length / 64.0, slabAllocator.getFragmentationRatio(), 0.0001);
+    }
+
+    @Test
+    public void testFreedChunkIsReused() {
+        long first = slabAllocator.allocate(10);
+        slabAllocator.free(first, 10);
+        Assertions.assertEquals(0, slabAllocator.getUsedChunkBytes());
+        Assertions.assertEquals(0.0, slabAllocator.getFragmentationRatio());
+
+        long second = slabAllocator.allocate(20);
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(SLAB_SIZE, slabAllocator.getReservedBytes());
+    }
+
+    @Test
+    public void testMemoryLimit() {
+        // every allocation of slab size needs a slab of its own
+        for (int i = 0; i < 4; i++) {
+            slabAllocator.allocate(SLAB_SIZE);
+        }
+        Assertions.assertThrows(IllegalStateException.class, () -> slabAllocator.allocate(SLAB_SIZE));
+        Assertions.assertEquals(4 * SLAB_SIZE, slabAllocator.getReservedBytes());
+    }
+
+    @Test
+    public void testFreeingChunksOfSeveralSlabs() {
+        long[] addresses = new long[3 * (SLAB_SIZE / 64)];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = slabAllocator.allocate(1);
+        }
+        for (long address : addresses) {
+            slabAllocator.free(address, 1);
+        }
+        Assertions.assertEquals(0, slabAllocator.getUsedChunkBytes());
+        Assertions.assertEquals(3 * SLAB_SIZE, slabAllocator.getReservedBytes());
+    }
+
+    @Test
+    public void testFreedChunksAreNotReusedWhilePinned() {
+        long address = slabAllocator.allocate(10);
+        slabAllocator.pin();
+        slabAllocator.free(address, 10);
+        Assertions.assertNotEquals(address, slabAllocator.allocate(10));
+        Assertions.assertEquals(20, slabAllocator.getUsedValueBytes());
+
+        slabAllocator.unpin();
+        Assertions.assertEquals(10, slabAllocator.getUsedValueBytes());
+        Assertions.assertEquals(address, slabAllocator.allocate(10));
+        Assertions.assertThrows(IllegalStateException.class, slabAllocator::unpin);
+    }
+}
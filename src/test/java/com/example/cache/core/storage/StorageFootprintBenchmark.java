@@ -0,0 +1,70 @@
+package com.example.cache.core.storage;
+
+import com.example.cache.core.domain.CacheEntry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Measures the heap used per entry by the HashMap based heap storage and the compact open addressing storage, at 1M,
+ * 10M and 50M keys ({@code -Dbenchmark.keys=...} to change them). Every key gets its own entry but all of them share
+ * one value array, so the reported overhead is everything but the value bytes: index, entry and key.
+ * <p>
+ * Skipped in the regular build, run with: {@code mvn test -Dtest=StorageFootprintBenchmark -Dbenchmark=true
+ * -DargLine=-Xmx24g}. Sizes that do not fit in the heap are skipped.
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class StorageFootprintBenchmark {
+
+    // upper bound of the heap storage footprint, used to skip the sizes that do not fit
+    private static final long MAX_BYTES_PER_ENTRY = 250;
+    private static final byte[] VALUE = new byte[16];
+
+    @Test
+    public void benchmarkFootprint() {
+        long[] sizes = Arrays.stream(System.getProperty("benchmark.keys", "1000000,10000000,50000000").split(","))
+                .mapToLong(size -> Long.parseLong(size.trim()))
+                .toArray();
+        for (long size : sizes) {
+            if (size * MAX_BYTES_PER_ENTRY > Runtime.getRuntime().maxMemory()) {
+                System.out.printf("[StorageFootprintBenchmark] [keys=%,d] skipped, not enough heap%n", size);
+                continue;
+            }
+            run("heap", () -> new HeapCacheStorage(false), (int) size);
+            run("compact", CompactCacheStorage::new, (int) size);
+        }
+    }
+
+    private void run(String name, Supplier<ICacheStorage> factory, int keys) {
+        long before = usedHeap();
+        ICacheStorage storage = factory.get();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < keys; i++) {
+            storage.put("key:" + i, CacheEntry.builder()
+                    .value(VALUE)
+                    .creationTime(1_700_000_000L)
+                    .expirationTime(1_700_003_600L + i)
+                    .build());
+        }
+        long putNanos = System.nanoTime() - startTime;
+        long after = usedHeap();
+        Reference.reachabilityFence(storage);
+
+        double bytesPerEntry = (double) (after - before) / keys;
+        System.out.printf("[StorageFootprintBenchmark] [storage=%s] [keys=%,d] [overhead=%.1f bytes/entry] "
+                + "[put=%.0f ns/op]%n", name, keys, bytesPerEntry, (double) putNanos / keys);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
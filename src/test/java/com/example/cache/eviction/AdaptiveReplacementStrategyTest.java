@@ -0,0 +1,121 @@
+package com.example.cache.eviction;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+public class AdaptiveReplacementStrategyTest {
+
+    private AdaptiveReplacementStrategy<String> arcStrategy;
+
+    @BeforeEach
+    public void setUp() {
+        arcStrategy = new AdaptiveReplacementStrategy<>(4);
+    }
+
+    @Test
+    public void testKeysSeenOnceAreEvictedBeforeKeysSeenTwice() {
+        for (int i = 1; i <= 4; i++) {
+            arcStrategy.onPut("test_key_" + i);
+        }
+        arcStrategy.onGet("test_key_1");
+        arcStrategy.onGet("test_key_3");
+
+        assertEvicted("test_key_2");
+        assertEvicted("test_key_4");
+        // T1 is empty, T2 in LRU order
+        assertEvicted("test_key_1");
+        assertEvicted("test_key_3");
+        Assertions.assertFalse(arcStrategy.evict().isPresent());
+    }
+
+    @Test
+    public void testScanDoesNotFlushFrequentKeys() {
+        arcStrategy.onPut("hot_key_1");
+        arcStrategy.onPut("hot_key_2");
+        arcStrategy.onGet("hot_key_1");
+        arcStrategy.onGet("hot_key_2");
+
+        for (int i = 0; i < 100; i++) {
+            arcStrategy.onPut("scan_key_" + i);
+            if (i >= 2) {
+                assertEvicted("scan_key_" + (i - 2));
+            }
+        }
+        Assertions.assertEquals(0, arcStrategy.getTargetRecentSize());
+        assertEvicted("scan_key_98");
+        assertEvicted("scan_key_99");
+        assertEvicted("hot_key_1");
+    }
+
+    @Test
+    public void testRecentGhostHitGrowsTheRecentTarget() {
+        for (int i = 1; i <= 4; i++) {
+            arcStrategy.onPut("test_key_" + i);
+        }
+        assertEvicted("test_key_1");
+        Assertions.assertEquals(0, arcStrategy.getTargetRecentSize());
+
+        // test_key_1 comes back from B1: straight to T2, T1 may grow
+        arcStrategy.onPut("test_key_1");
+        Assertions.assertEquals(1, arcStrategy.getTargetRecentSize());
+        Assertions.assertEquals(0.25, arcStrategy.getTargetRecentRatio());
+        assertEvicted("test_key_2");
+        assertEvicted("test_key_3");
+        // T1 is at its target, T2 goes first
+        assertEvicted("test_key_1");
+    }
+
+    @Test
+    public void testFrequentGhostHitShrinksTheRecentTarget() {
+        for (int i = 1; i <= 4; i++) {
+            arcStrategy.onPut("test_key_" + i);
+        }
+        assertEvicted("test_key_1");
+        arcStrategy.onPut("test_key_1");
+        assertEvicted("test_key_2");
+        arcStrategy.onPut("test_key_2");
+        Assertions.assertEquals(2, arcStrategy.getTargetRecentSize());
+
+        // T1 (3, 4) is at its target: test_key_1 leaves T2 into B2
+        assertEvicted("test_key_1");
+        arcStrategy.onPut("test_key_1");
+        Assertions.assertEquals(1, arcStrategy.getTargetRecentSize());
+        // T1 is above its smaller target again
+        assertEvicted("test_key_3");
+    }
+
+    @Test
+    public void testDeletedKeysLeaveNoGhost() {
+        for (int i = 1; i <= 4; i++) {
+            arcStrategy.onPut("test_key_" + i);
+        }
+        arcStrategy.onDelete("test_key_1");
+        arcStrategy.onDelete("unknown_key");
+        arcStrategy.onPut("test_key_1");
+
+        Assertions.assertEquals(0, arcStrategy.getTargetRecentSize());
+        assertEvicted("test_key_2");
+    }
+
+    @Test
+    public void testEvictIsIdempotentUntilTheVictimIsDeleted() {
+        arcStrategy.onPut("test_key_1");
+        arcStrategy.onPut("test_key_2");
+        arcStrategy.onGet("test_key_1");
+
+        Assertions.assertEquals(Optional.of("test_key_2"), arcStrategy.evict());
+        Assertions.assertEquals(Optional.of("test_key_2"), arcStrategy.evict());
+        arcStrategy.onDelete("test_key_2");
+        Assertions.assertEquals(Optional.of("test_key_1"), arcStrategy.evict());
+    }
+
+    private void assertEvicted(String expectedKey) {
+        Optional<String> evictedItem = arcStrategy.evict();
+        Assertions.assertTrue(evictedItem.isPresent());
+        Assertions.assertEquals(expectedKey, evictedItem.get());
+        arcStrategy.onDelete(evictedItem.get());
+    }
+}
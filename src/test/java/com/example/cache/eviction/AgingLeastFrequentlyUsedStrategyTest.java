@@ -0,0 +1,131 @@
+package com.example.cache.eviction;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AgingLeastFrequentlyUsedStrategyTest {
+
+    @Test
+    public void testEvictsLeastFrequentlyUsedKey() {
+        AgingLeastFrequentlyUsedStrategy<String> strategy = new AgingLeastFrequentlyUsedStrategy<>(255, 0, 0);
+        String[] keys = new String[]{"test_key_1", "test_key_2", "test_key_3"};
+        strategy.onPut(keys[0]);
+        strategy.onPut(keys[1]);
+        strategy.onPut(keys[2]);
+        strategy.onGet(keys[0]);
+        strategy.onGet(keys[0]);
+        strategy.onGet(keys[2]);
+
+        assertEvicted(strategy, keys[1]);
+        assertEvicted(strategy, keys[2]);
+        assertEvicted(strategy, keys[0]);
+        Assertions.assertFalse(strategy.evict().isPresent());
+    }
+
+    @Test
+    public void testDefaultAgingIntervalScalesWithTheCacheSize() {
+        Assertions.assertEquals(10_000, AgingLeastFrequentlyUsedStrategy.defaultAgingInterval(1_000));
+        Assertions.assertEquals(50_000_000, AgingLeastFrequentlyUsedStrategy.defaultAgingInterval(5_000_000));
+        Assertions.assertEquals(10, AgingLeastFrequentlyUsedStrategy.defaultAgingInterval(0));
+    }
+
+    @Test
+    public void testTiesEvictLeastRecentlyUsedKey() {
+        AgingLeastFrequentlyUsedStrategy<String> strategy = new AgingLeastFrequentlyUsedStrategy<>(255, 0, 0);
+        String[] keys = new String[]{"test_key_1", "test_key_2", "test_key_3"};
+        strategy.onPut(keys[0]);
+        strategy.onPut(keys[1]);
+        strategy.onPut(keys[2]);
+        strategy.onGet(keys[1]);
+        strategy.onGet(keys[0]);
+
+        assertEvicted(strategy, keys[2]);
+        assertEvicted(strategy, keys[1]);
+        assertEvicted(strategy, keys[0]);
+    }
+
+    @Test
+    public void testFrequencyIsCapped() {
+        AgingLeastFrequentlyUsedStrategy<String> strategy = new AgingLeastFrequentlyUsedStrategy<>(4, 0, 0);
+        for (int i = 0; i < 10; i++) {
+            strategy.onPut("test_key_1");
+        }
+        Assertions.assertEquals(4, strategy.frequency("test_key_1"));
+    }
+
+    @Test
+    public void testAgingAfterIntervalLetsFormerlyHotKeyBeEvicted() {
+        AgingLeastFrequentlyUsedStrategy<String> strategy = new AgingLeastFrequentlyUsedStrategy<>(255, 10, 0);
+        strategy.onPut("old_hot_key");
+        for (int i = 0; i < 7; i++) {
+            strategy.onGet("old_hot_key");
+        }
+        // the 10th access halves every frequency: 8 -> 4 and 2 -> 1
+        strategy.onPut("new_hot_key");
+        strategy.onGet("new_hot_key");
+        Assertions.assertEquals(4, strategy.frequency("old_hot_key"));
+        Assertions.assertEquals(1, strategy.frequency("new_hot_key"));
+
+        for (int i = 0; i < 3; i++) {
+            strategy.onGet("new_hot_key");
+        }
+        // without aging old_hot_key (8) would outlive new_hot_key (5) forever
+        assertEvicted(strategy, "old_hot_key");
+    }
+
+    @Test
+    public void testAgingAfterPeriod() {
+        AtomicLong nanoTime = new AtomicLong();
+        AgingLeastFrequentlyUsedStrategy<String> strategy =
+                new AgingLeastFrequentlyUsedStrategy<>(255, 0, 1000, nanoTime::get);
+        for (int i = 0; i < 6; i++) {
+            strategy.onPut("test_key_1");
+        }
+        Assertions.assertEquals(6, strategy.frequency("test_key_1"));
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        strategy.onGet("test_key_1");
+        // incremented to 7, then halved
+        Assertions.assertEquals(3, strategy.frequency("test_key_1"));
+    }
+
+    @Test
+    public void testDeletedSlotsAreReused() {
+        AgingLeastFrequentlyUsedStrategy<String> strategy = new AgingLeastFrequentlyUsedStrategy<>(255, 0, 0);
+        for (int i = 0; i < 100; i++) {
+            strategy.onPut("test_key_" + i);
+            strategy.onGet("test_key_" + i);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            strategy.onDelete("test_key_" + i);
+        }
+        strategy.onDelete("unknown_key");
+        for (int i = 0; i < 50; i++) {
+            strategy.onPut("new_key_" + i);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertEvicted(strategy, "new_key_" + i);
+        }
+        for (int i = 1; i < 100; i += 2) {
+            assertEvicted(strategy, "test_key_" + i);
+        }
+        Assertions.assertFalse(strategy.evict().isPresent());
+    }
+
+    @Test
+    public void testRejectsInvalidMaximumFrequency() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AgingLeastFrequentlyUsedStrategy<String>(1, 0, 0));
+    }
+
+    private void assertEvicted(IEvictionStrategy<String> strategy, String expectedKey) {
+        Optional<String> evictedItem = strategy.evict();
+        Assertions.assertTrue(evictedItem.isPresent());
+        Assertions.assertEquals(expectedKey, evictedItem.get());
+        strategy.onDelete(evictedItem.get());
+    }
+}
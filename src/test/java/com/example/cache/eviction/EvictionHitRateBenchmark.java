@@ -0,0 +1,139 @@
+package com.example.cache.eviction;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Hit rate of the eviction policies, replaying access traces through the strategy the way the cache cleaner does:
+ * a miss puts the key, the strategy then picks victims until the cache is back to its maximum size.
+ * <p>
+ * Synthetic traces modeled after the usual workloads of the literature:
+ * <ul>
+ *     <li>{@code zipf}: skewed popularity (exponent 0.9) over 100k keys, database and web page style;</li>
+ *     <li>{@code zipf+scans}: the same working set, with a scan of 20k keys accessed once every 100k accesses;</li>
+ *     <li>{@code loop}: keys accessed in a loop slightly larger than the cache, the worst case of LRU and FIFO;</li>
+ *     <li>{@code shifting}: the popular keys change every 200k accesses, frequency alone adapts badly.</li>
+ * </ul>
+ * A real trace (one key per line, e.g. a converted ARC or LIRS trace) can be replayed as well with
+ * {@code -Deviction.trace=<path>}.
+ * <p>
+ * Skipped in the regular build, run with: {@code mvn test -Dtest=EvictionHitRateBenchmark -Dbenchmark=true}
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class EvictionHitRateBenchmark {
+
+    private static final int CACHE_SIZE = 1_000;
+    private static final int ACCESSES = 1_000_000;
+    private static final int KEYS = 100_000;
+
+    @Test
+    public void benchmarkHitRate() throws IOException {
+        Random random = new Random(42);
+        ZipfGenerator zipf = new ZipfGenerator(KEYS, 0.9, random);
+
+        int[] zipfTrace = new int[ACCESSES];
+        Arrays.setAll(zipfTrace, i -> zipf.next());
+        run("zipf", zipfTrace);
+
+        int[] scanTrace = new int[ACCESSES];
+        int scanned = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            // keys of the scans are never accessed again, they live above the key space of the working set
+            scanTrace[i] = i % 100_000 < 20_000 ? KEYS + scanned++ : zipf.next();
+        }
+        run("zipf+scans", scanTrace);
+
+        int[] loopTrace = new int[ACCESSES];
+        Arrays.setAll(loopTrace, i -> i % (CACHE_SIZE + CACHE_SIZE / 4));
+        run("loop", loopTrace);
+
+        int[] shiftingTrace = new int[ACCESSES];
+        Arrays.setAll(shiftingTrace, i -> (zipf.next() + (i / 200_000) * 10_000) % KEYS);
+        run("shifting", shiftingTrace);
+
+        String tracePath = System.getProperty("eviction.trace");
+        if (tracePath != null) {
+            List<String> lines = Files.readAllLines(Path.of(tracePath));
+            int[] trace = lines.stream().map(String::trim).filter(line -> !line.isEmpty())
+                    .mapToInt(String::hashCode).toArray();
+            run(Path.of(tracePath).getFileName().toString(), trace);
+        }
+    }
+
+    private void run(String trace, int[] accesses) {
+        replay(trace, "lru", accesses, size -> new LeastRecentUsedStrategy<>());
+        replay(trace, "lfu", accesses, size -> new LeastFrequentlyUsedStrategy<>());
+        replay(trace, "lfu-aging", accesses, size -> new AgingLeastFrequentlyUsedStrategy<>(255,
+                AgingLeastFrequentlyUsedStrategy.defaultAgingInterval(size), 0));
+        replay(trace, "fifo", accesses, size -> new FirstInFirstOutStrategy<>());
+        replay(trace, "sieve", accesses, size -> new SieveStrategy<>());
+        replay(trace, "w-tinylfu", accesses, WindowTinyLfuStrategy::new);
+        replay(trace, "arc", accesses, AdaptiveReplacementStrategy::new);
+    }
+
+    private void replay(String trace, String policy, int[] accesses, IntFunction<IEvictionStrategy<Integer>> factory) {
+        IEvictionStrategy<Integer> strategy = factory.apply(CACHE_SIZE);
+        Set<Integer> cache = new HashSet<>();
+        long hits = 0;
+        long startNanos = System.nanoTime();
+        for (int key : accesses) {
+            if (cache.contains(key)) {
+                hits++;
+                strategy.onGet(key);
+                continue;
+            }
+            strategy.onPut(key);
+            cache.add(key);
+            while (cache.size() > CACHE_SIZE) {
+                Optional<Integer> victim = strategy.evict();
+                if (victim.isEmpty()) {
+                    throw new IllegalStateException("No victim for a full cache.");
+                }
+                cache.remove(victim.get());
+                strategy.onDelete(victim.get());
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        System.out.printf("[EvictionHitRateBenchmark] [trace=%s] [policy=%s] [hitRate=%.2f%%] [nanos/access=%.0f]%n",
+                trace, policy, 100.0 * hits / accesses.length, (double) elapsedNanos / accesses.length);
+    }
+
+    /**
+     * Inverse transform sampling over the precomputed cumulative distribution, key 0 is the most popular one.
+     */
+    private static final class ZipfGenerator {
+        private final double[] cumulative;
+        private final Random random;
+
+        private ZipfGenerator(int keys, double exponent, Random random) {
+            this.cumulative = new double[keys];
+            this.random = random;
+            double sum = 0;
+            for (int i = 0; i < keys; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < keys; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        private int next() {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.cache.eviction;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * CPU time and bytes allocated per access of the LFU implementations, replaying a skewed trace (a few hot keys, a
+ * long tail of cold ones) through a cache of 10k keys with the eviction protocol of the cache cleaner.
+ * <p>
+ * Skipped in the regular build, run with: {@code mvn test -Dtest=LeastFrequentlyUsedBenchmark -Dbenchmark=true}
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class LeastFrequentlyUsedBenchmark {
+
+    private static final int CACHE_SIZE = 10_000;
+    private static final int KEYS = 200_000;
+    private static final int ACCESSES = 2_000_000;
+
+    @Test
+    public void benchmarkLeastFrequentlyUsed() {
+        String[] keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "key-" + i;
+        }
+        Random random = new Random(42);
+        int[] trace = new int[ACCESSES];
+        for (int i = 0; i < ACCESSES; i++) {
+            // 80% of the accesses go to 2% of the keys
+            trace[i] = random.nextInt(10) < 8 ? random.nextInt(KEYS / 50) : random.nextInt(KEYS);
+        }
+        // first round of each one is a warm-up
+        run("LeastFrequentlyUsedStrategy (warm-up)", LeastFrequentlyUsedStrategy::new, keys, trace);
+        run("AgingLeastFrequentlyUsedStrategy (warm-up)",
+                () -> new AgingLeastFrequentlyUsedStrategy<>(255, 10L * CACHE_SIZE, 0), keys, trace);
+        run("LeastFrequentlyUsedStrategy", LeastFrequentlyUsedStrategy::new, keys, trace);
+        run("AgingLeastFrequentlyUsedStrategy",
+                () -> new AgingLeastFrequentlyUsedStrategy<>(255, 10L * CACHE_SIZE, 0), keys, trace);
+    }
+
+    private void run(String name, Supplier<IEvictionStrategy<String>> factory, String[] keys, int[] trace) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        IEvictionStrategy<String> strategy = factory.get();
+        Set<String> cache = new HashSet<>();
+        long hits = 0;
+
+        long threadId = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long cpuBefore = threads.getThreadCpuTime(threadId);
+        for (int index : trace) {
+            String key = keys[index];
+            if (cache.contains(key)) {
+                hits++;
+                strategy.onGet(key);
+                continue;
+            }
+            strategy.onPut(key);
+            cache.add(key);
+            if (cache.size() > CACHE_SIZE) {
+                String victim = strategy.evict().orElseThrow();
+                cache.remove(victim);
+                strategy.onDelete(victim);
+            }
+        }
+        long cpuNanos = threads.getThreadCpuTime(threadId) - cpuBefore;
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.printf("[LeastFrequentlyUsedBenchmark] [strategy=%s] [cpuNanos/access=%.1f] [bytes/access=%.1f] "
+                        + "[hitRate=%.2f%%]%n",
+                name, (double) cpuNanos / ACCESSES, (double) allocatedBytes / ACCESSES, 100.0 * hits / ACCESSES);
+    }
+}
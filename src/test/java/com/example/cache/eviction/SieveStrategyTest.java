@@ -0,0 +1,110 @@
+package com.example.cache.eviction;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+public class SieveStrategyTest {
+
+    private IEvictionStrategy<String> sieveStrategy;
+
+    @BeforeEach
+    public void setUp() {
+        sieveStrategy = new SieveStrategy<>();
+    }
+
+    @Test
+    public void testUnvisitedKeysAreEvictedOldestFirst() {
+        String[] keys = new String[]{"test_key_1", "test_key_2", "test_key_3"};
+        sieveStrategy.onPut(keys[0]);
+        sieveStrategy.onPut(keys[1]);
+        sieveStrategy.onPut(keys[2]);
+
+        assertEvicted(keys[0]);
+        assertEvicted(keys[1]);
+        assertEvicted(keys[2]);
+        Assertions.assertFalse(sieveStrategy.evict().isPresent());
+    }
+
+    @Test
+    public void testVisitedKeysSurviveOneRoundOfTheHand() {
+        String[] keys = new String[]{"test_key_1", "test_key_2", "test_key_3", "test_key_4"};
+        for (String key : keys) {
+            sieveStrategy.onPut(key);
+        }
+        // flow: (oldest) 1* -> 2 -> 3* -> 4 (newest), * visited
+        sieveStrategy.onGet(keys[0]);
+        sieveStrategy.onGet(keys[2]);
+
+        assertEvicted(keys[1]);     // hand clears 1, stops at 2
+        assertEvicted(keys[3]);     // hand clears 3, stops at 4
+        sieveStrategy.onPut("test_key_5");
+        // hand wraps around to the oldest key, 1 was cleared by the first pass
+        assertEvicted(keys[0]);
+    }
+
+    @Test
+    public void testHandStaysAtItsPositionAcrossEvictions() {
+        String[] keys = new String[]{"test_key_1", "test_key_2", "test_key_3", "test_key_4"};
+        for (String key : keys) {
+            sieveStrategy.onPut(key);
+        }
+        sieveStrategy.onGet(keys[0]);
+        sieveStrategy.onGet(keys[1]);
+        assertEvicted(keys[2]);
+        // 1 and 2 are accessed again, but the hand already passed them
+        sieveStrategy.onGet(keys[0]);
+        sieveStrategy.onGet(keys[1]);
+        sieveStrategy.onPut("test_key_5");
+
+        // the hand resumes after 3: 4 and then the new key go before 1 and 2
+        assertEvicted(keys[3]);
+        assertEvicted("test_key_5");
+    }
+
+    @Test
+    public void testEvictIsIdempotentUntilTheVictimIsDeleted() {
+        sieveStrategy.onPut("test_key_1");
+        sieveStrategy.onPut("test_key_2");
+        sieveStrategy.onGet("test_key_1");
+
+        Assertions.assertEquals(Optional.of("test_key_2"), sieveStrategy.evict());
+        Assertions.assertEquals(Optional.of("test_key_2"), sieveStrategy.evict());
+        sieveStrategy.onDelete("test_key_2");
+        sieveStrategy.onDelete("unknown_key");
+        Assertions.assertEquals(Optional.of("test_key_1"), sieveStrategy.evict());
+    }
+
+    @Test
+    public void testConcurrentReadsOnlyMarkKeys() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            sieveStrategy.onPut("test_key_" + i);
+        }
+        CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            int reader = t;
+            new Thread(() -> {
+                // every reader visits the even keys
+                for (int i = reader * 2; i < 100; i += 8) {
+                    sieveStrategy.onGet("test_key_" + i);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        for (int i = 1; i < 100; i += 2) {
+            assertEvicted("test_key_" + i);
+        }
+    }
+
+    private void assertEvicted(String expectedKey) {
+        Optional<String> evictedItem = sieveStrategy.evict();
+        Assertions.assertTrue(evictedItem.isPresent());
+        Assertions.assertEquals(expectedKey, evictedItem.get());
+        sieveStrategy.onDelete(evictedItem.get());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.cache.eviction;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+public class WindowTinyLfuStrategyTest {
+
+    @Test
+    public void testEvictFromEmptyStrategy() {
+        IEvictionStrategy<String> strategy = new WindowTinyLfuStrategy<>(10);
+        Assertions.assertFalse(strategy.evict().isPresent());
+        strategy.onDelete("unknown_key");
+        Assertions.assertFalse(strategy.evict().isPresent());
+    }
+
+    @Test
+    public void testRejectsInvalidMaximumSize() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new WindowTinyLfuStrategy<String>(0));
+    }
+
+    @Test
+    public void testColdCandidateIsEvictedInsteadOfFrequentVictim() {
+        // window of 1 key, main region of 3
+        IEvictionStrategy<String> strategy = new WindowTinyLfuStrategy<>(4);
+        Set<String> cache = new HashSet<>();
+        for (String key : new String[]{"test_key_1", "test_key_2", "test_key_3"}) {
+            put(strategy, cache, key, 4);
+            strategy.onGet(key);
+            strategy.onGet(key);
+        }
+        put(strategy, cache, "cold_key", 4);
+        put(strategy, cache, "other_cold_key", 4);
+
+        // the accessed keys were admitted into the main region, cold_key then left the window and lost against them
+        Assertions.assertEquals(Set.of("test_key_1", "test_key_2", "test_key_3", "other_cold_key"), cache);
+    }
+
+    @Test
+    public void testFrequentCandidateDisplacesVictim() {
+        IEvictionStrategy<String> strategy = new WindowTinyLfuStrategy<>(4);
+        Set<String> cache = new HashSet<>();
+        for (String key : new String[]{"test_key_1", "test_key_2", "test_key_3", "test_key_4"}) {
+            put(strategy, cache, key, 4);
+        }
+        // misses of a key that is not cached yet still count towards its frequency
+        for (int i = 0; i < 5; i++) {
+            strategy.onGet("popular_key");
+        }
+        put(strategy, cache, "popular_key", 4);
+        put(strategy, cache, "cold_key", 4);
+
+        Assertions.assertTrue(cache.contains("popular_key"));
+        Assertions.assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void testScanDoesNotFlushWorkingSet() {
+        int maximumSize = 100;
+        IEvictionStrategy<String> strategy = new WindowTinyLfuStrategy<>(maximumSize);
+        Set<String> cache = new HashSet<>();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 90; i++) {
+                access(strategy, cache, "hot_key_" + i, maximumSize);
+            }
+        }
+        // every key of the scan is accessed once, interleaved with the working set (LRU would miss every hot key)
+        for (int i = 0; i < 10_000; i++) {
+            access(strategy, cache, "scan_key_" + i, maximumSize);
+            access(strategy, cache, "hot_key_" + (i % 90), maximumSize);
+        }
+
+        for (int i = 0; i < 90; i++) {
+            Assertions.assertTrue(cache.contains("hot_key_" + i), "hot_key_" + i);
+        }
+        Assertions.assertEquals(maximumSize, cache.size());
+    }
+
+    @Test
+    public void testDeletedKeyIsNeverEvicted() {
+        IEvictionStrategy<String> strategy = new WindowTinyLfuStrategy<>(4);
+        strategy.onPut("test_key_1");
+        strategy.onPut("test_key_2");
+        strategy.onGet("test_key_1");
+        strategy.onDelete("test_key_1");
+        strategy.onDelete("test_key_2");
+        Assertions.assertFalse(strategy.evict().isPresent());
+    }
+
+    private void access(IEvictionStrategy<String> strategy, Set<String> cache, String key, int maximumSize) {
+        if (cache.contains(key)) {
+            strategy.onGet(key);
+        } else {
+            put(strategy, cache, key, maximumSize);
+        }
+    }
+
+    /**
+     * Same protocol as the cache cleaner: the strategy picks the victim, the caller deletes it.
+     */
+    private void put(IEvictionStrategy<String> strategy, Set<String> cache, String key, int maximumSize) {
+        strategy.onPut(key);
+        cache.add(key);
+        while (cache.size() > maximumSize) {
+            Optional<String> victim = strategy.evict();
+            Assertions.assertTrue(victim.isPresent());
+            Assertions.assertTrue(cache.remove(victim.get()));
+            strategy.onDelete(victim.get());
+        }
+    }
+}
@@ -180,4 +180,32 @@ public class DoublyLinkedListTest {
             Assertions.assertThrows(IllegalStateException.class, doublyLinkedList::deleteFirst);
         }
     }
+
+    @Test
+    public void testLinkLastMovesNodeBetweenLists() {
+        String[] items = new String[]{"test_0", "test_1", "test_2"};
+        doublyLinkedList.insertLast(items[0], null);
+        doublyLinkedList.insertLast(items[1], null);
+        doublyLinkedList.insertLast(items[2], null);
+        DoublyLinkedList<String, Void> other = new DoublyLinkedList<>();
+
+        Node<String, Void> node = doublyLinkedList.getFirst();
+        doublyLinkedList.deleteNode(node);
+        other.linkLast(node);
+        Assertions.assertEquals(2, doublyLinkedList.size());
+        Assertions.assertEquals(items[1], doublyLinkedList.getFirst().getData());
+        Assertions.assertEquals(1, other.size());
+        Assertions.assertSame(node, other.getFirst());
+        Assertions.assertSame(node, other.getLast());
+        Assertions.assertNull(node.getNext());
+
+        // moving to the back of the same list keeps the node
+        Node<String, Void> middle = doublyLinkedList.getFirst();
+        doublyLinkedList.deleteNode(middle);
+        doublyLinkedList.linkLast(middle);
+        Assertions.assertEquals(items[2], doublyLinkedList.getFirst().getData());
+        Assertions.assertSame(middle, doublyLinkedList.getLast());
+        Assertions.assertSame(doublyLinkedList.getFirst(), middle.getPrev());
+        Assertions.assertNull(doublyLinkedList.getFirst().getPrev());
+    }
 }
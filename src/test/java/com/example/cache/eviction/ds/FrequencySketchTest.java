@@ -0,0 +1,46 @@
+package com.example.cache.eviction.ds;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FrequencySketchTest {
+
+    private FrequencySketch<String> sketch;
+
+    @BeforeEach
+    public void setUp() {
+        // 8 longs of 16 counters, aged after 80 additions
+        sketch = new FrequencySketch<>(8);
+    }
+
+    @Test
+    public void testIncrementAndFrequency() {
+        Assertions.assertEquals(0, sketch.frequency("test_key"));
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("test_key");
+        }
+        Assertions.assertEquals(5, sketch.frequency("test_key"));
+    }
+
+    @Test
+    public void testFrequencySaturatesAtFifteen() {
+        for (int i = 0; i < 20; i++) {
+            sketch.increment("test_key");
+        }
+        Assertions.assertEquals(15, sketch.frequency("test_key"));
+    }
+
+    @Test
+    public void testCountersAreHalvedAfterSampleSizeAdditions() {
+        for (int i = 0; i < 15; i++) {
+            sketch.increment("hot_key");
+        }
+        Assertions.assertEquals(15, sketch.frequency("hot_key"));
+        // 65 more additions reach the sample size (10 * 8), every counter of the hot key is then 15 >>> 1
+        for (int i = 0; i < 65; i++) {
+            sketch.increment("cold_key_" + i);
+        }
+        Assertions.assertEquals(7, sketch.frequency("hot_key"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.cache.eviction.ds;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class GhostListTest {
+
+    @Test
+    public void testOldestHashIsDroppedWhenFull() {
+        GhostList ghosts = new GhostList(3);
+        ghosts.add(1);
+        ghosts.add(2);
+        ghosts.add(3);
+        // re-adding moves 1 to the most recent end
+        ghosts.add(1);
+        ghosts.add(4);
+
+        Assertions.assertEquals(3, ghosts.size());
+        Assertions.assertFalse(ghosts.contains(2));
+        Assertions.assertTrue(ghosts.contains(1));
+        Assertions.assertTrue(ghosts.contains(3));
+        Assertions.assertTrue(ghosts.contains(4));
+
+        Assertions.assertTrue(ghosts.removeOldest());
+        Assertions.assertFalse(ghosts.contains(3));
+    }
+
+    @Test
+    public void testRemove() {
+        GhostList ghosts = new GhostList(4);
+        ghosts.add(7);
+        ghosts.add(8);
+
+        Assertions.assertTrue(ghosts.remove(7));
+        Assertions.assertFalse(ghosts.remove(7));
+        Assertions.assertFalse(ghosts.contains(7));
+        Assertions.assertEquals(1, ghosts.size());
+        Assertions.assertTrue(ghosts.removeOldest());
+        Assertions.assertFalse(ghosts.removeOldest());
+        Assertions.assertEquals(0, ghosts.size());
+    }
+
+    @Test
+    public void testMatchesAReferenceSetWhileGrowing() {
+        GhostList ghosts = new GhostList(1000);
+        Set<Integer> reference = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            // small range so that removals and re-additions are frequent, colliding home positions included
+            int hash = random.nextInt(800) << 12;
+            if (random.nextBoolean()) {
+                Assertions.assertEquals(reference.remove(hash), ghosts.remove(hash));
+            } else {
+                ghosts.add(hash);
+                reference.add(hash);
+            }
+            Assertions.assertEquals(reference.size(), ghosts.size());
+        }
+        for (int hash : reference) {
+            Assertions.assertTrue(ghosts.contains(hash));
+        }
+    }
+}
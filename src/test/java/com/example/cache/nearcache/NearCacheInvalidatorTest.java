@@ -0,0 +1,80 @@
+package com.example.cache.nearcache;
+
+import com.example.cache.cluster.IClusterService;
+import com.example.cache.cluster.grpc.CacheGrpcClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+public class NearCacheInvalidatorTest {
+
+    private CacheGrpcClient grpcClient;
+    private NearCacheInvalidator invalidator;
+
+    @BeforeEach
+    public void setup() {
+        IClusterService clusterService = mock(IClusterService.class);
+        grpcClient = mock(CacheGrpcClient.class);
+        when(clusterService.getAddressForNodeId("node-2")).thenReturn("node-2-address");
+        when(clusterService.getAddressForNodeId("node-3")).thenReturn("node-3-address");
+
+        // flushed manually, the scheduled flush should not kick in during a test
+        invalidator = new NearCacheInvalidator(clusterService, grpcClient, 2, 60_000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        invalidator.shutdown();
+    }
+
+    @Test
+    public void testChangesAreBatchedPerReader() {
+        invalidator.registerReader("key-1", "node-2");
+        invalidator.registerReader("key-1", "node-3");
+        invalidator.registerReader("key-2", "node-2");
+
+        invalidator.onKeyChanged("key-1");
+        invalidator.onKeyChanged("key-2");
+        invalidator.flush();
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(grpcClient).sendInvalidations(eq("node-2-address"), keys.capture());
+        assertEquals(Set.of("key-1", "key-2"), new HashSet<>(keys.getValue()));
+        verify(grpcClient).sendInvalidations("node-3-address", List.of("key-1"));
+        assertEquals(0, invalidator.trackedKeys());
+    }
+
+    @Test
+    public void testUntrackedKeyIsNotPublished() {
+        invalidator.onKeyChanged("key-1");
+        invalidator.flush();
+
+        verify(grpcClient, never()).sendInvalidations(anyString(), anyList());
+    }
+
+    @Test
+    public void testTrackedKeysAreBounded() {
+        invalidator.registerReader("key-1", "node-2");
+        invalidator.registerReader("key-2", "node-2");
+        invalidator.registerReader("key-3", "node-2");
+        // already tracked keys still get new readers
+        invalidator.registerReader("key-1", "node-3");
+
+        assertEquals(2, invalidator.trackedKeys());
+        invalidator.onKeyChanged("key-3");
+        invalidator.onKeyChanged("key-1");
+        invalidator.flush();
+
+        verify(grpcClient).sendInvalidations("node-2-address", List.of("key-1"));
+        verify(grpcClient).sendInvalidations("node-3-address", List.of("key-1"));
+    }
+}
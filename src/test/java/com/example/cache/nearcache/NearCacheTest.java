@@ -0,0 +1,84 @@
+package com.example.cache.nearcache;
+
+import com.example.cache.metrics.CacheMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NearCacheTest {
+
+    private CacheMetrics cacheMetrics;
+
+    @BeforeEach
+    public void setup() {
+        cacheMetrics = new CacheMetrics();
+    }
+
+    @Test
+    public void testDisabled() {
+        assertFalse(NearCache.disabled(cacheMetrics).isEnabled());
+        assertTrue(new NearCache(10, 1000, cacheMetrics).isEnabled());
+        assertThrows(IllegalArgumentException.class, () -> new NearCache(-1, 1000, cacheMetrics));
+    }
+
+    @Test
+    public void testGetAndPutCountHitsAndMisses() {
+        NearCache nearCache = new NearCache(10, 60_000, cacheMetrics);
+        assertNull(nearCache.get("key"));
+
+        nearCache.put("key", "value".getBytes(), nearCache.stamp());
+        assertArrayEquals("value".getBytes(), nearCache.get("key"));
+        assertEquals(1, cacheMetrics.getNearCacheHits());
+        assertEquals(1, cacheMetrics.getNearCacheMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        NearCache nearCache = new NearCache(2, 60_000, cacheMetrics);
+        nearCache.put("key-1", "value-1".getBytes(), nearCache.stamp());
+        nearCache.put("key-2", "value-2".getBytes(), nearCache.stamp());
+        nearCache.get("key-1");
+        nearCache.put("key-3", "value-3".getBytes(), nearCache.stamp());
+
+        assertEquals(2, nearCache.size());
+        assertNotNull(nearCache.get("key-1"));
+        assertNull(nearCache.get("key-2"));
+        assertNotNull(nearCache.get("key-3"));
+    }
+
+    @Test
+    public void testEntryExpires() throws Exception {
+        NearCache nearCache = new NearCache(10, 20, cacheMetrics);
+        nearCache.put("key", "value".getBytes(), nearCache.stamp());
+        Thread.sleep(50);
+
+        assertNull(nearCache.get("key"));
+        assertEquals(0, nearCache.size());
+    }
+
+    @Test
+    public void testFetchAcrossInvalidationIsNotCached() {
+        NearCache nearCache = new NearCache(10, 60_000, cacheMetrics);
+        long stamp = nearCache.stamp();
+        nearCache.invalidateAll(List.of("key"));
+        nearCache.put("key", "stale".getBytes(), stamp);
+
+        assertNull(nearCache.get("key"));
+        assertEquals(1, cacheMetrics.getNearCacheInvalidations());
+    }
+
+    @Test
+    public void testInvalidateRemovesEntry() {
+        NearCache nearCache = new NearCache(10, 60_000, cacheMetrics);
+        nearCache.put("key-1", "value-1".getBytes(), nearCache.stamp());
+        nearCache.put("key-2", "value-2".getBytes(), nearCache.stamp());
+
+        nearCache.invalidate("key-1");
+        nearCache.invalidateAll(List.of("key-2", "missing"));
+
+        assertEquals(0, nearCache.size());
+    }
+}
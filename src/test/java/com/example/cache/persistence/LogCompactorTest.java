@@ -0,0 +1,58 @@
+package com.example.cache.persistence;
+
+import com.example.cache.metrics.CacheMetrics;
+import com.example.cache.util.SystemUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogCompactorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testCompactionKeepsOnlyLiveState() throws Exception {
+        CacheMetrics cacheMetrics = new CacheMetrics();
+        long expiration = SystemUtil.getCurrentTimeInSec() + 60;
+        // one record per segment
+        PersistenceLog persistenceLog = new PersistenceLog(directory, FsyncPolicy.ALWAYS, 10, 1, 1024, cacheMetrics);
+        LogCompactor compactor = new LogCompactor(persistenceLog, 2, TimeUnit.HOURS.toMillis(1), cacheMetrics);
+
+        persistenceLog.append(PersistenceRecord.put("key-1", "value-1".getBytes(), expiration)).join();
+        persistenceLog.append(PersistenceRecord.put("key-2", "value-2".getBytes(), expiration)).join();
+        persistenceLog.append(PersistenceRecord.put("key-1", "value-3".getBytes(), expiration)).join();
+        persistenceLog.append(PersistenceRecord.delete("key-2")).join();
+        persistenceLog.append(PersistenceRecord.put("expired", "value".getBytes(), 1)).join();
+
+        assertTrue(compactor.compactIfNeeded());
+        assertEquals(1, LogFiles.compactedFiles(directory).size());
+        // the compacted inputs are gone, only segments written after them are left
+        long compactedSequence = LogFiles.sequenceOf(LogFiles.compactedFiles(directory).getFirst());
+        assertTrue(compactedSequence >= 4);
+        for (Path segment : LogFiles.segments(directory)) {
+            assertTrue(LogFiles.sequenceOf(segment) > compactedSequence);
+        }
+        assertEquals(1, cacheMetrics.getPersistenceCompactions());
+
+        // keep writing after the compaction, then restart
+        persistenceLog.append(PersistenceRecord.put("key-4", "value-4".getBytes(), expiration)).join();
+        compactor.shutdown();
+        persistenceLog.shutdown();
+
+        PersistenceLogTest.RecordingCache cache = new PersistenceLogTest.RecordingCache();
+        PersistenceLog reopened = new PersistenceLog(directory, FsyncPolicy.ALWAYS, 10, 1, 1024, cacheMetrics);
+        // key-1 from the compacted file, the expired PUT of a later segment (replayed as a DELETE), key-4
+        assertEquals(3, reopened.replayInto(cache));
+        assertEquals(2, cache.values.size());
+        assertArrayEquals("value-3".getBytes(), cache.values.get("key-1"));
+        assertArrayEquals("value-4".getBytes(), cache.values.get("key-4"));
+        reopened.shutdown();
+    }
+}
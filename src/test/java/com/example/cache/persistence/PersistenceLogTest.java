@@ -0,0 +1,175 @@
+package com.example.cache.persistence;
+
+import com.example.cache.core.domain.CacheEntry;
+import com.example.cache.core.domain.CacheOperationType;
+import com.example.cache.metrics.CacheMetrics;
+import com.example.cache.util.SystemUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistenceLogTest {
+
+    @TempDir
+    Path directory;
+
+    private CacheMetrics cacheMetrics;
+    private RecordingCache cache;
+
+    /**
+     * Applies the restored records to a map, in order. Captures its values into two partitions, with the given
+     * expiration time.
+     */
+    static class RecordingCache implements IRecoverableCache {
+        final Map<String, byte[]> values = new LinkedHashMap<>();
+        long captureExpirationTime = Long.MAX_VALUE;
+
+        @Override
+        public synchronized CompletableFuture<Void> submitRestore(PersistenceRecord record) {
+            if (record.type() == CacheOperationType.PUT) {
+                values.put(record.key(), record.value());
+            } else {
+                values.remove(record.key());
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public synchronized CompletableFuture<Void> submitRestoreAll(List<PersistenceRecord> records) {
+            records.forEach(this::submitRestore);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public synchronized List<CompletableFuture<SnapshotPartition>> submitCapture() {
+            List<CompletableFuture<SnapshotPartition>> partitions = new ArrayList<>();
+            List<String> keys = new ArrayList<>(values.keySet());
+            for (int p = 0; p < 2; p++) {
+                List<String> partitionKeys = new ArrayList<>();
+                for (int i = p; i < keys.size(); i += 2) {
+                    partitionKeys.add(keys.get(i));
+                }
+                CacheEntry[] entries = partitionKeys.stream()
+                        .map(key -> CacheEntry.builder().value(values.get(key))
+                                .expirationTime(captureExpirationTime).build())
+                        .toArray(CacheEntry[]::new);
+                partitions.add(CompletableFuture.completedFuture(
+                        SnapshotPartition.of(partitionKeys.toArray(new String[0]), entries, entries.length)));
+            }
+            return partitions;
+        }
+    }
+
+    @BeforeEach
+    public void setup() {
+        cacheMetrics = new CacheMetrics();
+        cache = new RecordingCache();
+    }
+
+    private PersistenceLog open(FsyncPolicy fsyncPolicy, long segmentSizeBytes) {
+        return new PersistenceLog(directory, fsyncPolicy, 10, segmentSizeBytes, 1024, cacheMetrics);
+    }
+
+    private long expiration() {
+        return SystemUtil.getCurrentTimeInSec() + 60;
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testAppendAndReplayAfterRestart() {
+        PersistenceLog persistenceLog = open(FsyncPolicy.ALWAYS, 1 << 20);
+        persistenceLog.append(PersistenceRecord.put("key-1", "value-1".getBytes(), expiration()));
+        persistenceLog.append(PersistenceRecord.put("key-2", "value-2".getBytes(), expiration()));
+        persistenceLog.append(PersistenceRecord.put("key-1", "value-3".getBytes(), expiration()));
+        // acknowledged once forced, together with the records before it
+        persistenceLog.append(PersistenceRecord.delete("key-2")).join();
+        assertTrue(cacheMetrics.getPersistenceFsyncs() >= 1);
+        assertEquals(4, cacheMetrics.getPersistenceRecordsWritten());
+        persistenceLog.shutdown();
+
+        PersistenceLog reopened = open(FsyncPolicy.ALWAYS, 1 << 20);
+        assertEquals(4, reopened.replayInto(cache));
+        assertEquals(1, cache.values.size());
+        assertArrayEquals("value-3".getBytes(), cache.values.get("key-1"));
+        reopened.shutdown();
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testExpiredRecordsAreNotReplayed() {
+        PersistenceLog persistenceLog = open(FsyncPolicy.OS, 1 << 20);
+        persistenceLog.append(PersistenceRecord.put("expired", "value".getBytes(), SystemUtil.getCurrentTimeInSec() - 1));
+        persistenceLog.append(PersistenceRecord.put("live", "value".getBytes(), expiration()));
+        persistenceLog.shutdown();
+
+        PersistenceLog reopened = open(FsyncPolicy.OS, 1 << 20);
+        // the expired PUT is replayed as a DELETE
+        assertEquals(2, reopened.replayInto(cache));
+        assertEquals(List.of("live"), new ArrayList<>(cache.values.keySet()));
+        reopened.shutdown();
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testExpiredOverwriteRemovesTheOlderValue() {
+        PersistenceLog persistenceLog = open(FsyncPolicy.OS, 1 << 20);
+        persistenceLog.append(PersistenceRecord.put("key-1", "value-1".getBytes(), expiration()));
+        persistenceLog.append(PersistenceRecord.put("key-1", "value-2".getBytes(), SystemUtil.getCurrentTimeInSec() - 1));
+        persistenceLog.shutdown();
+
+        // value-1 was restored from a snapshot, or replayed from the first record
+        cache.values.put("key-1", "value-1".getBytes());
+        PersistenceLog reopened = open(FsyncPolicy.OS, 1 << 20);
+        reopened.replayInto(cache);
+        assertFalse(cache.values.containsKey("key-1"));
+        reopened.shutdown();
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testTornTailIsSkipped() throws Exception {
+        PersistenceLog persistenceLog = open(FsyncPolicy.INTERVAL, 1 << 20);
+        persistenceLog.append(PersistenceRecord.put("key-1", "value-1".getBytes(), expiration()));
+        persistenceLog.shutdown();
+
+        // half written record at the end of the segment, as left by a crash
+        byte[] torn = PersistenceRecord.put("key-2", "value-2".getBytes(), expiration()).encode();
+        Files.write(LogFiles.segments(directory).getLast(), Arrays.copyOf(torn, torn.length / 2),
+                StandardOpenOption.APPEND);
+
+        PersistenceLog reopened = open(FsyncPolicy.INTERVAL, 1 << 20);
+        assertEquals(1, reopened.replayInto(cache));
+        assertArrayEquals("value-1".getBytes(), cache.values.get("key-1"));
+        reopened.shutdown();
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testSegmentsRollOver() {
+        PersistenceLog persistenceLog = open(FsyncPolicy.ALWAYS, 64);
+        for (int i = 0; i < 10; i++) {
+            persistenceLog.append(PersistenceRecord.put("key-" + i, new byte[64], expiration())).join();
+        }
+        assertTrue(persistenceLog.getSegmentSequence() > 1);
+        persistenceLog.shutdown();
+
+        PersistenceLog reopened = open(FsyncPolicy.ALWAYS, 64);
+        assertEquals(10, reopened.replayInto(cache));
+        assertEquals(10, cache.values.size());
+        reopened.shutdown();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.cache.persistence;
+
+import com.example.cache.core.domain.CacheOperationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistenceRecordTest {
+
+    @Test
+    public void testEncodeAndDecodePut() {
+        PersistenceRecord record = PersistenceRecord.put("key", new byte[]{0, 1, 2, (byte) 0xff}, 1234);
+        byte[] encoded = record.encode();
+
+        PersistenceRecord decoded = PersistenceRecord.decode(Arrays.copyOfRange(encoded, Integer.BYTES, encoded.length));
+        assertNotNull(decoded);
+        assertEquals(CacheOperationType.PUT, decoded.type());
+        assertEquals("key", decoded.key());
+        assertArrayEquals(record.value(), decoded.value());
+        assertEquals(1234, decoded.expirationTime());
+    }
+
+    @Test
+    public void testEncodeAndDecodeDelete() {
+        byte[] encoded = PersistenceRecord.delete("key").encode();
+
+        PersistenceRecord decoded = PersistenceRecord.decode(Arrays.copyOfRange(encoded, Integer.BYTES, encoded.length));
+        assertNotNull(decoded);
+        assertEquals(CacheOperationType.DELETE, decoded.type());
+        assertNull(decoded.value());
+        assertFalse(decoded.isExpired(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testCorruptedRecordIsRejected() {
+        byte[] encoded = PersistenceRecord.put("key", "value".getBytes(), 1234).encode();
+        encoded[encoded.length - 6] ^= 1;
+
+        assertNull(PersistenceRecord.decode(Arrays.copyOfRange(encoded, Integer.BYTES, encoded.length)));
+        assertNull(PersistenceRecord.decode(new byte[3]));
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.cache.persistence;
+
+import com.example.cache.metrics.CacheMetrics;
+import com.example.cache.util.SystemUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private CacheMetrics cacheMetrics;
+
+    @BeforeEach
+    public void setup() {
+        cacheMetrics = new CacheMetrics();
+    }
+
+    private SnapshotManager open(IRecoverableCache cache, PersistenceLog persistenceLog, int retain) {
+        return new SnapshotManager(directory.resolve("snapshots"), cache, persistenceLog, 0, retain, 2, false,
+                cacheMetrics);
+    }
+
+    private PersistenceLogTest.RecordingCache cacheWith(int entries) {
+        PersistenceLogTest.RecordingCache cache = new PersistenceLogTest.RecordingCache();
+        for (int i = 0; i < entries; i++) {
+            cache.values.put("key-" + i, ("value-" + i).getBytes());
+        }
+        cache.captureExpirationTime = SystemUtil.getCurrentTimeInSec() + 60;
+        return cache;
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    public void testSnapshotAndLoad() throws Exception {
+        PersistenceLogTest.RecordingCache source = cacheWith(10_000);
+        SnapshotInfo info = open(source, null, 2).takeSnapshot();
+        assertEquals(2, info.partitions());
+        assertEquals(10_000, info.entries());
+        assertEquals(1, cacheMetrics.getSnapshotsTaken());
+
+        PersistenceLogTest.RecordingCache target = new PersistenceLogTest.RecordingCache();
+        SnapshotInfo loaded = open(target, null, 2).load(snapshot -> true);
+        assertNotNull(loaded);
+        assertEquals(info.directory(), loaded.directory());
+        assertEquals(10_000, target.values.size());
+        assertArrayEquals("value-42".getBytes(), target.values.get("key-42"));
+        assertEquals(10_000, cacheMetrics.getSnapshotEntriesLoaded());
+    }
+
+    @Test
+    public void testExpiredEntriesAreSkippedOnLoad() throws Exception {
+        PersistenceLogTest.RecordingCache source = cacheWith(10);
+        source.captureExpirationTime = SystemUtil.getCurrentTimeInSec() - 1;
+        open(source, null, 2).takeSnapshot();
+
+        PersistenceLogTest.RecordingCache target = new PersistenceLogTest.RecordingCache();
+        assertNotNull(open(target, null, 2).load(snapshot -> true));
+        assertTrue(target.values.isEmpty());
+    }
+
+    @Test
+    public void testOldSnapshotsAreDeleted() throws Exception {
+        SnapshotManager snapshotManager = open(cacheWith(10), null, 2);
+        for (int i = 0; i < 4; i++) {
+            snapshotManager.takeSnapshot();
+            Thread.sleep(2);    // snapshots are named after their creation time
+        }
+        assertEquals(2, snapshotManager.completeSnapshots().size());
+    }
+
+    @Test
+    public void testCorruptedSnapshotFallsBackToPreviousOne() throws Exception {
+        PersistenceLogTest.RecordingCache source = cacheWith(10);
+        SnapshotManager snapshotManager = open(source, null, 2);
+        snapshotManager.takeSnapshot();
+        Thread.sleep(2);
+        source.values.put("key-new", "value-new".getBytes());
+        SnapshotInfo latest = snapshotManager.takeSnapshot();
+
+        Path partition = latest.partition(0);
+        byte[] bytes = Files.readAllBytes(partition);
+        bytes[bytes.length / 2] ^= 0x7F;
+        Files.write(partition, bytes, StandardOpenOption.TRUNCATE_EXISTING);
+
+        PersistenceLogTest.RecordingCache target = new PersistenceLogTest.RecordingCache();
+        SnapshotInfo loaded = open(target, null, 2).load(snapshot -> true);
+        assertNotNull(loaded);
+        assertNotEquals(latest.directory(), loaded.directory());
+        assertEquals(10, target.values.size());
+        assertFalse(target.values.containsKey("key-new"));
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    public void testRecoveryReplaysLogFromSnapshotSegment() throws Exception {
+        Path logDirectory = directory.resolve("log");
+        long expiration = SystemUtil.getCurrentTimeInSec() + 60;
+        PersistenceLog persistenceLog = new PersistenceLog(logDirectory, FsyncPolicy.ALWAYS, 10, 1 << 20, 1024,
+                cacheMetrics);
+        persistenceLog.append(PersistenceRecord.put("key-1", "value-1".getBytes(), expiration)).join();
+        PersistenceLogTest.RecordingCache source = cacheWith(0);
+        source.values.put("key-1", "value-1".getBytes());
+        SnapshotInfo info = open(source, persistenceLog, 2).takeSnapshot();
+        assertEquals(persistenceLog.getSegmentSequence(), info.logSegment());
+        // after the snapshot, only in the log
+        persistenceLog.append(PersistenceRecord.delete("key-1"));
+        persistenceLog.append(PersistenceRecord.put("key-2", "value-2".getBytes(), expiration)).join();
+        persistenceLog.shutdown();
+
+        PersistenceLog reopened = new PersistenceLog(logDirectory, FsyncPolicy.ALWAYS, 10, 1 << 20, 1024, cacheMetrics);
+        PersistenceLogTest.RecordingCache target = new PersistenceLogTest.RecordingCache();
+        new PersistenceRecovery(reopened, open(target, reopened, 2), target).recover();
+        assertEquals(1, cacheMetrics.getSnapshotEntriesLoaded());
+        // the segment of the snapshot is replayed in full, records already in the snapshot are applied again
+        assertEquals(3, cacheMetrics.getPersistenceReplayedRecords());
+        assertFalse(target.values.containsKey("key-1"));
+        assertArrayEquals("value-2".getBytes(), target.values.get("key-2"));
+        reopened.shutdown();
+    }
+
+    @Test
+    public void testSnapshotIsNotUsedOverCompactedLog() throws Exception {
+        Path logDirectory = directory.resolve("log");
+        PersistenceLog persistenceLog = new PersistenceLog(logDirectory, FsyncPolicy.ALWAYS, 10, 1 << 20, 1024,
+                cacheMetrics);
+        SnapshotInfo info = open(cacheWith(1), persistenceLog, 2).takeSnapshot();
+        Files.createFile(LogFiles.compacted(logDirectory, info.logSegment()));
+
+        assertFalse(persistenceLog.isReplayableFrom(info.logSegment()));
+        assertTrue(persistenceLog.isReplayableFrom(info.logSegment() + 1));
+        PersistenceLogTest.RecordingCache target = new PersistenceLogTest.RecordingCache();
+        new PersistenceRecovery(persistenceLog, open(target, persistenceLog, 2), target).recover();
+        assertEquals(0, cacheMetrics.getSnapshotEntriesLoaded());
+        persistenceLog.shutdown();
+    }
+}
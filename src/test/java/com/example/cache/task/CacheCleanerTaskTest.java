@@ -1,28 +1,29 @@
 package com.example.cache.task;
 
 import com.example.cache.core.IDistributedCache;
-import com.example.cache.core.domain.CacheEntry;
-import com.example.cache.core.domain.CacheOperation;
 import com.example.cache.core.domain.CacheOperationType;
+import com.example.cache.core.ds.CacheEventHandler;
 import com.example.cache.core.ds.CacheQueue;
-import com.example.cache.core.ds.TtlQueue;
+import com.example.cache.core.ds.IExpirationTracker;
 import com.example.cache.eviction.IEvictionStrategy;
 import com.example.cache.metrics.CacheMetrics;
 import com.example.cache.util.SystemUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.MockedStatic;
 
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 public class CacheCleanerTaskTest {
 
     private CacheQueue cacheQueue;
-    private TtlQueue ttlQueue;
+    private IExpirationTracker expirationTracker;
     private IEvictionStrategy<String> evictionStrategy;
     private IDistributedCache cacheCore;
     private CacheMetrics cacheMetrics;
@@ -36,36 +37,47 @@ public class CacheCleanerTaskTest {
     @SuppressWarnings("unchecked")
     public void setup() {
         cacheQueue = mock(CacheQueue.class);
-        ttlQueue = mock(TtlQueue.class);
+        expirationTracker = mock(IExpirationTracker.class);
         evictionStrategy = (IEvictionStrategy<String>) mock(IEvictionStrategy.class);
         cacheMetrics = mock(CacheMetrics.class);
         cacheCore = mock(IDistributedCache.class);
+        when(cacheCore.submitBulkRemove(anyCollection())).thenReturn(CompletableFuture.completedFuture(null));
+        when(cacheCore.submitBulkExpire(anyCollection())).thenReturn(CompletableFuture.completedFuture(null));
 
-        cacheCleanerTask = new CacheCleanerTask(cacheQueue, ttlQueue, evictionStrategy, maxCacheSize, cacheMetrics, cacheCore);
+        cacheCleanerTask = new CacheCleanerTask(cacheQueue, expirationTracker, evictionStrategy, maxCacheSize, cacheMetrics, cacheCore);
     }
 
-    private void runTaskCycle(Optional<CacheOperation> operation) {
-        when(cacheQueue.poll(anyLong(), any(TimeUnit.class)))
-                .thenReturn(operation)
+    /**
+     * Runs two cycles of the cleaner, the event (if any) is handed over by the first drain of the CacheQueue.
+     */
+    private void runTaskCycle(CacheOperationType type, String key, long expirationTimeMillis) {
+        when(cacheQueue.drain(anyLong(), any(TimeUnit.class), any()))
+                .thenAnswer(invocation -> {
+                    if (type != null) {
+                        CacheEventHandler handler = invocation.getArgument(2);
+                        handler.onEvent(type, key, expirationTimeMillis);
+                        return 1;
+                    }
+                    return 0;
+                })
                 .thenAnswer(invocation -> {
                     cacheCleanerTask.stop();
-                    return Optional.empty();
+                    return 0;
                 });
         cacheCleanerTask.run();
     }
 
+    private void runTaskCycle() {
+        runTaskCycle(null, null, 0);
+    }
+
     @Test
     public void testDispatchOperationForPut() {
         long expirationTime = SystemUtil.getCurrentTimeInSec() + 60;
-        CacheEntry entry = CacheEntry.builder()
-                .expirationTime(expirationTime)
-                .build();
-        CacheOperation putOperation = CacheOperation.of(CacheOperationType.PUT, testKey, entry);
-
-        runTaskCycle(Optional.of(putOperation));
+        runTaskCycle(CacheOperationType.PUT, testKey, expirationTime * 1000);
 
         verify(evictionStrategy, times(1)).onPut(testKey);
-        verify(ttlQueue, times(1)).add(expirationTime, testKey);
+        verify(expirationTracker, times(1)).schedule(testKey, expirationTime * 1000);
 
         verify(evictionStrategy, never()).onGet(anyString());
         verify(evictionStrategy, never()).onDelete(anyString());
@@ -73,9 +85,7 @@ public class CacheCleanerTaskTest {
 
     @Test
     public void testDispatchOperationForAccess() {
-        CacheOperation accessOperation = CacheOperation.of(CacheOperationType.GET, testKey);
-
-        runTaskCycle(Optional.of(accessOperation));
+        runTaskCycle(CacheOperationType.GET, testKey, 0);
 
         verify(evictionStrategy, times(1)).onGet(testKey);
 
@@ -85,9 +95,7 @@ public class CacheCleanerTaskTest {
 
     @Test
     public void testDispatchOperationForRemove() {
-        CacheOperation removeOperation = CacheOperation.of(CacheOperationType.DELETE, testKey);
-
-        runTaskCycle(Optional.of(removeOperation));
+        runTaskCycle(CacheOperationType.DELETE, testKey, 0);
 
         verify(evictionStrategy, times(1)).onDelete(testKey);
 
@@ -96,54 +104,45 @@ public class CacheCleanerTaskTest {
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     public void testCleanUpExpiredKeys() {
-        long currentTimeInSec = SystemUtil.getCurrentTimeInSec();
-        long expiredTimeInSec = currentTimeInSec - 10;
-        long nonExpiredTimeInSec = currentTimeInSec + 10;
         String expiredKey1 = "expiredKey1";
         String expiredKey2 = "expiredKey2";
-        String nonExpiredKey1 = "nonExpiredKey1";
-        Set<String> expiredKeySet = Set.of(expiredKey1, expiredKey2);
-
-        try (MockedStatic<SystemUtil> mockedSystemUtils = mockStatic(SystemUtil.class)) {
-            mockedSystemUtils.when(SystemUtil::getCurrentTimeInSec).thenReturn(currentTimeInSec);
-            when(ttlQueue.isEmpty()).thenReturn(false, false, true);
-            when(ttlQueue.peek()).thenReturn(Optional.of(expiredTimeInSec))
-                    .thenReturn(Optional.of(nonExpiredTimeInSec));
-            when(ttlQueue.poll()).thenReturn(Optional.of(expiredKeySet));
-
-
-            runTaskCycle(Optional.empty());
-
-            verify(evictionStrategy, times(1)).onDelete(expiredKey1);
-            verify(evictionStrategy, times(1)).onDelete(expiredKey2);
-            verify(cacheCore, times(1)).submitDelete(expiredKey1);
-            verify(cacheCore, times(1)).submitDelete(expiredKey2);
-            verify(evictionStrategy, never()).onDelete(nonExpiredKey1);
-            verify(cacheMetrics, times(2)).incrementTtlExpirations();
-        }
+        when(expirationTracker.expire(anyLong(), any())).thenAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(1);
+            consumer.accept(expiredKey1);
+            consumer.accept(expiredKey2);
+            return 2;
+        }).thenReturn(0);
+
+        runTaskCycle();
+
+        verify(evictionStrategy, times(1)).onDelete(expiredKey1);
+        verify(evictionStrategy, times(1)).onDelete(expiredKey2);
+        verify(cacheCore, times(1)).submitBulkExpire(List.of(expiredKey1, expiredKey2));
+        verify(cacheCore, never()).submitBulkRemove(anyCollection());
+        verify(cacheCore, never()).submitDelete(anyString(), any());
+        verify(cacheMetrics, times(2)).incrementTtlExpirations();
     }
 
     @Test
     public void testCleanupExpiredKeysWithNoExpiringKeys() {
-        long currentTimeInSec = SystemUtil.getCurrentTimeInSec();
-        long nonExpiredTimeInSec = currentTimeInSec + 10;
-        String nonExpiredKey1 = "nonExpiredKey1";
-        Set<String> nonExpiredKeySet = Set.of(nonExpiredKey1);
+        long currentTimeInMillis = SystemUtil.getCurrentTimeInMillis();
+        when(expirationTracker.expire(anyLong(), any())).thenReturn(0);
 
-        try (MockedStatic<SystemUtil> mockedSystemUtils = mockStatic(SystemUtil.class)) {
-            mockedSystemUtils.when(SystemUtil::getCurrentTimeInSec).thenReturn(currentTimeInSec);
-            when(ttlQueue.isEmpty()).thenReturn(false);
-            when(ttlQueue.peek()).thenReturn(Optional.of(nonExpiredTimeInSec));
-            when(ttlQueue.poll()).thenReturn(Optional.of(nonExpiredKeySet));
+        runTaskCycle();
+
+        verify(expirationTracker, atLeastOnce()).expire(longThat(now -> now >= currentTimeInMillis), any());
+        verify(cacheCore, never()).submitBulkRemove(anyCollection());
+        verify(cacheCore, never()).submitBulkExpire(anyCollection());
+        verify(cacheMetrics, never()).incrementTtlExpirations();
+    }
 
-            runTaskCycle(Optional.empty());
+    @Test
+    public void testDispatchOperationForRemoveCancelsExpiration() {
+        runTaskCycle(CacheOperationType.DELETE, testKey, 0);
 
-            verify(ttlQueue, never()).poll();
-            verify(evictionStrategy, never()).onDelete(nonExpiredKey1);
-            verify(cacheCore, never()).submitDelete(nonExpiredKey1);
-            verify(cacheMetrics, never()).incrementTtlExpirations();
-        }
+        verify(expirationTracker, times(1)).cancel(testKey);
     }
 
     @Test
@@ -151,24 +150,36 @@ public class CacheCleanerTaskTest {
         when(cacheCore.size()).thenReturn(maxCacheSize + 1).thenReturn(maxCacheSize);
         when(evictionStrategy.evict()).thenReturn(Optional.of(testKey));
 
-        runTaskCycle(Optional.empty());
+        runTaskCycle();
 
         verify(evictionStrategy, times(1)).evict();
-        verify(cacheCore, times(1)).submitDelete(testKey);
+        verify(cacheCore, times(1)).submitBulkRemove(List.of(testKey));
         verify(evictionStrategy, times(1)).onDelete(testKey);
         verify(cacheMetrics, times(1)).incrementEvictions();
     }
 
+    @Test
+    public void testEnforceCapacityLimitRemovesExcessInOneBatch() {
+        when(cacheCore.size()).thenReturn(maxCacheSize + 3).thenReturn(maxCacheSize);
+        when(evictionStrategy.evict()).thenReturn(Optional.of("key1"), Optional.of("key2"), Optional.of("key3"));
+
+        runTaskCycle();
+
+        verify(evictionStrategy, times(3)).evict();
+        verify(cacheCore, times(1)).submitBulkRemove(List.of("key1", "key2", "key3"));
+        verify(cacheMetrics, times(3)).incrementEvictions();
+    }
+
     @Test
     public void testEnforceCapacityLimitWhenSizeLessThanLimit() {
         when(cacheCore.size()).thenReturn(maxCacheSize - 1);
         when(evictionStrategy.evict()).thenReturn(Optional.of(testKey));
 
-        runTaskCycle(Optional.empty());
+        runTaskCycle();
 
         verify(evictionStrategy, never()).evict();
         verify(evictionStrategy, never()).onDelete(testKey);
-        verify(cacheCore, never()).submitDelete(testKey);
+        verify(cacheCore, never()).submitBulkRemove(anyCollection());
         verify(cacheMetrics, never()).incrementEvictions();
     }
 
@@ -178,13 +189,47 @@ public class CacheCleanerTaskTest {
         when(cacheCore.size()).thenReturn(maxCacheSize + 1);
         when(evictionStrategy.evict()).thenReturn(Optional.empty());
 
-        runTaskCycle(Optional.empty());
+        runTaskCycle();
 
         // here times have value 2 coz runTaskCycle runs it 2 times
         verify(evictionStrategy, times(2)).evict();
         verify(evictionStrategy, never()).onDelete(anyString());
-        verify(cacheCore, never()).submitDelete(anyString());
+        verify(cacheCore, never()).submitBulkRemove(anyCollection());
         verify(cacheMetrics, never()).incrementEvictions();
     }
 
+    @Test
+    public void testEnforceMemoryLimitEvictsUntilLowWaterMark() {
+        cacheCleanerTask = new CacheCleanerTask(cacheQueue, expirationTracker, evictionStrategy, Integer.MAX_VALUE, 1000, 800,
+                cacheMetrics, cacheCore);
+        // 12 entries of 100 bytes: 4 of them have to go to get under the low-water mark
+        when(cacheCore.size()).thenReturn(12);
+        when(cacheCore.usedBytes()).thenReturn(1200L, 1200L, 800L);
+        when(evictionStrategy.evict()).thenReturn(Optional.of(testKey));
+
+        runTaskCycle();
+
+        verify(evictionStrategy, times(4)).evict();
+        verify(cacheCore, times(1)).submitBulkRemove(anyCollection());
+        verify(cacheMetrics, times(4)).incrementEvictions();
+    }
+
+    @Test
+    public void testEnforceMemoryLimitWhenUnderLimit() {
+        cacheCleanerTask = new CacheCleanerTask(cacheQueue, expirationTracker, evictionStrategy, maxCacheSize, 1000, 800,
+                cacheMetrics, cacheCore);
+        // between the low-water mark and the limit, nothing to do
+        when(cacheCore.usedBytes()).thenReturn(900L);
+
+        runTaskCycle();
+
+        verify(evictionStrategy, never()).evict();
+        verify(cacheCore, never()).submitBulkRemove(anyCollection());
+    }
+
+    @Test
+    public void testInvalidLowWaterMark() {
+        assertThrows(IllegalArgumentException.class, () -> new CacheCleanerTask(cacheQueue, expirationTracker,
+                evictionStrategy, maxCacheSize, 1000, 2000, cacheMetrics, cacheCore));
+    }
 }